@@ -0,0 +1,106 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.array.ArrayOperations;
+import hr.fer.zemris.java.gui.calc.engine.BinaryOperation;
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import hr.fer.zemris.java.gui.calc.engine.UnaryOperation;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scaling of {@link ArrayOperations} with the number of worker threads. Default size needs about
+ * 2.4 GB of heap, use <code>-p size=...</code> for smaller machines.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ArrayBenchmark {
+
+    /** Number of elements. */
+    @Param({"100000000"})
+    public int size;
+
+    /** Number of worker threads. */
+    @Param({"1", "2", "4", "8", "16", "32", "64"})
+    public int threads;
+
+    /** Label of the operator. */
+    @Param({"sin", "x^n", "*"})
+    public String label;
+
+    /** Pool with {@link #threads} workers. */
+    private ForkJoinPool pool;
+    /** Array operations which use the pool. */
+    private ArrayOperations operations;
+    /** Unary operator, <code>null</code> if the operator is binary. */
+    private UnaryOperation unary;
+    /** Binary operator, <code>null</code> if the operator is unary. */
+    private BinaryOperation binary;
+    /** Left operands. */
+    private double[] left;
+    /** Right operands. */
+    private double[] right;
+    /** Results. */
+    private double[] out;
+
+    /**
+     * Creates the pool and the arrays.
+     */
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(threads);
+        operations = new ArrayOperations(pool);
+        unary = OperatorRegistry.DEFAULT.unary(label);
+        binary = OperatorRegistry.DEFAULT.binary(label);
+
+        left = new double[size];
+        right = new double[size];
+        out = new double[size];
+        for (int i = 0; i < size; i++) {
+            left[i] = (i % 1000) * 0.001 + 0.5;
+        }
+        Arrays.fill(right, 1.5);
+    }
+
+    /**
+     * Shuts the pool down.
+     */
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Applies the operator to all elements.
+     *
+     * @return the results
+     */
+    @Benchmark
+    public double[] apply() {
+        if (unary != null) {
+            operations.apply(unary, left, out);
+        } else {
+            operations.apply(binary, left, right, out);
+        }
+        return out;
+    }
+}
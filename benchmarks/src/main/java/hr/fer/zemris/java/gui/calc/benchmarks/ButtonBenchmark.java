@@ -0,0 +1,145 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.CalculatorBackend;
+import hr.fer.zemris.java.gui.calc.CalculatorDisplay;
+import hr.fer.zemris.java.gui.calc.buttons.AbstractButton;
+import hr.fer.zemris.java.gui.calc.buttons.BinaryOperationButton;
+import hr.fer.zemris.java.gui.calc.buttons.DigitButton;
+import hr.fer.zemris.java.gui.calc.buttons.InstantButton;
+import hr.fer.zemris.java.gui.calc.buttons.ModeOperationButton;
+import hr.fer.zemris.java.gui.calc.engine.OperatorBank;
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of button presses (operation followed by the display update), of the same keys typed
+ * in one batch (one display update at the end), of the display update alone and of switching Inv
+ * for all mode dependent buttons.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class ButtonBenchmark {
+
+    /** Backend with a display. */
+    private CalculatorBackend backend;
+    /** Digit button. */
+    private AbstractButton digitButton;
+    /** The '*' button. */
+    private AbstractButton multiplyButton;
+    /** The '=' button. */
+    private AbstractButton equalsButton;
+    /** Listener of the digit button. */
+    private ActionListener digit;
+    /** Listener of the '*' button. */
+    private ActionListener multiply;
+    /** Listener of the '=' button. */
+    private ActionListener equals;
+    /** Event given to the listeners. */
+    private ActionEvent event;
+    /** Buttons whose operators depend on the mode. */
+    private ModeOperationButton[] modeButtons;
+
+    /**
+     * Creates the buttons.
+     */
+    @Setup
+    public void setup() {
+        backend = new CalculatorBackend(null, new CalculatorDisplay(), null);
+        digitButton = new DigitButton("7", "7", backend);
+        multiplyButton = new BinaryOperationButton("*", OperatorRegistry.DEFAULT.binary("*"),
+            backend);
+        equalsButton = new InstantButton("=", t -> t.equalsPressed(), backend);
+        digit = listener(digitButton);
+        multiply = listener(multiplyButton);
+        equals = listener(equalsButton);
+        event = new ActionEvent(this, ActionEvent.ACTION_PERFORMED, "");
+        OperatorBank.Slot[] slots = OperatorBank.Slot.values();
+        modeButtons = new ModeOperationButton[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            modeButtons[i] = new ModeOperationButton(slots[i], backend);
+        }
+    }
+
+    /**
+     * Returns the listener which the button registered on itself.
+     *
+     * @param button the button
+     * @return its listener
+     */
+    private static ActionListener listener(AbstractButton button) {
+        return button.getActionListeners()[0];
+    }
+
+    /**
+     * Presses "7 * 7 =".
+     *
+     * @return value of the calculator
+     */
+    @Benchmark
+    public double pressSequence() {
+        digit.actionPerformed(event);
+        multiply.actionPerformed(event);
+        digit.actionPerformed(event);
+        equals.actionPerformed(event);
+        return backend.getCurrentValue();
+    }
+
+    /**
+     * Types "7 * 7 =" as one batch of keys.
+     *
+     * @return value of the calculator
+     */
+    @Benchmark
+    public double typedSequence() {
+        digitButton.press();
+        multiplyButton.press();
+        digitButton.press();
+        equalsButton.press();
+        backend.updateLabel(null);
+        return backend.getCurrentValue();
+    }
+
+    /**
+     * Toggles Inv: swaps the operator bank and relabels the mode dependent buttons.
+     *
+     * @return the backend
+     */
+    @Benchmark
+    public CalculatorBackend switchMode() {
+        backend.setInverted(!backend.getBank().isInverse());
+        for (ModeOperationButton button : modeButtons) {
+            button.updateText();
+        }
+        return backend;
+    }
+
+    /**
+     * Updates the display.
+     *
+     * @return the backend
+     */
+    @Benchmark
+    public CalculatorBackend updateLabel() {
+        backend.updateLabel(null);
+        return backend;
+    }
+}
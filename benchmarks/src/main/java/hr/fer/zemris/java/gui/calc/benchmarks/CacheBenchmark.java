@@ -0,0 +1,97 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.engine.BinaryOperation;
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares cached and uncached <code>x^n</code> on inputs which repeat. The number of distinct
+ * inputs is {@link #distinct}, the cache holds 4096 results.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+
+    /** Number of operand pairs per invocation. */
+    private static final int SIZE = 1 << 14;
+
+    /** Number of distinct operand pairs. */
+    @Param({"256", "65536"})
+    public int distinct;
+
+    /** Uncached operator. */
+    private BinaryOperation plain;
+    /** Cached operator. */
+    private BinaryOperation cached;
+    /** Left operands. */
+    private double[] xs;
+    /** Right operands. */
+    private double[] ns;
+
+    /**
+     * Prepares the operators and operands.
+     */
+    @Setup
+    public void setup() {
+        plain = OperatorRegistry.DEFAULT.binary("x^n");
+        cached = OperatorRegistry.DEFAULT.cached(4096).binary("x^n");
+        Random random = new Random(42);
+        xs = new double[SIZE];
+        ns = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            int k = random.nextInt(distinct);
+            xs[i] = 1 + k * 0.001;
+            ns[i] = 0.5 + (k % 7);
+        }
+    }
+
+    /**
+     * Applies the uncached operator.
+     *
+     * @return sum of the results
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double plain() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += plain.applyAsDouble(xs[i], ns[i]);
+        }
+        return sum;
+    }
+
+    /**
+     * Applies the cached operator.
+     *
+     * @return sum of the results
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double cached() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += cached.applyAsDouble(xs[i], ns[i]);
+        }
+        return sum;
+    }
+}
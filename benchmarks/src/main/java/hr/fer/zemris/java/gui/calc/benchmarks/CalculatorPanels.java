@@ -0,0 +1,73 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.CalculatorBackend;
+import hr.fer.zemris.java.gui.calc.CalculatorDisplay;
+import hr.fer.zemris.java.gui.calc.buttons.BinaryOperationButton;
+import hr.fer.zemris.java.gui.calc.buttons.DigitButton;
+import hr.fer.zemris.java.gui.calc.buttons.InstantButton;
+import hr.fer.zemris.java.gui.calc.buttons.ModeOperationButton;
+import hr.fer.zemris.java.gui.calc.buttons.UnaryOperationButton;
+import hr.fer.zemris.java.gui.calc.engine.OperatorBank;
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import hr.fer.zemris.java.gui.layouts.CalculatorLayout;
+import javax.swing.JCheckBox;
+import javax.swing.JPanel;
+
+/**
+ * Builds the same component tree as the calculator window, but inside a {@link JPanel}, so it can
+ * be used without a display.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+final class CalculatorPanels {
+
+    /**
+     * Utility class.
+     */
+    private CalculatorPanels() {
+    }
+
+    /**
+     * Creates a panel with the calculator's display, checkbox and all buttons.
+     *
+     * @param display display of the calculator
+     * @param box Inv checkbox
+     * @param backend backend used by the buttons
+     * @return the panel
+     */
+    static JPanel create(CalculatorDisplay display, JCheckBox box, CalculatorBackend backend) {
+        JPanel p = new JPanel(new CalculatorLayout(4));
+        OperatorRegistry r = OperatorRegistry.DEFAULT;
+
+        p.add(display, "1,1");
+        p.add(box, "5,7");
+
+        String[] digitPositions = {"5,3", "4,3", "4,4", "4,5", "3,3", "3,4", "3,5", "2,3", "2,4",
+            "2,5"};
+        for (int i = 0; i < digitPositions.length; i++) {
+            String digit = Integer.toString(i);
+            p.add(new DigitButton(digit, digit, backend), digitPositions[i]);
+        }
+        p.add(new DigitButton(".", ".", backend), "5,5");
+
+        String[] slotPositions = {"2,2", "3,2", "4,2", "5,2", "3,1", "4,1", "5,1"};
+        for (OperatorBank.Slot slot : OperatorBank.Slot.values()) {
+            p.add(new ModeOperationButton(slot, backend), slotPositions[slot.ordinal()]);
+        }
+
+        p.add(new UnaryOperationButton("1/x", r.unary("1/x"), backend), "2,1");
+        p.add(new BinaryOperationButton("/", r.binary("/"), backend), "2,6");
+        p.add(new BinaryOperationButton("*", r.binary("*"), backend), "3,6");
+        p.add(new BinaryOperationButton("-", r.binary("-"), backend), "4,6");
+        p.add(new BinaryOperationButton("+", r.binary("+"), backend), "5,6");
+
+        p.add(new InstantButton("=", t -> t.equalsPressed(), backend), "1,6");
+        p.add(new InstantButton("clr", t -> t.clear(), backend), "1,7");
+        p.add(new InstantButton("res", t -> t.restart(), backend), "2,7");
+        p.add(new InstantButton("push", t -> t.push(), backend), "3,7");
+        p.add(new InstantButton("pop", t -> t.pop(), backend), "4,7");
+        p.add(new InstantButton("+/-", t -> t.changeSign(), backend), "5,4");
+        return p;
+    }
+}
@@ -0,0 +1,81 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.expression.ExpressionCompiler;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleUnaryOperator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares evaluation of a compiled expression with the same expression written in Java.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExpressionBenchmark {
+
+    /** Number of evaluations per invocation. */
+    private static final int SIZE = 1024;
+
+    /** Compiled expression. */
+    private DoubleUnaryOperator compiled;
+    /** Values of x. */
+    private double[] xs;
+
+    /**
+     * Compiles the expression and prepares the values of x.
+     */
+    @Setup
+    public void setup() {
+        compiled = ExpressionCompiler.DEFAULT.compile("2*x + 3*x*x - sin(x)/x + 2√(x+1)");
+        xs = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            xs[i] = 1 + i * 0.001;
+        }
+    }
+
+    /**
+     * Evaluates the compiled expression.
+     *
+     * @return sum of the results
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double compiled() {
+        double sum = 0;
+        for (double x : xs) {
+            sum += compiled.applyAsDouble(x);
+        }
+        return sum;
+    }
+
+    /**
+     * Evaluates the expression written in Java.
+     *
+     * @return sum of the results
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double handWritten() {
+        double sum = 0;
+        for (double x : xs) {
+            sum += 2 * x + 3 * x * x - Math.sin(x) / x + Math.pow(x + 1, 1 / 2.0);
+        }
+        return sum;
+    }
+}
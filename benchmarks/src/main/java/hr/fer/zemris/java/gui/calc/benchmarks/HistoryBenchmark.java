@@ -0,0 +1,96 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.EngineHistory;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the undo history at different stack depths: push and pop without history, the
+ * same with a snapshot after each of them, and an undo followed by a redo. With the stack shared
+ * between snapshots, the cost should not depend on the depth.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HistoryBenchmark {
+
+    /** Number of values on the stack. */
+    @Param({"10", "100000"})
+    private int depth;
+
+    /** Engine with a deep stack. */
+    private CalculatorEngine engine;
+    /** History of the engine. */
+    private EngineHistory history;
+
+    /**
+     * Fills the stack and records one push, so there is something to undo.
+     */
+    @Setup
+    public void setup() {
+        engine = new CalculatorEngine();
+        for (int i = 0; i < depth; i++) {
+            engine.setNewValue(i);
+            engine.push();
+        }
+        history = new EngineHistory(engine);
+        engine.setNewValue(-1);
+        engine.push();
+        history.record();
+    }
+
+    /**
+     * Pushes and pops a value.
+     *
+     * @return the engine
+     */
+    @Benchmark
+    public CalculatorEngine pushPop() {
+        engine.push();
+        engine.pop();
+        return engine;
+    }
+
+    /**
+     * Pushes and pops a value, recording both.
+     *
+     * @return the history
+     */
+    @Benchmark
+    public EngineHistory pushPopRecorded() {
+        engine.push();
+        history.record();
+        engine.pop();
+        history.record();
+        return history;
+    }
+
+    /**
+     * Undoes the last operation and redoes it.
+     *
+     * @return the history
+     */
+    @Benchmark
+    public EngineHistory undoRedo() {
+        history.undo();
+        history.redo();
+        return history;
+    }
+}
@@ -0,0 +1,59 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.CalculatorBackend;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of number input of the calculator.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InputBenchmark {
+
+    /** Keys pressed when entering a number. */
+    private static final String[] KEYS = {"3", ".", "1", "4", "1", "5", "9", "2", "6", "5"};
+
+    /** Backend without a window. */
+    private CalculatorBackend backend;
+
+    /**
+     * Creates a backend without a window.
+     */
+    @Setup
+    public void setup() {
+        backend = new CalculatorBackend(null, null, null);
+    }
+
+    /**
+     * Types a number in, reading the value after every key (as the display does).
+     *
+     * @return sum of all values read
+     */
+    @Benchmark
+    public double digitEntry() {
+        backend.clear();
+        double sum = 0;
+        for (String key : KEYS) {
+            backend.addToBuffer(key);
+            sum += backend.getCurrentValue();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,112 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import hr.fer.zemris.java.gui.calc.journal.EventJournal;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of journaling the keys of a calculator session with {@link EventJournal}. Recovery is
+ * measured by {@link JournalRecoveryBenchmark}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JournalBenchmark {
+
+    /** Keys pressed by the session. */
+    static final int[] SCRIPT = Keypad.DEFAULT.compile("1 2 + 3 4 = push * 5 = pop");
+
+    /** It is true if the keys are journaled. */
+    @Param({"false", "true"})
+    public boolean journaled;
+
+    /** Engine of the session. */
+    private CalculatorEngine engine;
+    /** Journal of the session. */
+    private EventJournal journal;
+    /** Directory of the journal. */
+    private Path directory;
+
+    /**
+     * Opens the journal.
+     *
+     * @throws IOException if the journal cannot be opened
+     */
+    @Setup
+    public void setup() throws IOException {
+        engine = new CalculatorEngine();
+        if (journaled) {
+            directory = Files.createTempDirectory("journal");
+            journal = new EventJournal(directory, engine);
+        }
+    }
+
+    /**
+     * Closes the journal and deletes its files.
+     *
+     * @throws IOException if the files cannot be deleted
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        if (journal != null) {
+            journal.close();
+            delete(directory);
+        }
+    }
+
+    /**
+     * Presses all keys of the script, journaling each before it is applied.
+     *
+     * @return current value
+     */
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public double press() {
+        for (int code : SCRIPT) {
+            if (journal != null) {
+                journal.key(code);
+            }
+            Keypad.DEFAULT.press(engine, code);
+        }
+        return engine.getCurrentValue();
+    }
+
+    /**
+     * Deletes the directory with its files.
+     *
+     * @param directory directory to delete
+     * @throws IOException if a file cannot be deleted
+     */
+    static void delete(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
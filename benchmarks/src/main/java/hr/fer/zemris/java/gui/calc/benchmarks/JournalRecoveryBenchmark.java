@@ -0,0 +1,115 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import hr.fer.zemris.java.gui.calc.journal.EventJournal;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time of recovering a calculator session from an {@link EventJournal} with {@value #EVENTS}
+ * events after the snapshot. Every invocation recovers from a fresh copy of the journal, because
+ * recovery starts a new segment.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class JournalRecoveryBenchmark {
+
+    /** Number of events in the journal. */
+    private static final int EVENTS = 1_000_000;
+
+    /** Directory of the written journal. */
+    private Path written;
+    /** Directory of the copy which is recovered. */
+    private Path directory;
+
+    /**
+     * Writes the journal once.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+        written = Files.createTempDirectory("journal");
+        CalculatorEngine engine = new CalculatorEngine();
+        try (EventJournal journal =
+                 new EventJournal(written, engine, Keypad.DEFAULT, 2 * EVENTS)) {
+            for (int i = 0; i < EVENTS; i++) {
+                int code = JournalBenchmark.SCRIPT[i % JournalBenchmark.SCRIPT.length];
+                journal.key(code);
+                Keypad.DEFAULT.press(engine, code);
+            }
+        }
+    }
+
+    /**
+     * Copies the written journal.
+     *
+     * @throws IOException if the journal cannot be copied
+     */
+    @Setup(Level.Invocation)
+    public void copy() throws IOException {
+        directory = Files.createTempDirectory("journal");
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(written)) {
+            for (Path file : files) {
+                Files.copy(file, directory.resolve(file.getFileName()));
+            }
+        }
+    }
+
+    /**
+     * Deletes the copy.
+     *
+     * @throws IOException if the copy cannot be deleted
+     */
+    @TearDown(Level.Invocation)
+    public void deleteCopy() throws IOException {
+        JournalBenchmark.delete(directory);
+    }
+
+    /**
+     * Deletes the written journal.
+     *
+     * @throws IOException if the journal cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void deleteWritten() throws IOException {
+        JournalBenchmark.delete(written);
+    }
+
+    /**
+     * Recovers the session.
+     *
+     * @return number of replayed events
+     * @throws IOException if the journal cannot be opened
+     */
+    @Benchmark
+    public long recover() throws IOException {
+        try (EventJournal recovered =
+                 new EventJournal(directory, new CalculatorEngine(), Keypad.DEFAULT, 2 * EVENTS)) {
+            return recovered.getRecovered();
+        }
+    }
+}
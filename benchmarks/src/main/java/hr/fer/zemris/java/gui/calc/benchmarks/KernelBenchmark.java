@@ -0,0 +1,95 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.engine.BinaryOperation;
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import hr.fer.zemris.java.gui.calc.engine.UnaryOperation;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares operators computed by {@link Math} with operators computed by approximate kernels.
+ * Operands are in <code>(0, 1)</code>, which is in the domain of every function.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KernelBenchmark {
+
+    /** Number of operands per invocation. */
+    private static final int SIZE = 1024;
+
+    /** Label of the operator. */
+    @Param({"sin", "cos", "tan", "asin", "atan", "ln", "log", "e^x", "x^n"})
+    public String label;
+
+    /** Precision: <code>Math</code> or the number of significant digits. */
+    @Param({"Math", "6", "15"})
+    public String precision;
+
+    /** Unary operator, <code>null</code> if the operator is binary. */
+    private UnaryOperation unary;
+    /** Binary operator, <code>null</code> if the operator is unary. */
+    private BinaryOperation binary;
+    /** Left operands. */
+    private double[] xs;
+    /** Right operands. */
+    private double[] ys;
+
+    /**
+     * Prepares the operator and operands.
+     */
+    @Setup
+    public void setup() {
+        OperatorRegistry registry = precision.equals("Math")
+            ? OperatorRegistry.DEFAULT
+            : OperatorRegistry.approximate(Integer.parseInt(precision));
+        unary = registry.unary(label);
+        binary = registry.binary(label);
+        Random random = new Random(42);
+        xs = new double[SIZE];
+        ys = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            xs[i] = random.nextDouble();
+            ys[i] = 10 * random.nextDouble();
+        }
+    }
+
+    /**
+     * Applies the operator to all operands.
+     *
+     * @return sum of the results
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double apply() {
+        double sum = 0;
+        if (unary != null) {
+            for (int i = 0; i < SIZE; i++) {
+                sum += unary.applyAsDouble(xs[i]);
+            }
+        } else {
+            for (int i = 0; i < SIZE; i++) {
+                sum += binary.applyAsDouble(xs[i], ys[i]);
+            }
+        }
+        return sum;
+    }
+}
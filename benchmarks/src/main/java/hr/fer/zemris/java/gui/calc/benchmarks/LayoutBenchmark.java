@@ -0,0 +1,73 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.CalculatorBackend;
+import hr.fer.zemris.java.gui.calc.CalculatorDisplay;
+import java.awt.Dimension;
+import java.awt.LayoutManager;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JCheckBox;
+import javax.swing.JPanel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of {@link hr.fer.zemris.java.gui.layouts.CalculatorLayout} on the calculator's
+ * component tree.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class LayoutBenchmark {
+
+    /** Panel with all calculator components. */
+    private JPanel panel;
+    /** Layout of the panel. */
+    private LayoutManager layout;
+
+    /**
+     * Builds the component tree and gives it its preferred size.
+     */
+    @Setup
+    public void setup() {
+        CalculatorBackend backend = new CalculatorBackend(null, null, null);
+        panel = CalculatorPanels.create(new CalculatorDisplay(),
+            new JCheckBox("Inv"), backend);
+        layout = panel.getLayout();
+        panel.setSize(layout.preferredLayoutSize(panel));
+    }
+
+    /**
+     * Lays out the panel.
+     *
+     * @return the panel
+     */
+    @Benchmark
+    public JPanel layoutContainer() {
+        layout.layoutContainer(panel);
+        return panel;
+    }
+
+    /**
+     * Calculates preferred size of the panel.
+     *
+     * @return preferred size
+     */
+    @Benchmark
+    public Dimension preferredLayoutSize() {
+        return layout.preferredLayoutSize(panel);
+    }
+}
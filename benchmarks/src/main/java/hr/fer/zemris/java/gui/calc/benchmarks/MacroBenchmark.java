@@ -0,0 +1,125 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.array.ArrayOperations;
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import hr.fer.zemris.java.gui.calc.macro.Macro;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a compiled {@link Macro} with pressing its keys on a {@link CalculatorEngine}, one
+ * value at a time and for an array of values.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MacroBenchmark {
+
+    /** Number of values per invocation. */
+    private static final int SIZE = 1024;
+    /** Keys of the macro: a polynomial with typed constants. */
+    private static final String SCRIPT = "* 1 . 5 = + 2 . 2 5 = * 3 = x^n 2 = - 4 . 7 5 = 1/x";
+
+    /** Keys of the macro. */
+    private int[] codes;
+    /** Compiled macro. */
+    private Macro macro;
+    /** Engine on which the keys are pressed. */
+    private CalculatorEngine engine;
+    /** Array operations on the calling thread. */
+    private ArrayOperations operations;
+    /** Values to which the macro is applied. */
+    private double[] xs;
+    /** Results. */
+    private double[] out;
+
+    /**
+     * Compiles the macro and prepares the values.
+     */
+    @Setup
+    public void setup() {
+        codes = Keypad.DEFAULT.compile(SCRIPT);
+        macro = Macro.compile(codes, Keypad.DEFAULT);
+        engine = new CalculatorEngine();
+        operations = new ArrayOperations();
+        xs = new double[SIZE];
+        out = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            xs[i] = 1 + i * 0.001;
+        }
+    }
+
+    /**
+     * Presses the keys for every value.
+     *
+     * @return sum of the results
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double replayed() {
+        double sum = 0;
+        for (double x : xs) {
+            engine.equalsPressed();
+            engine.setNewValue(x);
+            for (int code : codes) {
+                Keypad.DEFAULT.press(engine, code);
+            }
+            sum += engine.getCurrentValue();
+        }
+        return sum;
+    }
+
+    /**
+     * Applies the macro to every value.
+     *
+     * @return sum of the results
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double compiled() {
+        double sum = 0;
+        for (double x : xs) {
+            sum += macro.applyAsDouble(x);
+        }
+        return sum;
+    }
+
+    /**
+     * Applies the macro to the array.
+     *
+     * @return the results
+     */
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double[] batch() {
+        operations.apply(macro, xs, out);
+        return out;
+    }
+
+    /**
+     * Compiles the macro.
+     *
+     * @return the macro
+     */
+    @Benchmark
+    public Macro compile() {
+        return Macro.compile(codes, Keypad.DEFAULT);
+    }
+}
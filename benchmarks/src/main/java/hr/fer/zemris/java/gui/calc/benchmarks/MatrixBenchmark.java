@@ -0,0 +1,142 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.matrix.Matrix;
+import hr.fer.zemris.java.gui.calc.matrix.MatrixOperations;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Kernels of {@link MatrixOperations} from 4x4 to 2048x2048 matrices, with the textbook
+ * <code>i-j-k</code> product as the baseline of the blocked one. The largest sizes take minutes
+ * per iteration on one core, use <code>-p size=...</code> for a quick run.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class MatrixBenchmark {
+
+    /** Exponent of {@link #power()}. */
+    private static final long EXPONENT = 8;
+
+    /** Number of rows and columns. */
+    @Param({"4", "16", "64", "256", "1024", "2048"})
+    public int size;
+
+    /** Number of worker threads. */
+    @Param({"1", "4"})
+    public int threads;
+
+    /** Pool with {@link #threads} workers. */
+    private ForkJoinPool pool;
+    /** Matrix operations which use the pool. */
+    private MatrixOperations operations;
+    /** Left operand, well conditioned. */
+    private Matrix a;
+    /** Right operand. */
+    private Matrix b;
+    /** Elements of the left operand. */
+    private double[] left;
+    /** Elements of the right operand. */
+    private double[] right;
+
+    /**
+     * Creates the pool and the matrices. The left operand is diagonally dominant, so it has an
+     * inverse and its powers do not overflow.
+     */
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(threads);
+        operations = new MatrixOperations(pool);
+        Random random = new Random(42);
+        left = new double[size * size];
+        right = new double[size * size];
+        for (int i = 0; i < left.length; i++) {
+            left[i] = random.nextDouble() / size;
+            right[i] = random.nextDouble();
+        }
+        for (int i = 0; i < size; i++) {
+            left[i * size + i] += 0.5;
+        }
+        a = Matrix.of(size, size, left);
+        b = Matrix.of(size, size, right);
+    }
+
+    /**
+     * Shuts the pool down.
+     */
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Multiplies the matrices with the blocked parallel kernel.
+     *
+     * @return the product
+     */
+    @Benchmark
+    public Matrix multiply() {
+        return operations.multiply(a, b);
+    }
+
+    /**
+     * Multiplies the matrices with the <code>i-j-k</code> loops on the calling thread, which walk
+     * down a column of the right operand for every element.
+     *
+     * @return the product
+     */
+    @Benchmark
+    public double[] naive() {
+        int n = size;
+        double[] out = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double sum = 0;
+                for (int k = 0; k < n; k++) {
+                    sum += left[i * n + k] * right[k * n + j];
+                }
+                out[i * n + j] = sum;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Inverts the left operand.
+     *
+     * @return the inverse
+     */
+    @Benchmark
+    public Matrix inverse() {
+        return operations.inverse(a);
+    }
+
+    /**
+     * Raises the left operand to the power {@link #EXPONENT}.
+     *
+     * @return the power
+     */
+    @Benchmark
+    public Matrix power() {
+        return operations.power(a, EXPONENT);
+    }
+}
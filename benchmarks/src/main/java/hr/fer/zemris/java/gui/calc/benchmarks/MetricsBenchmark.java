@@ -0,0 +1,75 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.metrics.CalculatorMetrics;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of recording one button press in {@link CalculatorMetrics}: the counter and the
+ * stack high-water mark, which are recorded on every press, and the same with the clock read twice
+ * and the latency recorded, which is done on one of {@link CalculatorMetrics#LATENCY_SAMPLING}
+ * clicks and once per batch of typed keys.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    /** Metrics to record to. */
+    private CalculatorMetrics metrics;
+    /** Counter of the pressed button. */
+    private LongAdder counter;
+    /** Recorded stack depth. */
+    private int depth = 3;
+
+    /**
+     * Creates the metrics.
+     */
+    @Setup
+    public void setup() {
+        metrics = new CalculatorMetrics();
+        counter = metrics.counter("sin");
+    }
+
+    /**
+     * Records a press without its latency.
+     *
+     * @return the metrics
+     */
+    @Benchmark
+    public CalculatorMetrics record() {
+        counter.increment();
+        metrics.stackDepth(depth);
+        return metrics;
+    }
+
+    /**
+     * Reads the clock twice and records a press with its latency.
+     *
+     * @return the metrics
+     */
+    @Benchmark
+    public CalculatorMetrics timedRecord() {
+        long start = System.nanoTime();
+        metrics.latency(System.nanoTime() - start);
+        counter.increment();
+        metrics.stackDepth(depth);
+        return metrics;
+    }
+}
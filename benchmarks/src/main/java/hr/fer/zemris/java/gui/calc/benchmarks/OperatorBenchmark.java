@@ -0,0 +1,85 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.engine.BinaryOperation;
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import hr.fer.zemris.java.gui.calc.engine.UnaryOperation;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of every operator of the calculator. Operands are taken from interval (0, 1), which
+ * is inside the domain of all operators.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OperatorBenchmark {
+
+    /** Number of prepared operands, power of two. */
+    private static final int SIZE = 1024;
+
+    /** Label of the operator. */
+    @Param({"sin", "asin", "cos", "acos", "tan", "atan", "cot", "acot", "log", "10^x", "ln",
+        "e^x", "x^n", "n√x", "1/x", "/", "*", "-", "+"})
+    public String label;
+
+    /** Unary operator, <code>null</code> if the operator is binary. */
+    private UnaryOperation unary;
+    /** Binary operator, <code>null</code> if the operator is unary. */
+    private BinaryOperation binary;
+    /** Operands. */
+    private double[] operands;
+    /** Index of the next operand. */
+    private int index;
+
+    /**
+     * Looks up the operator and prepares the operands.
+     */
+    @Setup
+    public void setup() {
+        unary = OperatorRegistry.DEFAULT.unary(label);
+        binary = OperatorRegistry.DEFAULT.binary(label);
+        if (unary == null && binary == null) {
+            throw new IllegalArgumentException("Unknown operator: " + label + ".");
+        }
+
+        Random random = new Random(42);
+        operands = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            operands[i] = random.nextDouble() * 0.98 + 0.01;
+        }
+    }
+
+    /**
+     * Applies the operator once.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public double apply() {
+        int i = index;
+        index = (i + 1) & (SIZE - 1);
+        double x = operands[i];
+        if (unary != null) {
+            return unary.applyAsDouble(x);
+        }
+        return binary.applyAsDouble(x, operands[(i + 1) & (SIZE - 1)]);
+    }
+}
@@ -0,0 +1,75 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import hr.fer.zemris.java.gui.calc.store.SessionStore;
+
+/**
+ * Measures memory taken by one session kept as a {@link CalculatorEngine} and by one session
+ * kept in a {@link SessionStore}. Every session has typed a number and pushed two values, which is
+ * the state of a typical idle session.<p>
+ *
+ * Run it with <code>java -cp target/benchmarks.jar
+ * hr.fer.zemris.java.gui.calc.benchmarks.SessionFootprint [sessions]</code>. The heap must be big
+ * enough for the object design, default number of sessions is one million.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class SessionFootprint {
+
+    /** Keys pressed in each session. */
+    private static final int[] SCRIPT = Keypad.DEFAULT.compile("4 2 push 7 push 1 . 5");
+
+    /**
+     * Utility program.
+     */
+    private SessionFootprint() {
+    }
+
+    /**
+     * Starts the measurement.
+     *
+     * @param args optional number of sessions
+     */
+    public static void main(String[] args) {
+        int sessions = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long before = usedHeap();
+        SessionStore store = new SessionStore();
+        int[] handles = new int[sessions];
+        for (int i = 0; i < sessions; i++) {
+            handles[i] = store.open();
+            store.press(handles[i], SCRIPT);
+        }
+        long heap = usedHeap() - before - 4L * sessions;
+        System.out.printf("store: %d bytes per session off heap (%d in a slot), %d on heap%n",
+            store.getMemoryUsed() / sessions, store.getSlotSize(), heap / sessions);
+        handles = null;
+        store = null;
+
+        before = usedHeap();
+        CalculatorEngine[] engines = new CalculatorEngine[sessions];
+        for (int i = 0; i < sessions; i++) {
+            engines[i] = new CalculatorEngine();
+            for (int code : SCRIPT) {
+                Keypad.DEFAULT.press(engines[i], code);
+            }
+        }
+        long objects = usedHeap() - before - 4L * sessions;
+        System.out.printf("object: %d bytes per session on heap%n", objects / sessions);
+    }
+
+    /**
+     * Collects garbage and returns the used heap.
+     *
+     * @return used heap in bytes
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,115 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import hr.fer.zemris.java.gui.calc.store.SessionStore;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares sessions kept as {@link CalculatorEngine} objects with sessions kept in a {@link
+ * SessionStore}. Every invocation presses one short script in each of {@value #BATCH} randomly
+ * chosen sessions, so with many sessions most presses miss the cache.<p>
+ *
+ * Memory per session is measured by {@link SessionFootprint}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionStoreBenchmark {
+
+    /** Number of sessions used per invocation. */
+    private static final int BATCH = 1024;
+    /** Keys pressed in each session. */
+    private static final int[] SCRIPT = Keypad.DEFAULT.compile("1 2 + 3 = push * 4 = pop");
+
+    /** Number of open sessions. */
+    @Param({"1000", "1000000"})
+    public int sessions;
+
+    /** How sessions are kept: <code>object</code> or <code>store</code>. */
+    @Param({"object", "store"})
+    public String design;
+
+    /** Sessions as objects. */
+    private CalculatorEngine[] engines;
+    /** Sessions in the store. */
+    private SessionStore store;
+    /** Handles of the sessions in the store. */
+    private int[] handles;
+    /** Indexes of the sessions used by the invocations. */
+    private int[] order;
+    /** Position in the order. */
+    private int next;
+
+    /**
+     * Opens the sessions.
+     */
+    @Setup
+    public void setup() {
+        if (design.equals("object")) {
+            engines = new CalculatorEngine[sessions];
+            for (int i = 0; i < sessions; i++) {
+                engines[i] = new CalculatorEngine();
+            }
+        } else {
+            store = new SessionStore();
+            handles = new int[sessions];
+            for (int i = 0; i < sessions; i++) {
+                handles[i] = store.open();
+            }
+        }
+        Random random = new Random(42);
+        order = new int[1 << 20];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = random.nextInt(sessions);
+        }
+    }
+
+    /**
+     * Presses the script in {@value #BATCH} sessions.
+     *
+     * @return sum of the current values
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH * 10)
+    public double press() {
+        double sum = 0;
+        int position = next;
+        for (int i = 0; i < BATCH; i++) {
+            int session = order[position];
+            position = (position + 1) & (order.length - 1);
+            if (engines != null) {
+                CalculatorEngine engine = engines[session];
+                for (int code : SCRIPT) {
+                    Keypad.DEFAULT.press(engine, code);
+                }
+                sum += engine.getCurrentValue();
+            } else {
+                int handle = handles[session];
+                store.press(handle, SCRIPT);
+                sum += store.getCurrentValue(handle);
+            }
+        }
+        next = position;
+        return sum;
+    }
+}
@@ -0,0 +1,61 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the push/pop stack of the calculator.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StackBenchmark {
+
+    /** Number of values pushed before they are popped. */
+    @Param({"1", "1000"})
+    public int depth;
+
+    /** Engine of the calculator. */
+    private CalculatorEngine engine;
+
+    /**
+     * Creates the engine.
+     */
+    @Setup
+    public void setup() {
+        engine = new CalculatorEngine();
+    }
+
+    /**
+     * Pushes {@link #depth} values and then pops all of them.
+     *
+     * @return the last popped value
+     */
+    @Benchmark
+    public double pushPop() {
+        for (int i = 0; i < depth; i++) {
+            engine.push();
+        }
+        for (int i = 0; i < depth; i++) {
+            engine.pop();
+        }
+        return engine.getCurrentValue();
+    }
+}
@@ -0,0 +1,66 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.Calculator;
+import hr.fer.zemris.java.gui.calc.CalculatorBackend;
+import hr.fer.zemris.java.gui.calc.CalculatorDisplay;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import javax.swing.JCheckBox;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+/**
+ * Measures the cold start of the calculator without a display: the look and feel is installed
+ * like in {@link Calculator#main(String[])}, the same component tree is built on the Event
+ * Dispatch Thread and painted into an image. The window itself needs a display; its first paint
+ * is reported by the calculator when it is started with <code>-Dcalculator.startup=print</code>.
+ * <p>
+ *
+ * Run it in a fresh JVM, e.g. <code>java -Djava.awt.headless=true -cp target/benchmarks.jar
+ * hr.fer.zemris.java.gui.calc.benchmarks.StartupProbe</code>, optionally with a class data
+ * sharing archive (<code>-XX:ArchiveClassesAtExit</code> or <code>-XX:SharedArchiveFile</code>).
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class StartupProbe {
+
+    /**
+     * Utility program.
+     */
+    private StartupProbe() {
+    }
+
+    /**
+     * Starts the measurement.
+     *
+     * @param args not used
+     * @throws Exception if the Event Dispatch Thread fails
+     */
+    public static void main(String[] args) throws Exception {
+        long start = System.nanoTime();
+        Calculator.installLookAndFeel();
+        long lookAndFeel = System.nanoTime();
+        long[] painted = new long[1];
+        SwingUtilities.invokeAndWait(() -> {
+            CalculatorDisplay display = new CalculatorDisplay();
+            JPanel panel = CalculatorPanels.create(display, new JCheckBox("Inv"),
+                new CalculatorBackend(null, display, null));
+            Dimension size = panel.getPreferredSize();
+            panel.setSize(size);
+            panel.doLayout();
+            BufferedImage image =
+                new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            panel.printAll(g);
+            g.dispose();
+            painted[0] = System.nanoTime();
+        });
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        System.out.printf("look and feel %.1f ms, first paint %.1f ms after main, "
+                + "JVM uptime %d ms%n",
+            (lookAndFeel - start) / 1e6, (painted[0] - start) / 1e6, uptime);
+    }
+}
@@ -0,0 +1,96 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.array.ArrayOperations;
+import hr.fer.zemris.java.gui.calc.engine.DoubleStack;
+import hr.fer.zemris.java.gui.calc.engine.StackStatistics;
+import hr.fer.zemris.java.gui.calc.engine.Statistics;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the statistics of a stack of 10^6 values after a push: the running
+ * {@link StackStatistics}, a naive recomputation over all values and the parallel reduction of
+ * {@link ArrayOperations}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StatisticsBenchmark {
+
+    /** Number of values on the stack. */
+    private static final int SIZE = 1_000_000;
+
+    /** Stack of the values. */
+    private DoubleStack stack;
+    /** Running statistics of the stack. */
+    private StackStatistics statistics;
+    /** The values as an array. */
+    private double[] values;
+    /** Operations which reduce the array. */
+    private ArrayOperations operations;
+
+    /**
+     * Fills the stack with random values.
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        stack = new DoubleStack();
+        for (int i = 0; i < SIZE; i++) {
+            stack.push(random.nextGaussian());
+        }
+        statistics = stack.statistics();
+        statistics.get();
+        values = stack.toArray();
+        operations = new ArrayOperations();
+    }
+
+    /**
+     * Pushes a value, reads the running statistics and pops the value.
+     *
+     * @return the statistics
+     */
+    @Benchmark
+    public Statistics running() {
+        stack.push(0.5);
+        Statistics result = statistics.get();
+        stack.pop();
+        return result;
+    }
+
+    /**
+     * Recomputes the statistics over all values.
+     *
+     * @return the statistics
+     */
+    @Benchmark
+    public Statistics naive() {
+        return Statistics.of(values, 0, values.length);
+    }
+
+    /**
+     * Recomputes the statistics over all values by the parallel reduction.
+     *
+     * @return the statistics
+     */
+    @Benchmark
+    public Statistics parallel() {
+        return operations.statistics(values, 0, values.length);
+    }
+}
@@ -0,0 +1,89 @@
+package hr.fer.zemris.java.gui.calc.benchmarks;
+
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import hr.fer.zemris.java.gui.calc.engine.UnaryOperation;
+import hr.fer.zemris.java.gui.calc.tape.ComputationTape;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the {@link ComputationTape}: a unary operator applied without and with the tape,
+ * and the copy of a full tape which is taken on the Event Dispatch Thread before an export.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TapeBenchmark {
+
+    /** Engine without a tape. */
+    private CalculatorEngine plain;
+    /** Engine with a tape. */
+    private CalculatorEngine taped;
+    /** Full tape. */
+    private ComputationTape full;
+    /** Applied operator. */
+    private UnaryOperation operator;
+
+    /**
+     * Creates the engines and fills the tape.
+     */
+    @Setup
+    public void setup() {
+        plain = new CalculatorEngine();
+        taped = new CalculatorEngine();
+        taped.setTape(new ComputationTape());
+        operator = OperatorRegistry.DEFAULT.unary("1/x");
+        full = new ComputationTape();
+        for (int i = 0; i < full.getCapacity(); i++) {
+            full.unary(0, i, i);
+        }
+    }
+
+    /**
+     * Applies a unary operator.
+     *
+     * @return the engine
+     */
+    @Benchmark
+    public CalculatorEngine unary() {
+        plain.unaryOperation(operator);
+        return plain;
+    }
+
+    /**
+     * Applies a unary operator and records it to the tape.
+     *
+     * @return the engine
+     */
+    @Benchmark
+    public CalculatorEngine unaryTaped() {
+        taped.unaryOperation(operator);
+        return taped;
+    }
+
+    /**
+     * Copies a full tape of the default capacity.
+     *
+     * @return the copy
+     */
+    @Benchmark
+    public ComputationTape copy() {
+        return full.copy();
+    }
+}
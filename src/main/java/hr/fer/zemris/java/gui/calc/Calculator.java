@@ -1,40 +1,64 @@
 package hr.fer.zemris.java.gui.calc;
 
+import hr.fer.zemris.java.gui.calc.buttons.AbstractButton;
 import hr.fer.zemris.java.gui.calc.buttons.BinaryOperationButton;
 import hr.fer.zemris.java.gui.calc.buttons.DigitButton;
 import hr.fer.zemris.java.gui.calc.buttons.InstantButton;
-import hr.fer.zemris.java.gui.calc.buttons.Invertible;
-import hr.fer.zemris.java.gui.calc.buttons.InvertibleBinaryOperationButton;
-import hr.fer.zemris.java.gui.calc.buttons.InvertibleUnaryOperationButton;
+import hr.fer.zemris.java.gui.calc.buttons.ModeOperationButton;
 import hr.fer.zemris.java.gui.calc.buttons.UnaryOperationButton;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import hr.fer.zemris.java.gui.calc.engine.OperatorBank;
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import hr.fer.zemris.java.gui.calc.engine.Statistics;
+import hr.fer.zemris.java.gui.calc.journal.EventJournal;
+import hr.fer.zemris.java.gui.calc.macro.Macro;
+import hr.fer.zemris.java.gui.calc.math.AngleUnit;
+import hr.fer.zemris.java.gui.calc.matrix.Matrix;
+import hr.fer.zemris.java.gui.calc.matrix.MatrixStack;
+import hr.fer.zemris.java.gui.calc.metrics.CalculatorMetrics;
+import hr.fer.zemris.java.gui.calc.tape.ComputationTape;
+import hr.fer.zemris.java.gui.calc.tape.TapeExporter;
+import hr.fer.zemris.java.gui.calc.trace.InteractionTracer;
 import hr.fer.zemris.java.gui.layouts.CalculatorLayout;
+import java.awt.AWTEvent;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Container;
 import java.awt.Font;
-import java.util.HashMap;
-import java.util.Map;
+import java.awt.Graphics;
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.AbstractAction;
+import javax.swing.ActionMap;
 import javax.swing.BorderFactory;
+import javax.swing.ButtonGroup;
+import javax.swing.InputMap;
 import javax.swing.JCheckBox;
+import javax.swing.JCheckBoxMenuItem;
+import javax.swing.JComponent;
 import javax.swing.JFrame;
-import javax.swing.JLabel;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
+import javax.swing.JRadioButtonMenuItem;
+import javax.swing.KeyStroke;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
 
-import static java.lang.Math.acos;
-import static java.lang.Math.asin;
-import static java.lang.Math.atan;
-import static java.lang.Math.atan2;
-import static java.lang.Math.cos;
-import static java.lang.Math.exp;
-import static java.lang.Math.log;
-import static java.lang.Math.log10;
-import static java.lang.Math.pow;
-import static java.lang.Math.sin;
-import static java.lang.Math.tan;
-
 /**
  * This class implements the functionality of a calculator.
  *
@@ -44,39 +68,195 @@ import static java.lang.Math.tan;
 public class Calculator extends JFrame {
 
     private static final long serialVersionUID = 1L;
+    /** Title of the window. */
+    private static final String TITLE = "Calculator v1.0";
+    /** Largest number of elements of a matrix which is shown element by element. */
+    private static final int SHOWN_ELEMENTS = 100;
     /** Color of label's border. */
     private static final Color LABEL_BORDER_COLOR = new Color(91, 130, 222);
     /** Color of label's background. */
     private static final Color LABEL_BACKGROUND_COLOR = new Color(248, 255, 107);
+    /** System property with the journal directory, empty to turn journaling off. */
+    public static final String JOURNAL_PROPERTY = "calculator.journal";
+    /**
+     * System property which turns on startup timing: <code>print</code> prints it at the first
+     * paint of the window and <code>exit</code> also exits (used for class data sharing dumps).
+     */
+    public static final String STARTUP_PROPERTY = "calculator.startup";
+    /** System property with the file to which the interaction trace is written at exit. */
+    public static final String TRACE_PROPERTY = "calculator.trace";
+    /** System property with the stall threshold of the interaction trace in milliseconds. */
+    public static final String TRACE_THRESHOLD_PROPERTY = "calculator.trace.threshold";
+    /**
+     * System property with the file to which the tape of computations is exported, as CSV if it
+     * ends with <code>.csv</code> and in the binary format otherwise.
+     */
+    public static final String TAPE_PROPERTY = "calculator.tape";
+    /** System property with the file in which the macro is kept, empty to not keep it. */
+    public static final String MACRO_PROPERTY = "calculator.macro";
+    /** Font of the check box. */
+    private static final Font BOX_FONT = new Font("Arial", Font.BOLD, 14);
+    /**
+     * Typed characters of the buttons whose label is not the character itself, in pairs: the
+     * character and the label of the button.
+     */
+    private static final String[] TYPED_KEYS = {
+        ",", ".", "^", "x^n", "s", "sin", "c", "cos", "t", "tan", "g", "cot", "l", "log",
+        "n", "ln", "r", "1/x", "p", "push", "o", "pop", "m", "+/-", "i", "Inv", "h", "Hyp",
+        "u", "unit"
+    };
+    /** Positions of the mode dependent buttons, by the ordinal of their slot. */
+    private static final String[] SLOT_POSITIONS = {
+        "2,2", "3,2", "4,2", "5,2", "3,1", "4,1", "5,1"
+    };
+
+    /** Time when {@link #main(String[])} was entered, 0 if it was not. */
+    private static volatile long mainStarted;
+    /** Time it took to install the look and feel, -1 if it was not installed yet. */
+    private static volatile long lookAndFeelTime = -1;
 
-    /** Label used as to show the result of the calculator. */
-    private JLabel display;
+    /** Display used to show the result of the calculator. */
+    private CalculatorDisplay display;
     /** Checkbox used to invert some functions on the calculator. */
     private JCheckBox box;
     /** Holds status of the calculator and provides methods for operating with calculator. */
     private CalculatorBackend status;
-    /** Map used for keeping invertible buttons */
-    private Map<String, Invertible> operators;
+    /** Buttons whose operators depend on the mode. */
+    private List<ModeOperationButton> modeButtons;
+    /** Menu item which chooses hyperbolic functions. */
+    private JCheckBoxMenuItem hyperbolic;
+    /** Menu items which choose the unit of angles, by the ordinal of the unit. */
+    private JRadioButtonMenuItem[] units;
+    /** Size of the last packed matrix, as it was typed. */
+    private String packedSize = "2 2";
+    /** Keys typed but not applied yet. */
+    private TypeAhead typeAhead;
+    /** Recorded macro, <code>null</code> if there is none. */
+    private Macro macro;
+    /** Time when the constructor finished. */
+    private long built;
+    /** It is true after the window was painted for the first time. */
+    private boolean painted;
 
     /**
      * Creates a new calculator. Initializes the GUI and restarts the calculator to the default
      * settings (as does the
-     * button 'res').
+     * button 'res'). Then the session is recovered from the journal, if there is one, and the
+     * undo history starts with that state. Computations after that are recorded to the tape if
+     * {@link #TAPE_PROPERTY} is set. Finally the macro is loaded.
      */
     public Calculator() {
+        installLookAndFeel();
         initGUI();
         status.restart();
+        openJournal();
+        status.getHistory().reset();
+        openTape();
+        initMacro();
+        countSession();
+        built = System.nanoTime();
     }
 
     /**
-     * Creates a new {@link Calculator} and sets it's visibility to <code>true</code>.
+     * Creates a new {@link Calculator} and sets it's visibility to <code>true</code>. The look and
+     * feel is installed on the main thread first, so the Event Dispatch Thread only builds the
+     * window.
      *
      * @param args don't mather
      */
     public static void main(String[] args) {
+        mainStarted = System.nanoTime();
+        installLookAndFeel();
+        startTrace();
         SwingUtilities.invokeLater(() -> new Calculator().setVisible(true));
     }
 
+    /**
+     * If {@link #TRACE_PROPERTY} is set, installs the {@link InteractionTracer} with the threshold
+     * given by {@link #TRACE_THRESHOLD_PROPERTY} and writes its report to the given file when the
+     * application exits.
+     */
+    private static void startTrace() {
+        String file = System.getProperty(TRACE_PROPERTY);
+        if (file == null || file.isEmpty()) {
+            return;
+        }
+        InteractionTracer tracer = InteractionTracer.install(Long.getLong(
+            TRACE_THRESHOLD_PROPERTY, InteractionTracer.DEFAULT_THRESHOLD));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                tracer.writeReport(Paths.get(file));
+            } catch (IOException e) {
+                System.err.println("Trace is not written: " + e.getMessage());
+            }
+        }, "calculator-trace-report"));
+    }
+
+    /**
+     * Installs the system look and feel, unless it was already installed. It has to be invoked
+     * before any component is created, otherwise the components keep the default look and feel.
+     * <p>
+     *
+     * The system look and feel is made the default one, so the first initialization of the
+     * {@link UIManager} installs it directly instead of installing the cross platform look and
+     * feel and replacing it.
+     */
+    public static synchronized void installLookAndFeel() {
+        if (lookAndFeelTime >= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        String name = UIManager.getSystemLookAndFeelClassName();
+        System.setProperty("swing.defaultlaf", name);
+        if (!name.equals(UIManager.getLookAndFeel().getClass().getName())) {
+            try {
+                UIManager.setLookAndFeel(name);
+            } catch (ClassNotFoundException | InstantiationException
+                | IllegalAccessException | UnsupportedLookAndFeelException ignorable) {
+            }
+        }
+        lookAndFeelTime = System.nanoTime() - start;
+    }
+
+    /**
+     * Paints the window. After the first paint, startup times are reported and the metrics are
+     * registered in the background, so loading JMX does not delay the window.
+     *
+     * @param g graphics to paint with
+     */
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (!painted) {
+            painted = true;
+            reportStartup();
+            Thread thread = new Thread(CalculatorMetrics::register, "calculator-metrics");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Prints how long the startup took if {@link #STARTUP_PROPERTY} is set, and exits if it is
+     * <code>exit</code>. Times are measured from the start of {@link #main(String[])} or from the
+     * construction of the window if it was not started that way.
+     */
+    private void reportStartup() {
+        String mode = System.getProperty(STARTUP_PROPERTY);
+        if (mode == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long start = mainStarted != 0 ? mainStarted : built;
+        System.out.printf("look and feel %.1f ms, window built %.1f ms, first paint %.1f ms "
+                + "after main, JVM uptime %d ms%n",
+            lookAndFeelTime / 1e6, (built - start) / 1e6, (now - start) / 1e6,
+            ManagementFactory.getRuntimeMXBean().getUptime());
+        if ("exit".equals(mode)) {
+            System.exit(0);
+        }
+    }
+
     /**
      * Initializes the gui of the calculator. Adds label, checkbox and buttons to the calculator's
      * frame.
@@ -84,7 +264,7 @@ public class Calculator extends JFrame {
     private void initGUI() {
         initWindow();
 
-        display = new JLabel();
+        display = new CalculatorDisplay();
         initDisplay();
 
         box = new JCheckBox("Inv", false);
@@ -93,34 +273,416 @@ public class Calculator extends JFrame {
         status = new CalculatorBackend(this, display, box);
 
         addButtons(getContentPane());
+        initMenu();
+        initKeys();
 
         pack();
     }
 
+    /**
+     * Recovers the session from the journal in the directory given by {@link #JOURNAL_PROPERTY}
+     * (<code>.calculator/journal</code> in the user's home by default) and journals all further
+     * operations. The calculator works without a journal if it cannot be opened.
+     */
+    private void openJournal() {
+        String directory = System.getProperty(JOURNAL_PROPERTY,
+            Paths.get(System.getProperty("user.home"), ".calculator", "journal").toString());
+        if (directory.isEmpty()) {
+            return;
+        }
+        EventJournal journal;
+        try {
+            journal = new EventJournal(Paths.get(directory), status.getEngine());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Session will not be saved: " + e.getMessage());
+            status.restart();
+            return;
+        }
+        status.setJournal(journal);
+        if (box.isSelected() != status.getEngine().isInverted()) {
+            box.doClick();
+        }
+        status.updateLabel(null);
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                status.setJournal(null);
+                try {
+                    journal.close();
+                } catch (IOException ignorable) {
+                    //records are in the mapped segment anyway
+                }
+            }
+        });
+    }
+
+    /**
+     * If {@link #TAPE_PROPERTY} is set, records the computations to a {@link ComputationTape}. The
+     * tape is exported to the file in the background on Ctrl+S (after the keys typed before it)
+     * and when the window is closed.
+     */
+    private void openTape() {
+        String file = System.getProperty(TAPE_PROPERTY);
+        if (file == null || file.isEmpty()) {
+            return;
+        }
+        Path path = Paths.get(file);
+        ComputationTape tape = new ComputationTape();
+        TapeExporter exporter = new TapeExporter();
+        status.getEngine().setTape(tape);
+
+        Runnable export = () -> exporter.export(tape, path, TapeExporter.Format.of(path))
+            .whenComplete((entries, e) -> {
+                if (e != null) {
+                    System.err.println("Tape is not written: " + e.getCause().getMessage());
+                }
+            });
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(
+            KeyStroke.getKeyStroke(KeyEvent.VK_S, InputEvent.CTRL_DOWN_MASK), "exportTape");
+        getRootPane().getActionMap().put("exportTape", new TypedKey(export));
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                status.getEngine().setTape(null);
+                export.run();
+                exporter.close();
+            }
+        });
+    }
+
+    /**
+     * Binds Ctrl+R, which starts and stops recording a {@link Macro}, and Ctrl+P, which applies
+     * the macro to the current value. The macro is loaded from the file in
+     * {@link #MACRO_PROPERTY} (<code>.calculator/macro</code> in the user's home by default) and
+     * saved to it when it is recorded. If the recorded keys cannot be in a macro, or there is no
+     * macro to apply, it beeps.
+     */
+    private void initMacro() {
+        String file = System.getProperty(MACRO_PROPERTY,
+            Paths.get(System.getProperty("user.home"), ".calculator", "macro").toString());
+        Path path = file.isEmpty() ? null : Paths.get(file);
+        if (path != null && Files.isRegularFile(path)) {
+            try {
+                macro = Macro.fromBytes(Files.readAllBytes(path), Keypad.DEFAULT);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Macro is not loaded: " + e.getMessage());
+            }
+        }
+
+        InputMap keys = getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        ActionMap actions = getRootPane().getActionMap();
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_R, InputEvent.CTRL_DOWN_MASK), "record");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_P, InputEvent.CTRL_DOWN_MASK), "play");
+        actions.put("record", new TypedKey(() -> {
+            if (!status.isRecording()) {
+                status.startRecording();
+                return;
+            }
+            try {
+                macro = status.stopRecording();
+            } catch (IllegalArgumentException e) {
+                Toolkit.getDefaultToolkit().beep();
+                return;
+            }
+            if (path != null) {
+                try {
+                    Files.createDirectories(path.toAbsolutePath().getParent());
+                    Files.write(path, macro.toBytes());
+                } catch (IOException e) {
+                    System.err.println("Macro is not saved: " + e.getMessage());
+                }
+            }
+        }));
+        actions.put("play", new TypedKey(() -> {
+            if (macro == null) {
+                Toolkit.getDefaultToolkit().beep();
+                return;
+            }
+            status.unaryOperation(macro);
+            status.record();
+        }));
+    }
+
+    /**
+     * Counts this window as a session in the {@link CalculatorMetrics} until it is closed.
+     */
+    private void countSession() {
+        CalculatorMetrics.get().sessionOpened();
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                CalculatorMetrics.get().sessionClosed();
+            }
+        });
+    }
+
     /**
      * Initializes the check box.
      *
      * @param box check box to initialize.
      */
     private void initBox() {
-        box.addActionListener(e -> operators.values().forEach(o -> o.invert()));
-        box.setFont(new Font("Arial", Font.BOLD, 14));
+        box.addActionListener(e -> invert());
+        box.setFont(BOX_FONT);
         box.setHorizontalAlignment(SwingConstants.CENTER);
         getContentPane().add(box, "5,7");
     }
 
+    /**
+     * Inverts the operators according to the check box.
+     */
+    private void invert() {
+        status.setInverted(box.isSelected());
+        updateModeButtons();
+        status.record();
+    }
+
+    /**
+     * Initializes the Mode menu, which chooses hyperbolic functions, high precision, the unit of
+     * angles and the matrix stack, and packs and shows matrices, and the Stack menu.
+     */
+    private void initMenu() {
+        JMenu mode = new JMenu("Mode");
+        mode.setMnemonic(KeyEvent.VK_M);
+        hyperbolic = new JCheckBoxMenuItem("Hyperbolic");
+        hyperbolic.addActionListener(e -> {
+            status.setHyperbolic(hyperbolic.isSelected());
+            updateModeButtons();
+        });
+        mode.add(hyperbolic);
+        JCheckBoxMenuItem precision = new JCheckBoxMenuItem("High precision");
+        precision.addActionListener(e -> {
+            status.setExactMode(precision.isSelected());
+            status.updateLabel(null);
+        });
+        mode.add(precision);
+        mode.addSeparator();
+
+        ButtonGroup group = new ButtonGroup();
+        String[] names = {"Radians", "Degrees", "Gradians"};
+        units = new JRadioButtonMenuItem[AngleUnit.values().length];
+        for (AngleUnit unit : AngleUnit.values()) {
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(names[unit.ordinal()],
+                unit == status.getBank().getUnit());
+            item.addActionListener(e -> {
+                status.setAngleUnit(unit);
+                updateModeButtons();
+            });
+            group.add(item);
+            mode.add(item);
+            units[unit.ordinal()] = item;
+        }
+
+        mode.addSeparator();
+        JCheckBoxMenuItem matrix = new JCheckBoxMenuItem("Matrix stack");
+        matrix.addActionListener(e -> {
+            status.setMatrixMode(matrix.isSelected());
+            updateTitle();
+        });
+        mode.add(matrix);
+        JMenuItem pack = new JMenuItem("Pack matrix...");
+        pack.addActionListener(e -> packMatrix());
+        mode.add(pack);
+        JMenuItem show = new JMenuItem("Show matrix");
+        show.addActionListener(e -> showMatrix());
+        mode.add(show);
+
+        JMenu stack = new JMenu("Stack");
+        stack.setMnemonic(KeyEvent.VK_S);
+        JMenuItem statistics = new JMenuItem("Statistics...");
+        statistics.addActionListener(e -> showStatistics());
+        stack.add(statistics);
+
+        JMenuBar bar = new JMenuBar();
+        bar.add(mode);
+        bar.add(stack);
+        setJMenuBar(bar);
+    }
+
+    /**
+     * Asks for the size of a matrix and packs the numbers on the top of the matrix stack into it.
+     * The size is typed as rows and columns, e.g. <code>2 3</code> or <code>2x3</code>; a single
+     * number is the length of a vector.
+     */
+    private void packMatrix() {
+        String size = JOptionPane.showInputDialog(this, "Rows and columns:", packedSize);
+        if (size == null) {
+            return;
+        }
+        String[] parts = size.trim().split("[\\sx,]+");
+        int rows;
+        int columns;
+        try {
+            rows = Integer.parseInt(parts[0]);
+            columns = (parts.length > 1) ? Integer.parseInt(parts[1]) : 1;
+        } catch (NumberFormatException e) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        packedSize = size;
+        status.packMatrix(rows, columns);
+        updateTitle();
+    }
+
+    /**
+     * Shows the matrix on the top of the matrix stack, one row per line, or only its size if it is
+     * large. It beeps if the stack is empty.
+     */
+    private void showMatrix() {
+        MatrixStack matrices = status.getMatrices();
+        if (matrices.isEmpty()) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        Matrix top = matrices.peek();
+        String size = top.getRows() + "x" + top.getColumns();
+        StringBuilder text = new StringBuilder();
+        if ((long) top.getRows() * top.getColumns() > SHOWN_ELEMENTS) {
+            text.append(size).append(" matrix");
+        } else {
+            for (int i = 0; i < top.getRows(); i++) {
+                for (int j = 0; j < top.getColumns(); j++) {
+                    text.append(j == 0 ? "" : "    ").append(top.get(i, j));
+                }
+                text.append('\n');
+            }
+        }
+        JOptionPane.showMessageDialog(this, text.toString(), "Matrix " + size,
+            JOptionPane.PLAIN_MESSAGE);
+    }
+
+    /**
+     * Shows the running statistics of the stack. The sum, the mean or the standard deviation can
+     * be taken as the current value.
+     */
+    private void showStatistics() {
+        Statistics statistics = status.getStatistics();
+        String text = "Count: " + statistics.getCount()
+            + "\nSum: " + statistics.getSum()
+            + "\nMean: " + statistics.getMean()
+            + "\nVariance: " + statistics.getVariance()
+            + "\nStandard deviation: " + statistics.getStandardDeviation()
+            + "\nMin: " + statistics.getMin()
+            + "\nMax: " + statistics.getMax()
+            + "\nSum of squares: " + statistics.getSumOfSquares();
+        String[] options = {"Sum", "Mean", "Std dev", "Close"};
+        int chosen = JOptionPane.showOptionDialog(this, text, "Stack statistics",
+            JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, options, options[3]);
+        double[] values = {statistics.getSum(), statistics.getMean(),
+            statistics.getStandardDeviation()};
+        if (chosen >= 0 && chosen < values.length) {
+            status.setNewValue(values[chosen]);
+            status.record();
+            status.updateLabel(null);
+        }
+    }
+
+    /**
+     * Shows the size of the matrix on the top of the matrix stack and the depth of the stack in
+     * the title, when the calculator is in matrix mode.
+     */
+    void updateTitle() {
+        String title = TITLE;
+        if (status.isMatrixMode()) {
+            MatrixStack matrices = status.getMatrices();
+            if (matrices.isEmpty()) {
+                title += " - matrix stack is empty";
+            } else {
+                Matrix top = matrices.peek();
+                title += " - " + top.getRows() + "x" + top.getColumns() + " on top of "
+                    + matrices.size();
+            }
+        }
+        if (!title.equals(getTitle())) {
+            setTitle(title);
+        }
+    }
+
+    /**
+     * Sets the labels of the mode dependent buttons to the operators of the current bank, all in
+     * one pass, so the window is laid out once.
+     */
+    private void updateModeButtons() {
+        modeButtons.forEach(ModeOperationButton::updateText);
+    }
+
+    /**
+     * Binds the keyboard. Every button is bound to its label if it is a single character and to
+     * the characters in {@link #TYPED_KEYS}, the equals button also to Enter, clear to Backspace
+     * and restart to Escape; <code>h</code> toggles hyperbolic functions and <code>u</code>
+     * switches to the next unit of angles. Ctrl+M packs a matrix and Ctrl+T shows the statistics
+     * of the stack. Undo is bound to Ctrl+Z and redo to Ctrl+Y and Ctrl+Shift+Z; when there is
+     * nothing to undo or redo, it beeps.<p>
+     *
+     * Keys go through the {@link TypeAhead}, so a burst of keys is applied in one pass with one
+     * update of the display at the end.
+     */
+    private void initKeys() {
+        typeAhead = new TypeAhead(() -> status.updateLabel(null));
+        Toolkit.getDefaultToolkit().addAWTEventListener(typeAhead, AWTEvent.MOUSE_EVENT_MASK);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                Toolkit.getDefaultToolkit().removeAWTEventListener(typeAhead);
+            }
+        });
+
+        InputMap keys = getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        ActionMap actions = getRootPane().getActionMap();
+        for (Component c : getContentPane().getComponents()) {
+            if (c instanceof AbstractButton) {
+                AbstractButton button = (AbstractButton) c;
+                String label = button.getText();
+                actions.put(label, new TypedKey(button::press));
+                if (label.length() == 1) {
+                    keys.put(KeyStroke.getKeyStroke(label.charAt(0)), label);
+                }
+            }
+        }
+        actions.put("Inv", new TypedKey(() -> {
+            box.setSelected(!box.isSelected());
+            invert();
+        }));
+        actions.put("Hyp", new TypedKey(hyperbolic::doClick));
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_M, InputEvent.CTRL_DOWN_MASK), "pack");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_T, InputEvent.CTRL_DOWN_MASK), "statistics");
+        actions.put("statistics", new TypedKey(this::showStatistics));
+        actions.put("pack", new TypedKey(this::packMatrix));
+        actions.put("unit", new TypedKey(() -> {
+            int next = (status.getBank().getUnit().ordinal() + 1) % units.length;
+            units[next].doClick();
+        }));
+        for (int i = 0; i < TYPED_KEYS.length; i += 2) {
+            keys.put(KeyStroke.getKeyStroke(TYPED_KEYS[i].charAt(0)), TYPED_KEYS[i + 1]);
+        }
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "=");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_BACK_SPACE, 0), "clr");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "res");
+
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK), "undo");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK), "redo");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z,
+            InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK), "redo");
+        actions.put("undo", new TypedKey(() -> {
+            if (!status.undo()) {
+                Toolkit.getDefaultToolkit().beep();
+            }
+        }));
+        actions.put("redo", new TypedKey(() -> {
+            if (!status.redo()) {
+                Toolkit.getDefaultToolkit().beep();
+            }
+        }));
+    }
+
     /**
      * Initializes the window.
      */
     private void initWindow() {
         setLocation(500, 250);
-        setTitle("Calculator v1.0");
+        setTitle(TITLE);
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
-        try {
-            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-        } catch (ClassNotFoundException | InstantiationException
-            | IllegalAccessException | UnsupportedLookAndFeelException ignorable) {
-        }
         getContentPane().setLayout(new CalculatorLayout(4));
     }
 
@@ -128,11 +690,9 @@ public class Calculator extends JFrame {
      * Initializes the display.
      */
     private void initDisplay() {
-        display.setText("<html><h1>0.0&nbsp</h1></html>");
         display.setBorder(BorderFactory.createLineBorder(LABEL_BORDER_COLOR, 2));
         display.setOpaque(true);
         display.setBackground(LABEL_BACKGROUND_COLOR);
-        display.setHorizontalAlignment(SwingConstants.RIGHT);
         getContentPane().add(display, "1,1");
     }
 
@@ -157,35 +717,22 @@ public class Calculator extends JFrame {
         c.add(new DigitButton("9", "9", status), "2,5");
         c.add(new DigitButton(".", ".", status), "5,5");
 
-        operators = new HashMap<>();
-
-        //invertible operations
-        //        operators.put("2,2", new InvertibleUnaryOperationButton("sin", Math::sin, "asin", Math::asin, status));
-        operators.put("2,2",
-            new InvertibleUnaryOperationButton("sin", x -> sin(x), "asin", x -> asin(x), status));
-        operators.put("3,2",
-            new InvertibleUnaryOperationButton("cos", x -> cos(x), "acos", x -> acos(x), status));
-        operators.put("4,2",
-            new InvertibleUnaryOperationButton("tan", x -> tan(x), "atan", x -> atan(x), status));
-        operators.put("5,2",
-            new InvertibleUnaryOperationButton("cot", x -> 1 / tan(x), "acot", x -> atan2(1, x),
-                status));
-        operators.put("3,1",
-            new InvertibleUnaryOperationButton("log", x -> log10(x), "10^x", x -> pow(10, x),
-                status));
-        operators.put("4,1",
-            new InvertibleUnaryOperationButton("ln", x -> log(x), "e^x", x -> exp(x), status));
-        operators.put("5,1", new InvertibleBinaryOperationButton("x^n", (x, n) -> pow(x, n), "n√x",
-            (x, n) -> pow(x, 1 / n), status));
-
-        operators.forEach((t, u) -> c.add((Component) u, t));
+        OperatorRegistry r = OperatorRegistry.DEFAULT;
+
+        //mode dependent operations
+        modeButtons = new ArrayList<>();
+        for (OperatorBank.Slot slot : OperatorBank.Slot.values()) {
+            ModeOperationButton button = new ModeOperationButton(slot, status);
+            modeButtons.add(button);
+            c.add(button, SLOT_POSITIONS[slot.ordinal()]);
+        }
 
         //operations
-        c.add(new UnaryOperationButton("1/x", x -> pow(x, -1), status), "2,1");
-        c.add(new BinaryOperationButton("/", (x, y) -> x / y, status), "2,6");
-        c.add(new BinaryOperationButton("*", (x, y) -> x * y, status), "3,6");
-        c.add(new BinaryOperationButton("-", (x, y) -> x - y, status), "4,6");
-        c.add(new BinaryOperationButton("+", (x, y) -> x + y, status), "5,6");
+        c.add(new UnaryOperationButton("1/x", r.unary("1/x"), status), "2,1");
+        c.add(new BinaryOperationButton("/", r.binary("/"), status), "2,6");
+        c.add(new BinaryOperationButton("*", r.binary("*"), status), "3,6");
+        c.add(new BinaryOperationButton("-", r.binary("-"), status), "4,6");
+        c.add(new BinaryOperationButton("+", r.binary("+"), status), "5,6");
 
         // instant operations
         c.add(new InstantButton("=", t -> t.equalsPressed(), status), "1,6");
@@ -195,4 +742,28 @@ public class Calculator extends JFrame {
         c.add(new InstantButton("pop", t -> t.pop(), status), "4,7");
         c.add(new InstantButton("+/-", t -> t.changeSign(), status), "5,4");
     }
+
+    /**
+     * Action of a key, which queues the key in the {@link TypeAhead}.
+     */
+    private class TypedKey extends AbstractAction {
+
+        private static final long serialVersionUID = 1L;
+        /** What the key does. */
+        private final transient Runnable key;
+
+        /**
+         * Creates a new {@link TypedKey}.
+         *
+         * @param key what the key does
+         */
+        TypedKey(Runnable key) {
+            this.key = key;
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            typeAhead.type(key);
+        }
+    }
 }
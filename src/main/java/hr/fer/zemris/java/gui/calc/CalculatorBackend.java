@@ -1,265 +1,606 @@
 package hr.fer.zemris.java.gui.calc;
 
-import java.util.Stack;
+import hr.fer.zemris.java.gui.calc.engine.BinaryOperation;
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.EngineHistory;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import hr.fer.zemris.java.gui.calc.engine.OperatorBank;
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import hr.fer.zemris.java.gui.calc.engine.Statistics;
+import hr.fer.zemris.java.gui.calc.engine.UnaryOperation;
+import hr.fer.zemris.java.gui.calc.exact.ExactOperators;
+import hr.fer.zemris.java.gui.calc.exact.ExactSession;
+import hr.fer.zemris.java.gui.calc.journal.EventJournal;
+import hr.fer.zemris.java.gui.calc.macro.Macro;
+import hr.fer.zemris.java.gui.calc.macro.MacroRecorder;
+import hr.fer.zemris.java.gui.calc.math.AngleUnit;
+import hr.fer.zemris.java.gui.calc.matrix.Matrix;
+import hr.fer.zemris.java.gui.calc.matrix.MatrixStack;
+import hr.fer.zemris.java.gui.calc.metrics.CalculatorMetrics;
+import java.util.EmptyStackException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 import javax.swing.JCheckBox;
-import javax.swing.JLabel;
 import javax.swing.JOptionPane;
-import javax.swing.SwingUtilities;
 
 /**
- * This class is used to provide methods for operating with {@link Calculator}.
+ * This class is used to provide methods for operating with {@link Calculator}. All calculations
+ * are delegated to the {@link CalculatorEngine}, this class only keeps the window in sync with it.
+ * If a journal is set, every operation is appended to it before it is applied, and the keys are
+ * recorded while a {@link Macro} is being recorded. The state after every user action is recorded
+ * in the undo/redo history, see {@link #record()}.<p>
+ *
+ * The operators of the mode dependent buttons are taken from the current {@link OperatorBank}.
+ * A change of the mode replaces the bank atomically, so an operation started on any thread uses
+ * the operators of one mode, never a mix of two.<p>
+ *
+ * In matrix mode, push and pop work on a {@link MatrixStack} instead of the engine's stack, and
+ * the operators which work on matrices are applied to it instead of the current value. The
+ * matrix stack is neither journaled nor recorded in the history.<p>
+ *
+ * In high-precision mode, every operation is also applied to an {@link ExactSession}, and the
+ * display shows its value to {@link #PRECISION} significant digits. The engine still does the
+ * journaling and the history; after an undo or redo, the session is loaded from the engine.
  *
  * @author Boris
  * @version 1.0
  */
 public class CalculatorBackend {
 
+    /** Number of significant digits shown in high-precision mode. */
+    public static final int PRECISION = 24;
+
     /** Instance of calculator window. */
     private Calculator calc;
-    /** Used for inputing numbers. */
-    private StringBuilder buffer;
-    /** Used for operations push/pop. */
-    private Stack<Double> stack;
-    /** Used to perform binary operations. */
-    private DoubleBinaryOperator operator;
-    /** Value that is stored in the calculator. */
-    private double storedValue;
-    /** It is set to true if last button pressed was a binary operator. */
-    private boolean binaryOperation;
-    /** It is true if the last button pressed was a unary operator. */
-    private boolean unaryOperation;
-    /** It is true if the last button pressed was equals button. */
-    private boolean equalsPressed;
+    /** State machine which does the actual work. */
+    private final CalculatorEngine engine;
     /** Display of the calulator. */
-    private JLabel display;
+    private CalculatorDisplay display;
     /** Checkbox used to invert operations. */
     private JCheckBox box;
+    /** Journal of the operations, <code>null</code> if there is none. */
+    private EventJournal journal;
+    /** Undo/redo history of the engine. */
+    private final EngineHistory history;
+    /** Recorder of a macro, <code>null</code> if none is being recorded. */
+    private MacroRecorder recorder;
+    /** Stack of the matrix mode. */
+    private final MatrixStack matrices = new MatrixStack();
+    /** It is true in matrix mode. */
+    private boolean matrixMode;
+    /** Exact counterpart of the engine, <code>null</code> if not in high-precision mode. */
+    private ExactSession exact;
+    /** Operators of the current mode. */
+    private final AtomicReference<OperatorBank> bank =
+        new AtomicReference<>(OperatorRegistry.DEFAULT.bank(false, false, AngleUnit.RADIANS));
 
     /**
      * Creates a new {@link CalculatorBackend} that operates with labela and box.
      *
      * @param calc calculator window
-     * @param display label used for result showing
+     * @param display display used for result showing
      * @param box checkbox
      */
-    public CalculatorBackend(Calculator calc, JLabel display, JCheckBox box) {
+    public CalculatorBackend(Calculator calc, CalculatorDisplay display, JCheckBox box) {
 
         this.calc = calc;
         this.display = display;
         this.box = box;
 
-        buffer = new StringBuilder();
-        stack = new Stack<>();
+        engine = new CalculatorEngine();
+        history = new EngineHistory(engine);
     }
 
     /**
-     * If the buffer is empty, return the last stored value. Otherwise, return the value of the
-     * buffer.
+     * Returns the engine behind this backend.
      *
-     * @return current value in the calculator
+     * @return the engine
      */
-    public Double getCurrentValue() {
-        double result;
-        if (buffer.length() != 0) {
-            result = Double.parseDouble(buffer.toString());
-        } else {
-            result = storedValue;
+    public CalculatorEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Sets the journal to which operations are appended. The state of the engine should already
+     * be recovered from it.
+     *
+     * @param journal the journal, <code>null</code> to stop journaling
+     */
+    public void setJournal(EventJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @return the journal, <code>null</code> if there is none
+     */
+    public EventJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Starts recording a macro. A macro which was being recorded is discarded.
+     */
+    public void startRecording() {
+        recorder = new MacroRecorder();
+        if (engine.isInverted()) {
+            recorder.key(Keypad.INV);
         }
-        return result;
     }
 
     /**
-     * Sets the buffer to the newValue. Used when performing functions.
+     * Stops recording and compiles the recorded keys into a macro.
+     *
+     * @return the macro
+     * @throws IllegalStateException if no macro is being recorded
+     * @throws IllegalArgumentException if a recorded action cannot be in a macro
+     */
+    public Macro stopRecording() {
+        if (recorder == null) {
+            throw new IllegalStateException("No macro is being recorded.");
+        }
+        MacroRecorder finished = recorder;
+        recorder = null;
+        return finished.finish(Keypad.DEFAULT);
+    }
+
+    /**
+     * @return <code>true</code> if a macro is being recorded
+     */
+    public boolean isRecording() {
+        return recorder != null;
+    }
+
+    /**
+     * @return undo/redo history of the engine
+     */
+    public EngineHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Records the current state in the history. It is invoked after every user action, so the
+     * action can be undone as a whole.
+     */
+    public void record() {
+        history.record();
+    }
+
+    /**
+     * Undoes the last user action.
+     *
+     * @return <code>false</code> if there is nothing to undo
+     */
+    public boolean undo() {
+        return restored(history.undo());
+    }
+
+    /**
+     * Redoes the last undone user action.
+     *
+     * @return <code>false</code> if there is nothing to redo
+     */
+    public boolean redo() {
+        return restored(history.redo());
+    }
+
+    /**
+     * Brings the journal, the checkbox and the display in sync with a state restored from the
+     * history. A recorded macro cannot contain the jump.
+     *
+     * @param restored <code>true</code> if a state was restored
+     * @return <code>restored</code>
+     */
+    private boolean restored(boolean restored) {
+        if (restored) {
+            if (journal != null) {
+                journal.checkpoint();
+            }
+            if (recorder != null) {
+                recorder.unrecordable();
+            }
+            if (exact != null) {
+                exact.load(engine);
+            }
+            if (box != null && box.isSelected() != engine.isInverted()) {
+                box.doClick();
+            }
+            if (display != null) {
+                updateLabel(null);
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * If the input is empty, return the last stored value. Otherwise, return the value of the
+     * input.
+     *
+     * @return current value in the calculator
+     */
+    public double getCurrentValue() {
+        return engine.getCurrentValue();
+    }
+
+    /**
+     * Sets the input to the newValue. Used when performing functions.
      *
      * @param newValue value to set
      */
     public void setNewValue(double newValue) {
-        buffer = new StringBuilder(String.valueOf(newValue));
+        if (journal != null) {
+            journal.value(newValue);
+        }
+        if (recorder != null) {
+            recorder.unrecordable();
+        }
+        engine.setNewValue(newValue);
+        if (exact != null) {
+            exact.setNewValue(ExactOperators.decimal(newValue));
+        }
     }
 
     /**
-     * Puts the given value at the end of the buffer.
+     * Puts the given value at the end of the input.
      *
-     * @param value string to append to the buffer
+     * @param value string to append to the input
      */
     public void addToBuffer(String value) {
-
-        if (equalsPressed) {
-            buffer.setLength(0);
-            equalsPressed = false;
-        } else if (binaryOperation) {
-            buffer.setLength(0);
-            binaryOperation = false;
-        } else if (unaryOperation) {
-            buffer.setLength(0);
-            unaryOperation = false;
+        if (journal == null && recorder == null && exact == null) {
+            engine.addToBuffer(value);
+            return;
+        }
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if (c == '.') {
+                key(Keypad.DOT);
+                engine.addDot();
+                if (exact != null) {
+                    exact.addDot();
+                }
+            } else if (c >= '0' && c <= '9') {
+                key(c - '0');
+                engine.addDigit(c - '0');
+                if (exact != null) {
+                    exact.addDigit(c - '0');
+                }
+            } else {
+                throw new IllegalArgumentException("Invalid input: \"" + value + "\".");
+            }
         }
+    }
 
-        if (value.equals(".")) {
-            if (!buffer.toString().contains(".")) {
-                buffer.append(".");
+    /**
+     * Applies the given operator to the current value. An operator which is not a
+     * {@link UnaryOperation}, e.g. a {@link Macro}, is journaled by its result and cannot be
+     * recorded into a macro.
+     *
+     * @param operator operator to apply
+     */
+    public void unaryOperation(DoubleUnaryOperator operator) {
+        if (matrixMode && MatrixStack.supports(operator)) {
+            matrixOperation(() -> matrices.apply(operator));
+            return;
+        }
+        if (exact != null) {
+            exact.unaryOperation(ExactOperators.unary(operator));
+        }
+        if (operator instanceof UnaryOperation) {
+            key(Keypad.UNARY | keyOf((UnaryOperation) operator).getId());
+        } else {
+            if (recorder != null) {
+                recorder.unrecordable();
             }
+            if (journal != null) {
+                double result = operator.applyAsDouble(engine.getCurrentValue());
+                journal.unaryResult(result);
+                engine.unaryOperation(x -> result);
+                return;
+            }
+        }
+        engine.unaryOperation(operator);
+    }
+
+    /**
+     * Stores the current value and remembers the given operator. If there is a journal, the
+     * operator has to be a {@link BinaryOperation}.
+     *
+     * @param operator operator to remember
+     * @throws IllegalArgumentException if the operator cannot be journaled
+     */
+    public void binaryOperation(DoubleBinaryOperator operator) {
+        if (matrixMode && MatrixStack.supports(operator)) {
+            double argument = engine.getCurrentValue();
+            matrixOperation(() -> matrices.apply(operator, argument));
+            return;
+        }
+        if (operator instanceof BinaryOperation) {
+            key(Keypad.BINARY | keyOf((BinaryOperation) operator).getId());
         } else {
-            buffer.append(value);
+            if (journal != null) {
+                throw new IllegalArgumentException("Operator has no id: " + operator + ".");
+            }
+            if (recorder != null) {
+                recorder.unrecordable();
+            }
+        }
+        engine.binaryOperation(operator);
+        if (exact != null) {
+            exact.binaryOperation(ExactOperators.binary(operator));
         }
     }
 
     /**
-     * Changes the text on the label.
+     * Chooses normal or inverted operators.
+     *
+     * @param inverted <code>true</code> for inverted operators
      */
-    public void updateLabel(Double value) {
-        double newValue = (value == null) ? getCurrentValue() : value;
-        String valueToSet = String.valueOf(newValue);
-        SwingUtilities.invokeLater(
-            () -> display.setText("<html><h1>" + valueToSet + "&nbsp</h1></html>"));
+    public void setInverted(boolean inverted) {
+        if (inverted != engine.isInverted()) {
+            key(Keypad.INV);
+        }
+        engine.setInverted(inverted);
+        if (exact != null) {
+            exact.setInverted(inverted);
+        }
+        bank.updateAndGet(b -> b.withInverse(inverted));
     }
 
     /**
-     * When equals button is pressed method calculates result based on previously given operator.
+     * Chooses hyperbolic or circular functions.
+     *
+     * @param hyperbolic <code>true</code> for hyperbolic functions
      */
-    public void equalsPressed() {
-        if (!isEqualsPressed()) {
-            double a = getStoredValue();
-            double b = getCurrentValue();
+    public void setHyperbolic(boolean hyperbolic) {
+        bank.updateAndGet(b -> b.withHyperbolic(hyperbolic));
+    }
 
-            double result = getOperator().applyAsDouble(a, b);
+    /**
+     * Chooses the unit of angles of the trigonometric functions.
+     *
+     * @param unit unit of angles
+     */
+    public void setAngleUnit(AngleUnit unit) {
+        bank.updateAndGet(b -> b.withUnit(unit));
+    }
 
-            setStoredValue(0);
-            setNewValue(result);
+    /**
+     * Turns the matrix mode on or off. The matrix stack is kept while the mode is off.
+     *
+     * @param matrixMode <code>true</code> for the matrix mode
+     */
+    public void setMatrixMode(boolean matrixMode) {
+        this.matrixMode = matrixMode;
+    }
 
-            setEqualsPressed(true);
-            setBinaryOperation(false);
-            setUnaryOperation(false);
+    /**
+     * Turns the high-precision mode on or off. When it is turned on, the exact session starts from
+     * the state of the engine.
+     *
+     * @param exactMode <code>true</code> for the high-precision mode
+     */
+    public void setExactMode(boolean exactMode) {
+        if (!exactMode) {
+            exact = null;
+        } else if (exact == null) {
+            exact = new ExactSession();
+            exact.load(engine);
         }
     }
 
     /**
-     * Method changes the sign of currently displayed number.
+     * @return <code>true</code> in high-precision mode
      */
-    public void changeSign() {
-        double value = getCurrentValue();
-        value *= (value == 0) ? 1 : -1;
-        setNewValue(value);
+    public boolean isExactMode() {
+        return exact != null;
     }
 
     /**
-     * Restarts this {@link CalculatorBackend}, puts it in the initial state.
+     * @return <code>true</code> in matrix mode
      */
-    public void restart() {
-        buffer = new StringBuilder();
-        stack = new Stack<>();
-        storedValue = 0;
-        operator = (a, b) -> a + b;
-        binaryOperation = false;
-        unaryOperation = false;
-        equalsPressed = false;
+    public boolean isMatrixMode() {
+        return matrixMode;
+    }
 
-        if (display != null) {
-            updateLabel(null);
-        }
-        if (box != null) {
-            if (box.isSelected()) {
-                box.doClick();
-            }
-        }
+    /**
+     * Returns the statistics of the values on the stack. They are kept up to date by every push
+     * and pop, so this does not rescan the stack.
+     *
+     * @return statistics of the stack
+     */
+    public Statistics getStatistics() {
+        return engine.getStack().statistics().get();
     }
 
     /**
-     * Clears the buffer.
+     * @return stack of the matrix mode
      */
-    public void clear() {
-        buffer.setLength(0);
+    public MatrixStack getMatrices() {
+        return matrices;
     }
 
     /**
-     * Pushes the current number onto the stack.
+     * Packs the numbers on the top of the matrix stack into a matrix, see
+     * {@link MatrixStack#pack(int, int)}.
+     *
+     * @param rows number of rows
+     * @param columns number of columns
      */
-    public void push() {
-        stack.push(getCurrentValue());
+    public void packMatrix(int rows, int columns) {
+        matrixOperation(() -> matrices.pack(rows, columns));
     }
 
     /**
-     * Pops last element that was pushed onto the stack.
+     * Runs an operation on the matrix stack and shows a warning if it fails.
+     *
+     * @param operation the operation
      */
-    public void pop() {
-        if (stack.isEmpty()) {
+    private void matrixOperation(Runnable operation) {
+        try {
+            operation.run();
+        } catch (EmptyStackException e) {
             JOptionPane.showMessageDialog(calc, "Stack is empty!", "Empty stack",
                 JOptionPane.WARNING_MESSAGE);
-            buffer = new StringBuilder("Stack is empty.");
-            restart();
-        } else {
-            setNewValue(stack.pop());
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            JOptionPane.showMessageDialog(calc, e.getMessage(), "Matrix error",
+                JOptionPane.WARNING_MESSAGE);
         }
     }
 
     /**
-     * @return the storedValue
+     * @return operators of the current mode
      */
-    public double getStoredValue() {
-        return storedValue;
+    public OperatorBank getBank() {
+        return bank.get();
     }
 
     /**
-     * @param storedValue the storedValue to set
+     * Shows the given value on the display. The display is repainted later on the Event Dispatch
+     * Thread, and values set before that are coalesced into one repaint. The title of the window
+     * shows the top of the matrix stack in matrix mode. In high-precision mode, the current value
+     * is shown with {@link #PRECISION} digits.
+     *
+     * @param value value to show, <code>null</code> for the current value
      */
-    public void setStoredValue(double storedValue) {
-        this.storedValue = storedValue;
+    public void updateLabel(Double value) {
+        if (value == null && exact != null) {
+            display.setValue(getCurrentValue(), exact.getDisplay(PRECISION));
+        } else {
+            display.setValue((value == null) ? getCurrentValue() : value);
+        }
+        if (calc != null) {
+            calc.updateTitle();
+        }
+    }
+
+    /**
+     * When equals button is pressed method calculates result based on previously given operator.
+     */
+    public void equalsPressed() {
+        key(Keypad.EQUALS);
+        engine.equalsPressed();
+        if (exact != null) {
+            exact.equalsPressed();
+        }
     }
 
     /**
-     * @return the operator
+     * Method changes the sign of currently displayed number.
      */
-    public DoubleBinaryOperator getOperator() {
-        return operator;
+    public void changeSign() {
+        key(Keypad.SIGN);
+        engine.changeSign();
+        if (exact != null) {
+            exact.changeSign();
+        }
     }
 
     /**
-     * @param operator the operator to set
+     * Restarts this {@link CalculatorBackend}, puts it in the initial state.
      */
-    public void setOperator(DoubleBinaryOperator operator) {
-        this.operator = operator;
+    public void restart() {
+        key(Keypad.RESTART);
+        engine.restart();
+        if (exact != null) {
+            exact.restart();
+        }
+
+        if (display != null) {
+            updateLabel(null);
+        }
+        if (box != null) {
+            if (box.isSelected()) {
+                box.doClick();
+            }
+        }
     }
 
     /**
-     * @return the binaryOperation
+     * Clears the input.
      */
-    public boolean isBinaryOperation() {
-        return binaryOperation;
+    public void clear() {
+        key(Keypad.CLEAR);
+        engine.clear();
+        if (exact != null) {
+            exact.clear();
+        }
     }
 
     /**
-     * @return the unaryOperation
+     * Pushes the current number onto the stack.
      */
-    public boolean isUnaryOperation() {
-        return unaryOperation;
+    public void push() {
+        if (matrixMode) {
+            matrices.push(engine.getCurrentValue());
+            return;
+        }
+        key(Keypad.PUSH);
+        engine.push();
+        if (exact != null) {
+            exact.push();
+        }
     }
 
     /**
-     * @param unaryOperation the unaryOperation to set
+     * Pops last element that was pushed onto the stack. In matrix mode, a number is popped into
+     * the input and a bigger matrix is unpacked into its elements.
      */
-    public void setUnaryOperation(boolean unaryOperation) {
-        this.unaryOperation = unaryOperation;
+    public void pop() {
+        if (matrixMode) {
+            matrixOperation(() -> {
+                Matrix top = matrices.peek();
+                if (top.getRows() == 1 && top.getColumns() == 1) {
+                    setNewValue(matrices.pop().get(0, 0));
+                } else {
+                    matrices.unpack();
+                }
+            });
+            return;
+        }
+        key(Keypad.POP);
+        if (exact != null) {
+            exact.pop();
+        }
+        if (!engine.pop()) {
+            CalculatorMetrics.get().error(engine.getError());
+            JOptionPane.showMessageDialog(calc, "Stack is empty!", "Empty stack",
+                JOptionPane.WARNING_MESSAGE);
+            restart();
+        }
     }
 
     /**
-     * @param binaryOperation the binaryOperation to set
+     * Returns the operation whose key gives the given operation in the current mode. While Inv is
+     * checked, the keys apply the inverse operations (see {@link Keypad}), so it is the inverse.
+     *
+     * @param operation the applied operation
+     * @return operation of the key
      */
-    public void setBinaryOperation(boolean binaryOperation) {
-        this.binaryOperation = binaryOperation;
+    private UnaryOperation keyOf(UnaryOperation operation) {
+        return engine.isInverted() ? OperatorRegistry.DEFAULT.inverse(operation) : operation;
     }
 
     /**
-     * @return the equalsPressed
+     * Returns the operation whose key gives the given operation in the current mode.
+     *
+     * @param operation the applied operation
+     * @return operation of the key
      */
-    public boolean isEqualsPressed() {
-        return equalsPressed;
+    private BinaryOperation keyOf(BinaryOperation operation) {
+        return engine.isInverted() ? OperatorRegistry.DEFAULT.inverse(operation) : operation;
     }
 
     /**
-     * @param equalsPressed the equalsPressed to set
+     * Appends the key to the journal and to the recorded macro, if there are any.
+     *
+     * @param code code of the key
      */
-    public void setEqualsPressed(boolean equalsPressed) {
-        this.equalsPressed = equalsPressed;
+    private void key(int code) {
+        if (journal != null) {
+            journal.key(code);
+        }
+        if (recorder != null) {
+            recorder.key(code);
+        }
     }
 }
@@ -0,0 +1,175 @@
+package hr.fer.zemris.java.gui.calc;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.RenderingHints;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+/**
+ * Display of the {@link Calculator}. It paints the value as plain text, aligned to the right.<p>
+ *
+ * {@link #setValue(double)} can be called from any thread and as often as needed. It only
+ * remembers the value; the text is formatted and repainted later on the Event Dispatch Thread. All
+ * values set in the meantime are coalesced into that one update, so the display is repainted at
+ * most once per queued update, showing the latest value. The value is shown as {@link
+ * String#valueOf(double)} unless a text of it is given, e.g. more digits of it.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class CalculatorDisplay extends JComponent {
+
+    private static final long serialVersionUID = 1L;
+    /** Font of the display. */
+    private static final Font DISPLAY_FONT = new Font("Arial", Font.BOLD, 28);
+    /** Text used for calculating preferred size. */
+    private static final String SIZE_SAMPLE = "0.0";
+
+    /** Latest value. */
+    private volatile double value;
+    /** Text of the latest value, <code>null</code> if the value is formatted. */
+    private volatile String valueText;
+    /** It is true if an update is already queued on the Event Dispatch Thread. */
+    private final AtomicBoolean updateQueued = new AtomicBoolean();
+    /** Text which is painted. */
+    private String text;
+    /** Metrics of the current font. */
+    private FontMetrics metrics;
+
+    /**
+     * Creates a new {@link CalculatorDisplay} which shows zero.
+     */
+    public CalculatorDisplay() {
+        text = String.valueOf(value);
+        setFont(DISPLAY_FONT);
+    }
+
+    /**
+     * Sets the value which is shown. This method can be called from any thread.
+     *
+     * @param newValue value to show
+     */
+    public void setValue(double newValue) {
+        setValue(newValue, null);
+    }
+
+    /**
+     * Sets the value which is shown and the text which shows it. This method can be called from
+     * any thread.
+     *
+     * @param newValue value to show
+     * @param newText text of the value, <code>null</code> to format the value
+     */
+    public void setValue(double newValue, String newText) {
+        valueText = newText;
+        value = newValue;
+        if (updateQueued.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::update);
+        }
+    }
+
+    /**
+     * Returns the latest value.
+     *
+     * @return the value
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the text which is currently shown.
+     *
+     * @return the text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Formats the latest value and repaints the display if the text changed.
+     */
+    private void update() {
+        updateQueued.set(false);
+        String newText = valueText;
+        if (newText == null) {
+            newText = String.valueOf(value);
+        }
+        if (!newText.equals(text)) {
+            text = newText;
+            repaint();
+        }
+    }
+
+    @Override
+    public void setFont(Font font) {
+        super.setFont(font);
+        metrics = null;
+    }
+
+    /**
+     * Returns metrics of the current font, cached until the font changes.
+     *
+     * @return font metrics
+     */
+    private FontMetrics metrics() {
+        if (metrics == null) {
+            metrics = getFontMetrics(getFont());
+        }
+        return metrics;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        FontMetrics fm = metrics();
+        Insets insets = getInsets();
+        int padding = fm.charWidth(' ');
+        return new Dimension(
+            fm.stringWidth(SIZE_SAMPLE) + 2 * padding + insets.left + insets.right,
+            fm.getHeight() + padding + insets.top + insets.bottom);
+    }
+
+    @Override
+    public Dimension getMinimumSize() {
+        if (isMinimumSizeSet()) {
+            return super.getMinimumSize();
+        }
+        return getPreferredSize();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Insets insets = getInsets();
+        if (isOpaque()) {
+            g.setColor(getBackground());
+            g.fillRect(insets.left, insets.top, getWidth() - insets.left - insets.right,
+                getHeight() - insets.top - insets.bottom);
+        }
+
+        FontMetrics fm = metrics();
+        String shown = text;
+        int x = getWidth() - insets.right - fm.charWidth(' ') - fm.stringWidth(shown);
+        int innerHeight = getHeight() - insets.top - insets.bottom;
+        int y = insets.top + (innerHeight - fm.getHeight()) / 2 + fm.getAscent();
+
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2.setFont(getFont());
+            g2.setColor(getForeground());
+            g2.drawString(shown, x, y);
+        } finally {
+            g2.dispose();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package hr.fer.zemris.java.gui.calc;
+
+import hr.fer.zemris.java.gui.calc.metrics.CalculatorMetrics;
+import java.awt.AWTEvent;
+import java.awt.event.AWTEventListener;
+import java.util.ArrayDeque;
+import javax.swing.SwingUtilities;
+
+/**
+ * Queue of typed keys which are applied in batches. The first typed key schedules a drain at the
+ * end of the Event Dispatch Thread's queue, so all keys which were queued behind it are applied in
+ * one pass, followed by a single update of the display. The latency of every batch, from the first
+ * applied key to the updated display, is recorded in {@link CalculatorMetrics}.<p>
+ *
+ * As an {@link AWTEventListener} of mouse events, it drains the typed keys before a mouse event is
+ * dispatched, so a click never overtakes keys typed before it. Draining is not reentrant: keys
+ * typed while a key shows a modal dialog are applied after that key. All methods must be invoked
+ * on the Event Dispatch Thread.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+final class TypeAhead implements AWTEventListener {
+
+    /** Typed keys which were not applied yet. */
+    private final ArrayDeque<Runnable> keys = new ArrayDeque<>();
+    /** Invoked after a batch of keys is applied. */
+    private final Runnable applied;
+    /** Drains the keys, scheduled when the first key is typed. */
+    private final Runnable drain = this::drain;
+    /** It is true while the keys are being applied. */
+    private boolean draining;
+
+    /**
+     * Creates a new empty {@link TypeAhead}.
+     *
+     * @param applied invoked after a batch of keys is applied, e.g. to update the display
+     */
+    TypeAhead(Runnable applied) {
+        this.applied = applied;
+    }
+
+    /**
+     * Queues a typed key.
+     *
+     * @param key what the key does
+     */
+    void type(Runnable key) {
+        if (keys.isEmpty() && !draining) {
+            SwingUtilities.invokeLater(drain);
+        }
+        keys.add(key);
+    }
+
+    /**
+     * Applies all queued keys, including the ones typed meanwhile, and then invokes the callback
+     * once and records the latency of the batch. Nothing is done if there are no keys or they are
+     * already being applied.
+     */
+    void drain() {
+        if (draining || keys.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        draining = true;
+        try {
+            Runnable key;
+            while ((key = keys.poll()) != null) {
+                key.run();
+            }
+        } finally {
+            draining = false;
+            if (!keys.isEmpty()) {
+                SwingUtilities.invokeLater(drain);
+            }
+        }
+        applied.run();
+        CalculatorMetrics.get().latency(System.nanoTime() - start);
+    }
+
+    /**
+     * Drains the keys before a mouse event.
+     *
+     * @param event the mouse event
+     */
+    @Override
+    public void eventDispatched(AWTEvent event) {
+        drain();
+    }
+}
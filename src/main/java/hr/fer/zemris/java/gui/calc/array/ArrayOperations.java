@@ -0,0 +1,392 @@
+package hr.fer.zemris.java.gui.calc.array;
+
+import hr.fer.zemris.java.gui.calc.engine.BinaryOperation;
+import hr.fer.zemris.java.gui.calc.engine.Statistics;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Applies calculator operators element-wise to whole arrays.<p>
+ *
+ * Arrays longer than {@link #THRESHOLD} are split into chunks which are processed on a {@link
+ * ForkJoinPool}. Each chunk is a simple counted loop over primitive arrays. Plain arithmetic
+ * operators from the registry (see {@link BinaryOperation#getArithmetic()}) get their own loops
+ * without an operator call, which the JIT compiler can vectorize. Output array may be the same as
+ * one of the input arrays.<p>
+ *
+ * Reductions ({@link #statistics(double[], int, int)}) split the range in the same halves whatever
+ * the pool and combine the results of the halves in their order, so the result depends only on
+ * the values, not on the number of threads or the scheduling.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class ArrayOperations {
+
+    /** Arrays up to this length are processed by the calling thread only. */
+    public static final int THRESHOLD = 1 << 15;
+
+    /** Pool which processes the chunks. */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a new {@link ArrayOperations} which uses the common pool.
+     */
+    public ArrayOperations() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new {@link ArrayOperations} which uses the given pool.
+     *
+     * @param pool pool which processes the chunks
+     */
+    public ArrayOperations(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Calculates <code>out[i] = operator(in[i])</code>.
+     *
+     * @param operator operator to apply
+     * @param in operands
+     * @param out array for the results
+     * @throws IllegalArgumentException if arrays are not of the same length
+     */
+    public void apply(DoubleUnaryOperator operator, double[] in, double[] out) {
+        checkLength(in.length, out.length);
+        run(new Chunk(in.length) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            void compute(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    out[i] = operator.applyAsDouble(in[i]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Calculates <code>out[i] = operator(left[i], right[i])</code>.
+     *
+     * @param operator operator to apply
+     * @param left left operands
+     * @param right right operands
+     * @param out array for the results
+     * @throws IllegalArgumentException if arrays are not of the same length
+     */
+    public void apply(DoubleBinaryOperator operator, double[] left, double[] right,
+        double[] out) {
+        checkLength(left.length, right.length);
+        checkLength(left.length, out.length);
+        switch (arithmetic(operator)) {
+            case '+':
+                run(new Chunk(out.length) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    void compute(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            out[i] = left[i] + right[i];
+                        }
+                    }
+                });
+                break;
+            case '-':
+                run(new Chunk(out.length) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    void compute(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            out[i] = left[i] - right[i];
+                        }
+                    }
+                });
+                break;
+            case '*':
+                run(new Chunk(out.length) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    void compute(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            out[i] = left[i] * right[i];
+                        }
+                    }
+                });
+                break;
+            case '/':
+                run(new Chunk(out.length) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    void compute(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            out[i] = left[i] / right[i];
+                        }
+                    }
+                });
+                break;
+            default:
+                run(new Chunk(out.length) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    void compute(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            out[i] = operator.applyAsDouble(left[i], right[i]);
+                        }
+                    }
+                });
+                break;
+        }
+    }
+
+    /**
+     * Calculates <code>out[i] = operator(left[i], right)</code>, e.g. all operands to the same
+     * power.
+     *
+     * @param operator operator to apply
+     * @param left left operands
+     * @param right right operand
+     * @param out array for the results
+     * @throws IllegalArgumentException if arrays are not of the same length
+     */
+    public void apply(DoubleBinaryOperator operator, double[] left, double right, double[] out) {
+        checkLength(left.length, out.length);
+        switch (arithmetic(operator)) {
+            case '+':
+                run(new Chunk(out.length) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    void compute(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            out[i] = left[i] + right;
+                        }
+                    }
+                });
+                break;
+            case '-':
+                run(new Chunk(out.length) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    void compute(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            out[i] = left[i] - right;
+                        }
+                    }
+                });
+                break;
+            case '*':
+                run(new Chunk(out.length) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    void compute(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            out[i] = left[i] * right;
+                        }
+                    }
+                });
+                break;
+            case '/':
+                run(new Chunk(out.length) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    void compute(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            out[i] = left[i] / right;
+                        }
+                    }
+                });
+                break;
+            default:
+                run(new Chunk(out.length) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    void compute(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            out[i] = operator.applyAsDouble(left[i], right);
+                        }
+                    }
+                });
+                break;
+        }
+    }
+
+    /**
+     * Summarizes the values in the range. Ranges longer than {@link #THRESHOLD} are halved until
+     * they are not, the parts are summarized in parallel and the results are combined in the order
+     * of the parts.
+     *
+     * @param values the values
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return statistics of the values
+     * @throws IllegalArgumentException if the range is not valid
+     */
+    public Statistics statistics(double[] values, int from, int to) {
+        if (to - from <= THRESHOLD) {
+            return Statistics.of(values, from, to);
+        }
+        if (from < 0 || to > values.length) {
+            throw new IllegalArgumentException(
+                "Invalid range: [" + from + ", " + to + ") of " + values.length + ".");
+        }
+        return pool.invoke(new Reduction(values, from, to));
+    }
+
+    /**
+     * Runs the chunk in the calling thread if it is small, in the pool otherwise.
+     *
+     * @param chunk chunk covering the whole array
+     */
+    private void run(Chunk chunk) {
+        if (chunk.to <= THRESHOLD) {
+            chunk.compute(0, chunk.to);
+        } else {
+            pool.invoke(chunk);
+        }
+    }
+
+    /**
+     * Returns arithmetic symbol of the operator.
+     *
+     * @param operator the operator
+     * @return symbol, <code>0</code> if the operator is not plain arithmetic
+     */
+    private static char arithmetic(DoubleBinaryOperator operator) {
+        if (operator instanceof BinaryOperation) {
+            return ((BinaryOperation) operator).getArithmetic();
+        }
+        return 0;
+    }
+
+    /**
+     * Checks that arrays are of the same length.
+     *
+     * @param expected length of the first array
+     * @param actual length of the other array
+     */
+    private static void checkLength(int expected, int actual) {
+        if (expected != actual) {
+            throw new IllegalArgumentException(
+                "Arrays must be of the same length: " + expected + " != " + actual + ".");
+        }
+    }
+
+    /**
+     * Statistics of a range of an array. It splits itself in halves until it is short enough.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    private static final class Reduction extends RecursiveTask<Statistics> {
+
+        private static final long serialVersionUID = 1L;
+
+        /** The values. */
+        private final double[] values;
+        /** First index (inclusive). */
+        private final int from;
+        /** Last index (exclusive). */
+        private final int to;
+
+        /**
+         * Creates a reduction of the range.
+         *
+         * @param values the values
+         * @param from first index (inclusive)
+         * @param to last index (exclusive)
+         */
+        Reduction(double[] values, int from, int to) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Statistics compute() {
+            if (to - from <= THRESHOLD) {
+                return Statistics.of(values, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            Reduction upper = new Reduction(values, mid, to);
+            upper.fork();
+            Statistics lower = new Reduction(values, from, mid).compute();
+            return lower.combine(upper.join());
+        }
+    }
+
+    /**
+     * Range of an array. It splits itself in halves until it is short enough and then processes
+     * its elements with {@link #compute(int, int)}.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    private abstract static class Chunk extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /** Length of the arrays. */
+        private final int to;
+
+        /**
+         * Creates a chunk covering <code>[0, length)</code>.
+         *
+         * @param length length of the arrays
+         */
+        Chunk(int length) {
+            this.to = length;
+        }
+
+        @Override
+        protected final void compute() {
+            split(this, 0, to);
+        }
+
+        /**
+         * Processes the range, forking the upper halves while it is too long.
+         *
+         * @param root chunk with the loop
+         * @param lo first index (inclusive)
+         * @param hi last index (exclusive)
+         */
+        private static void split(Chunk root, int lo, int hi) {
+            if (hi - lo <= THRESHOLD) {
+                root.compute(lo, hi);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            RecursiveAction upper = new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    split(root, mid, hi);
+                }
+            };
+            upper.fork();
+            split(root, lo, mid);
+            upper.join();
+        }
+
+        /**
+         * Processes elements from the given range.
+         *
+         * @param from first index (inclusive)
+         * @param to last index (exclusive)
+         */
+        abstract void compute(int from, int to);
+    }
+}
@@ -1,12 +1,19 @@
 package hr.fer.zemris.java.gui.calc.buttons;
 
 import hr.fer.zemris.java.gui.calc.CalculatorBackend;
+import hr.fer.zemris.java.gui.calc.metrics.CalculatorMetrics;
 import java.awt.Font;
+import java.util.concurrent.atomic.LongAdder;
 import javax.swing.JButton;
 
 /**
  * JButton that has the next property: when it's pressed, method execute() is invoked. After that,
- * label is updated.
+ * the state is recorded in the undo history and label is updated. Every press is counted under
+ * the current label of the button in {@link CalculatorMetrics}, together with the stack depth.
+ * Reading the clock costs more than the counting, so the latency of a click, from the operation to
+ * the updated label, is measured only on every {@link CalculatorMetrics#LATENCY_SAMPLING}-th click
+ * of a button (starting with the first one). Keyboard input uses {@link #press()} directly and
+ * updates the label once for a batch of keys, whose latency is measured by the batch.
  *
  * @author Boris
  * @version 1.0
@@ -14,8 +21,14 @@ import javax.swing.JButton;
 public abstract class AbstractButton extends JButton {
 
     private static final long serialVersionUID = 1L;
+    /** Font shared by all buttons, so it is created and resolved only once. */
+    private static final Font BUTTON_FONT = new Font("Arial", Font.BOLD, 25);
 
     protected CalculatorBackend calc;
+    /** Invocation counter of the current label. */
+    private LongAdder counter;
+    /** Number of clicks, used to sample the latency. */
+    private int clicks;
 
     /**
      * Creates a new JButton. When this button is pressed, execute() method is invoked.
@@ -26,13 +39,43 @@ public abstract class AbstractButton extends JButton {
     public AbstractButton(String label, CalculatorBackend calc) {
         super(label);
         this.calc = calc;
-        this.setFont(new Font("Arial", Font.BOLD, 25));
+        this.setFont(BUTTON_FONT);
         this.addActionListener(e -> {
-            execute();
-            calc.updateLabel(null);
+            if (clicks++ % CalculatorMetrics.LATENCY_SAMPLING != 0) {
+                press();
+                calc.updateLabel(null);
+            } else {
+                long start = System.nanoTime();
+                press();
+                calc.updateLabel(null);
+                CalculatorMetrics.get().latency(System.nanoTime() - start);
+            }
         });
     }
 
+    /**
+     * Does what this button does when it's pressed, except updating the label: executes it,
+     * records the state in the undo history and counts the press. The latency is not measured,
+     * the caller measures it together with the label update.
+     */
+    public void press() {
+        execute();
+        calc.record();
+        counter.increment();
+        CalculatorMetrics.get().stackDepth(calc.getEngine().getStack().size());
+    }
+
+    /**
+     * Sets the label and looks up its invocation counter.
+     *
+     * @param text the label
+     */
+    @Override
+    public void setText(String text) {
+        super.setText(text);
+        counter = CalculatorMetrics.get().counter(text);
+    }
+
     /**
      * Determines what happens when this button is pressed.
      */
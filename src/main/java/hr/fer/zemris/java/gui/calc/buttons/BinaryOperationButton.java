@@ -30,10 +30,6 @@ public class BinaryOperationButton extends AbstractButton {
 
     @Override
     protected void execute() {
-        calc.setStoredValue(calc.getCurrentValue());
-        calc.setOperator(operator);
-        calc.setBinaryOperation(true);
-        calc.setEqualsPressed(false);
-        calc.setUnaryOperation(false);
+        calc.binaryOperation(operator);
     }
 }
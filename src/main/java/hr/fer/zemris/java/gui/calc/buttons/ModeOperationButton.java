@@ -0,0 +1,70 @@
+package hr.fer.zemris.java.gui.calc.buttons;
+
+import hr.fer.zemris.java.gui.calc.CalculatorBackend;
+import hr.fer.zemris.java.gui.calc.engine.OperatorBank;
+import hr.fer.zemris.java.gui.calc.math.AngleUnit;
+import hr.fer.zemris.java.gui.calc.metrics.CalculatorMetrics;
+
+/**
+ * Button whose operator depends on the mode of the calculator (Inv, hyperbolic functions, unit of
+ * angles). The operator is looked up in the current {@link OperatorBank} of the backend when the
+ * button is pressed, and the label follows the bank when {@link #updateText()} is invoked. The
+ * counters of the labels in all banks are registered when the button is created, so every
+ * operator is in the operation counts of {@link CalculatorMetrics}, also before it is used.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class ModeOperationButton extends AbstractButton {
+
+    private static final long serialVersionUID = 1L;
+    /** Slot of the button in the banks. */
+    private final OperatorBank.Slot slot;
+
+    /**
+     * Creates a new {@link ModeOperationButton} labelled by the current bank of the backend.
+     *
+     * @param slot slot of the button in the banks
+     * @param calc {@link CalculatorBackend}
+     */
+    public ModeOperationButton(OperatorBank.Slot slot, CalculatorBackend calc) {
+        super(calc.getBank().label(slot), calc);
+        this.slot = slot;
+
+        CalculatorMetrics metrics = CalculatorMetrics.get();
+        OperatorBank bank = calc.getBank();
+        for (AngleUnit unit : AngleUnit.values()) {
+            for (int mode = 0; mode < 4; mode++) {
+                metrics.counter(bank.withUnit(unit).withHyperbolic((mode & 2) != 0)
+                    .withInverse((mode & 1) != 0).label(slot));
+            }
+        }
+    }
+
+    /**
+     * Sets the label to the operator in the current bank, if it is not already set.
+     */
+    public void updateText() {
+        String label = calc.getBank().label(slot);
+        if (!label.equals(getText())) {
+            setText(label);
+        }
+    }
+
+    @Override
+    protected void execute() {
+        OperatorBank bank = calc.getBank();
+        if (slot.isBinary()) {
+            calc.binaryOperation(bank.binary(slot));
+        } else {
+            calc.unaryOperation(bank.unary(slot));
+        }
+    }
+
+    /**
+     * @return slot of the button in the banks
+     */
+    public OperatorBank.Slot getSlot() {
+        return slot;
+    }
+}
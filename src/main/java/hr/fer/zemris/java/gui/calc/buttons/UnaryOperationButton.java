@@ -29,9 +29,6 @@ public class UnaryOperationButton extends AbstractButton {
 
     @Override
     protected void execute() {
-        calc.setNewValue(operator.applyAsDouble(calc.getCurrentValue()));
-        calc.setUnaryOperation(true);
-        calc.setBinaryOperation(false);
-        calc.setEqualsPressed(false);
+        calc.unaryOperation(operator);
     }
 }
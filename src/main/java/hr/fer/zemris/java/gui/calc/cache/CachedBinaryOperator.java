@@ -0,0 +1,45 @@
+package hr.fer.zemris.java.gui.calc.cache;
+
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * {@link DoubleBinaryOperator} which remembers results of another operator. It can be shared
+ * between threads. See {@link OperatorCache} for details.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class CachedBinaryOperator extends OperatorCache implements DoubleBinaryOperator {
+
+    /** Operator whose results are cached. */
+    private final DoubleBinaryOperator operator;
+
+    /**
+     * Creates a new {@link CachedBinaryOperator}.
+     *
+     * @param operator operator whose results are cached
+     * @param capacity maximal number of cached results
+     * @throws IllegalArgumentException if capacity is not positive or too large
+     */
+    public CachedBinaryOperator(DoubleBinaryOperator operator, int capacity) {
+        super(capacity);
+        this.operator = operator;
+    }
+
+    @Override
+    public double applyAsDouble(double left, double right) {
+        return get(Double.doubleToRawLongBits(left), Double.doubleToRawLongBits(right));
+    }
+
+    @Override
+    double compute(long key0, long key1) {
+        return operator.applyAsDouble(Double.longBitsToDouble(key0), Double.longBitsToDouble(key1));
+    }
+
+    /**
+     * @return the operator whose results are cached
+     */
+    public DoubleBinaryOperator getOperator() {
+        return operator;
+    }
+}
@@ -0,0 +1,45 @@
+package hr.fer.zemris.java.gui.calc.cache;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * {@link DoubleUnaryOperator} which remembers results of another operator. It can be shared
+ * between threads. See {@link OperatorCache} for details.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class CachedUnaryOperator extends OperatorCache implements DoubleUnaryOperator {
+
+    /** Operator whose results are cached. */
+    private final DoubleUnaryOperator operator;
+
+    /**
+     * Creates a new {@link CachedUnaryOperator}.
+     *
+     * @param operator operator whose results are cached
+     * @param capacity maximal number of cached results
+     * @throws IllegalArgumentException if capacity is not positive or too large
+     */
+    public CachedUnaryOperator(DoubleUnaryOperator operator, int capacity) {
+        super(capacity);
+        this.operator = operator;
+    }
+
+    @Override
+    public double applyAsDouble(double operand) {
+        return get(Double.doubleToRawLongBits(operand), 0);
+    }
+
+    @Override
+    double compute(long key0, long key1) {
+        return operator.applyAsDouble(Double.longBitsToDouble(key0));
+    }
+
+    /**
+     * @return the operator whose results are cached
+     */
+    public DoubleUnaryOperator getOperator() {
+        return operator;
+    }
+}
@@ -0,0 +1,203 @@
+package hr.fer.zemris.java.gui.calc.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size cache of operator results, keyed by raw bits of the operands.<p>
+ *
+ * The table is open-addressed and set-associative: a key can be in any of the {@link #WAYS} slots
+ * of its set. When all slots of a set are taken, the victim is chosen by the clock algorithm: the
+ * hand of the set skips (and clears) recently used slots and evicts the first slot which was not
+ * used since the last pass.<p>
+ *
+ * Slots are kept in one {@link AtomicLongArray} as <code>[stamp, key, key, result]</code>. The
+ * stamp works as a sequence lock: a writer makes it odd, writes the slot and makes it even again;
+ * a reader accepts the slot only if it saw the same even stamp before and after reading it. There
+ * is no global lock. A writer which finds the slot locked simply does not cache its result. Since
+ * results are stored as raw bits, cached results are bit-identical to computed ones.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+abstract class OperatorCache {
+
+    /** Number of slots in a set. */
+    static final int WAYS = 4;
+    /** Number of longs per slot. */
+    private static final int STRIDE = 4;
+    /** Offset of the stamp in a slot. */
+    private static final int STAMP = 0;
+    /** Offset of the first key in a slot. */
+    private static final int KEY0 = 1;
+    /** Offset of the second key in a slot. */
+    private static final int KEY1 = 2;
+    /** Offset of the result in a slot. */
+    private static final int RESULT = 3;
+
+    /** Slots. */
+    private final AtomicLongArray table;
+    /** Reference bits of the slots. Races only make eviction less exact. */
+    private final boolean[] referenced;
+    /** Clock hand of every set. Races only make eviction less exact. */
+    private final byte[] hands;
+    /** Mask which gives a set from a hash. */
+    private final int setMask;
+
+    /** Number of hits. */
+    private final LongAdder hits = new LongAdder();
+    /** Number of misses. */
+    private final LongAdder misses = new LongAdder();
+    /** Number of evicted results. */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a new {@link OperatorCache}.
+     *
+     * @param capacity maximal number of cached results, rounded up to a power of two (at least
+     * {@link #WAYS})
+     * @throws IllegalArgumentException if capacity is not positive or too large
+     */
+    OperatorCache(int capacity) {
+        if (capacity < 1 || capacity > (1 << 26)) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity + ".");
+        }
+        int slots = Math.max(WAYS, Integer.highestOneBit(capacity - 1) << 1);
+        table = new AtomicLongArray(slots * STRIDE);
+        referenced = new boolean[slots];
+        hands = new byte[slots / WAYS];
+        setMask = slots / WAYS - 1;
+    }
+
+    /**
+     * Calculates the result for the operands with the given bits.
+     *
+     * @param key0 bits of the first operand
+     * @param key1 bits of the second operand
+     * @return the result
+     */
+    abstract double compute(long key0, long key1);
+
+    /**
+     * Returns cached result for the operands, or computes and caches it.
+     *
+     * @param key0 raw bits of the first operand
+     * @param key1 raw bits of the second operand (<code>0</code> for unary operators)
+     * @return the result
+     */
+    final double get(long key0, long key1) {
+        int set = hash(key0, key1) & setMask;
+        int first = set * WAYS;
+
+        for (int slot = first; slot < first + WAYS; slot++) {
+            int base = slot * STRIDE;
+            long stamp = table.get(base + STAMP);
+            if (stamp == 0 || (stamp & 1) != 0) {
+                continue;
+            }
+            long k0 = table.get(base + KEY0);
+            long k1 = table.get(base + KEY1);
+            long result = table.get(base + RESULT);
+            if (k0 == key0 && k1 == key1 && table.get(base + STAMP) == stamp) {
+                referenced[slot] = true;
+                hits.increment();
+                return Double.longBitsToDouble(result);
+            }
+        }
+
+        misses.increment();
+        double result = compute(key0, key1);
+        store(set, first, key0, key1, Double.doubleToRawLongBits(result));
+        return result;
+    }
+
+    /**
+     * Stores the result into the set, evicting an old one if needed.
+     *
+     * @param set index of the set
+     * @param first first slot of the set
+     * @param key0 raw bits of the first operand
+     * @param key1 raw bits of the second operand
+     * @param result raw bits of the result
+     */
+    private void store(int set, int first, long key0, long key1, long result) {
+        int hand = hands[set];
+        int victim = -1;
+        for (int i = 0; i < 2 * WAYS; i++) {
+            int slot = first + ((hand + i) & (WAYS - 1));
+            if (table.get(slot * STRIDE + STAMP) == 0 || !referenced[slot]) {
+                victim = slot;
+                hands[set] = (byte) ((hand + i + 1) & (WAYS - 1));
+                break;
+            }
+            referenced[slot] = false;
+        }
+        if (victim < 0) {
+            victim = first + hand;
+        }
+
+        int base = victim * STRIDE;
+        long stamp = table.get(base + STAMP);
+        if ((stamp & 1) != 0 || !table.compareAndSet(base + STAMP, stamp, stamp + 1)) {
+            //another thread is writing this slot, skip caching
+            return;
+        }
+        //ordered stores are enough: the CAS above is a full fence and readers check the stamp
+        table.lazySet(base + KEY0, key0);
+        table.lazySet(base + KEY1, key1);
+        table.lazySet(base + RESULT, result);
+        table.lazySet(base + STAMP, stamp + 2);
+        referenced[victim] = false;
+        if (stamp != 0) {
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Mixes the bits of the keys.
+     *
+     * @param key0 first key
+     * @param key1 second key
+     * @return hash of the keys
+     */
+    private static int hash(long key0, long key1) {
+        long h = key0 * 0x9E3779B97F4A7C15L + key1;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * @return number of results found in the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of results which had to be computed
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of cached results which were replaced
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return number of slots in the table
+     */
+    public int getCapacity() {
+        return referenced.length;
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions();
+    }
+}
@@ -0,0 +1,80 @@
+package hr.fer.zemris.java.gui.calc.engine;
+
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Binary operator of the calculator with a label (as it is shown on the button) and an id which is
+ * unique inside its {@link OperatorRegistry}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class BinaryOperation implements DoubleBinaryOperator {
+
+    /** Id of the operation inside the registry. */
+    private final int id;
+    /** Label of the operation. */
+    private final String label;
+    /** Function which is applied. */
+    private final DoubleBinaryOperator function;
+    /** Arithmetic symbol of the operation, <code>0</code> if it is not plain arithmetic. */
+    private final char arithmetic;
+
+    /**
+     * Creates a new {@link BinaryOperation}.
+     *
+     * @param id id of the operation
+     * @param label label of the operation
+     * @param arithmetic symbol of the operation if the function is plain IEEE <code>+</code>,
+     * <code>-</code>, <code>*</code> or <code>/</code>, <code>0</code> otherwise
+     * @param function function which is applied
+     */
+    BinaryOperation(int id, String label, char arithmetic, DoubleBinaryOperator function) {
+        this.id = id;
+        this.label = label;
+        this.arithmetic = arithmetic;
+        this.function = function;
+    }
+
+    @Override
+    public double applyAsDouble(double left, double right) {
+        return function.applyAsDouble(left, right);
+    }
+
+    /**
+     * @return the id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the label
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Returns the symbol of the operation if it is plain IEEE arithmetic, as declared when it was
+     * registered. Callers may then inline the operation instead of calling it.
+     *
+     * @return one of <code>'+'</code>, <code>'-'</code>, <code>'*'</code> and <code>'/'</code>, or
+     * <code>0</code> if the operation is something else
+     */
+    public char getArithmetic() {
+        return arithmetic;
+    }
+
+    /**
+     * @return the function
+     */
+    public DoubleBinaryOperator getFunction() {
+        return function;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
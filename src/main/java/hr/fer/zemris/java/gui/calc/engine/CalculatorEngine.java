@@ -0,0 +1,445 @@
+package hr.fer.zemris.java.gui.calc.engine;
+
+import hr.fer.zemris.java.gui.calc.tape.ComputationTape;
+import java.nio.ByteBuffer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Headless state machine of the calculator. It holds the number that is being typed in, the stored
+ * value and pending binary operator and the push/pop stack.<p>
+ *
+ * This class has no dependency on Swing, so it can be used on its own (for example in batch jobs)
+ * or as the model behind the {@link hr.fer.zemris.java.gui.calc.Calculator} window. Errors never
+ * block: operations that can fail return <code>false</code> and remember the reason, which can be
+ * read with {@link #getError()}. If a {@link ComputationTape} is set, every applied operator is
+ * recorded to it.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class CalculatorEngine {
+
+    /** Operator used when no binary operator was chosen. */
+    private static final DoubleBinaryOperator DEFAULT_OPERATOR =
+        OperatorRegistry.DEFAULT.binary("+");
+
+    /** Used for inputing numbers. */
+    private final NumberInput input;
+    /** Used for operations push/pop. */
+    private final DoubleStack stack;
+    /** Used to perform binary operations. */
+    private DoubleBinaryOperator operator;
+    /** Value that is stored in the calculator. */
+    private double storedValue;
+    /** It is set to true if last button pressed was a binary operator. */
+    private boolean binaryOperation;
+    /** It is true if the last button pressed was a unary operator. */
+    private boolean unaryOperation;
+    /** It is true if the last button pressed was equals button. */
+    private boolean equalsPressed;
+    /** It is true if the inverted operators are chosen (Inv is checked). */
+    private boolean inverted;
+    /** Last error that happened since the last restart. */
+    private EngineError error;
+    /** Tape of the applied operators, <code>null</code> if there is none. */
+    private ComputationTape tape;
+
+    /**
+     * Creates a new {@link CalculatorEngine} in the initial state.
+     */
+    public CalculatorEngine() {
+        input = new NumberInput();
+        stack = new DoubleStack();
+        restart();
+    }
+
+    /**
+     * If the input is empty, return the last stored value. Otherwise, return the value of the
+     * input.
+     *
+     * @return current value in the calculator
+     */
+    public double getCurrentValue() {
+        return input.isEmpty() ? storedValue : input.getValue();
+    }
+
+    /**
+     * Sets the input to the newValue. Used when performing functions.
+     *
+     * @param newValue value to set
+     */
+    public void setNewValue(double newValue) {
+        input.set(newValue);
+    }
+
+    /**
+     * Puts the given digits and decimal points at the end of the input.
+     *
+     * @param value string to append to the input
+     * @throws IllegalArgumentException if the value contains something else
+     */
+    public void addToBuffer(String value) {
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if (c == '.') {
+                addDot();
+            } else if (c >= '0' && c <= '9') {
+                addDigit(c - '0');
+            } else {
+                throw new IllegalArgumentException("Invalid input: \"" + value + "\".");
+            }
+        }
+    }
+
+    /**
+     * Puts the given digit at the end of the input.
+     *
+     * @param digit digit from interval [0, 9]
+     */
+    public void addDigit(int digit) {
+        startInput();
+        input.appendDigit(digit);
+    }
+
+    /**
+     * Puts the decimal point at the end of the input, if it does not have one.
+     */
+    public void addDot() {
+        startInput();
+        input.appendDot();
+    }
+
+    /**
+     * Clears the input if the last key was an operator or equals, so that a new number is typed.
+     */
+    private void startInput() {
+        if (equalsPressed) {
+            input.clear();
+            equalsPressed = false;
+        } else if (binaryOperation) {
+            input.clear();
+            binaryOperation = false;
+        } else if (unaryOperation) {
+            input.clear();
+            unaryOperation = false;
+        }
+    }
+
+    /**
+     * Applies the given operator to the current value.
+     *
+     * @param unary operator to apply
+     */
+    public void unaryOperation(DoubleUnaryOperator unary) {
+        double operand = getCurrentValue();
+        double result = unary.applyAsDouble(operand);
+        setNewValue(result);
+        if (tape != null) {
+            tape.unary(unary instanceof UnaryOperation
+                ? Keypad.UNARY | ((UnaryOperation) unary).getId()
+                : ComputationTape.UNKNOWN_OPERATOR, operand, result);
+        }
+        unaryOperation = true;
+        binaryOperation = false;
+        equalsPressed = false;
+    }
+
+    /**
+     * Stores the current value and remembers the given operator. The operator is applied when
+     * {@link #equalsPressed()} is invoked.
+     *
+     * @param binary operator to remember
+     */
+    public void binaryOperation(DoubleBinaryOperator binary) {
+        storedValue = getCurrentValue();
+        operator = binary;
+        binaryOperation = true;
+        equalsPressed = false;
+        unaryOperation = false;
+    }
+
+    /**
+     * Calculates result based on previously given operator.
+     */
+    public void equalsPressed() {
+        if (!equalsPressed) {
+            double a = storedValue;
+            double b = getCurrentValue();
+
+            double result = operator.applyAsDouble(a, b);
+            if (tape != null) {
+                tape.binary(operator instanceof BinaryOperation
+                    ? Keypad.BINARY | ((BinaryOperation) operator).getId()
+                    : ComputationTape.UNKNOWN_OPERATOR, a, b, result);
+            }
+
+            storedValue = 0;
+            setNewValue(result);
+
+            equalsPressed = true;
+            binaryOperation = false;
+            unaryOperation = false;
+        }
+    }
+
+    /**
+     * Method changes the sign of current number. If the number is being typed in, typing can
+     * continue.
+     */
+    public void changeSign() {
+        if (input.isTyping()) {
+            if (input.getValue() != 0) {
+                input.negate();
+            }
+            return;
+        }
+        double value = getCurrentValue();
+        value *= (value == 0) ? 1 : -1;
+        setNewValue(value);
+    }
+
+    /**
+     * Restarts this {@link CalculatorEngine}, puts it in the initial state.
+     */
+    public void restart() {
+        input.clear();
+        stack.clear();
+        storedValue = 0;
+        operator = DEFAULT_OPERATOR;
+        binaryOperation = false;
+        unaryOperation = false;
+        equalsPressed = false;
+        inverted = false;
+        error = EngineError.NONE;
+    }
+
+    /**
+     * Clears the input.
+     */
+    public void clear() {
+        input.clear();
+    }
+
+    /**
+     * Pushes the current number onto the stack.
+     */
+    public void push() {
+        stack.push(getCurrentValue());
+    }
+
+    /**
+     * Pops last element that was pushed onto the stack. If the stack is empty, engine is restarted
+     * and {@link EngineError#EMPTY_STACK} is remembered as the last error.
+     *
+     * @return <code>true</code> if a value was popped, <code>false</code> if the stack was empty
+     */
+    public boolean pop() {
+        if (stack.isEmpty()) {
+            restart();
+            error = EngineError.EMPTY_STACK;
+            return false;
+        }
+        setNewValue(stack.pop());
+        return true;
+    }
+
+    /**
+     * Returns the number of bytes written by {@link #writeState(ByteBuffer)}.
+     *
+     * @return size of the state in bytes
+     */
+    public int stateSize() {
+        return 15 + input.stateSize() + 8 * stack.size();
+    }
+
+    /**
+     * Writes the whole state of the engine to the buffer: the input, the stored value, the pending
+     * operator, the flags, the last error and the stack. The operator is written as its id, so
+     * it has to be a {@link BinaryOperation}.
+     *
+     * @param buffer buffer to write to
+     * @throws IllegalStateException if the operator is not a {@link BinaryOperation}
+     */
+    public void writeState(ByteBuffer buffer) {
+        if (!(operator instanceof BinaryOperation)) {
+            throw new IllegalStateException("Operator has no id: " + operator + ".");
+        }
+        int flags = (binaryOperation ? 1 : 0) | (unaryOperation ? 2 : 0)
+            | (equalsPressed ? 4 : 0) | (inverted ? 8 : 0);
+        buffer.putDouble(storedValue);
+        buffer.put((byte) ((BinaryOperation) operator).getId());
+        buffer.put((byte) flags);
+        buffer.put((byte) error.ordinal());
+        input.writeState(buffer);
+        buffer.putInt(stack.size());
+        for (int i = stack.size() - 1; i >= 0; i--) {
+            buffer.putDouble(stack.peek(i));
+        }
+    }
+
+    /**
+     * Replaces the state of the engine with the state written by {@link #writeState(ByteBuffer)}.
+     *
+     * @param buffer buffer to read from
+     * @param registry registry in which the operator is looked up by its id
+     */
+    public void readState(ByteBuffer buffer, OperatorRegistry registry) {
+        storedValue = buffer.getDouble();
+        operator = registry.binary(buffer.get() & 0xFF);
+        int flags = buffer.get();
+        binaryOperation = (flags & 1) != 0;
+        unaryOperation = (flags & 2) != 0;
+        equalsPressed = (flags & 4) != 0;
+        inverted = (flags & 8) != 0;
+        error = EngineError.values()[buffer.get()];
+        input.readState(buffer);
+        stack.clear();
+        for (int i = buffer.getInt(); i > 0; i--) {
+            stack.push(buffer.getDouble());
+        }
+    }
+
+    /**
+     * Returns the number which is being typed in, as it was typed.
+     *
+     * @return the typed number with a leading minus if it is negated, empty if no number is
+     * being typed in
+     */
+    public String getTypedText() {
+        return input.getText();
+    }
+
+    /**
+     * @return the input, for {@link EngineHistory}
+     */
+    NumberInput getInput() {
+        return input;
+    }
+
+    /**
+     * @param error the last error, for {@link EngineHistory}
+     */
+    void setError(EngineError error) {
+        this.error = error;
+    }
+
+    /**
+     * Returns the push/pop stack. It can be used for operations on more values at once.
+     *
+     * @return the stack
+     */
+    public DoubleStack getStack() {
+        return stack;
+    }
+
+    /**
+     * @return tape of the applied operators, <code>null</code> if there is none
+     */
+    public ComputationTape getTape() {
+        return tape;
+    }
+
+    /**
+     * Sets the tape to which the applied operators are recorded. It is not part of the state of
+     * the engine.
+     *
+     * @param tape the tape, <code>null</code> to stop recording
+     */
+    public void setTape(ComputationTape tape) {
+        this.tape = tape;
+    }
+
+    /**
+     * Returns the last error that happened since the last restart.
+     *
+     * @return the error, {@link EngineError#NONE} if there was none
+     */
+    public EngineError getError() {
+        return error;
+    }
+
+    /**
+     * @return the inverted
+     */
+    public boolean isInverted() {
+        return inverted;
+    }
+
+    /**
+     * @param inverted the inverted to set
+     */
+    public void setInverted(boolean inverted) {
+        this.inverted = inverted;
+    }
+
+    /**
+     * @return the storedValue
+     */
+    public double getStoredValue() {
+        return storedValue;
+    }
+
+    /**
+     * @param storedValue the storedValue to set
+     */
+    public void setStoredValue(double storedValue) {
+        this.storedValue = storedValue;
+    }
+
+    /**
+     * @return the operator
+     */
+    public DoubleBinaryOperator getOperator() {
+        return operator;
+    }
+
+    /**
+     * @param operator the operator to set
+     */
+    public void setOperator(DoubleBinaryOperator operator) {
+        this.operator = operator;
+    }
+
+    /**
+     * @return the binaryOperation
+     */
+    public boolean isBinaryOperation() {
+        return binaryOperation;
+    }
+
+    /**
+     * @param binaryOperation the binaryOperation to set
+     */
+    public void setBinaryOperation(boolean binaryOperation) {
+        this.binaryOperation = binaryOperation;
+    }
+
+    /**
+     * @return the unaryOperation
+     */
+    public boolean isUnaryOperation() {
+        return unaryOperation;
+    }
+
+    /**
+     * @param unaryOperation the unaryOperation to set
+     */
+    public void setUnaryOperation(boolean unaryOperation) {
+        this.unaryOperation = unaryOperation;
+    }
+
+    /**
+     * @return the equalsPressed
+     */
+    public boolean isEqualsPressed() {
+        return equalsPressed;
+    }
+
+    /**
+     * @param equalsPressed the equalsPressed to set
+     */
+    public void setEqualsPressed(boolean equalsPressed) {
+        this.equalsPressed = equalsPressed;
+    }
+}
@@ -0,0 +1,289 @@
+package hr.fer.zemris.java.gui.calc.engine;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Growable stack of primitive doubles. Values are kept in an array which is never shrunk, so
+ * clearing the stack keeps the memory for reuse. The stack remembers the lowest index which was
+ * changed since it was last marked unchanged, so {@link EngineHistory} can take a snapshot of only
+ * the changed top. Running statistics of the values are kept once they are asked for, see {@link
+ * #statistics()}. This class is not synchronized.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class DoubleStack {
+
+    /** Capacity of a new stack. */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** Values, bottom of the stack is at index 0. */
+    private double[] values;
+    /** Number of values on the stack. */
+    private int size;
+    /** Values below this index were not changed since the stack was marked unchanged. */
+    private int unchanged;
+    /** Running statistics, <code>null</code> until they are asked for. */
+    private StackStatistics statistics;
+
+    /**
+     * Creates a new empty {@link DoubleStack}.
+     */
+    public DoubleStack() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty {@link DoubleStack} with the given initial capacity.
+     *
+     * @param capacity initial capacity
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public DoubleStack(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative: " + capacity + ".");
+        }
+        values = new double[capacity];
+    }
+
+    /**
+     * Pushes the value onto the stack.
+     *
+     * @param value value to push
+     */
+    public void push(double value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(DEFAULT_CAPACITY, 2 * size));
+        }
+        changed(size);
+        values[size++] = value;
+    }
+
+    /**
+     * Removes the value from the top of the stack.
+     *
+     * @return removed value
+     * @throws EmptyStackException if the stack is empty
+     */
+    public double pop() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        changed(size - 1);
+        return values[--size];
+    }
+
+    /**
+     * Returns the value from the top of the stack without removing it.
+     *
+     * @return value on the top
+     * @throws EmptyStackException if the stack is empty
+     */
+    public double peek() {
+        return peek(0);
+    }
+
+    /**
+     * Returns the value at the given depth without removing it. Top of the stack is at depth 0.
+     *
+     * @param depth depth of the value
+     * @return value at the depth
+     * @throws EmptyStackException if there are not enough values on the stack
+     */
+    public double peek(int depth) {
+        checkSize(depth + 1);
+        return values[size - 1 - depth];
+    }
+
+    /**
+     * Pushes the value from the top of the stack once more.
+     *
+     * @throws EmptyStackException if the stack is empty
+     */
+    public void dup() {
+        push(peek());
+    }
+
+    /**
+     * Swaps two values on the top of the stack.
+     *
+     * @throws EmptyStackException if there are less than two values on the stack
+     */
+    public void swap() {
+        checkSize(2);
+        changed(size - 2);
+        double top = values[size - 1];
+        values[size - 1] = values[size - 2];
+        values[size - 2] = top;
+    }
+
+    /**
+     * Rotates three values on the top of the stack, the third one comes to the top
+     * (<code>a b c</code> becomes <code>b c a</code>).
+     *
+     * @throws EmptyStackException if there are less than three values on the stack
+     */
+    public void rotate() {
+        rotate(3);
+    }
+
+    /**
+     * Rotates <code>n</code> values on the top of the stack, the <code>n</code>-th one comes to the
+     * top.
+     *
+     * @param n number of values to rotate
+     * @throws EmptyStackException if there are less than <code>n</code> values on the stack
+     * @throws IllegalArgumentException if <code>n</code> is less than one
+     */
+    public void rotate(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Invalid number of values: " + n + ".");
+        }
+        checkSize(n);
+        int bottom = size - n;
+        changed(bottom);
+        double value = values[bottom];
+        System.arraycopy(values, bottom + 1, values, bottom, n - 1);
+        values[size - 1] = value;
+    }
+
+    /**
+     * Combines all values from the bottom to the top of the stack with the given operator, e.g.
+     * <code>op(op(a, b), c)</code> for stack <code>a b c</code>. The stack is not changed.
+     *
+     * @param operator operator used for combining
+     * @return combined value
+     * @throws EmptyStackException if the stack is empty
+     */
+    public double reduce(DoubleBinaryOperator operator) {
+        checkSize(1);
+        double result = values[0];
+        for (int i = 1; i < size; i++) {
+            result = operator.applyAsDouble(result, values[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Removes all values. Memory is kept for reuse.
+     */
+    public void clear() {
+        size = 0;
+        unchanged = 0;
+        if (statistics != null) {
+            statistics.changed(0);
+        }
+    }
+
+    /**
+     * Returns the running statistics of the values on the stack. From the first invocation on,
+     * they cost a constant time per push or pop.
+     *
+     * @return the statistics
+     */
+    public StackStatistics statistics() {
+        if (statistics == null) {
+            statistics = new StackStatistics(this);
+        }
+        return statistics;
+    }
+
+    /**
+     * @return <code>true</code> if the stack is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return number of values on the stack
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns copy of the values, bottom of the stack first.
+     *
+     * @return copy of the values
+     */
+    public double[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Returns the value at the given index.
+     *
+     * @param index index of the value, bottom of the stack is at 0
+     * @return the value
+     */
+    double get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Sets the value at the given index.
+     *
+     * @param index index of the value, bottom of the stack is at 0
+     * @param value the value
+     */
+    void set(int index, double value) {
+        changed(index);
+        values[index] = value;
+    }
+
+    /**
+     * Sets the size of the stack. Values above the old size are not initialized.
+     *
+     * @param newSize the size
+     */
+    void resize(int newSize) {
+        if (newSize > values.length) {
+            values = Arrays.copyOf(values, Math.max(newSize, 2 * values.length));
+        }
+        changed(Math.min(size, newSize));
+        size = newSize;
+    }
+
+    /**
+     * @return index below which no value was changed since {@link #markUnchanged()}
+     */
+    int unchangedBelow() {
+        return unchanged;
+    }
+
+    /**
+     * Marks all values as unchanged.
+     */
+    void markUnchanged() {
+        unchanged = size;
+    }
+
+    /**
+     * Remembers that the value at the index was changed.
+     *
+     * @param index the index
+     */
+    private void changed(int index) {
+        if (index < unchanged) {
+            unchanged = index;
+        }
+        if (statistics != null) {
+            statistics.changed(index);
+        }
+    }
+
+    /**
+     * Checks that there are at least <code>n</code> values on the stack.
+     *
+     * @param n required number of values
+     * @throws EmptyStackException if there are less values
+     */
+    private void checkSize(int n) {
+        if (size < n || n < 1) {
+            throw new EmptyStackException();
+        }
+    }
+}
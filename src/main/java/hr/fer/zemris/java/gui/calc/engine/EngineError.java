@@ -0,0 +1,15 @@
+package hr.fer.zemris.java.gui.calc.engine;
+
+/**
+ * Errors that {@link CalculatorEngine} can report.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public enum EngineError {
+
+    /** Nothing went wrong. */
+    NONE,
+    /** Pop was requested while the stack was empty. */
+    EMPTY_STACK
+}
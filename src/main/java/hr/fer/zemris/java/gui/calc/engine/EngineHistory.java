@@ -0,0 +1,369 @@
+package hr.fer.zemris.java.gui.calc.engine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Undo/redo history of the whole state of a {@link CalculatorEngine}: the input, the stored value,
+ * the pending operator, the flags, the last error and the stack.<p>
+ *
+ * Snapshots share the stack. It is kept as a persistent list (the top first) in which every
+ * snapshot reuses the nodes of the previous one for the values which were not changed, so a push
+ * or a pop costs one node and no copy, whatever the depth of the stack. The stack itself tells
+ * which values were changed (see {@link DoubleStack#unchangedBelow()}). Restoring a snapshot
+ * writes only the values above the part it shares with the current stack.<p>
+ *
+ * The history is capped by an estimate of its memory: when it is exceeded, the oldest snapshots
+ * are forgotten. A snapshot is charged for the nodes it created; the nodes of the stack the history
+ * started with are not charged, since every snapshot shares them until they are popped. Nodes of
+ * a forgotten snapshot stay alive only while a newer snapshot still shares them. This class is not
+ * synchronized.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class EngineHistory {
+
+    /**
+     * Default cap of the memory used by the history, in bytes. It keeps thousands of steps; a
+     * much larger history makes every snapshot slower, since the garbage collector has to copy it.
+     */
+    public static final long DEFAULT_MAX_BYTES = 1 << 20;
+    /** Estimated size of a snapshot without its input and its nodes. */
+    private static final int SNAPSHOT_BYTES = 80;
+    /** Estimated size of a node. */
+    private static final int NODE_BYTES = 24;
+
+    /** Engine whose state is kept. */
+    private final CalculatorEngine engine;
+    /** Cap of the memory used by the history, in bytes. */
+    private final long maxBytes;
+    /** Oldest kept snapshot. */
+    private Snapshot oldest;
+    /** Snapshot of the current state. */
+    private Snapshot current;
+    /** Estimated memory used by the kept snapshots. */
+    private long bytes;
+    /** Number of kept snapshots. */
+    private int size;
+
+    /**
+     * Creates a new {@link EngineHistory} with the default memory cap, starting with the current
+     * state of the engine.
+     *
+     * @param engine engine whose state is kept
+     */
+    public EngineHistory(CalculatorEngine engine) {
+        this(engine, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a new {@link EngineHistory}, starting with the current state of the engine.
+     *
+     * @param engine engine whose state is kept
+     * @param maxBytes cap of the memory used by the history, in bytes
+     * @throws IllegalArgumentException if the cap is not positive
+     */
+    public EngineHistory(CalculatorEngine engine, long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Invalid memory cap: " + maxBytes + ".");
+        }
+        this.engine = engine;
+        this.maxBytes = maxBytes;
+        reset();
+    }
+
+    /**
+     * Forgets all snapshots and starts again with the current state of the engine.
+     */
+    public void reset() {
+        DoubleStack stack = engine.getStack();
+        Node top = null;
+        for (int i = 0; i < stack.size(); i++) {
+            top = new Node(stack.get(i), top);
+        }
+        stack.markUnchanged();
+        current = new Snapshot(engine, inputState(), top, stack.size());
+        current.bytes += current.input.length;
+        oldest = current;
+        bytes = current.bytes;
+        size = 1;
+    }
+
+    /**
+     * Takes a snapshot of the current state of the engine. It should be invoked after every
+     * operation which is undone as a whole, e.g. after every pressed key. Only the changed values
+     * of the stack are compared and stored. Nothing is taken if the state did not change. The
+     * snapshots which could be redone are forgotten.
+     */
+    public void record() {
+        DoubleStack stack = engine.getStack();
+        int stackSize = stack.size();
+        int common = Math.min(stackSize, current.stackSize);
+        Node base = (common == 0) ? null : current.top;
+        for (int i = current.stackSize; i > common && base != null; i--) {
+            base = base.next;
+        }
+        int shared = common;
+        Node node = base;
+        for (int i = common - 1; i >= Math.min(stack.unchangedBelow(), common); i--) {
+            if (Double.doubleToRawLongBits(node.value)
+                != Double.doubleToRawLongBits(stack.get(i))) {
+                shared = i;
+                base = node.next;
+            }
+            node = node.next;
+        }
+        byte[] input = inputState();
+        boolean sameInput = Arrays.equals(input, current.input);
+        if (sameInput) {
+            input = current.input;
+        }
+        if (shared == stackSize && stackSize == current.stackSize
+            && current.matches(engine, input)) {
+            stack.markUnchanged();
+            return;
+        }
+
+        Node top = base;
+        for (int i = shared; i < stackSize; i++) {
+            top = new Node(stack.get(i), top);
+        }
+        stack.markUnchanged();
+
+        for (Snapshot s = current.next; s != null; s = unlink(s)) {
+            bytes -= s.bytes;
+            size--;
+        }
+        Snapshot snapshot = new Snapshot(engine, input, top, stackSize);
+        snapshot.bytes += (sameInput ? 0 : input.length) + (long) NODE_BYTES * (stackSize - shared);
+        snapshot.previous = current;
+        current.next = snapshot;
+        current = snapshot;
+        bytes += snapshot.bytes;
+        size++;
+
+        while (bytes > maxBytes && oldest != current) {
+            bytes -= oldest.bytes;
+            size--;
+            oldest = unlink(oldest);
+            oldest.previous = null;
+        }
+    }
+
+    /**
+     * Clears the links of a forgotten snapshot. Otherwise a forgotten snapshot which was already
+     * promoted to the old generation would keep younger forgotten ones alive until a full
+     * collection.
+     *
+     * @param snapshot the snapshot
+     * @return the next snapshot
+     */
+    private static Snapshot unlink(Snapshot snapshot) {
+        Snapshot next = snapshot.next;
+        snapshot.next = null;
+        snapshot.previous = null;
+        return next;
+    }
+
+    /**
+     * Restores the state before the last recorded operation.
+     *
+     * @return <code>false</code> if there is nothing to undo
+     */
+    public boolean undo() {
+        if (current.previous == null) {
+            return false;
+        }
+        restore(current.previous);
+        return true;
+    }
+
+    /**
+     * Restores the state after the last undone operation.
+     *
+     * @return <code>false</code> if there is nothing to redo
+     */
+    public boolean redo() {
+        if (current.next == null) {
+            return false;
+        }
+        restore(current.next);
+        return true;
+    }
+
+    /**
+     * @return <code>true</code> if there is something to undo
+     */
+    public boolean canUndo() {
+        return current.previous != null;
+    }
+
+    /**
+     * @return <code>true</code> if there is something to redo
+     */
+    public boolean canRedo() {
+        return current.next != null;
+    }
+
+    /**
+     * @return number of kept snapshots, including the current state
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return estimated memory used by the kept snapshots, in bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Puts the engine in the state of the snapshot.
+     *
+     * @param snapshot the snapshot
+     */
+    private void restore(Snapshot snapshot) {
+        DoubleStack stack = engine.getStack();
+        Node a = current.top;
+        int sizeA = current.stackSize;
+        Node b = snapshot.top;
+        int sizeB = snapshot.stackSize;
+        for (; sizeA > sizeB; sizeA--) {
+            a = a.next;
+        }
+        for (; sizeB > sizeA; sizeB--) {
+            b = b.next;
+        }
+        int shared = sizeA;
+        for (; a != b; shared--) {
+            a = a.next;
+            b = b.next;
+        }
+        shared = Math.min(shared, stack.unchangedBelow());
+
+        stack.resize(snapshot.stackSize);
+        Node node = snapshot.top;
+        for (int i = snapshot.stackSize - 1; i >= shared; i--) {
+            stack.set(i, node.value);
+            node = node.next;
+        }
+        stack.markUnchanged();
+
+        engine.getInput().readState(ByteBuffer.wrap(snapshot.input));
+        engine.setStoredValue(snapshot.storedValue);
+        engine.setOperator(snapshot.operator);
+        engine.setBinaryOperation((snapshot.flags & 1) != 0);
+        engine.setUnaryOperation((snapshot.flags & 2) != 0);
+        engine.setEqualsPressed((snapshot.flags & 4) != 0);
+        engine.setInverted((snapshot.flags & 8) != 0);
+        engine.setError(snapshot.error);
+        current = snapshot;
+    }
+
+    /**
+     * @return state of the input of the engine
+     */
+    private byte[] inputState() {
+        NumberInput input = engine.getInput();
+        byte[] state = new byte[input.stateSize()];
+        input.writeState(ByteBuffer.wrap(state));
+        return state;
+    }
+
+    /**
+     * Node of the persistent stack.
+     */
+    private static final class Node {
+
+        /** The value. */
+        final double value;
+        /** Node below, <code>null</code> at the bottom. */
+        final Node next;
+
+        /**
+         * Creates a new {@link Node}.
+         *
+         * @param value the value
+         * @param next node below
+         */
+        Node(double value, Node next) {
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * State of the engine at one point of the history.
+     */
+    private static final class Snapshot {
+
+        /** State of the input. */
+        final byte[] input;
+        /** Stored value. */
+        final double storedValue;
+        /** Pending operator. */
+        final DoubleBinaryOperator operator;
+        /** Flags, as in {@link CalculatorEngine#writeState(ByteBuffer)}. */
+        final int flags;
+        /** Last error. */
+        final EngineError error;
+        /** Top of the stack. */
+        final Node top;
+        /** Size of the stack. */
+        final int stackSize;
+        /** Estimated memory of this snapshot, the nodes it created and its own input. */
+        long bytes;
+        /** Older snapshot. */
+        Snapshot previous;
+        /** Newer snapshot, which can be redone. */
+        Snapshot next;
+
+        /**
+         * Takes the state of the engine, except its stack.
+         *
+         * @param engine the engine
+         * @param input state of the input
+         * @param top top of the stack
+         * @param stackSize size of the stack
+         */
+        Snapshot(CalculatorEngine engine, byte[] input, Node top, int stackSize) {
+            this.input = input;
+            this.top = top;
+            this.stackSize = stackSize;
+            storedValue = engine.getStoredValue();
+            operator = engine.getOperator();
+            flags = flags(engine);
+            error = engine.getError();
+            bytes = SNAPSHOT_BYTES;
+        }
+
+        /**
+         * Checks whether the engine is in this state, except its stack.
+         *
+         * @param engine the engine
+         * @param input state of the input of the engine
+         * @return <code>true</code> if it is
+         */
+        boolean matches(CalculatorEngine engine, byte[] input) {
+            return Double.doubleToRawLongBits(storedValue)
+                == Double.doubleToRawLongBits(engine.getStoredValue())
+                && operator == engine.getOperator() && flags == flags(engine)
+                && error == engine.getError() && Arrays.equals(this.input, input);
+        }
+
+        /**
+         * Packs the flags of the engine.
+         *
+         * @param engine the engine
+         * @return the flags
+         */
+        static int flags(CalculatorEngine engine) {
+            return (engine.isBinaryOperation() ? 1 : 0) | (engine.isUnaryOperation() ? 2 : 0)
+                | (engine.isEqualsPressed() ? 4 : 0) | (engine.isInverted() ? 8 : 0);
+        }
+    }
+}
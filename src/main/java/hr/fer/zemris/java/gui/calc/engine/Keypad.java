@@ -0,0 +1,192 @@
+package hr.fer.zemris.java.gui.calc.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps the keys of the calculator to integer codes and presses them on a {@link
+ * CalculatorEngine}.<p>
+ *
+ * Codes <code>0</code> - <code>9</code> are digits, codes from {@link #DOT} to {@link #INV} are the
+ * instant keys and operators are encoded as {@link #UNARY} or {@link #BINARY} plus the id of the
+ * operator in the {@link OperatorRegistry}. Keys are named by the label shown on their button, for
+ * example <code>"7"</code>, <code>"sin"</code>, <code>"x^n"</code> or <code>"push"</code>.<p>
+ *
+ * Like on the window, an operator key names the operator of the normal mode. While Inv is checked
+ * ({@link CalculatorEngine#isInverted()}), the key applies the inverse operator which the registry
+ * pairs with it (see {@link OperatorRegistry#inverse(UnaryOperation)}), so <code>inv sin</code>
+ * computes the arcsine.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class Keypad {
+
+    /** Decimal point. */
+    public static final int DOT = 10;
+    /** Equals key. */
+    public static final int EQUALS = 11;
+    /** Key which clears the current input. */
+    public static final int CLEAR = 12;
+    /** Key which restarts the calculator. */
+    public static final int RESTART = 13;
+    /** Key which pushes current value onto the stack. */
+    public static final int PUSH = 14;
+    /** Key which pops a value from the stack. */
+    public static final int POP = 15;
+    /** Key which changes the sign. */
+    public static final int SIGN = 16;
+    /** Key which toggles inverted operators. */
+    public static final int INV = 17;
+    /** Base of unary operator codes. */
+    public static final int UNARY = 0x100;
+    /** Base of binary operator codes. */
+    public static final int BINARY = 0x200;
+    /** Mask which extracts operator id from the code. */
+    public static final int ID_MASK = 0xFF;
+
+    /** Labels of digits and instant keys, index is the code. */
+    private static final String[] LABELS = {
+        "0", "1", "2", "3", "4", "5", "6", "7", "8", "9",
+        ".", "=", "clr", "res", "push", "pop", "+/-", "Inv"
+    };
+
+    /** Keypad of the default operator registry. */
+    public static final Keypad DEFAULT = new Keypad(OperatorRegistry.DEFAULT);
+
+    /** Registry used for operator codes. */
+    private final OperatorRegistry registry;
+    /** Codes by label. */
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    /**
+     * Creates a new {@link Keypad} for the given registry.
+     *
+     * @param registry registry of operators
+     */
+    public Keypad(OperatorRegistry registry) {
+        this.registry = registry;
+
+        for (int i = 0; i < LABELS.length; i++) {
+            codes.put(LABELS[i], i);
+        }
+        codes.put("inv", INV);
+        registry.getUnaryOperations().forEach(o -> codes.put(o.getLabel(), UNARY | o.getId()));
+        registry.getBinaryOperations().forEach(o -> codes.put(o.getLabel(), BINARY | o.getId()));
+    }
+
+    /**
+     * Returns the code of the key with the given label.
+     *
+     * @param label label of the key
+     * @return code of the key, <code>-1</code> if there is no such key
+     */
+    public int code(String label) {
+        Integer code = codes.get(label);
+        return (code == null) ? -1 : code;
+    }
+
+    /**
+     * Returns the label of the key with the given code.
+     *
+     * @param code code of the key
+     * @return label of the key
+     * @throws IllegalArgumentException if the code is not valid
+     */
+    public String label(int code) {
+        if (code >= 0 && code < LABELS.length) {
+            return LABELS[code];
+        }
+        try {
+            if ((code & ~ID_MASK) == UNARY) {
+                return registry.unary(code & ID_MASK).getLabel();
+            }
+            if ((code & ~ID_MASK) == BINARY) {
+                return registry.binary(code & ID_MASK).getLabel();
+            }
+        } catch (IndexOutOfBoundsException ignorable) {
+        }
+        throw new IllegalArgumentException("Invalid key code: " + code + ".");
+    }
+
+    /**
+     * Compiles a script of whitespace separated key labels to codes.
+     *
+     * @param script script to compile
+     * @return codes of the keys
+     * @throws IllegalArgumentException if the script contains unknown key
+     */
+    public int[] compile(String script) {
+        String trimmed = script.trim();
+        if (trimmed.isEmpty()) {
+            return new int[0];
+        }
+        String[] labels = trimmed.split("\\s+");
+        int[] result = new int[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            result[i] = code(labels[i]);
+            if (result[i] < 0) {
+                throw new IllegalArgumentException("Unknown key: \"" + labels[i] + "\".");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Presses the key with the given code on the engine. An operator key applies the inverse
+     * operator while Inv is checked.
+     *
+     * @param engine engine to operate with
+     * @param code code of the key
+     * @return <code>false</code> if the operation failed (see {@link CalculatorEngine#getError()})
+     * @throws IllegalArgumentException if the code is not valid
+     */
+    public boolean press(CalculatorEngine engine, int code) {
+        switch (code) {
+            case DOT:
+                engine.addDot();
+                return true;
+            case EQUALS:
+                engine.equalsPressed();
+                return true;
+            case CLEAR:
+                engine.clear();
+                return true;
+            case RESTART:
+                engine.restart();
+                return true;
+            case PUSH:
+                engine.push();
+                return true;
+            case POP:
+                return engine.pop();
+            case SIGN:
+                engine.changeSign();
+                return true;
+            case INV:
+                engine.setInverted(!engine.isInverted());
+                return true;
+            default:
+                break;
+        }
+        if (code >= 0 && code <= 9) {
+            engine.addDigit(code);
+        } else if ((code & ~ID_MASK) == UNARY) {
+            UnaryOperation operation = registry.unary(code & ID_MASK);
+            engine.unaryOperation(engine.isInverted() ? registry.inverse(operation) : operation);
+        } else if ((code & ~ID_MASK) == BINARY) {
+            BinaryOperation operation = registry.binary(code & ID_MASK);
+            engine.binaryOperation(engine.isInverted() ? registry.inverse(operation) : operation);
+        } else {
+            throw new IllegalArgumentException("Invalid key code: " + code + ".");
+        }
+        return true;
+    }
+
+    /**
+     * @return the registry
+     */
+    public OperatorRegistry getRegistry() {
+        return registry;
+    }
+}
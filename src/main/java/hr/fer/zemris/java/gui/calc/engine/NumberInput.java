@@ -0,0 +1,247 @@
+package hr.fer.zemris.java.gui.calc.engine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Number that is being typed in, digit by digit.<p>
+ *
+ * Digits are accumulated into a decimal mantissa and the number of digits after the decimal point,
+ * so the value is known after every key press without parsing any text. As long as the mantissa is
+ * at most 2<sup>53</sup> and there are at most 22 decimals, the value is computed as one exact
+ * division of two doubles, which is correctly rounded (the same result as {@link
+ * Double#parseDouble(String)}). Longer inputs are rare and fall back to parsing the typed
+ * characters.<p>
+ *
+ * Input can also hold a value which was not typed in (a result of some operation). Typing a digit
+ * after that starts a new number. Nothing is allocated in either case, except when the typed text
+ * outgrows its buffer.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class NumberInput {
+
+    /** Maximal number of significant digits kept in the mantissa. */
+    private static final int MAX_DIGITS = 18;
+    /** Largest mantissa which is exactly representable as double. */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    /** Powers of ten that are exactly representable as double. */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /** Typed characters (digits and the decimal point), without sign. */
+    private char[] text = new char[32];
+    /** Number of typed characters. */
+    private int length;
+    /** Significant digits typed so far. */
+    private long mantissa;
+    /** Number of digits in the mantissa. */
+    private int digits;
+    /** Number of typed digits after the decimal point. */
+    private int scale;
+    /** It is true if the decimal point was typed. */
+    private boolean dot;
+    /** It is true if there were more significant digits than mantissa can hold. */
+    private boolean overflow;
+    /** It is true if the number is negative. */
+    private boolean negative;
+    /** It is true if the input holds a value which was not typed in. */
+    private boolean holding;
+    /** Current value. */
+    private double value;
+
+    /**
+     * Clears the input.
+     */
+    public void clear() {
+        length = 0;
+        mantissa = 0;
+        digits = 0;
+        scale = 0;
+        dot = false;
+        overflow = false;
+        negative = false;
+        holding = false;
+        value = 0;
+    }
+
+    /**
+     * Returns <code>true</code> if nothing was typed in and no value is held.
+     *
+     * @return <code>true</code> if the input is empty
+     */
+    public boolean isEmpty() {
+        return length == 0 && !holding;
+    }
+
+    /**
+     * Returns <code>true</code> if a number is being typed in.
+     *
+     * @return <code>true</code> if a number is being typed in
+     */
+    public boolean isTyping() {
+        return length != 0;
+    }
+
+    /**
+     * Returns current value. Value of the empty input is zero.
+     *
+     * @return current value
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Makes the input hold the given value.
+     *
+     * @param newValue value to hold
+     */
+    public void set(double newValue) {
+        clear();
+        holding = true;
+        value = newValue;
+    }
+
+    /**
+     * Appends a digit to the number.
+     *
+     * @param digit digit from interval [0, 9]
+     * @throws IllegalArgumentException if the digit is out of the interval
+     */
+    public void appendDigit(int digit) {
+        if (digit < 0 || digit > 9) {
+            throw new IllegalArgumentException("Invalid digit: " + digit + ".");
+        }
+        if (holding) {
+            clear();
+        }
+        append((char) ('0' + digit));
+        if (dot) {
+            scale++;
+        }
+        if (mantissa != 0 || digit != 0) {
+            if (digits < MAX_DIGITS) {
+                mantissa = mantissa * 10 + digit;
+                digits++;
+            } else {
+                overflow = true;
+            }
+        }
+        updateValue();
+    }
+
+    /**
+     * Appends the decimal point to the number. Nothing happens if the number already has one.
+     */
+    public void appendDot() {
+        if (holding) {
+            clear();
+        }
+        if (!dot) {
+            dot = true;
+            append('.');
+        }
+    }
+
+    /**
+     * Changes the sign of the number.
+     */
+    public void negate() {
+        negative = !negative;
+        value = -value;
+    }
+
+    /**
+     * Returns the typed characters, with a leading minus if the number is negative.
+     *
+     * @return the typed number, empty if no number is being typed in
+     */
+    public String getText() {
+        if (length == 0) {
+            return "";
+        }
+        return (negative ? "-" : "") + new String(text, 0, length);
+    }
+
+    /**
+     * Returns the number of bytes written by {@link #writeState(ByteBuffer)}.
+     *
+     * @return size of the state in bytes
+     */
+    int stateSize() {
+        return 26 + length;
+    }
+
+    /**
+     * Writes the whole state of the input to the buffer.
+     *
+     * @param buffer buffer to write to
+     */
+    void writeState(ByteBuffer buffer) {
+        int flags = (dot ? 1 : 0) | (overflow ? 2 : 0) | (negative ? 4 : 0) | (holding ? 8 : 0);
+        buffer.putDouble(value);
+        buffer.putLong(mantissa);
+        buffer.put((byte) flags);
+        buffer.put((byte) digits);
+        buffer.putInt(scale);
+        buffer.putInt(length);
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) text[i]);
+        }
+    }
+
+    /**
+     * Reads the state written by {@link #writeState(ByteBuffer)}.
+     *
+     * @param buffer buffer to read from
+     */
+    void readState(ByteBuffer buffer) {
+        value = buffer.getDouble();
+        mantissa = buffer.getLong();
+        int flags = buffer.get();
+        dot = (flags & 1) != 0;
+        overflow = (flags & 2) != 0;
+        negative = (flags & 4) != 0;
+        holding = (flags & 8) != 0;
+        digits = buffer.get();
+        scale = buffer.getInt();
+        length = buffer.getInt();
+        if (length > text.length) {
+            text = new char[Math.max(2 * text.length, length)];
+        }
+        for (int i = 0; i < length; i++) {
+            text[i] = (char) buffer.get();
+        }
+    }
+
+    /**
+     * Appends a character to the typed text.
+     *
+     * @param c character to append
+     */
+    private void append(char c) {
+        if (length == text.length) {
+            text = Arrays.copyOf(text, 2 * length);
+        }
+        text[length++] = c;
+    }
+
+    /**
+     * Calculates value from the mantissa and the scale.
+     */
+    private void updateValue() {
+        double absolute;
+        if (mantissa == 0 && !overflow) {
+            absolute = 0;
+        } else if (!overflow && mantissa <= MAX_EXACT_MANTISSA && scale < POWERS_OF_TEN.length) {
+            absolute = mantissa / POWERS_OF_TEN[scale];
+        } else {
+            absolute = Double.parseDouble(new String(text, 0, length));
+        }
+        value = negative ? -absolute : absolute;
+    }
+}
@@ -0,0 +1,235 @@
+package hr.fer.zemris.java.gui.calc.engine;
+
+import hr.fer.zemris.java.gui.calc.math.AngleUnit;
+
+/**
+ * Immutable table of the operators behind the mode dependent buttons, for one combination of
+ * Inv, hyperbolic functions and the angle unit. All banks of a registry are created with it (see
+ * {@link OperatorRegistry#bank(boolean, boolean, AngleUnit)}), so switching the mode is just
+ * replacing one bank with another, which a reader on any thread sees as a whole.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class OperatorBank {
+
+    /**
+     * Mode dependent button, named by its operator in the normal mode.
+     */
+    public enum Slot {
+        /** Sine, arcsine and their hyperbolic versions. */
+        SIN("sin", "asin", true),
+        /** Cosine, arccosine and their hyperbolic versions. */
+        COS("cos", "acos", true),
+        /** Tangent, arctangent and their hyperbolic versions. */
+        TAN("tan", "atan", true),
+        /** Cotangent, arccotangent and their hyperbolic versions. */
+        COT("cot", "acot", true),
+        /** Base 10 logarithm and power of 10. */
+        LOG("log", "10^x", false),
+        /** Natural logarithm and exponential function. */
+        LN("ln", "e^x", false),
+        /** Power and root, a binary operator. */
+        POWER("x^n", "n√x", false);
+
+        /** Label of the operator in the normal mode. */
+        private final String normal;
+        /** Label of the operator in the inverse mode. */
+        private final String inverse;
+        /** It is true if the operator is trigonometric. */
+        private final boolean trigonometric;
+
+        /**
+         * Creates a new {@link Slot}.
+         *
+         * @param normal label of the operator in the normal mode
+         * @param inverse label of the operator in the inverse mode
+         * @param trigonometric <code>true</code> if the operator is trigonometric
+         */
+        Slot(String normal, String inverse, boolean trigonometric) {
+            this.normal = normal;
+            this.inverse = inverse;
+            this.trigonometric = trigonometric;
+        }
+
+        /**
+         * @return <code>true</code> if the operator is binary
+         */
+        public boolean isBinary() {
+            return this == POWER;
+        }
+
+        /**
+         * Returns the registry label of the operator in the slot. Hyperbolic functions and the
+         * angle unit apply only to the trigonometric slots.
+         *
+         * @param inverse <code>true</code> for the inverse operator
+         * @param hyperbolic <code>true</code> for the hyperbolic function
+         * @param unit unit of angles
+         * @return label of the operator
+         */
+        String label(boolean inverse, boolean hyperbolic, AngleUnit unit) {
+            String label = inverse ? this.inverse : normal;
+            if (!trigonometric) {
+                return label;
+            }
+            return hyperbolic ? label + "h" : label + unit.getSuffix();
+        }
+    }
+
+    /** Slots in the order of the tables. */
+    private static final Slot[] SLOTS = Slot.values();
+
+    /** It is true if the inverse operators are chosen. */
+    private final boolean inverse;
+    /** It is true if the hyperbolic functions are chosen. */
+    private final boolean hyperbolic;
+    /** Unit of angles. */
+    private final AngleUnit unit;
+    /** Unary operators by the ordinal of the slot, <code>null</code> in the binary slots. */
+    private final UnaryOperation[] unary = new UnaryOperation[SLOTS.length];
+    /** Binary operators by the ordinal of the slot, <code>null</code> in the unary slots. */
+    private final BinaryOperation[] binary = new BinaryOperation[SLOTS.length];
+    /** All banks of the registry, see {@link #index(boolean, boolean, AngleUnit)}. */
+    private final OperatorBank[] banks;
+
+    /**
+     * Creates a new {@link OperatorBank} and puts it in the table of all banks.
+     *
+     * @param registry registry of the operators
+     * @param inverse <code>true</code> for the inverse operators
+     * @param hyperbolic <code>true</code> for the hyperbolic functions
+     * @param unit unit of angles
+     * @param banks table of all banks of the registry
+     */
+    private OperatorBank(OperatorRegistry registry, boolean inverse, boolean hyperbolic,
+        AngleUnit unit, OperatorBank[] banks) {
+        this.inverse = inverse;
+        this.hyperbolic = hyperbolic;
+        this.unit = unit;
+        this.banks = banks;
+        for (Slot slot : SLOTS) {
+            String label = slot.label(inverse, hyperbolic, unit);
+            if (slot.isBinary()) {
+                binary[slot.ordinal()] = registry.binary(label);
+            } else {
+                unary[slot.ordinal()] = registry.unary(label);
+            }
+        }
+        banks[index(inverse, hyperbolic, unit)] = this;
+    }
+
+    /**
+     * Creates all banks of the registry.
+     *
+     * @param registry registry with all operators of the banks
+     * @return table of the banks, see {@link #index(boolean, boolean, AngleUnit)}
+     */
+    static OperatorBank[] all(OperatorRegistry registry) {
+        AngleUnit[] units = AngleUnit.values();
+        OperatorBank[] banks = new OperatorBank[4 * units.length];
+        for (AngleUnit unit : units) {
+            for (int mode = 0; mode < 4; mode++) {
+                new OperatorBank(registry, (mode & 1) != 0, (mode & 2) != 0, unit, banks);
+            }
+        }
+        return banks;
+    }
+
+    /**
+     * Returns the index of a bank in the table of all banks.
+     *
+     * @param inverse <code>true</code> for the inverse operators
+     * @param hyperbolic <code>true</code> for the hyperbolic functions
+     * @param unit unit of angles
+     * @return index of the bank
+     */
+    static int index(boolean inverse, boolean hyperbolic, AngleUnit unit) {
+        return 4 * unit.ordinal() + (hyperbolic ? 2 : 0) + (inverse ? 1 : 0);
+    }
+
+    /**
+     * @param slot a unary slot
+     * @return operator in the slot
+     * @throws IllegalArgumentException if the slot is binary
+     */
+    public UnaryOperation unary(Slot slot) {
+        UnaryOperation operation = unary[slot.ordinal()];
+        if (operation == null) {
+            throw new IllegalArgumentException("Slot is binary: " + slot + ".");
+        }
+        return operation;
+    }
+
+    /**
+     * @param slot a binary slot
+     * @return operator in the slot
+     * @throws IllegalArgumentException if the slot is unary
+     */
+    public BinaryOperation binary(Slot slot) {
+        BinaryOperation operation = binary[slot.ordinal()];
+        if (operation == null) {
+            throw new IllegalArgumentException("Slot is unary: " + slot + ".");
+        }
+        return operation;
+    }
+
+    /**
+     * @param slot a slot
+     * @return label of the operator in the slot
+     */
+    public String label(Slot slot) {
+        int i = slot.ordinal();
+        return (unary[i] != null) ? unary[i].getLabel() : binary[i].getLabel();
+    }
+
+    /**
+     * @return <code>true</code> if the inverse operators are chosen
+     */
+    public boolean isInverse() {
+        return inverse;
+    }
+
+    /**
+     * @return <code>true</code> if the hyperbolic functions are chosen
+     */
+    public boolean isHyperbolic() {
+        return hyperbolic;
+    }
+
+    /**
+     * @return unit of angles
+     */
+    public AngleUnit getUnit() {
+        return unit;
+    }
+
+    /**
+     * @param inverse <code>true</code> for the inverse operators
+     * @return bank which differs from this one only in Inv
+     */
+    public OperatorBank withInverse(boolean inverse) {
+        return banks[index(inverse, hyperbolic, unit)];
+    }
+
+    /**
+     * @param hyperbolic <code>true</code> for the hyperbolic functions
+     * @return bank which differs from this one only in the hyperbolic functions
+     */
+    public OperatorBank withHyperbolic(boolean hyperbolic) {
+        return banks[index(inverse, hyperbolic, unit)];
+    }
+
+    /**
+     * @param unit unit of angles
+     * @return bank which differs from this one only in the unit of angles
+     */
+    public OperatorBank withUnit(AngleUnit unit) {
+        return banks[index(inverse, hyperbolic, unit)];
+    }
+
+    @Override
+    public String toString() {
+        return (inverse ? "Inv " : "") + (hyperbolic ? "Hyp " : "") + unit;
+    }
+}
@@ -0,0 +1,313 @@
+package hr.fer.zemris.java.gui.calc.engine;
+
+import hr.fer.zemris.java.gui.calc.cache.CachedBinaryOperator;
+import hr.fer.zemris.java.gui.calc.cache.CachedUnaryOperator;
+import hr.fer.zemris.java.gui.calc.math.AngleUnit;
+import hr.fer.zemris.java.gui.calc.math.ApproximateKernels;
+import hr.fer.zemris.java.gui.calc.math.MathKernels;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+
+/**
+ * Registry of all operators that the calculator offers. Operators are looked up by the label
+ * which is shown on their button or by their id. Ids are given in the order of registration, so
+ * they are stable as long as the registration order does not change; new operators are registered
+ * after the old ones. The operators behind the mode dependent buttons are also grouped into an
+ * {@link OperatorBank} for every mode.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class OperatorRegistry {
+
+    /** Registry with all operators of the calculator, computed by {@link Math}. */
+    public static final OperatorRegistry DEFAULT = new OperatorRegistry(MathKernels.DEFAULT);
+
+    /** Unary operations, index is the id. */
+    private final List<UnaryOperation> unary = new ArrayList<>();
+    /** Binary operations, index is the id. */
+    private final List<BinaryOperation> binary = new ArrayList<>();
+    /** Unary operations by label. */
+    private final Map<String, UnaryOperation> unaryByLabel = new HashMap<>();
+    /** Binary operations by label. */
+    private final Map<String, BinaryOperation> binaryByLabel = new HashMap<>();
+    /** Operator banks of all modes. */
+    private final OperatorBank[] banks;
+    /** Ids of the inverse unary operations, index is the id. */
+    private final int[] unaryInverse;
+    /** Ids of the inverse binary operations, index is the id. */
+    private final int[] binaryInverse;
+
+    /**
+     * Creates a new {@link OperatorRegistry} and registers all operators of the calculator.
+     *
+     * @param k kernels which compute the functions
+     */
+    private OperatorRegistry(MathKernels k) {
+        //invertible operations
+        register("sin", x -> k.sin(x));
+        register("asin", x -> k.asin(x));
+        register("cos", x -> k.cos(x));
+        register("acos", x -> k.acos(x));
+        register("tan", x -> k.tan(x));
+        register("atan", x -> k.atan(x));
+        register("cot", x -> 1 / k.tan(x));
+        register("acot", x -> k.atan2(1, x));
+        register("log", x -> k.log10(x));
+        register("10^x", x -> k.pow(10, x));
+        register("ln", x -> k.log(x));
+        register("e^x", x -> k.exp(x));
+        register("x^n", (x, n) -> k.pow(x, n));
+        register("n√x", (x, n) -> k.pow(x, 1 / n));
+
+        //operations
+        register("1/x", x -> 1 / x);
+        register("/", '/', (x, y) -> x / y);
+        register("*", '*', (x, y) -> x * y);
+        register("-", '-', (x, y) -> x - y);
+        register("+", '+', (x, y) -> x + y);
+
+        //hyperbolic functions
+        register("sinh", x -> k.sinh(x));
+        register("asinh", x -> k.asinh(x));
+        register("cosh", x -> k.cosh(x));
+        register("acosh", x -> k.acosh(x));
+        register("tanh", x -> k.tanh(x));
+        register("atanh", x -> k.atanh(x));
+        register("coth", x -> 1 / k.tanh(x));
+        register("acoth", x -> k.atanh(1 / x));
+
+        //trigonometric functions in degrees and gradians
+        for (AngleUnit unit : new AngleUnit[] {AngleUnit.DEGREES, AngleUnit.GRADIANS}) {
+            String suffix = unit.getSuffix();
+            register("sin" + suffix, x -> unit.sin(k, x));
+            register("asin" + suffix, x -> unit.fromRadians(k.asin(x)));
+            register("cos" + suffix, x -> unit.cos(k, x));
+            register("acos" + suffix, x -> unit.fromRadians(k.acos(x)));
+            register("tan" + suffix, x -> unit.tan(k, x));
+            register("atan" + suffix, x -> unit.fromRadians(k.atan(x)));
+            register("cot" + suffix, x -> unit.cot(k, x));
+            register("acot" + suffix, x -> unit.fromRadians(k.atan2(1, x)));
+        }
+        banks = OperatorBank.all(this);
+        unaryInverse = pairInverses(false);
+        binaryInverse = pairInverses(true);
+    }
+
+    /**
+     * Creates a new {@link OperatorRegistry} with the same labels and ids as the source registry.
+     * Functions of the operators are transformed by the given mappers. Plain arithmetic operators
+     * are copied as they are.
+     *
+     * @param source registry to copy
+     * @param unaryMapper transformation of unary functions
+     * @param binaryMapper transformation of binary functions
+     */
+    private OperatorRegistry(OperatorRegistry source,
+        Function<DoubleUnaryOperator, DoubleUnaryOperator> unaryMapper,
+        Function<DoubleBinaryOperator, DoubleBinaryOperator> binaryMapper) {
+        source.unary.forEach(o -> register(o.getLabel(), unaryMapper.apply(o.getFunction())));
+        source.binary.forEach(o -> register(o.getLabel(), o.getArithmetic(),
+            o.getArithmetic() != 0 ? o.getFunction() : binaryMapper.apply(o.getFunction())));
+        banks = OperatorBank.all(this);
+        unaryInverse = pairInverses(false);
+        binaryInverse = pairInverses(true);
+    }
+
+    /**
+     * Returns a registry with all operators of the calculator, computed by the given kernels.
+     * Labels and ids are the same as in {@link #DEFAULT}.
+     *
+     * @param kernels kernels which compute the functions
+     * @return the registry
+     */
+    public static OperatorRegistry withKernels(MathKernels kernels) {
+        return new OperatorRegistry(kernels);
+    }
+
+    /**
+     * Returns a registry whose functions are computed by {@link ApproximateKernels}, accurate to
+     * the given number of significant digits.
+     *
+     * @param digits number of significant digits
+     * @return the registry
+     * @throws IllegalArgumentException if the number of digits is out of range
+     */
+    public static OperatorRegistry approximate(int digits) {
+        return withKernels(new ApproximateKernels(digits));
+    }
+
+    /**
+     * Returns a registry with the same operators, but every operator except plain arithmetic
+     * remembers its results in a {@link CachedUnaryOperator} or {@link CachedBinaryOperator}.
+     * Statistics of an operator's cache are available through its {@link
+     * UnaryOperation#getFunction()} or {@link BinaryOperation#getFunction()}.
+     *
+     * @param capacity maximal number of cached results per operator
+     * @return registry with cached operators
+     */
+    public OperatorRegistry cached(int capacity) {
+        return new OperatorRegistry(this,
+            f -> new CachedUnaryOperator(f, capacity),
+            f -> new CachedBinaryOperator(f, capacity));
+    }
+
+    /**
+     * Pairs every operator in a slot of the {@link OperatorBank}s with the operator in the same
+     * slot of the inverse bank. Other operators are their own inverse.
+     *
+     * @param binary <code>true</code> for the binary operators
+     * @return ids of the inverse operators, index is the id
+     */
+    private int[] pairInverses(boolean binary) {
+        int[] inverses = new int[binary ? this.binary.size() : unary.size()];
+        for (int i = 0; i < inverses.length; i++) {
+            inverses[i] = i;
+        }
+        for (OperatorBank normal : banks) {
+            OperatorBank inverse = normal.withInverse(!normal.isInverse());
+            for (OperatorBank.Slot slot : OperatorBank.Slot.values()) {
+                if (slot.isBinary() == binary) {
+                    int id = binary ? normal.binary(slot).getId() : normal.unary(slot).getId();
+                    inverses[id] = binary ? inverse.binary(slot).getId()
+                        : inverse.unary(slot).getId();
+                }
+            }
+        }
+        return inverses;
+    }
+
+    /**
+     * Registers a new unary operator.
+     *
+     * @param label label of the operator
+     * @param function function of the operator
+     */
+    private void register(String label, DoubleUnaryOperator function) {
+        UnaryOperation operation = new UnaryOperation(unary.size(), label, function);
+        unary.add(operation);
+        unaryByLabel.put(label, operation);
+    }
+
+    /**
+     * Registers a new binary operator which is not plain arithmetic.
+     *
+     * @param label label of the operator
+     * @param function function of the operator
+     */
+    private void register(String label, DoubleBinaryOperator function) {
+        register(label, (char) 0, function);
+    }
+
+    /**
+     * Registers a new binary operator.
+     *
+     * @param label label of the operator
+     * @param arithmetic symbol of the operator if the function is plain IEEE arithmetic,
+     * <code>0</code> otherwise, see {@link BinaryOperation#getArithmetic()}
+     * @param function function of the operator
+     */
+    private void register(String label, char arithmetic, DoubleBinaryOperator function) {
+        BinaryOperation operation = new BinaryOperation(binary.size(), label, arithmetic, function);
+        binary.add(operation);
+        binaryByLabel.put(label, operation);
+    }
+
+    /**
+     * Returns unary operation with the given label.
+     *
+     * @param label label of the operation
+     * @return the operation, <code>null</code> if there is no such operation
+     */
+    public UnaryOperation unary(String label) {
+        return unaryByLabel.get(label);
+    }
+
+    /**
+     * Returns unary operation with the given id.
+     *
+     * @param id id of the operation
+     * @return the operation
+     * @throws IndexOutOfBoundsException if there is no such operation
+     */
+    public UnaryOperation unary(int id) {
+        return unary.get(id);
+    }
+
+    /**
+     * Returns binary operation with the given label.
+     *
+     * @param label label of the operation
+     * @return the operation, <code>null</code> if there is no such operation
+     */
+    public BinaryOperation binary(String label) {
+        return binaryByLabel.get(label);
+    }
+
+    /**
+     * Returns binary operation with the given id.
+     *
+     * @param id id of the operation
+     * @return the operation
+     * @throws IndexOutOfBoundsException if there is no such operation
+     */
+    public BinaryOperation binary(int id) {
+        return binary.get(id);
+    }
+
+    /**
+     * Returns the operation which is chosen instead of the given one when Inv is checked, e.g.
+     * <code>asin</code> for <code>sin</code> and <code>sin</code> for <code>asin</code>.
+     *
+     * @param operation operation of this registry
+     * @return the inverse operation, the same operation if it has none
+     * @throws IndexOutOfBoundsException if the operation is not from this registry
+     */
+    public UnaryOperation inverse(UnaryOperation operation) {
+        return unary.get(unaryInverse[operation.getId()]);
+    }
+
+    /**
+     * Returns the operation which is chosen instead of the given one when Inv is checked, e.g.
+     * <code>n√x</code> for <code>x^n</code>.
+     *
+     * @param operation operation of this registry
+     * @return the inverse operation, the same operation if it has none
+     * @throws IndexOutOfBoundsException if the operation is not from this registry
+     */
+    public BinaryOperation inverse(BinaryOperation operation) {
+        return binary.get(binaryInverse[operation.getId()]);
+    }
+
+    /**
+     * Returns the operator bank of a mode.
+     *
+     * @param inverse <code>true</code> for the inverse operators
+     * @param hyperbolic <code>true</code> for the hyperbolic functions
+     * @param unit unit of angles
+     * @return the bank
+     */
+    public OperatorBank bank(boolean inverse, boolean hyperbolic, AngleUnit unit) {
+        return banks[OperatorBank.index(inverse, hyperbolic, unit)];
+    }
+
+    /**
+     * @return all unary operations, ordered by id
+     */
+    public List<UnaryOperation> getUnaryOperations() {
+        return Collections.unmodifiableList(unary);
+    }
+
+    /**
+     * @return all binary operations, ordered by id
+     */
+    public List<BinaryOperation> getBinaryOperations() {
+        return Collections.unmodifiableList(binary);
+    }
+}
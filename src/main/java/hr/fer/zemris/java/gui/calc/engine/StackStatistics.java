@@ -0,0 +1,198 @@
+package hr.fer.zemris.java.gui.calc.engine;
+
+import java.util.Arrays;
+
+/**
+ * Running {@link Statistics} of the values on a {@link DoubleStack}.<p>
+ *
+ * The statistics of every prefix of the stack are kept, one record per depth: the compensated sum,
+ * the mean and the sum of squared differences (Welford), the minimum, the maximum and the
+ * compensated sum of squares. A push adds one record computed from the one below it and a pop
+ * just uses the record below, so the statistics of the whole stack never need a rescan. When a
+ * value inside the stack changes (swap, rotate, restore from the history), the records from that
+ * depth up are recomputed.<p>
+ *
+ * Records are brought up to date when the statistics are read, so pushes and pops which are not
+ * followed by a read cost nothing here. The records take 64 bytes per value. Instances are created
+ * by {@link DoubleStack#statistics()}. This class is not synchronized.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class StackStatistics {
+
+    /** Offset of the sum in a record. */
+    private static final int SUM = 0;
+    /** Offset of the compensation of the sum in a record. */
+    private static final int COMPENSATION = 1;
+    /** Offset of the mean in a record. */
+    private static final int MEAN = 2;
+    /** Offset of the sum of squared differences from the mean in a record. */
+    private static final int M2 = 3;
+    /** Offset of the minimum in a record. */
+    private static final int MIN = 4;
+    /** Offset of the maximum in a record. */
+    private static final int MAX = 5;
+    /** Offset of the sum of squares in a record. */
+    private static final int SQUARES = 6;
+    /** Offset of the compensation of the sum of squares in a record. */
+    private static final int SQUARES_COMPENSATION = 7;
+    /** Size of a record. */
+    private static final int STRIDE = 8;
+
+    /** Summarized stack. */
+    private final DoubleStack stack;
+    /** Records of the prefixes, the record at index <code>i</code> covers values 0 to i. */
+    private double[] records = new double[0];
+    /** Records below this index are up to date. */
+    private int valid;
+
+    /**
+     * Creates new {@link StackStatistics} of the stack.
+     *
+     * @param stack the stack
+     */
+    StackStatistics(DoubleStack stack) {
+        this.stack = stack;
+    }
+
+    /**
+     * Remembers that the value at the index was changed, so the records from there up are not up
+     * to date.
+     *
+     * @param index the index
+     */
+    void changed(int index) {
+        if (index < valid) {
+            valid = index;
+        }
+    }
+
+    /**
+     * Returns the statistics of all values on the stack.
+     *
+     * @return the statistics
+     */
+    public Statistics get() {
+        int size = stack.size();
+        if (size == 0) {
+            return Statistics.EMPTY;
+        }
+        int p = update(size);
+        return new Statistics(size, records[p + SUM], records[p + COMPENSATION],
+            records[p + MEAN], records[p + M2], records[p + MIN], records[p + MAX],
+            records[p + SQUARES], records[p + SQUARES_COMPENSATION]);
+    }
+
+    /**
+     * @return number of values on the stack
+     */
+    public int getCount() {
+        return stack.size();
+    }
+
+    /**
+     * @return sum of the values on the stack
+     */
+    public double getSum() {
+        int size = stack.size();
+        if (size == 0) {
+            return 0;
+        }
+        int p = update(size);
+        return Statistics.compensated(records[p + SUM], records[p + COMPENSATION]);
+    }
+
+    /**
+     * @return mean of the values on the stack, <code>NaN</code> if it is empty
+     */
+    public double getMean() {
+        int size = stack.size();
+        return (size == 0) ? Double.NaN : records[update(size) + MEAN];
+    }
+
+    /**
+     * @return population variance of the values on the stack, <code>NaN</code> if it is empty
+     */
+    public double getVariance() {
+        int size = stack.size();
+        return (size == 0) ? Double.NaN : records[update(size) + M2] / size;
+    }
+
+    /**
+     * @return minimal value on the stack, <code>NaN</code> if it is empty
+     */
+    public double getMin() {
+        int size = stack.size();
+        return (size == 0) ? Double.NaN : records[update(size) + MIN];
+    }
+
+    /**
+     * @return maximal value on the stack, <code>NaN</code> if it is empty
+     */
+    public double getMax() {
+        int size = stack.size();
+        return (size == 0) ? Double.NaN : records[update(size) + MAX];
+    }
+
+    /**
+     * Brings the records up to date.
+     *
+     * @param size size of the stack, positive
+     * @return index of the record of the whole stack
+     */
+    private int update(int size) {
+        if (valid < size) {
+            if (records.length < size * STRIDE) {
+                records = Arrays.copyOf(records, Math.max(size, 2 * records.length / STRIDE)
+                    * STRIDE);
+            }
+            for (int i = valid; i < size; i++) {
+                extend(i, stack.get(i));
+            }
+            valid = size;
+        }
+        return (size - 1) * STRIDE;
+    }
+
+    /**
+     * Computes the record at the index from the record below it.
+     *
+     * @param index index of the record
+     * @param x value at the index
+     */
+    private void extend(int index, double x) {
+        double[] r = records;
+        int p = index * STRIDE;
+        if (index == 0) {
+            r[p + SUM] = x;
+            r[p + COMPENSATION] = 0;
+            r[p + MEAN] = x;
+            r[p + M2] = 0;
+            r[p + MIN] = x;
+            r[p + MAX] = x;
+            r[p + SQUARES] = x * x;
+            r[p + SQUARES_COMPENSATION] = 0;
+            return;
+        }
+        int q = p - STRIDE;
+        double sum = r[q + SUM];
+        double t = sum + x;
+        r[p + SUM] = t;
+        r[p + COMPENSATION] = r[q + COMPENSATION]
+            + (Math.abs(sum) >= Math.abs(x) ? (sum - t) + x : (x - t) + sum);
+        double mean = r[q + MEAN];
+        double delta = x - mean;
+        double newMean = mean + delta / (index + 1);
+        r[p + MEAN] = newMean;
+        r[p + M2] = r[q + M2] + delta * (x - newMean);
+        r[p + MIN] = Math.min(r[q + MIN], x);
+        r[p + MAX] = Math.max(r[q + MAX], x);
+        double squares = r[q + SQUARES];
+        double xx = x * x;
+        t = squares + xx;
+        r[p + SQUARES] = t;
+        r[p + SQUARES_COMPENSATION] = r[q + SQUARES_COMPENSATION]
+            + (squares >= xx ? (squares - t) + xx : (xx - t) + squares);
+    }
+}
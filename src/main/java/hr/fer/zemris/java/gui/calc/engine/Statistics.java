@@ -0,0 +1,219 @@
+package hr.fer.zemris.java.gui.calc.engine;
+
+/**
+ * Summary statistics of a sequence of values: count, sum, mean, variance, minimum, maximum and sum
+ * of squares.<p>
+ *
+ * Sums are compensated (Kahan-Babuška-Neumaier), so their error does not grow with the number of
+ * values. The mean and the variance are calculated by Welford's method, which does not cancel
+ * catastrophically like the difference of the sum of squares and the squared sum. Statistics of
+ * two adjacent parts of a sequence are combined by {@link #combine(Statistics)} (Chan's method),
+ * so a sequence can be summarized in parallel. Minimum and maximum are <code>NaN</code> if any
+ * value is. Instances are immutable.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class Statistics {
+
+    /** Statistics of no values. */
+    public static final Statistics EMPTY =
+        new Statistics(0, 0, 0, Double.NaN, 0, Double.NaN, Double.NaN, 0, 0);
+
+    /** Number of values. */
+    private final long count;
+    /** Sum of the values, without the compensation. */
+    private final double sum;
+    /** Compensation of the sum. */
+    private final double compensation;
+    /** Mean of the values. */
+    private final double mean;
+    /** Sum of squared differences from the mean. */
+    private final double m2;
+    /** Minimal value. */
+    private final double min;
+    /** Maximal value. */
+    private final double max;
+    /** Sum of the squares, without the compensation. */
+    private final double squares;
+    /** Compensation of the sum of the squares. */
+    private final double squaresCompensation;
+
+    /**
+     * Creates new {@link Statistics}.
+     *
+     * @param count number of values
+     * @param sum sum of the values, without the compensation
+     * @param compensation compensation of the sum
+     * @param mean mean of the values
+     * @param m2 sum of squared differences from the mean
+     * @param min minimal value
+     * @param max maximal value
+     * @param squares sum of the squares, without the compensation
+     * @param squaresCompensation compensation of the sum of the squares
+     */
+    Statistics(long count, double sum, double compensation, double mean, double m2, double min,
+        double max, double squares, double squaresCompensation) {
+        this.count = count;
+        this.sum = sum;
+        this.compensation = compensation;
+        this.mean = mean;
+        this.m2 = m2;
+        this.min = min;
+        this.max = max;
+        this.squares = squares;
+        this.squaresCompensation = squaresCompensation;
+    }
+
+    /**
+     * Summarizes the values in the range, in their order.
+     *
+     * @param values the values
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return statistics of the values
+     * @throws IllegalArgumentException if the range is not valid
+     */
+    public static Statistics of(double[] values, int from, int to) {
+        if (from < 0 || to > values.length || from > to) {
+            throw new IllegalArgumentException(
+                "Invalid range: [" + from + ", " + to + ") of " + values.length + ".");
+        }
+        if (from == to) {
+            return EMPTY;
+        }
+        double x = values[from];
+        double sum = x;
+        double compensation = 0;
+        double mean = x;
+        double m2 = 0;
+        double min = x;
+        double max = x;
+        double squares = x * x;
+        double squaresCompensation = 0;
+        for (int i = from + 1; i < to; i++) {
+            x = values[i];
+            double t = sum + x;
+            compensation += Math.abs(sum) >= Math.abs(x) ? (sum - t) + x : (x - t) + sum;
+            sum = t;
+            double delta = x - mean;
+            mean += delta / (i - from + 1);
+            m2 += delta * (x - mean);
+            min = Math.min(min, x);
+            max = Math.max(max, x);
+            double xx = x * x;
+            t = squares + xx;
+            squaresCompensation += squares >= xx ? (squares - t) + xx : (xx - t) + squares;
+            squares = t;
+        }
+        return new Statistics(to - from, sum, compensation, mean, m2, min, max, squares,
+            squaresCompensation);
+    }
+
+    /**
+     * Combines these statistics with the statistics of the values which follow them.
+     *
+     * @param next statistics of the following values
+     * @return statistics of all the values
+     */
+    public Statistics combine(Statistics next) {
+        if (next.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return next;
+        }
+        long n = count + next.count;
+        double delta = next.mean - mean;
+        double t = sum + next.sum;
+        double c = compensation + next.compensation
+            + (Math.abs(sum) >= Math.abs(next.sum) ? (sum - t) + next.sum : (next.sum - t) + sum);
+        double s = squares + next.squares;
+        double sc = squaresCompensation + next.squaresCompensation + (squares >= next.squares
+            ? (squares - s) + next.squares : (next.squares - s) + squares);
+        return new Statistics(n, t, c, mean + delta * next.count / n,
+            m2 + next.m2 + delta * delta * count / n * next.count,
+            Math.min(min, next.min), Math.max(max, next.max), s, sc);
+    }
+
+    /**
+     * @return number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return sum of the values
+     */
+    public double getSum() {
+        return compensated(sum, compensation);
+    }
+
+    /**
+     * @return mean of the values, <code>NaN</code> if there are none
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return population variance of the values, <code>NaN</code> if there are none
+     */
+    public double getVariance() {
+        return (count == 0) ? Double.NaN : m2 / count;
+    }
+
+    /**
+     * @return sample variance of the values, <code>NaN</code> if there are less than two
+     */
+    public double getSampleVariance() {
+        return (count < 2) ? Double.NaN : m2 / (count - 1);
+    }
+
+    /**
+     * @return population standard deviation of the values, <code>NaN</code> if there are none
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * @return minimal value, <code>NaN</code> if there are none
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return maximal value, <code>NaN</code> if there are none
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return sum of the squares of the values
+     */
+    public double getSumOfSquares() {
+        return compensated(squares, squaresCompensation);
+    }
+
+    /**
+     * Adds the compensation to a sum. An infinite sum makes the compensation <code>NaN</code>,
+     * so it is returned as it is.
+     *
+     * @param sum the sum
+     * @param compensation its compensation
+     * @return compensated sum
+     */
+    static double compensated(double sum, double compensation) {
+        return Double.isInfinite(sum) ? sum : sum + compensation;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + " sum=" + getSum() + " mean=" + mean + " variance="
+            + getVariance() + " min=" + min + " max=" + max + " sumsq=" + getSumOfSquares();
+    }
+}
@@ -0,0 +1,64 @@
+package hr.fer.zemris.java.gui.calc.engine;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Unary operator of the calculator with a label (as it is shown on the button) and an id which is
+ * unique inside its {@link OperatorRegistry}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class UnaryOperation implements DoubleUnaryOperator {
+
+    /** Id of the operation inside the registry. */
+    private final int id;
+    /** Label of the operation. */
+    private final String label;
+    /** Function which is applied. */
+    private final DoubleUnaryOperator function;
+
+    /**
+     * Creates a new {@link UnaryOperation}.
+     *
+     * @param id id of the operation
+     * @param label label of the operation
+     * @param function function which is applied
+     */
+    UnaryOperation(int id, String label, DoubleUnaryOperator function) {
+        this.id = id;
+        this.label = label;
+        this.function = function;
+    }
+
+    @Override
+    public double applyAsDouble(double operand) {
+        return function.applyAsDouble(operand);
+    }
+
+    /**
+     * @return the id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the label
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return the function
+     */
+    public DoubleUnaryOperator getFunction() {
+        return function;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
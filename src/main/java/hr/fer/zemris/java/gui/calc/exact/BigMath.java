@@ -0,0 +1,393 @@
+package hr.fer.zemris.java.gui.calc.exact;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Elementary functions of exact decimal arguments. Every function returns a value whose absolute
+ * error is at most <code>10^-scale</code>. Series are summed with a few guard digits until their
+ * terms drop below the requested scale, so the cost grows with the number of digits asked for.
+ * Constants (pi, ln 2, ln 10) are cached at the highest scale computed so far.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+final class BigMath {
+
+    /** Number of guard digits used in intermediate results. */
+    private static final int GUARD = 10;
+    /** Two. */
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+    /** Maximal argument of the exponential function. */
+    static final BigDecimal MAX_EXPONENT = BigDecimal.valueOf(1_000_000);
+    /** Upper bound of the reduced logarithm argument. */
+    private static final BigDecimal LOG_REDUCED = new BigDecimal("1.5");
+
+    /** Cached pi. */
+    private static volatile Approximation pi;
+    /** Cached ln(2). */
+    private static volatile Approximation ln2;
+    /** Cached ln(10). */
+    private static volatile Approximation ln10;
+
+    /**
+     * Utility class.
+     */
+    private BigMath() {
+    }
+
+    /**
+     * @param scale requested scale
+     * @return pi
+     */
+    static BigDecimal pi(int scale) {
+        Approximation a = pi;
+        if (a == null || a.scale < scale) {
+            int w = Math.max(scale, 0) + GUARD;
+            //Machin's formula
+            BigDecimal value = atanInverse(5, w).multiply(BigDecimal.valueOf(16))
+                .subtract(atanInverse(239, w).multiply(BigDecimal.valueOf(4)));
+            a = new Approximation(w - 2, value);
+            pi = a;
+        }
+        return a.value.setScale(scale, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * @param scale requested scale
+     * @return ln(2)
+     */
+    static BigDecimal ln2(int scale) {
+        Approximation a = ln2;
+        if (a == null || a.scale < scale) {
+            int w = Math.max(scale, 0) + GUARD;
+            //ln(2) = 2 atanh(1/3)
+            BigDecimal value = atanhInverse(3, w).multiply(TWO);
+            a = new Approximation(w - 2, value);
+            ln2 = a;
+        }
+        return a.value.setScale(scale, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * @param scale requested scale
+     * @return ln(10)
+     */
+    static BigDecimal ln10(int scale) {
+        Approximation a = ln10;
+        if (a == null || a.scale < scale) {
+            int w = Math.max(scale, 0) + GUARD;
+            //ln(10) = 3 ln(2) + ln(5/4) = 3 ln(2) + 2 atanh(1/9)
+            BigDecimal value = ln2(w).multiply(BigDecimal.valueOf(3))
+                .add(atanhInverse(9, w).multiply(TWO));
+            a = new Approximation(w - 2, value);
+            ln10 = a;
+        }
+        return a.value.setScale(scale, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * Returns <code>atan(1/n)</code> at the working scale.
+     *
+     * @param n inverse of the argument, at least 2
+     * @param w working scale
+     * @return the arctangent
+     */
+    private static BigDecimal atanInverse(int n, int w) {
+        BigDecimal x = BigDecimal.ONE.divide(BigDecimal.valueOf(n), w, RoundingMode.HALF_EVEN);
+        return atanSeries(x, w);
+    }
+
+    /**
+     * Returns <code>atanh(1/n)</code> at the working scale.
+     *
+     * @param n inverse of the argument, at least 2
+     * @param w working scale
+     * @return the inverse hyperbolic tangent
+     */
+    private static BigDecimal atanhInverse(int n, int w) {
+        BigDecimal x = BigDecimal.ONE.divide(BigDecimal.valueOf(n), w, RoundingMode.HALF_EVEN);
+        return atanhSeries(x, w);
+    }
+
+    /**
+     * Sums <code>x - x^3/3 + x^5/5 - ...</code>.
+     *
+     * @param x argument, <code>|x| &lt;= 1/2</code>
+     * @param w working scale
+     * @return the sum
+     */
+    private static BigDecimal atanSeries(BigDecimal x, int w) {
+        return oddSeries(x, w, true);
+    }
+
+    /**
+     * Sums <code>x + x^3/3 + x^5/5 + ...</code>.
+     *
+     * @param x argument, <code>|x| &lt;= 1/2</code>
+     * @param w working scale
+     * @return the sum
+     */
+    private static BigDecimal atanhSeries(BigDecimal x, int w) {
+        return oddSeries(x, w, false);
+    }
+
+    /**
+     * Sums <code>x +- x^3/3 + x^5/5 +- ...</code>.
+     *
+     * @param x argument, <code>|x| &lt;= 1/2</code>
+     * @param w working scale
+     * @param alternating <code>true</code> if signs alternate
+     * @return the sum
+     */
+    private static BigDecimal oddSeries(BigDecimal x, int w, boolean alternating) {
+        BigDecimal x2 = x.multiply(x).setScale(w, RoundingMode.HALF_EVEN);
+        BigDecimal power = x;
+        BigDecimal sum = x;
+        BigDecimal epsilon = BigDecimal.ONE.movePointLeft(w);
+        for (int k = 3; ; k += 2) {
+            power = power.multiply(x2).setScale(w, RoundingMode.HALF_EVEN);
+            BigDecimal term = power.divide(BigDecimal.valueOf(k), w, RoundingMode.HALF_EVEN);
+            if (term.abs().compareTo(epsilon) < 0) {
+                return sum;
+            }
+            sum = alternating && (k & 2) != 0 ? sum.subtract(term) : sum.add(term);
+        }
+    }
+
+    /**
+     * @param x exponent
+     * @param scale requested scale
+     * @return <code>e^x</code>
+     * @throws ArithmeticException if the exponent is too large
+     */
+    static BigDecimal exp(BigDecimal x, int scale) {
+        if (x.compareTo(MAX_EXPONENT) > 0) {
+            throw new ArithmeticException("Exponent is too large: " + x + ".");
+        }
+        int s = Math.max(scale, 0);
+        if (x.signum() < 0 && x.negate().compareTo(BigDecimal.valueOf(2.31 * s + 3)) > 0) {
+            //e^x < 10^-s
+            return BigDecimal.ZERO.setScale(s);
+        }
+        //x = k ln(2) + r, e^x = 2^k e^r, |r| <= 0.35
+        int magnitude = Math.max(0, (int) Math.ceil(x.doubleValue() * 0.4343)) + 1;
+        int kDigits = integerDigits(x) + 1;
+        BigDecimal log2 = ln2(s + magnitude + kDigits + GUARD);
+        int k = x.divide(log2, 0, RoundingMode.HALF_EVEN).intValueExact();
+        BigDecimal r = x.subtract(log2.multiply(BigDecimal.valueOf(k)));
+
+        int w = s + magnitude + GUARD;
+        BigDecimal epsilon = BigDecimal.ONE.movePointLeft(w);
+        BigDecimal term = BigDecimal.ONE;
+        BigDecimal sum = BigDecimal.ONE;
+        for (int n = 1; ; n++) {
+            term = term.multiply(r).divide(BigDecimal.valueOf(n), w, RoundingMode.HALF_EVEN);
+            if (term.abs().compareTo(epsilon) < 0) {
+                break;
+            }
+            sum = sum.add(term);
+        }
+        BigDecimal power = k >= 0
+            ? new BigDecimal(BigInteger.ONE.shiftLeft(k))
+            : BigDecimal.ONE.divide(new BigDecimal(BigInteger.ONE.shiftLeft(-k)));
+        return sum.multiply(power).setScale(scale, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * @param x argument, must be positive
+     * @param scale requested scale
+     * @return natural logarithm of the argument
+     */
+    static BigDecimal ln(BigDecimal x, int scale) {
+        int w = Math.max(scale, 0) + GUARD;
+        //x = m 10^k, m in [1, 10)
+        int k = x.precision() - x.scale() - 1;
+        BigDecimal m = x.movePointLeft(k);
+        //m = m' 2^j, m' in (0.75, 1.5]
+        int j = 0;
+        while (m.compareTo(LOG_REDUCED) > 0) {
+            m = m.divide(TWO);
+            j++;
+        }
+        BigDecimal t = m.subtract(BigDecimal.ONE)
+            .divide(m.add(BigDecimal.ONE), w, RoundingMode.HALF_EVEN);
+        BigDecimal result = atanhSeries(t, w).multiply(TWO);
+        if (j != 0) {
+            result = result.add(ln2(w).multiply(BigDecimal.valueOf(j)));
+        }
+        if (k != 0) {
+            result = result.add(ln10(w + digits(k)).multiply(BigDecimal.valueOf(k)));
+        }
+        return result.setScale(scale, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * @param x angle in radians
+     * @param scale requested scale
+     * @return sine of the angle
+     */
+    static BigDecimal sin(BigDecimal x, int scale) {
+        return sinCos(x, scale, 0);
+    }
+
+    /**
+     * @param x angle in radians
+     * @param scale requested scale
+     * @return cosine of the angle
+     */
+    static BigDecimal cos(BigDecimal x, int scale) {
+        return sinCos(x, scale, 1);
+    }
+
+    /**
+     * Returns <code>sin(x + shift pi/2)</code>.
+     *
+     * @param x angle in radians
+     * @param scale requested scale
+     * @param shift number of quarter turns added to the angle
+     * @return the sine
+     */
+    private static BigDecimal sinCos(BigDecimal x, int scale, int shift) {
+        int w = Math.max(scale, 0) + GUARD;
+        //x = q pi/2 + r, |r| <= pi/4
+        BigDecimal halfPi = pi(w + integerDigits(x) + 1).divide(TWO);
+        BigInteger q = x.divide(halfPi, 0, RoundingMode.HALF_EVEN).toBigIntegerExact();
+        BigDecimal r = x.subtract(halfPi.multiply(new BigDecimal(q))).setScale(w,
+            RoundingMode.HALF_EVEN);
+        int quadrant = q.add(BigInteger.valueOf(shift)).and(BigInteger.valueOf(3)).intValue();
+
+        BigDecimal result;
+        if ((quadrant & 1) == 0) {
+            result = taylor(r, r, 1, w);
+        } else {
+            result = taylor(r, BigDecimal.ONE, 0, w);
+        }
+        if (quadrant >= 2) {
+            result = result.negate();
+        }
+        return result.setScale(scale, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * Sums the sine or cosine series, starting with the given term.
+     *
+     * @param x argument
+     * @param first first term
+     * @param n power of the first term
+     * @param w working scale
+     * @return the sum
+     */
+    private static BigDecimal taylor(BigDecimal x, BigDecimal first, int n, int w) {
+        BigDecimal x2 = x.multiply(x).setScale(w, RoundingMode.HALF_EVEN);
+        BigDecimal epsilon = BigDecimal.ONE.movePointLeft(w);
+        BigDecimal term = first;
+        BigDecimal sum = first;
+        for (int k = n; ; k += 2) {
+            term = term.multiply(x2).divide(BigDecimal.valueOf((long) (k + 1) * (k + 2)), w,
+                RoundingMode.HALF_EVEN).negate();
+            if (term.abs().compareTo(epsilon) < 0) {
+                return sum;
+            }
+            sum = sum.add(term);
+        }
+    }
+
+    /**
+     * @param x tangent of an angle
+     * @param scale requested scale
+     * @return the angle in <code>[-pi/2, pi/2]</code>
+     */
+    static BigDecimal atan(BigDecimal x, int scale) {
+        int w = Math.max(scale, 0) + GUARD;
+        BigDecimal a = x.abs();
+        boolean inverted = a.compareTo(BigDecimal.ONE) > 0;
+        if (inverted) {
+            a = BigDecimal.ONE.divide(a, w, RoundingMode.HALF_EVEN);
+        }
+        //atan(a) = 2 atan(a / (1 + sqrt(1 + a^2))), twice, so that a <= tan(pi/16)
+        for (int i = 0; i < 2; i++) {
+            BigDecimal root = sqrt(BigDecimal.ONE.add(a.multiply(a)), w);
+            a = a.divide(BigDecimal.ONE.add(root), w, RoundingMode.HALF_EVEN);
+        }
+        BigDecimal result = atanSeries(a, w).multiply(BigDecimal.valueOf(4));
+        if (inverted) {
+            result = pi(w).divide(TWO).subtract(result);
+        }
+        if (x.signum() < 0) {
+            result = result.negate();
+        }
+        return result.setScale(scale, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * @param x argument, must not be negative
+     * @param scale requested scale
+     * @return square root of the argument
+     */
+    static BigDecimal sqrt(BigDecimal x, int scale) {
+        int s = Math.max(scale, 0) + 1;
+        BigInteger n = x.movePointRight(2 * s).toBigInteger();
+        return new BigDecimal(isqrt(n), s).setScale(scale, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * @param n argument, must not be negative
+     * @return floor of the square root of the argument
+     */
+    private static BigInteger isqrt(BigInteger n) {
+        if (n.signum() == 0) {
+            return n;
+        }
+        BigInteger x = BigInteger.ONE.shiftLeft((n.bitLength() + 1) / 2);
+        while (true) {
+            BigInteger y = x.add(n.divide(x)).shiftRight(1);
+            if (y.compareTo(x) >= 0) {
+                return x;
+            }
+            x = y;
+        }
+    }
+
+    /**
+     * @param x number
+     * @return number of digits of the integer part of the number
+     */
+    static int integerDigits(BigDecimal x) {
+        return Math.max(0, x.precision() - x.scale());
+    }
+
+    /**
+     * @param n number
+     * @return number of decimal digits of the number
+     */
+    private static int digits(int n) {
+        return Integer.toString(Math.abs(n)).length();
+    }
+
+    /**
+     * Value with the scale up to which it is accurate.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    static final class Approximation {
+
+        /** Scale up to which the value is accurate. */
+        final int scale;
+        /** The value. */
+        final BigDecimal value;
+
+        /**
+         * Creates a new {@link Approximation}.
+         *
+         * @param scale scale up to which the value is accurate
+         * @param value the value
+         */
+        Approximation(int scale, BigDecimal value) {
+            this.scale = scale;
+            this.value = value;
+        }
+    }
+}
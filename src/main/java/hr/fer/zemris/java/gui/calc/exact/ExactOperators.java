@@ -0,0 +1,228 @@
+package hr.fer.zemris.java.gui.calc.exact;
+
+import hr.fer.zemris.java.gui.calc.engine.BinaryOperation;
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import hr.fer.zemris.java.gui.calc.engine.UnaryOperation;
+import hr.fer.zemris.java.gui.calc.math.AngleUnit;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * Exact versions of the operators from {@link OperatorRegistry}. They are looked up by the same
+ * labels and ids, so keypad codes work with them as well. Every operator of the registry has an
+ * exact version; other double operators, e.g. macros, are applied to a double approximation by
+ * {@link #unary(DoubleUnaryOperator)} and {@link #binary(DoubleBinaryOperator)}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class ExactOperators {
+
+    /** Unary operators by label. */
+    private static final Map<String, UnaryOperator<Real>> UNARY = new HashMap<>();
+    /** Binary operators by label. */
+    private static final Map<String, BinaryOperator<Real>> BINARY = new HashMap<>();
+    /** Number two. */
+    private static final Real TWO = Real.valueOf(BigDecimal.valueOf(2));
+    /** Number which is not defined, the value of NaN and infinite doubles. */
+    private static final Real UNDEFINED = Real.ONE.divide(Real.ZERO);
+
+    static {
+        UNARY.put("sin", Real::sin);
+        UNARY.put("asin", Real::asin);
+        UNARY.put("cos", Real::cos);
+        UNARY.put("acos", Real::acos);
+        UNARY.put("tan", Real::tan);
+        UNARY.put("atan", Real::atan);
+        UNARY.put("cot", x -> x.cos().divide(x.sin()));
+        UNARY.put("acot", Real::acot);
+        UNARY.put("log", Real::log10);
+        UNARY.put("10^x", Real.TEN::pow);
+        UNARY.put("ln", Real::ln);
+        UNARY.put("e^x", Real::exp);
+        UNARY.put("1/x", Real::inverse);
+        BINARY.put("x^n", Real::pow);
+        BINARY.put("n√x", (x, n) -> x.pow(n.inverse()));
+        BINARY.put("/", Real::divide);
+        BINARY.put("*", Real::multiply);
+        BINARY.put("-", Real::subtract);
+        BINARY.put("+", Real::add);
+
+        UNARY.put("sinh", x -> x.exp().subtract(x.negate().exp()).divide(TWO));
+        UNARY.put("asinh", x -> x.add(x.multiply(x).add(Real.ONE).sqrt()).ln());
+        UNARY.put("cosh", x -> x.exp().add(x.negate().exp()).divide(TWO));
+        UNARY.put("acosh", x -> x.add(x.multiply(x).subtract(Real.ONE).sqrt()).ln());
+        UNARY.put("tanh", ExactOperators::tanh);
+        UNARY.put("atanh", ExactOperators::atanh);
+        UNARY.put("coth", x -> tanh(x).inverse());
+        UNARY.put("acoth", x -> atanh(x.inverse()));
+
+        putAngleUnit(AngleUnit.DEGREES, 180);
+        putAngleUnit(AngleUnit.GRADIANS, 200);
+    }
+
+    /**
+     * Utility class.
+     */
+    private ExactOperators() {
+    }
+
+    /**
+     * Puts the trigonometric operators of an angle unit.
+     *
+     * @param unit unit of angles
+     * @param halfTurn straight angle in the unit
+     */
+    private static void putAngleUnit(AngleUnit unit, int halfTurn) {
+        String suffix = unit.getSuffix();
+        Real radians = Real.PI.divide(Real.valueOf(BigDecimal.valueOf(halfTurn)));
+        UNARY.put("sin" + suffix, x -> x.multiply(radians).sin());
+        UNARY.put("asin" + suffix, x -> x.asin().divide(radians));
+        UNARY.put("cos" + suffix, x -> x.multiply(radians).cos());
+        UNARY.put("acos" + suffix, x -> x.acos().divide(radians));
+        UNARY.put("tan" + suffix, x -> x.multiply(radians).tan());
+        UNARY.put("atan" + suffix, x -> x.atan().divide(radians));
+        UNARY.put("cot" + suffix, x -> x.multiply(radians).tan().inverse());
+        UNARY.put("acot" + suffix, x -> x.acot().divide(radians));
+    }
+
+    /**
+     * @param x the number
+     * @return hyperbolic tangent, <code>(e^2x - 1) / (e^2x + 1)</code>
+     */
+    private static Real tanh(Real x) {
+        Real e = x.multiply(TWO).exp();
+        return e.subtract(Real.ONE).divide(e.add(Real.ONE));
+    }
+
+    /**
+     * @param x the number
+     * @return inverse hyperbolic tangent, <code>ln((1 + x) / (1 - x)) / 2</code>
+     */
+    private static Real atanh(Real x) {
+        return Real.ONE.add(x).divide(Real.ONE.subtract(x)).ln().divide(TWO);
+    }
+
+    /**
+     * Returns exact unary operator with the given label.
+     *
+     * @param label label of the operator
+     * @return the operator, <code>null</code> if there is no such operator
+     */
+    public static UnaryOperator<Real> unary(String label) {
+        return UNARY.get(label);
+    }
+
+    /**
+     * Returns exact unary operator with the given id in {@link OperatorRegistry#DEFAULT}.
+     *
+     * @param id id of the operator
+     * @return the operator
+     * @throws IndexOutOfBoundsException if there is no such operator
+     */
+    public static UnaryOperator<Real> unary(int id) {
+        return UNARY.get(OperatorRegistry.DEFAULT.unary(id).getLabel());
+    }
+
+    /**
+     * Returns exact binary operator with the given label.
+     *
+     * @param label label of the operator
+     * @return the operator, <code>null</code> if there is no such operator
+     */
+    public static BinaryOperator<Real> binary(String label) {
+        return BINARY.get(label);
+    }
+
+    /**
+     * Returns exact binary operator with the given id in {@link OperatorRegistry#DEFAULT}.
+     *
+     * @param id id of the operator
+     * @return the operator
+     * @throws IndexOutOfBoundsException if there is no such operator
+     */
+    public static BinaryOperator<Real> binary(int id) {
+        return BINARY.get(OperatorRegistry.DEFAULT.binary(id).getLabel());
+    }
+
+    /**
+     * Returns exact version of the given operator. Operations of a registry are looked up by
+     * their label; any other operator is applied to the current value rounded to double.
+     *
+     * @param operator double operator
+     * @return exact operator
+     */
+    public static UnaryOperator<Real> unary(DoubleUnaryOperator operator) {
+        if (operator instanceof UnaryOperation) {
+            UnaryOperator<Real> exact = unary(((UnaryOperation) operator).getLabel());
+            if (exact != null) {
+                return exact;
+            }
+        }
+        return x -> decimal(operator.applyAsDouble(approximate(x)));
+    }
+
+    /**
+     * Returns exact version of the given operator. Operations of a registry are looked up by
+     * their label; any other operator is applied to the operands rounded to double.
+     *
+     * @param operator double operator
+     * @return exact operator
+     */
+    public static BinaryOperator<Real> binary(DoubleBinaryOperator operator) {
+        if (operator instanceof BinaryOperation) {
+            BinaryOperator<Real> exact = binary(((BinaryOperation) operator).getLabel());
+            if (exact != null) {
+                return exact;
+            }
+        }
+        return (x, y) -> decimal(operator.applyAsDouble(approximate(x), approximate(y)));
+    }
+
+    /**
+     * Returns the shortest decimal number which rounds to the given double, e.g. <code>0.1</code>
+     * for <code>0.1</code>, so numbers which were typed or shown keep their decimal value.
+     *
+     * @param value the number
+     * @return the decimal number, a number which is not defined if the value is NaN or infinite
+     */
+    public static Real decimal(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return UNDEFINED;
+        }
+        return Real.valueOf(new BigDecimal(Double.toString(value)));
+    }
+
+    /**
+     * Rounds the number to double.
+     *
+     * @param x the number
+     * @return the nearest double, NaN if the number is not defined
+     */
+    private static double approximate(Real x) {
+        try {
+            return x.toBigDecimal(17).doubleValue();
+        } catch (ArithmeticException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Parses a number typed on the keypad, e.g. <code>"12."</code> or <code>"."</code>.
+     *
+     * @param text typed digits and dot
+     * @return exact value of the number
+     */
+    static Real parse(CharSequence text) {
+        String s = text.toString();
+        if (s.isEmpty() || s.equals(".")) {
+            return Real.ZERO;
+        }
+        return Real.valueOf(new BigDecimal(s));
+    }
+}
@@ -0,0 +1,364 @@
+package hr.fer.zemris.java.gui.calc.exact;
+
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.DoubleStack;
+import hr.fer.zemris.java.gui.calc.engine.EngineError;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * High-precision counterpart of {@link CalculatorEngine}. It follows the same rules for typing,
+ * operators, equals and the stack, but every value is a {@link Real}: typed numbers are exact and
+ * results are kept as expressions, which are evaluated only to the number of digits that is asked
+ * for by {@link #getDisplay(int)} or {@link Real#toBigDecimal(int)}.<p>
+ *
+ * The high-precision mode of {@link hr.fer.zemris.java.gui.calc.CalculatorBackend} drives a
+ * session next to its engine and shows the value of the session. When the engine jumps to another
+ * state (undo and redo), the session {@link #load(CalculatorEngine) loads} it.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class ExactSession {
+
+    /** Registry whose ids are used by the key codes. */
+    private static final OperatorRegistry REGISTRY = OperatorRegistry.DEFAULT;
+    /** Operator used before any binary operator is chosen. */
+    private static final BinaryOperator<Real> DEFAULT_OPERATOR = ExactOperators.binary("+");
+
+    /** Digits and dot which are being typed. */
+    private final StringBuilder text = new StringBuilder();
+    /** It is true if the typed number is negated. */
+    private boolean negative;
+    /** Value set by an operation, <code>null</code> if there is none. */
+    private Real held;
+    /** Stack of pushed values. */
+    private final Deque<Real> stack = new ArrayDeque<>();
+    /** Stored value (left operand of the pending operator). */
+    private Real storedValue;
+    /** Pending binary operator. */
+    private BinaryOperator<Real> operator;
+    /** It is true after a binary operator. */
+    private boolean binaryOperation;
+    /** It is true after a unary operator. */
+    private boolean unaryOperation;
+    /** It is true after equals. */
+    private boolean equalsPressed;
+    /** It is true if the operator keys are inverted (Inv is checked). */
+    private boolean inverted;
+    /** Last error. */
+    private EngineError error;
+
+    /**
+     * Creates a new {@link ExactSession} in the initial state.
+     */
+    public ExactSession() {
+        restart();
+    }
+
+    /**
+     * If the input is empty, return the last stored value. Otherwise, return the value of the
+     * input.
+     *
+     * @return current value
+     */
+    public Real getCurrentValue() {
+        if (held != null) {
+            return held;
+        }
+        if (text.length() == 0) {
+            return storedValue;
+        }
+        Real value = ExactOperators.parse(text);
+        return negative ? value.negate() : value;
+    }
+
+    /**
+     * Returns current value rounded to the given number of significant digits.
+     *
+     * @param digits number of significant digits
+     * @return the value, <code>"NaN"</code> if it is not defined
+     */
+    public String getDisplay(int digits) {
+        try {
+            return getCurrentValue().toString(digits);
+        } catch (ArithmeticException e) {
+            return "NaN";
+        }
+    }
+
+    /**
+     * Sets the input to the new value.
+     *
+     * @param newValue value to set
+     */
+    public void setNewValue(Real newValue) {
+        clear();
+        held = newValue;
+    }
+
+    /**
+     * Appends a digit to the input.
+     *
+     * @param digit digit from 0 to 9
+     * @throws IllegalArgumentException if the digit is invalid
+     */
+    public void addDigit(int digit) {
+        if (digit < 0 || digit > 9) {
+            throw new IllegalArgumentException("Invalid digit: " + digit + ".");
+        }
+        startInput();
+        text.append((char) ('0' + digit));
+    }
+
+    /**
+     * Appends a dot to the input, if it has none yet.
+     */
+    public void addDot() {
+        startInput();
+        if (text.indexOf(".") < 0) {
+            text.append('.');
+        }
+    }
+
+    /**
+     * Clears the input if a new number starts after an operation.
+     */
+    private void startInput() {
+        if (equalsPressed) {
+            clear();
+            equalsPressed = false;
+        } else if (binaryOperation) {
+            clear();
+            binaryOperation = false;
+        } else if (unaryOperation) {
+            clear();
+            unaryOperation = false;
+        } else if (held != null) {
+            clear();
+        }
+    }
+
+    /**
+     * Applies the given operator to the current value.
+     *
+     * @param unary operator to apply
+     */
+    public void unaryOperation(UnaryOperator<Real> unary) {
+        setNewValue(unary.apply(getCurrentValue()));
+        unaryOperation = true;
+        binaryOperation = false;
+        equalsPressed = false;
+    }
+
+    /**
+     * Stores the current value and remembers the given operator.
+     *
+     * @param binary operator to remember
+     */
+    public void binaryOperation(BinaryOperator<Real> binary) {
+        storedValue = getCurrentValue();
+        operator = binary;
+        binaryOperation = true;
+        equalsPressed = false;
+        unaryOperation = false;
+    }
+
+    /**
+     * Applies the pending operator to the stored and the current value.
+     */
+    public void equalsPressed() {
+        if (!equalsPressed) {
+            Real result = operator.apply(storedValue, getCurrentValue());
+            storedValue = Real.ZERO;
+            setNewValue(result);
+
+            equalsPressed = true;
+            binaryOperation = false;
+            unaryOperation = false;
+        }
+    }
+
+    /**
+     * Changes the sign of the current value.
+     */
+    public void changeSign() {
+        if (text.length() != 0) {
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) > '0') {
+                    negative = !negative;
+                    return;
+                }
+            }
+            return;
+        }
+        setNewValue(getCurrentValue().negate());
+    }
+
+    /**
+     * Puts the session in the initial state.
+     */
+    public void restart() {
+        clear();
+        stack.clear();
+        storedValue = Real.ZERO;
+        operator = DEFAULT_OPERATOR;
+        binaryOperation = false;
+        unaryOperation = false;
+        equalsPressed = false;
+        inverted = false;
+        error = EngineError.NONE;
+    }
+
+    /**
+     * Clears the input.
+     */
+    public void clear() {
+        text.setLength(0);
+        negative = false;
+        held = null;
+    }
+
+    /**
+     * Pushes the current value onto the stack.
+     */
+    public void push() {
+        stack.push(getCurrentValue());
+    }
+
+    /**
+     * Pops the last pushed value into the input. If the stack is empty, the session is restarted
+     * and the error is remembered.
+     *
+     * @return <code>true</code> if a value was popped
+     */
+    public boolean pop() {
+        if (stack.isEmpty()) {
+            restart();
+            error = EngineError.EMPTY_STACK;
+            return false;
+        }
+        setNewValue(stack.pop());
+        return true;
+    }
+
+    /**
+     * Replaces the state of this session with the state of the engine. Values of the engine are
+     * converted by {@link ExactOperators#decimal(double)}, so they are exact if they were typed;
+     * a number which is being typed in can be continued.
+     *
+     * @param engine engine to copy
+     */
+    public void load(CalculatorEngine engine) {
+        clear();
+        String typed = engine.getTypedText();
+        if (typed.isEmpty()) {
+            held = ExactOperators.decimal(engine.getCurrentValue());
+        } else {
+            negative = typed.charAt(0) == '-';
+            text.append(typed, negative ? 1 : 0, typed.length());
+        }
+        stack.clear();
+        DoubleStack values = engine.getStack();
+        for (int i = values.size() - 1; i >= 0; i--) {
+            stack.push(ExactOperators.decimal(values.peek(i)));
+        }
+        storedValue = ExactOperators.decimal(engine.getStoredValue());
+        operator = ExactOperators.binary(engine.getOperator());
+        binaryOperation = engine.isBinaryOperation();
+        unaryOperation = engine.isUnaryOperation();
+        equalsPressed = engine.isEqualsPressed();
+        inverted = engine.isInverted();
+        error = engine.getError();
+    }
+
+    /**
+     * Presses the key with the given {@link Keypad} code. Operator ids are the ids of {@link
+     * OperatorRegistry#DEFAULT}. While Inv is checked, an operator key applies the inverse
+     * operator which the registry pairs with it, e.g. <code>asin</code> instead of
+     * <code>sin</code>.
+     *
+     * @param code key code
+     * @return <code>false</code> if the key failed (see {@link #getError()})
+     * @throws IllegalArgumentException if the code is invalid
+     */
+    public boolean press(int code) {
+        switch (code) {
+            case Keypad.DOT:
+                addDot();
+                return true;
+            case Keypad.EQUALS:
+                equalsPressed();
+                return true;
+            case Keypad.CLEAR:
+                clear();
+                return true;
+            case Keypad.RESTART:
+                restart();
+                return true;
+            case Keypad.PUSH:
+                push();
+                return true;
+            case Keypad.POP:
+                return pop();
+            case Keypad.SIGN:
+                changeSign();
+                return true;
+            case Keypad.INV:
+                inverted = !inverted;
+                return true;
+            default:
+                break;
+        }
+        if (code >= 0 && code <= 9) {
+            addDigit(code);
+        } else if ((code & ~Keypad.ID_MASK) == Keypad.UNARY) {
+            int id = code & Keypad.ID_MASK;
+            if (inverted) {
+                id = REGISTRY.inverse(REGISTRY.unary(id)).getId();
+            }
+            unaryOperation(ExactOperators.unary(id));
+        } else if ((code & ~Keypad.ID_MASK) == Keypad.BINARY) {
+            int id = code & Keypad.ID_MASK;
+            if (inverted) {
+                id = REGISTRY.inverse(REGISTRY.binary(id)).getId();
+            }
+            binaryOperation(ExactOperators.binary(id));
+        } else {
+            throw new IllegalArgumentException("Invalid key code: " + code + ".");
+        }
+        return true;
+    }
+
+    /**
+     * @return number of values on the stack
+     */
+    public int getStackSize() {
+        return stack.size();
+    }
+
+    /**
+     * @return last error
+     */
+    public EngineError getError() {
+        return error;
+    }
+
+    /**
+     * @return <code>true</code> if the operator keys are inverted
+     */
+    public boolean isInverted() {
+        return inverted;
+    }
+
+    /**
+     * @param inverted <code>true</code> if the operator keys should be inverted
+     */
+    public void setInverted(boolean inverted) {
+        this.inverted = inverted;
+    }
+}
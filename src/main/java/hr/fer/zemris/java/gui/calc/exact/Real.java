@@ -0,0 +1,758 @@
+package hr.fer.zemris.java.gui.calc.exact;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Exact real number, kept as a lazily evaluated expression.<p>
+ *
+ * Nothing is computed when a number is built. {@link #approximate(int)} evaluates the expression
+ * to a given absolute error, asking every operand for just as many digits as the result needs.
+ * Every node remembers its most accurate approximation, so asking again for fewer digits is free
+ * and asking for more digits only refines the nodes which are not accurate enough yet.<p>
+ *
+ * Sums, differences, products and negations of decimal numbers are decimal numbers, so they are
+ * computed right away while they have at most {@link #MAX_FOLDED_DIGITS} digits. An expression is
+ * at most {@link #MAX_DEPTH} operations deep: a deeper operand is replaced by its value to
+ * {@link #GUARD_DIGITS} significant digits, so evaluation never recurses through a long history
+ * of operations. Results of longer calculations are thus exact to that many digits only.<p>
+ *
+ * Whether a number is zero cannot be decided in general. Numbers whose magnitude is below
+ * <code>10^-</code>{@link #MAX_SCALE} are shown as zero, and division by them (or their logarithm)
+ * fails with an {@link ArithmeticException}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public abstract class Real {
+
+    /** Maximal scale used when looking for the magnitude of a number. */
+    public static final int MAX_SCALE = 1 << 10;
+
+    /** Integer exponents up to this magnitude are computed by repeated multiplication. */
+    private static final int MAX_INTEGER_EXPONENT = 1 << 16;
+    /** Maximal number of digits of a decimal result which is computed right away. */
+    static final int MAX_FOLDED_DIGITS = 1000;
+    /** Maximal depth of an expression. */
+    static final int MAX_DEPTH = 64;
+    /** Significant digits of an operand which is deeper than {@link #MAX_DEPTH}. */
+    static final int GUARD_DIGITS = 100;
+
+    /** Zero. */
+    public static final Real ZERO = valueOf(BigDecimal.ZERO);
+    /** One. */
+    public static final Real ONE = valueOf(BigDecimal.ONE);
+    /** Ten. */
+    public static final Real TEN = valueOf(BigDecimal.TEN);
+    /** Number which is not defined, the value of too deep operands which are not defined. */
+    private static final Real UNDEFINED = new Inverse(ZERO);
+    /** Pi. */
+    public static final Real PI = new Real() {
+        @Override
+        BigDecimal compute(int scale) {
+            return BigMath.pi(scale + 1);
+        }
+    };
+
+    /** Half of pi. */
+    private static final Real HALF_PI = PI.multiply(valueOf(new BigDecimal("0.5")));
+    /** Natural logarithm of ten. */
+    private static final Real LN10 = TEN.ln();
+
+    /** Most accurate approximation computed so far. */
+    private volatile BigMath.Approximation cache;
+    /** Number of operations from this number to the deepest decimal number. */
+    private final int depth;
+
+    /**
+     * Creates a number without operands.
+     */
+    Real() {
+        depth = 0;
+    }
+
+    /**
+     * Creates a number with one operand.
+     *
+     * @param a the operand
+     */
+    Real(Real a) {
+        depth = a.depth + 1;
+    }
+
+    /**
+     * Creates a number with two operands.
+     *
+     * @param a first operand
+     * @param b second operand
+     */
+    Real(Real a, Real b) {
+        depth = Math.max(a.depth, b.depth) + 1;
+    }
+
+    /**
+     * Returns exact value of the given decimal number.
+     *
+     * @param value the number
+     * @return the real number
+     */
+    public static Real valueOf(BigDecimal value) {
+        return new Constant(value);
+    }
+
+    /**
+     * Returns exact value of the given double, e.g. <code>0.1</code> is
+     * <code>0.1000000000000000055511151231257827...</code>.
+     *
+     * @param value the number
+     * @return the real number
+     * @throws NumberFormatException if the value is NaN or infinite
+     */
+    public static Real valueOf(double value) {
+        return new Constant(new BigDecimal(value));
+    }
+
+    /**
+     * Returns this number with an absolute error of at most <code>10^-scale</code>.
+     *
+     * @param scale requested scale, may be negative
+     * @return the approximation
+     * @throws ArithmeticException if the expression is not defined
+     */
+    public final BigDecimal approximate(int scale) {
+        BigMath.Approximation a = cache;
+        if (a != null && a.scale >= scale) {
+            return a.scale == scale ? a.value : a.value.setScale(scale, RoundingMode.HALF_EVEN);
+        }
+        BigDecimal value = compute(scale);
+        a = cache;
+        if (a == null || a.scale < scale) {
+            cache = new BigMath.Approximation(scale, value);
+        }
+        return value;
+    }
+
+    /**
+     * Computes this number with an absolute error of at most <code>10^-scale</code>.
+     *
+     * @param scale requested scale
+     * @return the approximation
+     */
+    abstract BigDecimal compute(int scale);
+
+    /**
+     * Returns this number rounded to the given number of significant digits. The last digit may
+     * be off by one.
+     *
+     * @param digits number of significant digits
+     * @return the rounded number, zero if the magnitude is below <code>10^-MAX_SCALE</code>
+     * @throws IllegalArgumentException if the number of digits is not positive
+     * @throws ArithmeticException if the expression is not defined
+     */
+    public BigDecimal toBigDecimal(int digits) {
+        if (digits < 1) {
+            throw new IllegalArgumentException("Number of digits must be positive: " + digits
+                + ".");
+        }
+        for (int k = 0; k <= MAX_SCALE; k = (k == 0) ? 1 : 2 * k) {
+            BigDecimal value = approximate(k);
+            if (!isBounded(value, k)) {
+                continue;
+            }
+            //10^(exponent - 1) < |this| < 10^(exponent + 1)
+            int exponent = value.precision() - value.scale() - 1;
+            return approximate(digits - exponent + 2).round(new MathContext(digits,
+                RoundingMode.HALF_EVEN));
+        }
+        return BigDecimal.ZERO;
+    }
+
+    /**
+     * Returns this number rounded to the given number of significant digits, without trailing
+     * zeros. Numbers whose integer part fits in the digits and which are not below
+     * <code>10^-3</code> are written without an exponent.
+     *
+     * @param digits number of significant digits
+     * @return the rounded number
+     * @throws IllegalArgumentException if the number of digits is not positive
+     * @throws ArithmeticException if the expression is not defined
+     */
+    public String toString(int digits) {
+        BigDecimal value = toBigDecimal(digits);
+        if (value.signum() == 0) {
+            return "0";
+        }
+        value = value.stripTrailingZeros();
+        int exponent = value.precision() - value.scale() - 1;
+        return exponent >= -3 && exponent < digits ? value.toPlainString() : value.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toString(16);
+    }
+
+    /**
+     * Returns <code>true</code> if the approximation is far enough from zero to give the sign
+     * and the magnitude of the number.
+     *
+     * @param value approximation
+     * @param scale scale of the approximation
+     * @return <code>true</code> if <code>|value| &gt;= 2 * 10^-scale</code>
+     */
+    private static boolean isBounded(BigDecimal value, int scale) {
+        return value.abs().compareTo(BigDecimal.valueOf(2).movePointLeft(scale)) >= 0;
+    }
+
+    /**
+     * Returns a lower bound of the magnitude of this number, with the sign of this number.
+     *
+     * @return the bound
+     * @throws ArithmeticException if the magnitude is below <code>10^-MAX_SCALE</code>
+     */
+    final BigDecimal signedLowerBound() {
+        for (int k = 1; k <= MAX_SCALE; k *= 2) {
+            BigDecimal value = approximate(k);
+            if (isBounded(value, k)) {
+                BigDecimal error = BigDecimal.ONE.movePointLeft(k);
+                return value.signum() > 0 ? value.subtract(error) : value.add(error);
+            }
+        }
+        throw new ArithmeticException("Number is too close to zero.");
+    }
+
+    /**
+     * Returns <code>n</code> such that the magnitude of this number is below <code>10^n</code>.
+     *
+     * @return the bound
+     */
+    final int upperExponent() {
+        return BigMath.integerDigits(approximate(0).abs().add(BigDecimal.ONE)) + 1;
+    }
+
+    /**
+     * Returns <code>n</code> such that the given number is at least <code>10^-n</code>.
+     *
+     * @param bound positive number
+     * @return the exponent
+     */
+    static int lowerExponent(BigDecimal bound) {
+        return bound.scale() - bound.precision() + 1;
+    }
+
+    /**
+     * Returns this number as an operand: this number if it is not too deep, its value to
+     * {@link #GUARD_DIGITS} significant digits otherwise.
+     *
+     * @return the operand
+     */
+    private Real operand() {
+        if (depth < MAX_DEPTH) {
+            return this;
+        }
+        try {
+            return new Constant(toBigDecimal(GUARD_DIGITS));
+        } catch (ArithmeticException e) {
+            return UNDEFINED;
+        }
+    }
+
+    /**
+     * @param other other number
+     * @return sum of the numbers
+     */
+    public Real add(Real other) {
+        if (this instanceof Constant && other instanceof Constant) {
+            BigDecimal sum = ((Constant) this).value.add(((Constant) other).value);
+            if (sum.precision() <= MAX_FOLDED_DIGITS) {
+                return new Constant(sum);
+            }
+        }
+        return new Sum(operand(), other.operand());
+    }
+
+    /**
+     * @param other other number
+     * @return difference of the numbers
+     */
+    public Real subtract(Real other) {
+        return add(other.negate());
+    }
+
+    /**
+     * @param other other number
+     * @return product of the numbers
+     */
+    public Real multiply(Real other) {
+        if (this instanceof Constant && other instanceof Constant) {
+            BigDecimal x = ((Constant) this).value;
+            BigDecimal y = ((Constant) other).value;
+            if (x.precision() + y.precision() <= MAX_FOLDED_DIGITS) {
+                return new Constant(x.multiply(y));
+            }
+        }
+        return new Product(operand(), other.operand());
+    }
+
+    /**
+     * @param other divisor
+     * @return quotient of the numbers
+     */
+    public Real divide(Real other) {
+        return multiply(other.inverse());
+    }
+
+    /**
+     * @return negated number
+     */
+    public Real negate() {
+        if (this instanceof Constant) {
+            return new Constant(((Constant) this).value.negate());
+        }
+        return new Negation(operand());
+    }
+
+    /**
+     * @return inverse of the number
+     */
+    public Real inverse() {
+        return new Inverse(operand());
+    }
+
+    /**
+     * @return square root of the number
+     */
+    public Real sqrt() {
+        return new Sqrt(operand());
+    }
+
+    /**
+     * @return <code>e</code> to the power of this number
+     */
+    public Real exp() {
+        return new Exp(operand());
+    }
+
+    /**
+     * @return natural logarithm of this number
+     */
+    public Real ln() {
+        return new Ln(operand());
+    }
+
+    /**
+     * @return base 10 logarithm of this number
+     */
+    public Real log10() {
+        return ln().divide(LN10);
+    }
+
+    /**
+     * Returns this number to the given power. Integer exponents up to <code>2^16</code> are
+     * computed by repeated multiplication, so they work for negative bases as well.
+     *
+     * @param exponent the exponent
+     * @return the power
+     */
+    public Real pow(Real exponent) {
+        if (exponent instanceof Constant) {
+            BigDecimal n = ((Constant) exponent).value;
+            if (n.signum() == 0) {
+                return ONE;
+            }
+            try {
+                int k = n.intValueExact();
+                if (Math.abs(k) > MAX_INTEGER_EXPONENT) {
+                    return exponent.multiply(ln()).exp();
+                }
+                Real power = integerPower(Math.abs((long) k));
+                return k > 0 ? power : power.inverse();
+            } catch (ArithmeticException e) {
+                //not an integer, use logarithm
+            }
+        }
+        return exponent.multiply(ln()).exp();
+    }
+
+    /**
+     * Returns this number to the given power by repeated squaring.
+     *
+     * @param n exponent, positive
+     * @return the power
+     */
+    private Real integerPower(long n) {
+        Real result = null;
+        Real square = this;
+        while (true) {
+            if ((n & 1) != 0) {
+                result = (result == null) ? square : result.multiply(square);
+            }
+            n >>= 1;
+            if (n == 0) {
+                return result;
+            }
+            square = square.multiply(square);
+        }
+    }
+
+    /**
+     * @return sine of this number
+     */
+    public Real sin() {
+        return new Sin(operand(), false);
+    }
+
+    /**
+     * @return cosine of this number
+     */
+    public Real cos() {
+        return new Sin(operand(), true);
+    }
+
+    /**
+     * @return tangent of this number
+     */
+    public Real tan() {
+        return sin().divide(cos());
+    }
+
+    /**
+     * @return arctangent of this number
+     */
+    public Real atan() {
+        return new Atan(operand());
+    }
+
+    /**
+     * @return arcsine of this number, <code>2 atan(x / (1 + sqrt(1 - x^2)))</code>
+     */
+    public Real asin() {
+        Real root = ONE.subtract(multiply(this)).sqrt();
+        return divide(ONE.add(root)).atan().multiply(valueOf(BigDecimal.valueOf(2)));
+    }
+
+    /**
+     * @return arccosine of this number
+     */
+    public Real acos() {
+        return HALF_PI.subtract(asin());
+    }
+
+    /**
+     * @return arccotangent of this number, in <code>(0, pi)</code>
+     */
+    public Real acot() {
+        return HALF_PI.subtract(atan());
+    }
+
+    /**
+     * Exact decimal number.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    private static final class Constant extends Real {
+
+        /** The value. */
+        private final BigDecimal value;
+
+        /**
+         * Creates a new {@link Constant}.
+         *
+         * @param value the value
+         */
+        Constant(BigDecimal value) {
+            this.value = value;
+        }
+
+        @Override
+        BigDecimal compute(int scale) {
+            return value.scale() > scale ? value.setScale(scale, RoundingMode.HALF_EVEN) : value;
+        }
+    }
+
+    /**
+     * Sum of two numbers.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    private static final class Sum extends Real {
+
+        /** First operand. */
+        private final Real a;
+        /** Second operand. */
+        private final Real b;
+
+        /**
+         * Creates a new {@link Sum}.
+         *
+         * @param a first operand
+         * @param b second operand
+         */
+        Sum(Real a, Real b) {
+            super(a, b);
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        BigDecimal compute(int scale) {
+            return a.approximate(scale + 1).add(b.approximate(scale + 1));
+        }
+    }
+
+    /**
+     * Negated number.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    private static final class Negation extends Real {
+
+        /** The operand. */
+        private final Real a;
+
+        /**
+         * Creates a new {@link Negation}.
+         *
+         * @param a the operand
+         */
+        Negation(Real a) {
+            super(a);
+            this.a = a;
+        }
+
+        @Override
+        BigDecimal compute(int scale) {
+            return a.approximate(scale).negate();
+        }
+    }
+
+    /**
+     * Product of two numbers. Each operand is computed to the absolute error which, multiplied
+     * by the magnitude of the other one, stays below a tenth of the requested error.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    private static final class Product extends Real {
+
+        /** First operand. */
+        private final Real a;
+        /** Second operand. */
+        private final Real b;
+
+        /**
+         * Creates a new {@link Product}.
+         *
+         * @param a first operand
+         * @param b second operand
+         */
+        Product(Real a, Real b) {
+            super(a, b);
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        BigDecimal compute(int scale) {
+            BigDecimal y = b.approximate(scale + a.upperExponent() + 1);
+            int yExponent = BigMath.integerDigits(y.abs().add(BigDecimal.ONE)) + 1;
+            BigDecimal x = a.approximate(scale + yExponent + 1);
+            return x.multiply(y).setScale(scale + 1, RoundingMode.HALF_EVEN);
+        }
+    }
+
+    /**
+     * Inverse of a number: <code>|1/a - 1/a'| &lt;= |a - a'| / L^2</code>, where
+     * <code>L</code> is a lower bound of <code>|a|</code>.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    private static final class Inverse extends Real {
+
+        /** The operand. */
+        private final Real a;
+
+        /**
+         * Creates a new {@link Inverse}.
+         *
+         * @param a the operand
+         */
+        Inverse(Real a) {
+            super(a);
+            this.a = a;
+        }
+
+        @Override
+        BigDecimal compute(int scale) {
+            int n = lowerExponent(a.signedLowerBound().abs());
+            BigDecimal x = a.approximate(scale + 1 + 2 * n);
+            return BigDecimal.ONE.divide(x, scale + 1, RoundingMode.HALF_EVEN);
+        }
+    }
+
+    /**
+     * Square root of a number: <code>|sqrt(a) - sqrt(a')| &lt;= sqrt(|a - a'|)</code>.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    private static final class Sqrt extends Real {
+
+        /** The operand. */
+        private final Real a;
+
+        /**
+         * Creates a new {@link Sqrt}.
+         *
+         * @param a the operand
+         */
+        Sqrt(Real a) {
+            super(a);
+            this.a = a;
+        }
+
+        @Override
+        BigDecimal compute(int scale) {
+            int s = 2 * scale + 2;
+            BigDecimal x = a.approximate(s);
+            if (x.signum() < 0) {
+                if (isBounded(x, s)) {
+                    throw new ArithmeticException("Square root of a negative number.");
+                }
+                //|a| <= 3 * 10^-s, its root is below the requested error
+                x = BigDecimal.ZERO;
+            }
+            return BigMath.sqrt(x, scale + 1);
+        }
+    }
+
+    /**
+     * Exponential function: <code>|e^a - e^a'| &lt;= e^max(a, a') |a - a'|</code>.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    private static final class Exp extends Real {
+
+        /** The exponent. */
+        private final Real a;
+
+        /**
+         * Creates a new {@link Exp}.
+         *
+         * @param a the exponent
+         */
+        Exp(Real a) {
+            super(a);
+            this.a = a;
+        }
+
+        @Override
+        BigDecimal compute(int scale) {
+            BigDecimal bound = a.approximate(0).add(BigDecimal.ONE);
+            if (bound.compareTo(BigMath.MAX_EXPONENT) > 0) {
+                throw new ArithmeticException("Exponent is too large.");
+            }
+            int digits = Math.max(0, (int) Math.ceil(bound.doubleValue() * 0.4343));
+            BigDecimal x = a.approximate(scale + 1 + digits);
+            return BigMath.exp(x, scale + 1);
+        }
+    }
+
+    /**
+     * Natural logarithm: <code>|ln(a) - ln(a')| &lt;= |a - a'| / L</code>, where <code>L</code>
+     * is a lower bound of <code>a</code>.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    private static final class Ln extends Real {
+
+        /** The operand. */
+        private final Real a;
+
+        /**
+         * Creates a new {@link Ln}.
+         *
+         * @param a the operand
+         */
+        Ln(Real a) {
+            super(a);
+            this.a = a;
+        }
+
+        @Override
+        BigDecimal compute(int scale) {
+            BigDecimal bound = a.signedLowerBound();
+            if (bound.signum() <= 0) {
+                throw new ArithmeticException("Logarithm of a negative number.");
+            }
+            BigDecimal x = a.approximate(scale + 1 + lowerExponent(bound));
+            return BigMath.ln(x, scale + 1);
+        }
+    }
+
+    /**
+     * Sine or cosine, whose derivatives are bounded by one.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    private static final class Sin extends Real {
+
+        /** The angle. */
+        private final Real a;
+        /** It is <code>true</code> for cosine. */
+        private final boolean cosine;
+
+        /**
+         * Creates a new {@link Sin}.
+         *
+         * @param a the angle
+         * @param cosine <code>true</code> for cosine
+         */
+        Sin(Real a, boolean cosine) {
+            super(a);
+            this.a = a;
+            this.cosine = cosine;
+        }
+
+        @Override
+        BigDecimal compute(int scale) {
+            BigDecimal x = a.approximate(scale + 1);
+            return cosine ? BigMath.cos(x, scale + 1) : BigMath.sin(x, scale + 1);
+        }
+    }
+
+    /**
+     * Arctangent, whose derivative is bounded by one.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    private static final class Atan extends Real {
+
+        /** The operand. */
+        private final Real a;
+
+        /**
+         * Creates a new {@link Atan}.
+         *
+         * @param a the operand
+         */
+        Atan(Real a) {
+            super(a);
+            this.a = a;
+        }
+
+        @Override
+        BigDecimal compute(int scale) {
+            return BigMath.atan(a.approximate(scale + 1), scale + 1);
+        }
+    }
+}
@@ -0,0 +1,580 @@
+package hr.fer.zemris.java.gui.calc.expression;
+
+import hr.fer.zemris.java.gui.calc.engine.BinaryOperation;
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import hr.fer.zemris.java.gui.calc.engine.UnaryOperation;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Compiles infix expressions of variable <code>x</code> into {@link DoubleUnaryOperator}s which
+ * use the operators of an {@link OperatorRegistry}.<p>
+ *
+ * <b>Syntax</b> (from the lowest to the highest precedence):
+ * <ul>
+ * <li><code>a + b</code>, <code>a - b</code></li>
+ * <li><code>a * b</code>, <code>a / b</code></li>
+ * <li><code>-a</code>, <code>+a</code></li>
+ * <li><code>x ^ n</code> and <code>n √ x</code> (right associative), <code>√x</code> is the
+ * square root</li>
+ * <li>numbers (<code>2</code>, <code>0.5</code>, <code>1e-3</code>), <code>x</code>,
+ * <code>pi</code>, <code>e</code>, parentheses and functions <code>sin</code>,
+ * <code>asin</code>, <code>cos</code>, <code>acos</code>, <code>tan</code>, <code>atan</code>,
+ * <code>cot</code>, <code>acot</code>, <code>log</code> and <code>ln</code>, e.g.
+ * <code>sin(x)</code></li>
+ * </ul>
+ * <code>10^a</code>, <code>e^a</code> and <code>1/a</code> use the registry's <code>"10^x"</code>,
+ * <code>"e^x"</code> and <code>"1/x"</code> operators, so results are the same as if the buttons
+ * were pressed.<p>
+ *
+ * Expression is parsed once into a tree of small lambdas. Constant subexpressions are folded, so
+ * evaluation does no parsing and allocates nothing. Parentheses, functions, signs and powers may be
+ * nested at most {@link #MAX_DEPTH} deep, so a hostile expression cannot overflow the stack.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class ExpressionCompiler {
+
+    /** Compiler which uses the default registry. */
+    public static final ExpressionCompiler DEFAULT =
+        new ExpressionCompiler(OperatorRegistry.DEFAULT);
+
+    /** Largest nesting depth of an expression. */
+    public static final int MAX_DEPTH = 256;
+
+    /** Registry of operators. */
+    private final OperatorRegistry registry;
+
+    /**
+     * Creates a new {@link ExpressionCompiler}.
+     *
+     * @param registry registry of operators used by the expressions
+     */
+    public ExpressionCompiler(OperatorRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Compiles the expression.
+     *
+     * @param expression expression to compile
+     * @return function of <code>x</code>
+     * @throws IllegalArgumentException if the expression is not valid or is nested deeper than
+     * {@link #MAX_DEPTH}
+     */
+    public DoubleUnaryOperator compile(String expression) {
+        Parser parser = new Parser(expression);
+        Node node = parser.parseExpression();
+        if (parser.token != Token.END) {
+            throw parser.error("Unexpected " + parser.describe());
+        }
+        return node.function;
+    }
+
+    /**
+     * Returns an operation from the registry.
+     *
+     * @param label label of the operation
+     * @return the operation
+     */
+    private UnaryOperation unary(String label) {
+        UnaryOperation operation = registry.unary(label);
+        if (operation == null) {
+            throw new IllegalStateException("Registry has no operator \"" + label + "\".");
+        }
+        return operation;
+    }
+
+    /**
+     * Returns an operation from the registry.
+     *
+     * @param label label of the operation
+     * @return the operation
+     */
+    private BinaryOperation binary(String label) {
+        BinaryOperation operation = registry.binary(label);
+        if (operation == null) {
+            throw new IllegalStateException("Registry has no operator \"" + label + "\".");
+        }
+        return operation;
+    }
+
+    /**
+     * Applies a unary operator to a node.
+     *
+     * @param operator operator to apply
+     * @param a operand
+     * @return resulting node
+     */
+    private static Node apply(DoubleUnaryOperator operator, Node a) {
+        if (a.constant) {
+            return Node.constant(operator.applyAsDouble(a.value));
+        }
+        if (a.variable) {
+            return new Node(operator);
+        }
+        DoubleUnaryOperator fa = a.function;
+        return new Node(x -> operator.applyAsDouble(fa.applyAsDouble(x)));
+    }
+
+    /**
+     * Applies a binary operator to two nodes.
+     *
+     * @param operator operator to apply
+     * @param a left operand
+     * @param b right operand
+     * @return resulting node
+     */
+    private static Node apply(DoubleBinaryOperator operator, Node a, Node b) {
+        if (a.constant && b.constant) {
+            return Node.constant(operator.applyAsDouble(a.value, b.value));
+        }
+        DoubleUnaryOperator fa = a.function;
+        DoubleUnaryOperator fb = b.function;
+        if (b.constant) {
+            double vb = b.value;
+            if (a.variable) {
+                return new Node(x -> operator.applyAsDouble(x, vb));
+            }
+            return new Node(x -> operator.applyAsDouble(fa.applyAsDouble(x), vb));
+        }
+        if (a.constant) {
+            double va = a.value;
+            if (b.variable) {
+                return new Node(x -> operator.applyAsDouble(va, x));
+            }
+            return new Node(x -> operator.applyAsDouble(va, fb.applyAsDouble(x)));
+        }
+        return new Node(x -> operator.applyAsDouble(fa.applyAsDouble(x), fb.applyAsDouble(x)));
+    }
+
+    /**
+     * Applies a binary operator to two nodes. Basic arithmetic is inlined into the lambdas instead
+     * of calling the operator through an interface.
+     *
+     * @param symbol symbol of the operator
+     * @param a left operand
+     * @param b right operand
+     * @return resulting node
+     */
+    private Node arithmetic(char symbol, Node a, Node b) {
+        BinaryOperation operation = binary(String.valueOf(symbol));
+        if ((a.constant && b.constant) || operation.getArithmetic() != symbol) {
+            return apply(operation, a, b);
+        }
+        DoubleUnaryOperator fa = a.function;
+        DoubleUnaryOperator fb = b.function;
+        switch (symbol) {
+            case '+':
+                if (b.constant) {
+                    double vb = b.value;
+                    return new Node(x -> fa.applyAsDouble(x) + vb);
+                }
+                return new Node(x -> fa.applyAsDouble(x) + fb.applyAsDouble(x));
+            case '-':
+                if (b.constant) {
+                    double vb = b.value;
+                    return new Node(x -> fa.applyAsDouble(x) - vb);
+                }
+                return new Node(x -> fa.applyAsDouble(x) - fb.applyAsDouble(x));
+            case '*':
+                if (b.constant) {
+                    double vb = b.value;
+                    return new Node(x -> fa.applyAsDouble(x) * vb);
+                }
+                if (a.constant) {
+                    double va = a.value;
+                    return new Node(x -> va * fb.applyAsDouble(x));
+                }
+                return new Node(x -> fa.applyAsDouble(x) * fb.applyAsDouble(x));
+            default:
+                if (b.constant) {
+                    double vb = b.value;
+                    return new Node(x -> fa.applyAsDouble(x) / vb);
+                }
+                return new Node(x -> fa.applyAsDouble(x) / fb.applyAsDouble(x));
+        }
+    }
+
+    /**
+     * Compiled subexpression.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    private static final class Node {
+
+        /** Variable <code>x</code>. */
+        private static final Node VARIABLE = new Node(DoubleUnaryOperator.identity(), true);
+
+        /** Function which calculates value of this node. */
+        private final DoubleUnaryOperator function;
+        /** It is true if this node is a constant. */
+        private final boolean constant;
+        /** It is true if this node is the variable. */
+        private final boolean variable;
+        /** Value of the constant node. */
+        private final double value;
+
+        /**
+         * Creates a new node which is neither constant nor the variable.
+         *
+         * @param function function of the node
+         */
+        Node(DoubleUnaryOperator function) {
+            this(function, false);
+        }
+
+        /**
+         * Creates a new non constant node.
+         *
+         * @param function function of the node
+         * @param variable <code>true</code> if the node is the variable
+         */
+        private Node(DoubleUnaryOperator function, boolean variable) {
+            this.function = function;
+            this.constant = false;
+            this.variable = variable;
+            this.value = Double.NaN;
+        }
+
+        /**
+         * Creates a new constant node.
+         *
+         * @param value value of the constant
+         */
+        private Node(double value) {
+            this.function = x -> value;
+            this.constant = true;
+            this.variable = false;
+            this.value = value;
+        }
+
+        /**
+         * Creates a new constant node.
+         *
+         * @param value value of the constant
+         * @return the node
+         */
+        static Node constant(double value) {
+            return new Node(value);
+        }
+    }
+
+    /**
+     * Types of tokens.
+     */
+    private enum Token {
+        /** Number. */
+        NUMBER,
+        /** Name of a function, constant or variable. */
+        NAME,
+        /** One of the symbols <code>+ - * / ^ √ ( )</code>. */
+        SYMBOL,
+        /** End of the expression. */
+        END
+    }
+
+    /**
+     * Recursive descent parser. It builds compiled nodes while parsing.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    private final class Parser {
+
+        /** Expression which is parsed. */
+        private final String text;
+        /** Position of the next character. */
+        private int position;
+        /** Position where current token starts. */
+        private int tokenStart;
+        /** Type of the current token. */
+        private Token token;
+        /** Current symbol, if token is a symbol. */
+        private char symbol;
+        /** Current name, if token is a name. */
+        private String name;
+        /** Current number, if token is a number. */
+        private double number;
+        /** Nesting depth of the unary expression being parsed. */
+        private int depth;
+
+        /**
+         * Creates a new {@link Parser} and reads the first token.
+         *
+         * @param text expression to parse
+         */
+        Parser(String text) {
+            this.text = text;
+            next();
+        }
+
+        /**
+         * expression := term (('+' | '-') term)*
+         *
+         * @return compiled node
+         */
+        Node parseExpression() {
+            Node result = parseTerm();
+            while (isSymbol('+') || isSymbol('-')) {
+                char operator = symbol;
+                next();
+                result = arithmetic(operator, result, parseTerm());
+            }
+            return result;
+        }
+
+        /**
+         * term := unary (('*' | '/') unary)*
+         *
+         * @return compiled node
+         */
+        private Node parseTerm() {
+            Node result = parseUnary();
+            while (isSymbol('*') || isSymbol('/')) {
+                char operator = symbol;
+                next();
+                Node right = parseUnary();
+                if (operator == '/' && result.constant && result.value == 1) {
+                    result = apply(unary("1/x"), right);
+                } else {
+                    result = arithmetic(operator, result, right);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * unary := ('-' | '+') unary | power<p>
+         *
+         * Every nested expression is parsed through this method, so it limits the depth.
+         *
+         * @return compiled node
+         */
+        private Node parseUnary() {
+            if (depth == MAX_DEPTH) {
+                throw error("Expression is nested too deep");
+            }
+            depth++;
+            Node result = parseSignedUnary();
+            depth--;
+            return result;
+        }
+
+        /**
+         * Parses a unary expression, see {@link #parseUnary()}.
+         *
+         * @return compiled node
+         */
+        private Node parseSignedUnary() {
+            if (isSymbol('-')) {
+                next();
+                return apply(x -> -x, parseUnary());
+            }
+            if (isSymbol('+')) {
+                next();
+                return parseUnary();
+            }
+            return parsePower();
+        }
+
+        /**
+         * power := '√' unary | primary (('^' | '√') unary)?
+         *
+         * @return compiled node
+         */
+        private Node parsePower() {
+            if (isSymbol('√')) {
+                next();
+                return apply(binary("n√x"), parseUnary(), Node.constant(2));
+            }
+            Node base = parsePrimary();
+            if (isSymbol('^')) {
+                next();
+                Node exponent = parseUnary();
+                if (base.constant && base.value == 10) {
+                    return apply(unary("10^x"), exponent);
+                }
+                if (base.constant && base.value == Math.E) {
+                    return apply(unary("e^x"), exponent);
+                }
+                return apply(binary("x^n"), base, exponent);
+            }
+            if (isSymbol('√')) {
+                next();
+                return apply(binary("n√x"), parseUnary(), base);
+            }
+            return base;
+        }
+
+        /**
+         * primary := number | name | name '(' expression ')' | '(' expression ')'
+         *
+         * @return compiled node
+         */
+        private Node parsePrimary() {
+            if (token == Token.NUMBER) {
+                double value = number;
+                next();
+                return Node.constant(value);
+            }
+            if (isSymbol('(')) {
+                next();
+                Node result = parseExpression();
+                expect(')');
+                return result;
+            }
+            if (token == Token.NAME) {
+                String identifier = name;
+                int start = tokenStart;
+                next();
+                switch (identifier) {
+                    case "x":
+                        return Node.VARIABLE;
+                    case "pi":
+                        return Node.constant(Math.PI);
+                    case "e":
+                        return Node.constant(Math.E);
+                    default:
+                        break;
+                }
+                UnaryOperation function = registry.unary(identifier);
+                if (function == null) {
+                    throw error("Unknown name \"" + identifier + "\"", start);
+                }
+                expect('(');
+                Node argument = parseExpression();
+                expect(')');
+                return apply(function, argument);
+            }
+            throw error("Unexpected " + describe());
+        }
+
+        /**
+         * Reads the next token.
+         */
+        private void next() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            tokenStart = position;
+            if (position == text.length()) {
+                token = Token.END;
+                return;
+            }
+
+            char c = text.charAt(position);
+            if (Character.isDigit(c) || c == '.') {
+                readNumber();
+            } else if (Character.isLetter(c)) {
+                while (position < text.length() && Character.isLetter(text.charAt(position))) {
+                    position++;
+                }
+                token = Token.NAME;
+                name = text.substring(tokenStart, position);
+            } else if ("+-*/^√()".indexOf(c) >= 0) {
+                position++;
+                token = Token.SYMBOL;
+                symbol = c;
+            } else {
+                throw error("Unexpected character '" + c + "'");
+            }
+        }
+
+        /**
+         * Reads a number with optional fraction and exponent.
+         */
+        private void readNumber() {
+            skipDigits();
+            if (position < text.length() && text.charAt(position) == '.') {
+                position++;
+                skipDigits();
+            }
+            if (position < text.length() && (text.charAt(position) == 'e'
+                || text.charAt(position) == 'E')) {
+                int mark = position++;
+                if (position < text.length() && (text.charAt(position) == '+'
+                    || text.charAt(position) == '-')) {
+                    position++;
+                }
+                if (position < text.length() && Character.isDigit(text.charAt(position))) {
+                    skipDigits();
+                } else {
+                    //constant e, e.g. 2e
+                    position = mark;
+                }
+            }
+            try {
+                number = Double.parseDouble(text.substring(tokenStart, position));
+            } catch (NumberFormatException ex) {
+                throw error("Invalid number \"" + text.substring(tokenStart, position) + "\"");
+            }
+            token = Token.NUMBER;
+        }
+
+        /**
+         * Skips digits.
+         */
+        private void skipDigits() {
+            while (position < text.length() && Character.isDigit(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        /**
+         * Returns <code>true</code> if current token is the given symbol.
+         *
+         * @param c the symbol
+         * @return <code>true</code> if current token is the symbol
+         */
+        private boolean isSymbol(char c) {
+            return token == Token.SYMBOL && symbol == c;
+        }
+
+        /**
+         * Checks that the current token is the given symbol and reads the next one.
+         *
+         * @param c expected symbol
+         */
+        private void expect(char c) {
+            if (!isSymbol(c)) {
+                throw error("Expected '" + c + "' but found " + describe());
+            }
+            next();
+        }
+
+        /**
+         * Describes the current token.
+         *
+         * @return description
+         */
+        private String describe() {
+            return token == Token.END ? "end of expression"
+                : "\"" + text.substring(tokenStart, position) + "\"";
+        }
+
+        /**
+         * Creates an exception with the position of the current token.
+         *
+         * @param message message
+         * @return the exception
+         */
+        private IllegalArgumentException error(String message) {
+            return error(message, tokenStart);
+        }
+
+        /**
+         * Creates an exception with the given position.
+         *
+         * @param message message
+         * @param at position of the error
+         * @return the exception
+         */
+        private IllegalArgumentException error(String message, int at) {
+            return new IllegalArgumentException(
+                message + " at position " + at + " in \"" + text + "\".");
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package hr.fer.zemris.java.gui.calc.journal;
+
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crash-safe journal of one calculator session. Every operation on the {@link CalculatorEngine}
+ * is appended as a compact record to a memory-mapped segment file, so the session survives a
+ * restart of the process.<p>
+ *
+ * <b>Format.</b> A segment starts with a snapshot of the whole engine state (see {@link
+ * CalculatorEngine#writeState(ByteBuffer)}), followed by records:
+ * <ul>
+ * <li>a key: 2 bytes, the {@link Keypad} code plus one</li>
+ * <li>a new value or the result of an unregistered unary operator: 2 bytes of the tag and 8
+ * bytes of the value</li>
+ * </ul>
+ * Zero marks the end, which is what a new mapped file is filled with. Payload is always written
+ * before its tag and the snapshot before the header which commits it, so a reader never sees a
+ * half-written record or segment.<p>
+ *
+ * <b>Segments.</b> After {@link #getSnapshotInterval()} events (or when the segment is full) the
+ * journal starts a new segment with a fresh snapshot, and so does the first event after a
+ * {@link #checkpoint()}. Recovery loads the snapshot of the latest committed segment and replays
+ * only its records. A background thread maps the next segment in advance and deletes segments
+ * older than the previous one, so appending is just a few stores into mapped memory. The
+ * default interval keeps a segment around 10 MiB and its replay well under a second.<p>
+ *
+ * Records reach the file when the process dies, because mapped memory belongs to the operating
+ * system. {@link #force()} also protects them from a crash of the operating system. Events must be
+ * appended from one thread, before they are applied to the engine.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class EventJournal implements Closeable {
+
+    /** Default number of events between snapshots. */
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 1 << 20;
+
+    /**
+     * Magic number which commits a segment. It was changed when operator keys started to apply
+     * the inverse operator while Inv is checked, so older segments are not replayed.
+     */
+    private static final int MAGIC = 0x43414C4B;
+    /** Size of the segment header: magic number and size of the snapshot. */
+    private static final int HEADER = 8;
+    /** Tag of a new value. */
+    private static final short VALUE = 0x7FFE;
+    /** Tag of a result of an unregistered unary operator. */
+    private static final short UNARY_RESULT = 0x7FFF;
+    /** Maximal size of a record. */
+    private static final int MAX_RECORD = 10;
+    /** Prefix of segment file names. */
+    private static final String PREFIX = "segment-";
+    /** Suffix of segment file names. */
+    private static final String SUFFIX = ".journal";
+    /** Minimal size of a segment, room for a typical snapshot. */
+    private static final int MIN_SEGMENT = 64 * 1024;
+    /** Size of a memory page. */
+    private static final int PAGE = 4096;
+
+    /** Directory of the segments. */
+    private final Path directory;
+    /** Journaled engine. */
+    private final CalculatorEngine engine;
+    /** Keypad used for replaying keys. */
+    private final Keypad keypad;
+    /** Number of events between snapshots. */
+    private final int snapshotInterval;
+    /** Size of a prepared segment. */
+    private final int segmentSize;
+    /** Thread which prepares and deletes segments. */
+    private final ExecutorService background;
+
+    /** Current segment. */
+    private MappedByteBuffer segment;
+    /** Number of the current segment. */
+    private long number;
+    /** Position of the next record. */
+    private int position;
+    /** Number of events in the current segment. */
+    private int events;
+    /** It is true if the state of the engine was changed other than by the journaled events. */
+    private boolean stale;
+    /** Next segment, being prepared. */
+    private Future<MappedByteBuffer> next;
+    /** Number of events replayed by recovery. */
+    private final long recovered;
+
+    /**
+     * Opens the journal in the directory with default keypad and snapshot interval.
+     *
+     * @param directory directory of the segments, created if needed
+     * @param engine engine to recover and journal
+     * @throws IOException if the journal cannot be opened
+     * @see #EventJournal(Path, CalculatorEngine, Keypad, int)
+     */
+    public EventJournal(Path directory, CalculatorEngine engine) throws IOException {
+        this(directory, engine, Keypad.DEFAULT, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Opens the journal in the directory. If the directory has a journal, the state of the engine
+     * is recovered from it. A new segment is started with the state of the engine in any case.
+     *
+     * @param directory directory of the segments, created if needed
+     * @param engine engine to recover and journal
+     * @param keypad keypad used for replaying keys
+     * @param snapshotInterval number of events between snapshots
+     * @throws IOException if the journal cannot be opened
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public EventJournal(Path directory, CalculatorEngine engine, Keypad keypad,
+        int snapshotInterval) throws IOException {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException(
+                "Snapshot interval must be positive: " + snapshotInterval + ".");
+        }
+        this.directory = directory;
+        this.engine = engine;
+        this.keypad = keypad;
+        this.snapshotInterval = snapshotInterval;
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE,
+            MIN_SEGMENT + (long) MAX_RECORD * snapshotInterval);
+        this.background = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "calculator-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Files.createDirectories(directory);
+        List<Long> numbers = segments();
+        long replayed = -1;
+        for (int i = numbers.size() - 1; i >= 0 && replayed < 0; i--) {
+            replayed = recover(numbers.get(i));
+        }
+        recovered = Math.max(0, replayed);
+        number = numbers.isEmpty() ? 0 : numbers.get(numbers.size() - 1);
+        roll();
+    }
+
+    /**
+     * Appends a pressed key.
+     *
+     * @param code code of the key, see {@link Keypad}
+     */
+    public void key(int code) {
+        reserve();
+        segment.putShort(position, (short) (code + 1));
+        position += 2;
+    }
+
+    /**
+     * Appends a new value, see {@link CalculatorEngine#setNewValue(double)}.
+     *
+     * @param value the value
+     */
+    public void value(double value) {
+        append(VALUE, value);
+    }
+
+    /**
+     * Appends the result of a unary operator which is not in the registry of the keypad, so it
+     * cannot be journaled as a key.
+     *
+     * @param result result of the operator
+     */
+    public void unaryResult(double result) {
+        append(UNARY_RESULT, result);
+    }
+
+    /**
+     * Marks that the state of the engine was changed other than by the journaled events, e.g. by
+     * an undo. The snapshot of the new state is taken lazily, when the next event is appended or
+     * the journal is closed, so a series of undos costs nothing until the calculator is used
+     * again. If the process dies before that, the state before the series is recovered.
+     */
+    public void checkpoint() {
+        stale = true;
+    }
+
+    /**
+     * Writes all records of the current segment to the storage device.
+     */
+    public void force() {
+        segment.force();
+    }
+
+    /**
+     * @return number of events replayed when the journal was opened
+     */
+    public long getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * @return number of events between snapshots
+     */
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    /**
+     * Takes the snapshot of a pending {@link #checkpoint()}, forces the records to the storage
+     * device and stops the background thread. The segment prepared in advance is deleted.
+     */
+    @Override
+    public void close() throws IOException {
+        if (stale) {
+            roll();
+        }
+        force();
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Files.deleteIfExists(path(number + 1));
+    }
+
+    /**
+     * Appends a record with a value.
+     *
+     * @param tag tag of the record
+     * @param value the value
+     */
+    private void append(short tag, double value) {
+        reserve();
+        segment.putDouble(position + 2, value);
+        segment.putShort(position, tag);
+        position += MAX_RECORD;
+    }
+
+    /**
+     * Starts a new segment if the current one is full, has enough events or a checkpoint is
+     * pending.
+     */
+    private void reserve() {
+        if (stale || events == snapshotInterval || position + MAX_RECORD > segment.capacity()) {
+            roll();
+        }
+        events++;
+    }
+
+    /**
+     * Starts a new segment with the snapshot of the engine.
+     */
+    private void roll() {
+        int size = HEADER + engine.stateSize();
+        MappedByteBuffer buffer = null;
+        try {
+            if (next != null) {
+                buffer = next.get();
+            }
+            if (buffer == null || buffer.capacity() < size + MAX_RECORD) {
+                buffer = map(number + 1, Math.max(segmentSize, size + segmentSize));
+            }
+        } catch (IOException | ExecutionException e) {
+            throw new IllegalStateException("Cannot create journal segment.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while creating journal segment.", e);
+        }
+
+        ByteBuffer snapshot = buffer.duplicate();
+        snapshot.position(HEADER);
+        engine.writeState(snapshot);
+        buffer.putInt(4, size - HEADER);
+        buffer.putInt(0, MAGIC);
+
+        segment = buffer;
+        number++;
+        position = size;
+        events = 0;
+        stale = false;
+
+        long prepared = number + 1;
+        long obsolete = number - 1;
+        next = background.submit(() -> map(prepared, segmentSize));
+        background.submit(() -> {
+            compact(obsolete);
+            return null;
+        });
+    }
+
+    /**
+     * Loads the snapshot of the segment and replays its records.
+     *
+     * @param segmentNumber number of the segment
+     * @return number of replayed records, <code>-1</code> if the segment is not committed
+     * @throws IOException if the segment cannot be read
+     */
+    private long recover(long segmentNumber) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path(segmentNumber))) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC) {
+            return -1;
+        }
+        buffer.position(HEADER);
+        engine.readState(buffer, keypad.getRegistry());
+        int at = HEADER + buffer.getInt(4);
+
+        long count = 0;
+        for (int limit = buffer.capacity() - 1; at < limit; count++) {
+            int tag = buffer.getShort(at);
+            if (tag == 0) {
+                break;
+            }
+            if (tag == VALUE || tag == UNARY_RESULT) {
+                if (at + MAX_RECORD > buffer.capacity()) {
+                    break;
+                }
+                double value = buffer.getDouble(at + 2);
+                if (tag == VALUE) {
+                    engine.setNewValue(value);
+                } else {
+                    engine.unaryOperation(x -> value);
+                }
+                at += MAX_RECORD;
+            } else {
+                keypad.press(engine, tag - 1);
+                at += 2;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Creates and maps a new segment file.
+     *
+     * @param segmentNumber number of the segment
+     * @param size size of the segment
+     * @return the mapped segment
+     * @throws IOException if the segment cannot be created
+     */
+    private MappedByteBuffer map(long segmentNumber, int size) throws IOException {
+        Path path = path(segmentNumber);
+        Files.deleteIfExists(path);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(size);
+            MappedByteBuffer buffer =
+                file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            //fault in the pages of the snapshot here rather than in the thread which appends
+            for (int i = 0, n = Math.min(size, MIN_SEGMENT); i < n; i += PAGE) {
+                buffer.put(i, (byte) 0);
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * Deletes segments before the given one.
+     *
+     * @param first number of the first segment which is kept
+     * @throws IOException if listing the directory fails
+     */
+    private void compact(long first) throws IOException {
+        for (long n : segments()) {
+            if (n < first) {
+                Files.deleteIfExists(path(n));
+            }
+        }
+    }
+
+    /**
+     * @return numbers of the segments in the directory, sorted
+     * @throws IOException if listing the directory fails
+     */
+    private List<Long> segments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> stream =
+                 Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(
+                        name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (NumberFormatException ignorable) {
+                    //not a segment
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    /**
+     * @param segmentNumber number of the segment
+     * @return path of the segment file
+     */
+    private Path path(long segmentNumber) {
+        return directory.resolve(String.format("%s%016d%s", PREFIX, segmentNumber, SUFFIX));
+    }
+}
@@ -0,0 +1,492 @@
+package hr.fer.zemris.java.gui.calc.macro;
+
+import hr.fer.zemris.java.gui.calc.engine.BinaryOperation;
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import hr.fer.zemris.java.gui.calc.engine.NumberInput;
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import hr.fer.zemris.java.gui.calc.engine.UnaryOperation;
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Sequence of keys compiled into one function of the value it starts with.<p>
+ *
+ * A macro starts with its input as the result of a calculation, as after <code>=</code>, and its
+ * value is the current value of the {@link CalculatorEngine} after its keys. The keys are run
+ * through a model of the engine once, when the macro is compiled: numbers typed in become
+ * constants, operators applied to constants are folded, and the rest is fused into one tree of
+ * small lambdas, with basic arithmetic inlined. Applying the macro therefore does not touch the
+ * input, the flags or the stored value of an engine, and allocates nothing. It can be applied to
+ * whole arrays by {@link hr.fer.zemris.java.gui.calc.array.ArrayOperations}.<p>
+ *
+ * Digits, the decimal point, unary and binary operators, <code>=</code>, <code>clr</code>,
+ * <code>+/-</code> and <code>Inv</code> can be in a macro. Keys which work with the stack or
+ * restart the engine cannot.<p>
+ *
+ * <b>Format.</b> {@link #toBytes()} stores the key codes: a code below 128 takes one byte, other
+ * codes take two bytes, the first with the highest bit set. {@link #toString()} gives the labels
+ * of the keys, which {@link #compile(String, Keypad)} reads back.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class Macro implements DoubleUnaryOperator {
+
+    /** Codes of the keys. */
+    private final int[] codes;
+    /** Keypad of the codes. */
+    private final Keypad keypad;
+    /** Fused function. */
+    private final DoubleUnaryOperator function;
+
+    /**
+     * Creates a new {@link Macro}.
+     *
+     * @param codes codes of the keys
+     * @param keypad keypad of the codes
+     * @param function fused function
+     */
+    private Macro(int[] codes, Keypad keypad, DoubleUnaryOperator function) {
+        this.codes = codes;
+        this.keypad = keypad;
+        this.function = function;
+    }
+
+    /**
+     * Compiles the keys into a macro.
+     *
+     * @param codes codes of the keys
+     * @param keypad keypad of the codes
+     * @return the macro
+     * @throws IllegalArgumentException if a key is not valid or cannot be in a macro
+     */
+    public static Macro compile(int[] codes, Keypad keypad) {
+        int[] copy = codes.clone();
+        return new Macro(copy, keypad, new Compiler(keypad.getRegistry()).compile(copy));
+    }
+
+    /**
+     * Compiles a script of whitespace separated key labels into a macro.
+     *
+     * @param script the script, e.g. <code>"sin * 2 ="</code>
+     * @param keypad keypad of the labels
+     * @return the macro
+     * @throws IllegalArgumentException if a key is not valid or cannot be in a macro
+     */
+    public static Macro compile(String script, Keypad keypad) {
+        return compile(keypad.compile(script), keypad);
+    }
+
+    /**
+     * Reads a macro stored by {@link #toBytes()}.
+     *
+     * @param bytes the stored macro
+     * @param keypad keypad of the codes
+     * @return the macro
+     * @throws IllegalArgumentException if the bytes are not a valid macro
+     */
+    public static Macro fromBytes(byte[] bytes, Keypad keypad) {
+        int[] codes = new int[bytes.length];
+        int n = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x80) {
+                codes[n++] = b;
+            } else if (i + 1 < bytes.length) {
+                codes[n++] = (b & 0x7F) << 8 | (bytes[++i] & 0xFF);
+            } else {
+                throw new IllegalArgumentException("Truncated macro.");
+            }
+        }
+        return compile(Arrays.copyOf(codes, n), keypad);
+    }
+
+    /**
+     * Returns the codes of the keys in the compact format.
+     *
+     * @return the stored macro
+     */
+    public byte[] toBytes() {
+        byte[] bytes = new byte[2 * codes.length];
+        int n = 0;
+        for (int code : codes) {
+            if (code < 0x80) {
+                bytes[n++] = (byte) code;
+            } else {
+                bytes[n++] = (byte) (0x80 | code >> 8);
+                bytes[n++] = (byte) code;
+            }
+        }
+        return Arrays.copyOf(bytes, n);
+    }
+
+    @Override
+    public double applyAsDouble(double operand) {
+        return function.applyAsDouble(operand);
+    }
+
+    /**
+     * @return copy of the codes of the keys
+     */
+    public int[] getCodes() {
+        return codes.clone();
+    }
+
+    /**
+     * Returns the labels of the keys separated by spaces.
+     *
+     * @return the script of the macro
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int code : codes) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(keypad.label(code));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Model of the {@link CalculatorEngine} whose values are functions of the input of the macro.
+     */
+    private static final class Compiler {
+
+        /** Registry of the operators. */
+        private final OperatorRegistry registry;
+        /** Value held by the input, <code>null</code> if it does not hold one. */
+        private Node held = Node.VARIABLE;
+        /** Number which is being typed in, <code>null</code> if none is. */
+        private NumberInput typed;
+        /** Stored value. */
+        private Node stored = Node.constant(0);
+        /** Pending operator. */
+        private DoubleBinaryOperator operator;
+        /** It is true if the last key was a binary operator. */
+        private boolean binaryOperation;
+        /** It is true if the last key was a unary operator. */
+        private boolean unaryOperation;
+        /** It is true if the last key was equals. */
+        private boolean equalsPressed = true;
+        /** It is true if Inv is checked. */
+        private boolean inverted;
+
+        /**
+         * Creates a new {@link Compiler}.
+         *
+         * @param registry registry of the operators
+         */
+        Compiler(OperatorRegistry registry) {
+            this.registry = registry;
+            this.operator = registry.binary("+");
+        }
+
+        /**
+         * Runs the keys through the model.
+         *
+         * @param codes codes of the keys
+         * @return function of the input which gives the current value after the keys
+         * @throws IllegalArgumentException if a key is not valid or cannot be in a macro
+         */
+        DoubleUnaryOperator compile(int[] codes) {
+            for (int code : codes) {
+                press(code);
+            }
+            return current().function;
+        }
+
+        /**
+         * Presses a key.
+         *
+         * @param code code of the key
+         * @throws IllegalArgumentException if the key is not valid or cannot be in a macro
+         */
+        private void press(int code) {
+            switch (code) {
+                case Keypad.DOT:
+                    startInput().appendDot();
+                    return;
+                case Keypad.EQUALS:
+                    if (!equalsPressed) {
+                        held = apply(operator, stored, current());
+                        typed = null;
+                        stored = Node.constant(0);
+                        equalsPressed = true;
+                        binaryOperation = false;
+                        unaryOperation = false;
+                    }
+                    return;
+                case Keypad.CLEAR:
+                    held = null;
+                    typed = null;
+                    return;
+                case Keypad.SIGN:
+                    if (typed != null) {
+                        if (typed.getValue() != 0) {
+                            typed.negate();
+                        }
+                    } else {
+                        held = changeSign(current());
+                    }
+                    return;
+                case Keypad.INV:
+                    inverted = !inverted;
+                    return;
+                default:
+                    break;
+            }
+            if (code >= 0 && code <= 9) {
+                startInput().appendDigit(code);
+            } else if ((code & ~Keypad.ID_MASK) == Keypad.UNARY) {
+                held = apply(unary(code & Keypad.ID_MASK), current());
+                typed = null;
+                unaryOperation = true;
+                binaryOperation = false;
+                equalsPressed = false;
+            } else if ((code & ~Keypad.ID_MASK) == Keypad.BINARY) {
+                stored = current();
+                operator = binary(code & Keypad.ID_MASK);
+                binaryOperation = true;
+                equalsPressed = false;
+                unaryOperation = false;
+            } else {
+                throw new IllegalArgumentException("Key cannot be in a macro: " + code + ".");
+            }
+        }
+
+        /**
+         * Clears the input if the last key was an operator or equals, and returns the number
+         * which is being typed in.
+         *
+         * @return the number being typed in
+         */
+        private NumberInput startInput() {
+            if (equalsPressed) {
+                clearInput();
+                equalsPressed = false;
+            } else if (binaryOperation) {
+                clearInput();
+                binaryOperation = false;
+            } else if (unaryOperation) {
+                clearInput();
+                unaryOperation = false;
+            }
+            if (typed == null) {
+                typed = new NumberInput();
+                held = null;
+            }
+            return typed;
+        }
+
+        /**
+         * Clears the input.
+         */
+        private void clearInput() {
+            held = null;
+            typed = null;
+        }
+
+        /**
+         * @return current value: the typed number, the held value or the stored value
+         */
+        private Node current() {
+            if (typed != null) {
+                return Node.constant(typed.getValue());
+            }
+            return (held != null) ? held : stored;
+        }
+
+        /**
+         * @param id id of the operation
+         * @return unary operation with the id
+         * @throws IllegalArgumentException if there is none
+         */
+        private UnaryOperation unary(int id) {
+            try {
+                UnaryOperation operation = registry.unary(id);
+                return inverted ? registry.inverse(operation) : operation;
+            } catch (IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid unary operator: " + id + ".");
+            }
+        }
+
+        /**
+         * @param id id of the operation
+         * @return binary operation with the id
+         * @throws IllegalArgumentException if there is none
+         */
+        private BinaryOperation binary(int id) {
+            try {
+                BinaryOperation operation = registry.binary(id);
+                return inverted ? registry.inverse(operation) : operation;
+            } catch (IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid binary operator: " + id + ".");
+            }
+        }
+
+        /**
+         * Changes the sign of a non-zero value, as the engine does.
+         *
+         * @param a the value
+         * @return resulting node
+         */
+        private static Node changeSign(Node a) {
+            if (a.constant) {
+                return Node.constant(a.value * (a.value == 0 ? 1 : -1));
+            }
+            DoubleUnaryOperator fa = a.function;
+            return new Node(x -> {
+                double value = fa.applyAsDouble(x);
+                return value * (value == 0 ? 1 : -1);
+            });
+        }
+
+        /**
+         * Applies a unary operator to a node.
+         *
+         * @param operation operation to apply
+         * @param a operand
+         * @return resulting node
+         */
+        private static Node apply(UnaryOperation operation, Node a) {
+            if (a.constant) {
+                return Node.constant(operation.applyAsDouble(a.value));
+            }
+            DoubleUnaryOperator operator = operation.getFunction();
+            if (a.variable) {
+                return new Node(operator);
+            }
+            DoubleUnaryOperator fa = a.function;
+            return new Node(x -> operator.applyAsDouble(fa.applyAsDouble(x)));
+        }
+
+        /**
+         * Applies a binary operator to two nodes. Basic arithmetic is inlined into the lambdas
+         * instead of calling the operator through an interface.
+         *
+         * @param operator operator to apply
+         * @param a left operand
+         * @param b right operand
+         * @return resulting node
+         */
+        private static Node apply(DoubleBinaryOperator operator, Node a, Node b) {
+            if (a.constant && b.constant) {
+                return Node.constant(operator.applyAsDouble(a.value, b.value));
+            }
+            DoubleUnaryOperator fa = a.function;
+            DoubleUnaryOperator fb = b.function;
+            char arithmetic = (operator instanceof BinaryOperation)
+                ? ((BinaryOperation) operator).getArithmetic() : 0;
+            if (b.constant) {
+                double vb = b.value;
+                switch (arithmetic) {
+                    case '+':
+                        return new Node(x -> fa.applyAsDouble(x) + vb);
+                    case '-':
+                        return new Node(x -> fa.applyAsDouble(x) - vb);
+                    case '*':
+                        return new Node(x -> fa.applyAsDouble(x) * vb);
+                    case '/':
+                        return new Node(x -> fa.applyAsDouble(x) / vb);
+                    default:
+                        DoubleBinaryOperator f = ((BinaryOperation) operator).getFunction();
+                        return new Node(x -> f.applyAsDouble(fa.applyAsDouble(x), vb));
+                }
+            }
+            if (a.constant) {
+                double va = a.value;
+                switch (arithmetic) {
+                    case '+':
+                        return new Node(x -> va + fb.applyAsDouble(x));
+                    case '-':
+                        return new Node(x -> va - fb.applyAsDouble(x));
+                    case '*':
+                        return new Node(x -> va * fb.applyAsDouble(x));
+                    case '/':
+                        return new Node(x -> va / fb.applyAsDouble(x));
+                    default:
+                        return new Node(x -> operator.applyAsDouble(va, fb.applyAsDouble(x)));
+                }
+            }
+            switch (arithmetic) {
+                case '+':
+                    return new Node(x -> fa.applyAsDouble(x) + fb.applyAsDouble(x));
+                case '-':
+                    return new Node(x -> fa.applyAsDouble(x) - fb.applyAsDouble(x));
+                case '*':
+                    return new Node(x -> fa.applyAsDouble(x) * fb.applyAsDouble(x));
+                case '/':
+                    return new Node(x -> fa.applyAsDouble(x) / fb.applyAsDouble(x));
+                default:
+                    return new Node(x -> operator.applyAsDouble(fa.applyAsDouble(x),
+                        fb.applyAsDouble(x)));
+            }
+        }
+    }
+
+    /**
+     * Compiled value: a function of the input of the macro.
+     */
+    private static final class Node {
+
+        /** The input of the macro. */
+        static final Node VARIABLE = new Node(DoubleUnaryOperator.identity(), true);
+
+        /** Function which calculates the value. */
+        final DoubleUnaryOperator function;
+        /** It is true if the value is a constant. */
+        final boolean constant;
+        /** It is true if the value is the input. */
+        final boolean variable;
+        /** Value of the constant. */
+        final double value;
+
+        /**
+         * Creates a new node which is neither constant nor the input.
+         *
+         * @param function function of the node
+         */
+        Node(DoubleUnaryOperator function) {
+            this(function, false);
+        }
+
+        /**
+         * Creates a new non constant node.
+         *
+         * @param function function of the node
+         * @param variable <code>true</code> if the node is the input
+         */
+        private Node(DoubleUnaryOperator function, boolean variable) {
+            this.function = function;
+            this.constant = false;
+            this.variable = variable;
+            this.value = Double.NaN;
+        }
+
+        /**
+         * Creates a new constant node.
+         *
+         * @param value value of the constant
+         */
+        private Node(double value) {
+            this.function = x -> value;
+            this.constant = true;
+            this.variable = false;
+            this.value = value;
+        }
+
+        /**
+         * Creates a new constant node.
+         *
+         * @param value value of the constant
+         * @return the node
+         */
+        static Node constant(double value) {
+            return new Node(value);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package hr.fer.zemris.java.gui.calc.macro;
+
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import java.util.Arrays;
+
+/**
+ * Records the codes of pressed keys for a {@link Macro}. Keys which cannot be in a macro are
+ * recorded too, {@link #finish(Keypad)} reports them. An action which has no key code, e.g. a
+ * value set directly, makes the recording {@link #unrecordable()}. This class is not
+ * synchronized.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class MacroRecorder {
+
+    /** Recorded codes. */
+    private int[] codes = new int[16];
+    /** Number of recorded codes. */
+    private int size;
+    /** It is true if an action which has no key code was recorded. */
+    private boolean unrecordable;
+
+    /**
+     * Records a key.
+     *
+     * @param code code of the key
+     */
+    public void key(int code) {
+        if (size == codes.length) {
+            codes = Arrays.copyOf(codes, 2 * size);
+        }
+        codes[size++] = code;
+    }
+
+    /**
+     * Records an action which has no key code.
+     */
+    public void unrecordable() {
+        unrecordable = true;
+    }
+
+    /**
+     * @return number of recorded keys
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Compiles the recorded keys into a macro.
+     *
+     * @param keypad keypad of the codes
+     * @return the macro
+     * @throws IllegalArgumentException if an action cannot be in a macro
+     */
+    public Macro finish(Keypad keypad) {
+        if (unrecordable) {
+            throw new IllegalArgumentException("Recorded an action which has no key.");
+        }
+        return Macro.compile(Arrays.copyOf(codes, size), keypad);
+    }
+}
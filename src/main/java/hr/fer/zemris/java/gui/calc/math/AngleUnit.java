@@ -0,0 +1,132 @@
+package hr.fer.zemris.java.gui.calc.math;
+
+/**
+ * Unit of angles of the trigonometric operators.<p>
+ *
+ * In degrees and gradians, an angle is reduced to the nearest multiple of the right angle before
+ * it is converted to radians. The reduction is exact, so e.g. <code>sin 180&deg;</code> and
+ * <code>cos 90&deg;</code> are exactly zero, which they are not after a plain conversion.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public enum AngleUnit {
+
+    /** Radians, the unit of {@link MathKernels}. */
+    RADIANS(Math.PI / 2, ""),
+    /** Degrees, 360 in a full angle. */
+    DEGREES(90, "°"),
+    /** Gradians, 400 in a full angle. */
+    GRADIANS(100, "ᵍ");
+
+    /** Right angle in this unit. */
+    private final double right;
+    /** Suffix of labels of the operators in this unit. */
+    private final String suffix;
+
+    /**
+     * Creates a new {@link AngleUnit}.
+     *
+     * @param right right angle in this unit
+     * @param suffix suffix of labels of the operators in this unit
+     */
+    AngleUnit(double right, String suffix) {
+        this.right = right;
+        this.suffix = suffix;
+    }
+
+    /**
+     * @return suffix of labels of the operators in this unit, empty for radians
+     */
+    public String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * Converts an angle in radians to this unit.
+     *
+     * @param radians the angle in radians
+     * @return the angle in this unit
+     */
+    public double fromRadians(double radians) {
+        return (this == RADIANS) ? radians : radians / (Math.PI / 2) * right;
+    }
+
+    /**
+     * @param k kernels which compute the function
+     * @param x angle in this unit
+     * @return sine of the angle
+     */
+    public double sin(MathKernels k, double x) {
+        if (this == RADIANS) {
+            return k.sin(x);
+        }
+        double r = Math.IEEEremainder(x, 4 * right);
+        double quadrant = Math.rint(r / right);
+        double a = (r - quadrant * right) * (Math.PI / 2 / right);
+        switch ((int) quadrant & 3) {
+            case 0:
+                return k.sin(a);
+            case 1:
+                return k.cos(a);
+            case 2:
+                return 0.0 - k.sin(a);
+            default:
+                return 0.0 - k.cos(a);
+        }
+    }
+
+    /**
+     * @param k kernels which compute the function
+     * @param x angle in this unit
+     * @return cosine of the angle
+     */
+    public double cos(MathKernels k, double x) {
+        if (this == RADIANS) {
+            return k.cos(x);
+        }
+        double r = Math.IEEEremainder(x, 4 * right);
+        double quadrant = Math.rint(r / right);
+        double a = (r - quadrant * right) * (Math.PI / 2 / right);
+        switch ((int) quadrant & 3) {
+            case 0:
+                return k.cos(a);
+            case 1:
+                return 0.0 - k.sin(a);
+            case 2:
+                return 0.0 - k.cos(a);
+            default:
+                return k.sin(a);
+        }
+    }
+
+    /**
+     * @param k kernels which compute the function
+     * @param x angle in this unit
+     * @return tangent of the angle, infinite at odd multiples of the right angle
+     */
+    public double tan(MathKernels k, double x) {
+        if (this == RADIANS) {
+            return k.tan(x);
+        }
+        double r = Math.IEEEremainder(x, 2 * right);
+        double quadrant = Math.rint(r / right);
+        double a = (r - quadrant * right) * (Math.PI / 2 / right);
+        return (quadrant == 0) ? k.tan(a) : -1 / k.tan(a);
+    }
+
+    /**
+     * @param k kernels which compute the function
+     * @param x angle in this unit
+     * @return cotangent of the angle, infinite at multiples of the straight angle
+     */
+    public double cot(MathKernels k, double x) {
+        if (this == RADIANS) {
+            return 1 / k.tan(x);
+        }
+        double r = Math.IEEEremainder(x, 2 * right);
+        double quadrant = Math.rint(r / right);
+        double a = (r - quadrant * right) * (Math.PI / 2 / right);
+        return (quadrant == 0) ? 1 / k.tan(a) : 0.0 - k.tan(a);
+    }
+}
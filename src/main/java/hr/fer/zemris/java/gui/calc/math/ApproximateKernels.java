@@ -0,0 +1,568 @@
+package hr.fer.zemris.java.gui.calc.math;
+
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Fast kernels which are accurate to a chosen number of significant digits.<p>
+ *
+ * Every function first reduces its argument to a short interval, using small tables where it
+ * helps, and then evaluates a truncated series on it. The number of terms is the smallest one for
+ * which the truncation error is at most a quarter of <code>10^-digits</code>; the rest of the
+ * budget covers rounding. Fewer digits mean fewer terms and faster evaluation.<p>
+ *
+ * <b>Error bounds.</b> For a result <code>r</code> of magnitude at least {@link
+ * Double#MIN_NORMAL}, the relative error <code>|r - f(x)| / |f(x)|</code> is below
+ * <code>10^-digits</code> for {@link #sin}, {@link #cos}, {@link #tan}, {@link #asin}, {@link
+ * #acos}, {@link #atan}, {@link #atan2}, {@link #exp}, {@link #log}, {@link #log10} and the
+ * hyperbolic functions. For {@link #pow} the error of the logarithm is multiplied by the
+ * exponent, so the bound is <code>(1 + |y ln x|) * (10^-digits + 2^-53)</code>. Special values
+ * (NaN, infinities, zeros, negative bases, results near overflow or underflow) and arguments which
+ * cannot be reduced accurately enough are delegated to {@link Math}, and to {@link
+ * MathKernels#DEFAULT} for the inverse hyperbolic functions.<p>
+ *
+ * Hyperbolic functions are built on {@link #exp} and {@link #log}; near zero, where the
+ * differences in those forms cancel, <code>sinh</code>, <code>asinh</code> and <code>atanh</code>
+ * are series of their own.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class ApproximateKernels implements MathKernels {
+
+    /** Minimal number of significant digits. */
+    public static final int MIN_DIGITS = 1;
+    /** Maximal number of significant digits. */
+    public static final int MAX_DIGITS = 15;
+
+    /** First 33 bits of pi/2. */
+    private static final double PIO2_1 = 1.57079632673412561417e+00;
+    /** Next 33 bits of pi/2. */
+    private static final double PIO2_2 = 6.07710050630396597660e-11;
+    /** Next 53 bits of pi/2. */
+    private static final double PIO2_3 = 2.02226624871116645580e-21;
+    /** Upper bound of the error of <code>PIO2_1 + PIO2_2 + PIO2_3</code>. */
+    private static final double PIO2_ERROR = 8.47842766036889956997e-32;
+    /** Arguments of trigonometric functions up to this value are reduced here. */
+    private static final double TRIG_LIMIT = 0x1p19 * Math.PI / 2;
+    /** Upper bound of a reduced trigonometric argument (pi/4 and a little). */
+    private static final double TRIG_RANGE = 0.7854;
+
+    /** High part of pi/2. */
+    private static final double PIO2_HI = 1.57079632679489655800e+00;
+    /** Low part of pi/2. */
+    private static final double PIO2_LO = 6.12323399573676603587e-17;
+    /** High part of pi. */
+    private static final double PI_HI = 2 * PIO2_HI;
+    /** Low part of pi. */
+    private static final double PI_LO = 2 * PIO2_LO;
+
+    /** High 32 bits of ln(2). */
+    private static final double LN2_HI = 6.93147180369123816490e-01;
+    /** Rest of ln(2). */
+    private static final double LN2_LO = 1.90821492927058770002e-10;
+    /** <code>32 / ln(2)</code>. */
+    private static final double INV_LN2_32 = 32 / Math.log(2);
+    /** Arguments of exponential function up to this absolute value are reduced here. */
+    private static final double EXP_LIMIT = 708;
+    /** Upper bound of a reduced exponential argument (ln(2) / 64 and a little). */
+    private static final double EXP_RANGE = 0.010831;
+    /** <code>1 / ln(10)</code>. */
+    private static final double INV_LN10 = 1 / Math.log(10);
+    /** Square root of 2. */
+    private static final double SQRT2 = Math.sqrt(2);
+    /** Upper bound of a reduced logarithm argument. */
+    private static final double LOG_RANGE = 0.00277;
+    /** Upper bound of a reduced arctangent argument. */
+    private static final double ATAN_RANGE = 0.03125;
+    /** Hyperbolic sine up to this absolute value is a series, above it a difference. */
+    private static final double SINH_RANGE = 1;
+    /** Inverse hyperbolic functions up to this absolute value are series. */
+    private static final double AHYP_RANGE = 0.5;
+    /** Hyperbolic tangent above this absolute value rounds to one. */
+    private static final double TANH_LIMIT = 22;
+    /** Inverse hyperbolic sine above this value is <code>ln(2x)</code> in double precision. */
+    private static final double ASINH_LIMIT = 0x1p28;
+
+    /** <code>2^(j/32)</code>. */
+    private static final double[] EXP_TABLE = new double[32];
+    /** <code>ln(j/128)</code>, for <code>j</code> from 90 to 182. */
+    private static final double[] LOG_TABLE = new double[183];
+    /** <code>atan(j/16)</code>. */
+    private static final double[] ATAN_TABLE = new double[17];
+
+    static {
+        for (int j = 0; j < EXP_TABLE.length; j++) {
+            EXP_TABLE[j] = StrictMath.pow(2, j / 32.0);
+        }
+        for (int j = 90; j < LOG_TABLE.length; j++) {
+            LOG_TABLE[j] = StrictMath.log(j / 128.0);
+        }
+        for (int j = 0; j < ATAN_TABLE.length; j++) {
+            ATAN_TABLE[j] = StrictMath.atan(j / 16.0);
+        }
+    }
+
+    /** Number of significant digits. */
+    private final int digits;
+    /** Allowed truncation error. */
+    private final double budget;
+    /** Coefficients of the sine series, <code>(-1)^i / (2i+1)!</code>. */
+    private final double[] sin;
+    /** Coefficients of the cosine series, <code>(-1)^i / (2i)!</code>. */
+    private final double[] cos;
+    /** Coefficients of the exponential series, <code>1 / i!</code>. */
+    private final double[] exp;
+    /** Coefficients of the inverse hyperbolic tangent series, <code>1 / (2i+1)</code>. */
+    private final double[] atanh;
+    /** Coefficients of the arctangent series, <code>(-1)^i / (2i+1)</code>. */
+    private final double[] atan;
+    /** Coefficients of the hyperbolic sine series, <code>1 / (2i+1)!</code>. */
+    private final double[] sinh;
+    /**
+     * Coefficients of the inverse hyperbolic sine series,
+     * <code>(-1)^i (2i)! / (4^i (i!)^2 (2i+1))</code>.
+     */
+    private final double[] asinh;
+    /** Coefficients of the inverse hyperbolic tangent series up to {@link #AHYP_RANGE}. */
+    private final double[] atanhWide;
+
+    /**
+     * Creates a new {@link ApproximateKernels}.
+     *
+     * @param digits number of significant digits, from {@link #MIN_DIGITS} to {@link
+     * #MAX_DIGITS}
+     * @throws IllegalArgumentException if the number of digits is out of range
+     */
+    public ApproximateKernels(int digits) {
+        if (digits < MIN_DIGITS || digits > MAX_DIGITS) {
+            throw new IllegalArgumentException("Number of digits must be in [" + MIN_DIGITS
+                + ", " + MAX_DIGITS + "], was " + digits + ".");
+        }
+        this.digits = digits;
+        this.budget = Math.pow(10, -digits) / 4;
+
+        int n = terms(i -> Math.pow(TRIG_RANGE, 2 * i) / factorial(2 * i + 1));
+        sin = new double[n];
+        for (int i = 0; i < n; i++) {
+            sin[i] = sign(i) / factorial(2 * i + 1);
+        }
+        n = terms(i -> SQRT2 * Math.pow(TRIG_RANGE, 2 * i) / factorial(2 * i));
+        cos = new double[n];
+        for (int i = 0; i < n; i++) {
+            cos[i] = sign(i) / factorial(2 * i);
+        }
+        n = terms(i -> Math.exp(EXP_RANGE) * Math.pow(EXP_RANGE, i) / factorial(i));
+        exp = new double[n];
+        for (int i = 0; i < n; i++) {
+            exp[i] = 1 / factorial(i);
+        }
+        //the series is at most 1.5 times the result if the table entry is not zero
+        n = terms(i -> 1.5 * Math.pow(LOG_RANGE, 2 * i) / (2 * i + 1)
+            / (1 - LOG_RANGE * LOG_RANGE));
+        atanh = new double[n];
+        for (int i = 0; i < n; i++) {
+            atanh[i] = 1.0 / (2 * i + 1);
+        }
+        n = terms(i -> Math.pow(ATAN_RANGE, 2 * i) / (2 * i + 1));
+        atan = new double[n];
+        for (int i = 0; i < n; i++) {
+            atan[i] = sign(i) / (2 * i + 1);
+        }
+        //the tail of the series is at most cosh(1) times its first term
+        n = terms(i -> Math.cosh(SINH_RANGE) * Math.pow(SINH_RANGE, 2 * i) / factorial(2 * i + 1));
+        sinh = new double[n];
+        for (int i = 0; i < n; i++) {
+            sinh[i] = 1 / factorial(2 * i + 1);
+        }
+        //the series alternates and its sum is at least 0.96 times its first term
+        double z = AHYP_RANGE * AHYP_RANGE;
+        n = terms(i -> Math.pow(z, i) / (2 * i + 1) / 0.96);
+        asinh = new double[n];
+        double central = 1;
+        for (int i = 0; i < n; i++) {
+            asinh[i] = sign(i) * central / (2 * i + 1);
+            central *= (2 * i + 1) / (2.0 * i + 2);
+        }
+        n = terms(i -> Math.pow(z, i) / (2 * i + 1) / (1 - z));
+        atanhWide = new double[n];
+        for (int i = 0; i < n; i++) {
+            atanhWide[i] = 1.0 / (2 * i + 1);
+        }
+    }
+
+    /**
+     * Returns the smallest number of terms whose truncation error is within the budget.
+     *
+     * @param error truncation error of a series with the given number of terms
+     * @return number of terms
+     */
+    private int terms(IntToDoubleFunction error) {
+        int n = 1;
+        while (error.applyAsDouble(n) > budget) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * @param n argument
+     * @return <code>n!</code>
+     */
+    private static double factorial(int n) {
+        double result = 1;
+        for (int i = 2; i <= n; i++) {
+            result *= i;
+        }
+        return result;
+    }
+
+    /**
+     * @param i exponent
+     * @return <code>(-1)^i</code>
+     */
+    private static double sign(int i) {
+        return (i & 1) == 0 ? 1 : -1;
+    }
+
+    /**
+     * Evaluates <code>c[1] + c[2] z + c[3] z^2 + ...</code>, the series without its first
+     * term.
+     *
+     * @param c coefficients
+     * @param z argument
+     * @return value of the series
+     */
+    private static double tail(double[] c, double z) {
+        double p = 0;
+        for (int i = c.length - 1; i > 0; i--) {
+            p = p * z + c[i];
+        }
+        return p;
+    }
+
+    /**
+     * @return number of significant digits
+     */
+    public int getDigits() {
+        return digits;
+    }
+
+    /**
+     * @return number of terms of the sine series
+     */
+    public int getSinTerms() {
+        return sin.length;
+    }
+
+    /**
+     * @return number of terms of the exponential series
+     */
+    public int getExpTerms() {
+        return exp.length;
+    }
+
+    /**
+     * @return number of terms of the logarithm series
+     */
+    public int getLogTerms() {
+        return atanh.length;
+    }
+
+    /**
+     * Sine of the reduced argument.
+     *
+     * @param r argument, <code>|r| &lt;= pi/4</code>
+     * @return sine of the argument
+     */
+    private double sinKernel(double r) {
+        double z = r * r;
+        return r + r * (z * tail(sin, z));
+    }
+
+    /**
+     * Cosine of the reduced argument.
+     *
+     * @param r argument, <code>|r| &lt;= pi/4</code>
+     * @return cosine of the argument
+     */
+    private double cosKernel(double r) {
+        double z = r * r;
+        return 1 + z * tail(cos, z);
+    }
+
+    /**
+     * Returns the multiple of pi/2 nearest to the argument.
+     *
+     * @param x argument, <code>|x| &lt;= 2^19 pi/2</code>
+     * @return the multiple
+     */
+    private static int quadrant(double x) {
+        return (int) Math.rint(x * (2 / Math.PI));
+    }
+
+    /**
+     * Returns <code>x - k pi/2</code>, or NaN if it cannot be computed within the error budget.
+     *
+     * @param x argument, <code>|x| &lt;= 2^19 pi/2</code>
+     * @param k multiple of pi/2 nearest to the argument
+     * @return the reduced argument
+     */
+    private double reduce(double x, int k) {
+        //k * PIO2_1 and k * PIO2_2 are exact, first subtraction is exact as well
+        double r = ((x - k * PIO2_1) - k * PIO2_2) - k * PIO2_3;
+        if (Math.abs(k) * PIO2_ERROR > budget * Math.abs(r)) {
+            //too close to a multiple of pi/2
+            return Double.NaN;
+        }
+        return r;
+    }
+
+    @Override
+    public double sin(double x) {
+        if (!(Math.abs(x) <= TRIG_LIMIT)) {
+            return Math.sin(x);
+        }
+        int k = quadrant(x);
+        double r = reduce(x, k);
+        if (r != r) {
+            return Math.sin(x);
+        }
+        switch (k & 3) {
+            case 0:
+                return sinKernel(r);
+            case 1:
+                return cosKernel(r);
+            case 2:
+                return -sinKernel(r);
+            default:
+                return -cosKernel(r);
+        }
+    }
+
+    @Override
+    public double cos(double x) {
+        if (!(Math.abs(x) <= TRIG_LIMIT)) {
+            return Math.cos(x);
+        }
+        int k = quadrant(x);
+        double r = reduce(x, k);
+        if (r != r) {
+            return Math.cos(x);
+        }
+        switch (k & 3) {
+            case 0:
+                return cosKernel(r);
+            case 1:
+                return -sinKernel(r);
+            case 2:
+                return -cosKernel(r);
+            default:
+                return sinKernel(r);
+        }
+    }
+
+    @Override
+    public double tan(double x) {
+        if (!(Math.abs(x) <= TRIG_LIMIT)) {
+            return Math.tan(x);
+        }
+        int k = quadrant(x);
+        double r = reduce(x, k);
+        if (r != r) {
+            return Math.tan(x);
+        }
+        if ((k & 1) == 0) {
+            return sinKernel(r) / cosKernel(r);
+        }
+        return -cosKernel(r) / sinKernel(r);
+    }
+
+    @Override
+    public double asin(double x) {
+        if (!(Math.abs(x) < 1) || x == 0) {
+            return Math.asin(x);
+        }
+        return atan2(x, Math.sqrt((1 - x) * (1 + x)));
+    }
+
+    @Override
+    public double acos(double x) {
+        if (!(Math.abs(x) < 1) || x == 0) {
+            return Math.acos(x);
+        }
+        return atan2(Math.sqrt((1 - x) * (1 + x)), x);
+    }
+
+    @Override
+    public double atan(double x) {
+        if (x != x) {
+            return x;
+        }
+        double a = Math.abs(x);
+        boolean inverted = a > 1;
+        if (inverted) {
+            a = 1 / a;
+        }
+        //atan(a) = atan(c) + atan(t), c is the nearest multiple of 1/16
+        int j = (int) (a * 16 + 0.5);
+        double c = j * 0.0625;
+        double t = (a - c) / (1 + a * c);
+        double z = t * t;
+        double result = ATAN_TABLE[j] + (t + t * (z * tail(atan, z)));
+        if (inverted) {
+            result = (PIO2_HI - result) + PIO2_LO;
+        }
+        return Math.copySign(result, x);
+    }
+
+    @Override
+    public double atan2(double y, double x) {
+        if (x == 0 || y == 0 || Double.isNaN(x + y)
+            || Double.isInfinite(x) || Double.isInfinite(y)) {
+            return Math.atan2(y, x);
+        }
+        double result = atan(Math.abs(y / x));
+        if (x < 0) {
+            result = (PI_HI - result) + PI_LO;
+        }
+        return Math.copySign(result, y);
+    }
+
+    @Override
+    public double exp(double x) {
+        if (!(Math.abs(x) <= EXP_LIMIT)) {
+            return Math.exp(x);
+        }
+        //x = (32k + j) ln(2)/32 + r
+        int n = (int) Math.rint(x * INV_LN2_32);
+        int j = n & 31;
+        int k = n >> 5;
+        double r = (x - n * (LN2_HI / 32)) - n * (LN2_LO / 32);
+        //2^k is normal since |k| < 1023
+        double scale = Double.longBitsToDouble((long) (k + 1023) << 52);
+        return EXP_TABLE[j] * (1 + r * tail(exp, r)) * scale;
+    }
+
+    @Override
+    public double log(double x) {
+        if (!(x >= Double.MIN_NORMAL && x <= Double.MAX_VALUE)) {
+            return Math.log(x);
+        }
+        //x = m 2^e, m in [sqrt(2)/2, sqrt(2)]
+        long bits = Double.doubleToRawLongBits(x);
+        int e = (int) (bits >>> 52) - 1023;
+        double m = Double.longBitsToDouble(bits & 0x000FFFFFFFFFFFFFL | 0x3FF0000000000000L);
+        if (m > SQRT2) {
+            m *= 0.5;
+            e++;
+        }
+        //ln(m) = ln(c) + 2 atanh(s), c is the nearest multiple of 1/128
+        int j = (int) (m * 128 + 0.5);
+        double c = j * (1.0 / 128);
+        double s = (m - c) / (m + c);
+        double z = s * s;
+        double s2 = 2 * s;
+        double lm = LOG_TABLE[j] + (s2 + s2 * (z * tail(atanh, z)));
+        return e * LN2_HI + (lm + e * LN2_LO);
+    }
+
+    @Override
+    public double log10(double x) {
+        if (!(x >= Double.MIN_NORMAL && x <= Double.MAX_VALUE)) {
+            return Math.log10(x);
+        }
+        return log(x) * INV_LN10;
+    }
+
+    @Override
+    public double pow(double x, double y) {
+        if (!(x > 0 && x <= Double.MAX_VALUE && Math.abs(y) <= Double.MAX_VALUE)) {
+            return Math.pow(x, y);
+        }
+        double p = y * log(x);
+        if (!(Math.abs(p) <= EXP_LIMIT)) {
+            return Math.pow(x, y);
+        }
+        return exp(p);
+    }
+
+    @Override
+    public double sinh(double x) {
+        double a = Math.abs(x);
+        if (!(a <= EXP_LIMIT)) {
+            return Math.sinh(x);
+        }
+        if (a <= SINH_RANGE) {
+            double z = x * x;
+            return x + x * (z * tail(sinh, z));
+        }
+        double e = exp(a);
+        return Math.copySign(0.5 * (e - 1 / e), x);
+    }
+
+    @Override
+    public double cosh(double x) {
+        double a = Math.abs(x);
+        if (!(a <= EXP_LIMIT)) {
+            return Math.cosh(x);
+        }
+        double e = exp(a);
+        return 0.5 * (e + 1 / e);
+    }
+
+    @Override
+    public double tanh(double x) {
+        double a = Math.abs(x);
+        if (!(a <= TANH_LIMIT)) {
+            return Math.tanh(x);
+        }
+        if (a <= SINH_RANGE) {
+            return sinh(x) / cosh(x);
+        }
+        return Math.copySign(1 - 2 / (exp(2 * a) + 1), x);
+    }
+
+    @Override
+    public double asinh(double x) {
+        double a = Math.abs(x);
+        if (!(a <= ASINH_LIMIT)) {
+            return DEFAULT.asinh(x);
+        }
+        if (a <= AHYP_RANGE) {
+            double z = x * x;
+            return x + x * (z * tail(asinh, z));
+        }
+        return Math.copySign(log(a + Math.sqrt(a * a + 1)), x);
+    }
+
+    @Override
+    public double acosh(double x) {
+        if (!(x >= 1 && x <= ASINH_LIMIT)) {
+            return DEFAULT.acosh(x);
+        }
+        if (x <= 2) {
+            //x - 1 is exact
+            return asinh(Math.sqrt((x - 1) * (x + 1)));
+        }
+        return log(x + Math.sqrt(x * x - 1));
+    }
+
+    @Override
+    public double atanh(double x) {
+        double a = Math.abs(x);
+        if (!(a < 1)) {
+            return DEFAULT.atanh(x);
+        }
+        if (a <= AHYP_RANGE) {
+            double z = x * x;
+            return x + x * (z * tail(atanhWide, z));
+        }
+        //1 - a is exact
+        return Math.copySign(0.5 * log((1 + a) / (1 - a)), x);
+    }
+
+    @Override
+    public String toString() {
+        return "Approximate (" + digits + " digits)";
+    }
+}
@@ -0,0 +1,110 @@
+package hr.fer.zemris.java.gui.calc.math;
+
+/**
+ * Kernels which delegate to {@link Math}. The inverse hyperbolic functions, which {@link Math}
+ * lacks, are computed from {@link Math#log1p(double)} in forms which do not cancel.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+final class DefaultKernels implements MathKernels {
+
+    @Override
+    public double sin(double x) {
+        return Math.sin(x);
+    }
+
+    @Override
+    public double cos(double x) {
+        return Math.cos(x);
+    }
+
+    @Override
+    public double tan(double x) {
+        return Math.tan(x);
+    }
+
+    @Override
+    public double asin(double x) {
+        return Math.asin(x);
+    }
+
+    @Override
+    public double acos(double x) {
+        return Math.acos(x);
+    }
+
+    @Override
+    public double atan(double x) {
+        return Math.atan(x);
+    }
+
+    @Override
+    public double atan2(double y, double x) {
+        return Math.atan2(y, x);
+    }
+
+    @Override
+    public double exp(double x) {
+        return Math.exp(x);
+    }
+
+    @Override
+    public double log(double x) {
+        return Math.log(x);
+    }
+
+    @Override
+    public double log10(double x) {
+        return Math.log10(x);
+    }
+
+    @Override
+    public double pow(double x, double y) {
+        return Math.pow(x, y);
+    }
+
+    @Override
+    public double sinh(double x) {
+        return Math.sinh(x);
+    }
+
+    @Override
+    public double cosh(double x) {
+        return Math.cosh(x);
+    }
+
+    @Override
+    public double tanh(double x) {
+        return Math.tanh(x);
+    }
+
+    @Override
+    public double asinh(double x) {
+        double a = Math.abs(x);
+        if (a > 0x1p28) {
+            return Math.copySign(Math.log(a) + Math.log(2), x);
+        }
+        return Math.copySign(Math.log1p(a + a * a / (1 + Math.sqrt(1 + a * a))), x);
+    }
+
+    @Override
+    public double acosh(double x) {
+        if (x > 0x1p28) {
+            return Math.log(x) + Math.log(2);
+        }
+        double t = x - 1;
+        return Math.log1p(t + Math.sqrt(2 * t + t * t));
+    }
+
+    @Override
+    public double atanh(double x) {
+        double a = Math.abs(x);
+        return Math.copySign(0.5 * Math.log1p(2 * a / (1 - a)), x);
+    }
+
+    @Override
+    public String toString() {
+        return "Math";
+    }
+}
@@ -0,0 +1,122 @@
+package hr.fer.zemris.java.gui.calc.math;
+
+/**
+ * Elementary functions used by the calculator's operators. The registry is built on top of a
+ * kernel set (see {@link hr.fer.zemris.java.gui.calc.engine.OperatorRegistry#withKernels(
+ * MathKernels)}), so the precision of all operators can be chosen at once.<p>
+ *
+ * Arguments and special values have the same meaning as in {@link Math}. {@link Math} has no
+ * inverse hyperbolic functions; {@link #DEFAULT} computes them from {@link Math#log1p(double)}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public interface MathKernels {
+
+    /** Kernels which delegate to {@link Math}. */
+    MathKernels DEFAULT = new DefaultKernels();
+
+    /**
+     * @param x angle in radians
+     * @return sine of the angle
+     */
+    double sin(double x);
+
+    /**
+     * @param x angle in radians
+     * @return cosine of the angle
+     */
+    double cos(double x);
+
+    /**
+     * @param x angle in radians
+     * @return tangent of the angle
+     */
+    double tan(double x);
+
+    /**
+     * @param x sine of an angle
+     * @return the angle in <code>[-pi/2, pi/2]</code>
+     */
+    double asin(double x);
+
+    /**
+     * @param x cosine of an angle
+     * @return the angle in <code>[0, pi]</code>
+     */
+    double acos(double x);
+
+    /**
+     * @param x tangent of an angle
+     * @return the angle in <code>[-pi/2, pi/2]</code>
+     */
+    double atan(double x);
+
+    /**
+     * @param y ordinate of a point
+     * @param x abscissa of a point
+     * @return angle of the point in <code>[-pi, pi]</code>
+     */
+    double atan2(double y, double x);
+
+    /**
+     * @param x exponent
+     * @return <code>e^x</code>
+     */
+    double exp(double x);
+
+    /**
+     * @param x argument
+     * @return natural logarithm of the argument
+     */
+    double log(double x);
+
+    /**
+     * @param x argument
+     * @return base 10 logarithm of the argument
+     */
+    double log10(double x);
+
+    /**
+     * @param x base
+     * @param y exponent
+     * @return <code>x^y</code>
+     */
+    double pow(double x, double y);
+
+    /**
+     * @param x argument
+     * @return hyperbolic sine of the argument
+     */
+    double sinh(double x);
+
+    /**
+     * @param x argument
+     * @return hyperbolic cosine of the argument
+     */
+    double cosh(double x);
+
+    /**
+     * @param x argument
+     * @return hyperbolic tangent of the argument
+     */
+    double tanh(double x);
+
+    /**
+     * @param x hyperbolic sine of a value
+     * @return the value
+     */
+    double asinh(double x);
+
+    /**
+     * @param x hyperbolic cosine of a value
+     * @return the value in <code>[0, inf]</code>, <code>NaN</code> if the argument is less than 1
+     */
+    double acosh(double x);
+
+    /**
+     * @param x hyperbolic tangent of a value
+     * @return the value, <code>NaN</code> if the argument is not in <code>[-1, 1]</code>
+     */
+    double atanh(double x);
+}
@@ -0,0 +1,107 @@
+package hr.fer.zemris.java.gui.calc.matrix;
+
+/**
+ * LU decomposition with partial pivoting of a square matrix <code>A</code>:
+ * <code>PA = LU</code>, where <code>P</code> swaps rows, <code>L</code> is lower triangular with
+ * ones on the diagonal and <code>U</code> is upper triangular. Both triangles are kept in one
+ * row-major array, without the diagonal of <code>L</code>. Instances are created by
+ * {@link MatrixOperations#decompose(Matrix)} and are immutable.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class LUDecomposition {
+
+    /** Size of the matrix. */
+    private final int n;
+    /** Elements of <code>L</code> below the diagonal and of <code>U</code> from it up. */
+    private final double[] lu;
+    /** Row swapped with row <code>k</code> in step <code>k</code>. */
+    private final int[] pivots;
+    /** Sign of the permutation. */
+    private final int sign;
+    /** Largest absolute value of a pivot which counts as zero. */
+    private final double tolerance;
+
+    /**
+     * Creates a new {@link LUDecomposition}.
+     *
+     * @param n size of the matrix
+     * @param lu elements of both triangles
+     * @param pivots row swapped with row <code>k</code> in step <code>k</code>
+     * @param sign sign of the permutation
+     * @param tolerance largest absolute value of a pivot which counts as zero
+     */
+    LUDecomposition(int n, double[] lu, int[] pivots, int sign, double tolerance) {
+        this.n = n;
+        this.lu = lu;
+        this.pivots = pivots;
+        this.sign = sign;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Returns whether the matrix is singular to working precision: a pivot is not bigger than the
+     * rounding error of the elimination, <code>n ulp(max |a<sub>ij</sub>|)</code>. The inverse of
+     * such a matrix would be made of rounding errors.
+     *
+     * @return <code>true</code> if the matrix has no inverse
+     */
+    public boolean isSingular() {
+        for (int i = 0; i < n; i++) {
+            if (Math.abs(lu[i * n + i]) <= tolerance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return determinant of the matrix
+     */
+    public double getDeterminant() {
+        double determinant = sign;
+        for (int i = 0; i < n; i++) {
+            determinant *= lu[i * n + i];
+        }
+        return determinant;
+    }
+
+    /**
+     * @return the lower triangle <code>L</code>
+     */
+    public Matrix getLower() {
+        double[] lower = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(lu, i * n, lower, i * n, i);
+            lower[i * n + i] = 1;
+        }
+        return new Matrix(n, n, lower);
+    }
+
+    /**
+     * @return the upper triangle <code>U</code>
+     */
+    public Matrix getUpper() {
+        double[] upper = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(lu, i * n + i, upper, i * n + i, n - i);
+        }
+        return new Matrix(n, n, upper);
+    }
+
+    /**
+     * @return elements of both triangles, which must not be modified
+     */
+    double[] elements() {
+        return lu;
+    }
+
+    /**
+     * @return row swapped with row <code>k</code> in step <code>k</code>, which must not be
+     * modified
+     */
+    int[] pivots() {
+        return pivots;
+    }
+}
@@ -0,0 +1,168 @@
+package hr.fer.zemris.java.gui.calc.matrix;
+
+import java.util.Arrays;
+
+/**
+ * Dense matrix of doubles. The elements are kept in one array, row after row, so a row is a
+ * contiguous run of memory which the kernels of {@link MatrixOperations} stream through. A vector
+ * is a matrix with one column. Instances are immutable.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class Matrix {
+
+    /** Number of rows. */
+    private final int rows;
+    /** Number of columns. */
+    private final int columns;
+    /** Elements, row-major. */
+    private final double[] elements;
+
+    /**
+     * Creates a new {@link Matrix} which takes the array without copying it.
+     *
+     * @param rows number of rows
+     * @param columns number of columns
+     * @param elements elements, row-major
+     */
+    Matrix(int rows, int columns, double[] elements) {
+        this.rows = rows;
+        this.columns = columns;
+        this.elements = elements;
+    }
+
+    /**
+     * Creates a matrix with the given elements.
+     *
+     * @param rows number of rows
+     * @param columns number of columns
+     * @param elements elements, row after row
+     * @return the matrix
+     * @throws IllegalArgumentException if a dimension is not positive or the number of elements
+     * does not match them
+     */
+    public static Matrix of(int rows, int columns, double... elements) {
+        if (rows <= 0 || columns <= 0 || (long) rows * columns != elements.length) {
+            throw new IllegalArgumentException("Invalid matrix: " + rows + "x" + columns + " of "
+                + elements.length + " elements.");
+        }
+        return new Matrix(rows, columns, elements.clone());
+    }
+
+    /**
+     * Creates a column vector.
+     *
+     * @param elements elements of the vector
+     * @return the vector
+     * @throws IllegalArgumentException if there are no elements
+     */
+    public static Matrix vector(double... elements) {
+        return of(elements.length, 1, elements);
+    }
+
+    /**
+     * Creates an identity matrix.
+     *
+     * @param n number of rows and columns
+     * @return the identity matrix
+     * @throws IllegalArgumentException if n is not positive
+     */
+    public static Matrix identity(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Invalid size: " + n + ".");
+        }
+        double[] elements = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            elements[i * n + i] = 1;
+        }
+        return new Matrix(n, n, elements);
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return <code>true</code> if the matrix has as many rows as columns
+     */
+    public boolean isSquare() {
+        return rows == columns;
+    }
+
+    /**
+     * @param row index of the row
+     * @param column index of the column
+     * @return the element
+     * @throws IndexOutOfBoundsException if there is no such element
+     */
+    public double get(int row, int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("Invalid element: " + row + ", " + column + ".");
+        }
+        return elements[row * columns + column];
+    }
+
+    /**
+     * @return copy of the elements, row after row
+     */
+    public double[] toArray() {
+        return elements.clone();
+    }
+
+    /**
+     * @return elements, row after row, which must not be modified
+     */
+    double[] elements() {
+        return elements;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Matrix)) {
+            return false;
+        }
+        Matrix other = (Matrix) obj;
+        return rows == other.rows && columns == other.columns
+            && Arrays.equals(elements, other.elements);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * rows + columns) + Arrays.hashCode(elements);
+    }
+
+    /**
+     * Returns the rows in brackets, e.g. <code>[[1.0, 2.0], [3.0, 4.0]]</code>.
+     *
+     * @return the matrix as text
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < rows; i++) {
+            sb.append(i == 0 ? "[" : ", [");
+            for (int j = 0; j < columns; j++) {
+                if (j > 0) {
+                    sb.append(", ");
+                }
+                sb.append(elements[i * columns + j]);
+            }
+            sb.append(']');
+        }
+        return sb.append(']').toString();
+    }
+}
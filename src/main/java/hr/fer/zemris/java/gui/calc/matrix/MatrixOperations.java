@@ -0,0 +1,451 @@
+package hr.fer.zemris.java.gui.calc.matrix;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Operations on {@link Matrix} whose work is split into blocks processed by a {@link
+ * ForkJoinPool}. Operations smaller than {@link #THRESHOLD} multiply-adds run on the calling
+ * thread only.<p>
+ *
+ * Multiplication is blocked for the caches: a task takes a band of rows of the result, and the
+ * band is computed block of the inner dimension by block of columns, so the block of the right
+ * operand it reads stays in the cache while every row of the band uses it. The innermost loop runs
+ * along a row of the right operand and a row of the result, which the JIT compiler can vectorize.
+ * Every element is summed in the same order whatever the pool, so the results depend only on the
+ * operands. Inversion and negative powers use an {@link LUDecomposition}, and powers are computed
+ * by repeated squaring.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class MatrixOperations {
+
+    /** Number of multiply-adds up to which an operation runs on the calling thread only. */
+    public static final int THRESHOLD = 1 << 18;
+    /** Number of rows of the result in a band of the multiplication. */
+    static final int ROW_BLOCK = 64;
+    /** Length of a block of the inner dimension of the multiplication. */
+    static final int INNER_BLOCK = 128;
+    /** Number of columns in a block of the multiplication. */
+    static final int COLUMN_BLOCK = 512;
+
+    /** Pool which processes the blocks. */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates new {@link MatrixOperations} which use the common pool.
+     */
+    public MatrixOperations() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates new {@link MatrixOperations} which use the given pool.
+     *
+     * @param pool pool which processes the blocks
+     */
+    public MatrixOperations(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @param a left operand
+     * @param b right operand
+     * @return sum of the matrices
+     * @throws IllegalArgumentException if the matrices are not of the same size
+     */
+    public Matrix add(Matrix a, Matrix b) {
+        checkSameSize(a, b);
+        double[] x = a.elements();
+        double[] y = b.elements();
+        double[] out = new double[x.length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = x[i] + y[i];
+        }
+        return new Matrix(a.getRows(), a.getColumns(), out);
+    }
+
+    /**
+     * @param a left operand
+     * @param b right operand
+     * @return difference of the matrices
+     * @throws IllegalArgumentException if the matrices are not of the same size
+     */
+    public Matrix subtract(Matrix a, Matrix b) {
+        checkSameSize(a, b);
+        double[] x = a.elements();
+        double[] y = b.elements();
+        double[] out = new double[x.length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = x[i] - y[i];
+        }
+        return new Matrix(a.getRows(), a.getColumns(), out);
+    }
+
+    /**
+     * @param a the matrix
+     * @param factor the scalar
+     * @return matrix multiplied by the scalar
+     */
+    public Matrix scale(Matrix a, double factor) {
+        double[] x = a.elements();
+        double[] out = new double[x.length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = x[i] * factor;
+        }
+        return new Matrix(a.getRows(), a.getColumns(), out);
+    }
+
+    /**
+     * @param a left operand
+     * @param b right operand
+     * @return product of the matrices
+     * @throws IllegalArgumentException if the columns of the left operand do not match the rows
+     * of the right operand
+     */
+    public Matrix multiply(Matrix a, Matrix b) {
+        if (a.getColumns() != b.getRows()) {
+            throw new IllegalArgumentException("Cannot multiply " + size(a) + " by " + size(b)
+                + ".");
+        }
+        int rows = a.getRows();
+        int inner = a.getColumns();
+        int columns = b.getColumns();
+        double[] x = a.elements();
+        double[] y = b.elements();
+        double[] out = new double[rows * columns];
+        run(new Range(rows, ROW_BLOCK, (long) inner * columns) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            void compute(int from, int to) {
+                multiply(x, y, out, inner, columns, from, to);
+            }
+        });
+        return new Matrix(rows, columns, out);
+    }
+
+    /**
+     * Computes a band of rows of a product.
+     *
+     * @param x elements of the left operand
+     * @param y elements of the right operand
+     * @param out elements of the product
+     * @param inner columns of the left operand
+     * @param columns columns of the right operand
+     * @param from first row of the band (inclusive)
+     * @param to last row of the band (exclusive)
+     */
+    static void multiply(double[] x, double[] y, double[] out, int inner, int columns, int from,
+        int to) {
+        for (int kk = 0; kk < inner; kk += INNER_BLOCK) {
+            int kEnd = Math.min(kk + INNER_BLOCK, inner);
+            for (int jj = 0; jj < columns; jj += COLUMN_BLOCK) {
+                int jEnd = Math.min(jj + COLUMN_BLOCK, columns);
+                for (int i = from; i < to; i++) {
+                    int row = i * columns;
+                    for (int k = kk; k < kEnd; k++) {
+                        double xik = x[i * inner + k];
+                        int yk = k * columns;
+                        for (int j = jj; j < jEnd; j++) {
+                            out[row + j] += xik * y[yk + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Decomposes a square matrix.
+     *
+     * @param a the matrix
+     * @return the decomposition
+     * @throws IllegalArgumentException if the matrix is not square
+     */
+    public LUDecomposition decompose(Matrix a) {
+        checkSquare(a);
+        int n = a.getRows();
+        double[] lu = a.toArray();
+        double largest = 0;
+        for (double element : lu) {
+            largest = Math.max(largest, Math.abs(element));
+        }
+        int[] pivots = new int[n];
+        int sign = 1;
+        for (int k = 0; k < n; k++) {
+            int p = k;
+            double max = Math.abs(lu[k * n + k]);
+            for (int i = k + 1; i < n; i++) {
+                double v = Math.abs(lu[i * n + k]);
+                if (v > max) {
+                    max = v;
+                    p = i;
+                }
+            }
+            pivots[k] = p;
+            if (p != k) {
+                swapRows(lu, n, p, k);
+                sign = -sign;
+            }
+            double pivot = lu[k * n + k];
+            if (pivot == 0) {
+                continue;
+            }
+            int pivotRow = k;
+            run(new Range(n - k - 1, 1, n - k - 1) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                void compute(int from, int to) {
+                    eliminate(lu, n, pivotRow, pivot, pivotRow + 1 + from, pivotRow + 1 + to);
+                }
+            });
+        }
+        return new LUDecomposition(n, lu, pivots, sign, n * Math.ulp(largest));
+    }
+
+    /**
+     * Eliminates the column of the pivot from the rows below it.
+     *
+     * @param lu elements of the decomposition
+     * @param n size of the matrix
+     * @param k row and column of the pivot
+     * @param pivot the pivot
+     * @param from first row (inclusive)
+     * @param to last row (exclusive)
+     */
+    private static void eliminate(double[] lu, int n, int k, double pivot, int from, int to) {
+        int pivotRow = k * n;
+        for (int i = from; i < to; i++) {
+            int row = i * n;
+            double factor = lu[row + k] / pivot;
+            lu[row + k] = factor;
+            for (int j = k + 1; j < n; j++) {
+                lu[row + j] -= factor * lu[pivotRow + j];
+            }
+        }
+    }
+
+    /**
+     * Swaps two rows.
+     *
+     * @param a elements of a matrix
+     * @param n number of columns
+     * @param i first row
+     * @param j second row
+     */
+    private static void swapRows(double[] a, int n, int i, int j) {
+        for (int c = 0, ri = i * n, rj = j * n; c < n; c++) {
+            double t = a[ri + c];
+            a[ri + c] = a[rj + c];
+            a[rj + c] = t;
+        }
+    }
+
+    /**
+     * @param a a square matrix
+     * @return inverse of the matrix
+     * @throws IllegalArgumentException if the matrix is not square
+     * @throws ArithmeticException if the matrix is singular, see
+     * {@link LUDecomposition#isSingular()}
+     */
+    public Matrix inverse(Matrix a) {
+        LUDecomposition decomposition = decompose(a);
+        if (decomposition.isSingular()) {
+            throw new ArithmeticException("Matrix is singular.");
+        }
+        int n = a.getRows();
+        double[] lu = decomposition.elements();
+        int[] pivots = decomposition.pivots();
+        double[] out = Matrix.identity(n).elements();
+        for (int k = 0; k < n; k++) {
+            if (pivots[k] != k) {
+                swapRows(out, n, pivots[k], k);
+            }
+        }
+        run(new Range(n, ROW_BLOCK, (long) n * n) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            void compute(int from, int to) {
+                substitute(lu, out, n, from, to);
+            }
+        });
+        return new Matrix(n, n, out);
+    }
+
+    /**
+     * Solves <code>LUX = B</code> for a band of columns of <code>X</code> by forward and back
+     * substitution, in place of <code>B</code>.
+     *
+     * @param lu elements of the decomposition
+     * @param b elements of the right side, replaced by the solution
+     * @param n size of the matrices
+     * @param from first column of the band (inclusive)
+     * @param to last column of the band (exclusive)
+     */
+    private static void substitute(double[] lu, double[] b, int n, int from, int to) {
+        for (int i = 1; i < n; i++) {
+            int row = i * n;
+            for (int k = 0; k < i; k++) {
+                double l = lu[row + k];
+                int rk = k * n;
+                for (int j = from; j < to; j++) {
+                    b[row + j] -= l * b[rk + j];
+                }
+            }
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            int row = i * n;
+            for (int k = i + 1; k < n; k++) {
+                double u = lu[row + k];
+                int rk = k * n;
+                for (int j = from; j < to; j++) {
+                    b[row + j] -= u * b[rk + j];
+                }
+            }
+            double diagonal = lu[row + i];
+            for (int j = from; j < to; j++) {
+                b[row + j] /= diagonal;
+            }
+        }
+    }
+
+    /**
+     * Raises a square matrix to an integer power by repeated squaring, so it takes about
+     * <code>2 log2 |n|</code> multiplications. A negative power is a power of the inverse.
+     *
+     * @param a a square matrix
+     * @param n the exponent
+     * @return the power
+     * @throws IllegalArgumentException if the matrix is not square
+     * @throws ArithmeticException if the power is negative and the matrix is singular
+     */
+    public Matrix power(Matrix a, long n) {
+        checkSquare(a);
+        Matrix base = (n < 0) ? inverse(a) : a;
+        Matrix result = null;
+        for (long e = Math.abs(n); e != 0; e >>>= 1) {
+            if ((e & 1) != 0) {
+                result = (result == null) ? base : multiply(result, base);
+            }
+            if (e >>> 1 != 0) {
+                base = multiply(base, base);
+            }
+        }
+        return (result == null) ? Matrix.identity(a.getRows()) : result;
+    }
+
+    /**
+     * Runs the range on the calling thread if it is small and in the pool otherwise.
+     *
+     * @param range the range
+     */
+    private void run(Range range) {
+        if (range.length * range.cost <= THRESHOLD) {
+            range.compute(0, range.length);
+        } else {
+            pool.invoke(range);
+        }
+    }
+
+    /**
+     * @param a a matrix
+     * @throws IllegalArgumentException if the matrix is not square
+     */
+    private static void checkSquare(Matrix a) {
+        if (!a.isSquare()) {
+            throw new IllegalArgumentException("Matrix is not square: " + size(a) + ".");
+        }
+    }
+
+    /**
+     * @param a a matrix
+     * @param b another matrix
+     * @throws IllegalArgumentException if the matrices are not of the same size
+     */
+    private static void checkSameSize(Matrix a, Matrix b) {
+        if (a.getRows() != b.getRows() || a.getColumns() != b.getColumns()) {
+            throw new IllegalArgumentException("Sizes differ: " + size(a) + " and " + size(b)
+                + ".");
+        }
+    }
+
+    /**
+     * @param a a matrix
+     * @return size of the matrix, e.g. <code>3x2</code>
+     */
+    static String size(Matrix a) {
+        return a.getRows() + "x" + a.getColumns();
+    }
+
+    /**
+     * Range of rows or columns which is halved until a half has at most {@link #THRESHOLD}
+     * multiply-adds, or the given minimal number of rows or columns.
+     */
+    private abstract static class Range extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /** Number of rows or columns. */
+        private final int length;
+        /** Minimal number of rows or columns of a part. */
+        private final int grain;
+        /** Multiply-adds per row or column. */
+        private final long cost;
+
+        /**
+         * Creates a range covering <code>[0, length)</code>.
+         *
+         * @param length number of rows or columns
+         * @param grain minimal number of rows or columns of a part
+         * @param cost multiply-adds per row or column
+         */
+        Range(int length, int grain, long cost) {
+            this.length = length;
+            this.grain = grain;
+            this.cost = Math.max(cost, 1);
+        }
+
+        @Override
+        protected final void compute() {
+            split(this, 0, length);
+        }
+
+        /**
+         * Processes the range, forking the upper halves while it is too long.
+         *
+         * @param root range with the loop
+         * @param lo first index (inclusive)
+         * @param hi last index (exclusive)
+         */
+        private static void split(Range root, int lo, int hi) {
+            if (hi - lo <= root.grain || (hi - lo) * root.cost <= THRESHOLD) {
+                root.compute(lo, hi);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            RecursiveAction upper = new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    split(root, mid, hi);
+                }
+            };
+            upper.fork();
+            split(root, lo, mid);
+            upper.join();
+        }
+
+        /**
+         * Processes rows or columns from the given range.
+         *
+         * @param from first index (inclusive)
+         * @param to last index (exclusive)
+         */
+        abstract void compute(int from, int to);
+    }
+}
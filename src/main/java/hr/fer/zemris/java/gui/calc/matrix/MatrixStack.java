@@ -0,0 +1,276 @@
+package hr.fer.zemris.java.gui.calc.matrix;
+
+import hr.fer.zemris.java.gui.calc.engine.BinaryOperation;
+import hr.fer.zemris.java.gui.calc.engine.UnaryOperation;
+import java.util.Arrays;
+import java.util.EmptyStackException;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Push/pop stack of matrices, used by the calculator in matrix mode. A number is pushed as a 1x1
+ * matrix, and numbers on the top are packed into a matrix by {@link #pack(int, int)}.<p>
+ *
+ * Operators work on the top of the stack: <code>+</code>, <code>-</code> and <code>*</code>
+ * replace the two top matrices by their sum, difference or product (a 1x1 matrix multiplies as a
+ * scalar), <code>x^n</code> raises the top matrix to the power given by the current value and
+ * <code>1/x</code> inverts it. If an operation fails, the stack is not changed. This class is not
+ * synchronized.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class MatrixStack {
+
+    /** Initial capacity. */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** Operations on the matrices. */
+    private final MatrixOperations operations;
+    /** Matrices on the stack, the top is at <code>size - 1</code>. */
+    private Matrix[] matrices = new Matrix[DEFAULT_CAPACITY];
+    /** Number of matrices on the stack. */
+    private int size;
+
+    /**
+     * Creates a new empty {@link MatrixStack} whose operations use the common pool.
+     */
+    public MatrixStack() {
+        this(new MatrixOperations());
+    }
+
+    /**
+     * Creates a new empty {@link MatrixStack}.
+     *
+     * @param operations operations on the matrices
+     */
+    public MatrixStack(MatrixOperations operations) {
+        this.operations = operations;
+    }
+
+    /**
+     * @param operator a binary operator
+     * @return <code>true</code> if the operator works on matrices
+     */
+    public static boolean supports(DoubleBinaryOperator operator) {
+        if (!(operator instanceof BinaryOperation)) {
+            return false;
+        }
+        BinaryOperation operation = (BinaryOperation) operator;
+        char arithmetic = operation.getArithmetic();
+        return arithmetic == '+' || arithmetic == '-' || arithmetic == '*'
+            || operation.getLabel().equals("x^n");
+    }
+
+    /**
+     * @param operator a unary operator
+     * @return <code>true</code> if the operator works on matrices
+     */
+    public static boolean supports(DoubleUnaryOperator operator) {
+        return operator instanceof UnaryOperation
+            && ((UnaryOperation) operator).getLabel().equals("1/x");
+    }
+
+    /**
+     * Pushes the matrix onto the stack.
+     *
+     * @param matrix matrix to push
+     */
+    public void push(Matrix matrix) {
+        if (size == matrices.length) {
+            matrices = Arrays.copyOf(matrices, 2 * size);
+        }
+        matrices[size++] = matrix;
+    }
+
+    /**
+     * Pushes a number onto the stack as a 1x1 matrix.
+     *
+     * @param value number to push
+     */
+    public void push(double value) {
+        push(new Matrix(1, 1, new double[] {value}));
+    }
+
+    /**
+     * Removes the matrix from the top of the stack.
+     *
+     * @return removed matrix
+     * @throws EmptyStackException if the stack is empty
+     */
+    public Matrix pop() {
+        Matrix top = peek();
+        matrices[--size] = null;
+        return top;
+    }
+
+    /**
+     * Returns the matrix from the top of the stack without removing it.
+     *
+     * @return matrix on the top
+     * @throws EmptyStackException if the stack is empty
+     */
+    public Matrix peek() {
+        return peek(0);
+    }
+
+    /**
+     * Returns the matrix at the given depth without removing it. Top of the stack is at depth 0.
+     *
+     * @param depth depth of the matrix
+     * @return matrix at the depth
+     * @throws EmptyStackException if there are not enough matrices on the stack
+     */
+    public Matrix peek(int depth) {
+        if (depth < 0 || depth >= size) {
+            throw new EmptyStackException();
+        }
+        return matrices[size - 1 - depth];
+    }
+
+    /**
+     * Replaces the numbers (1x1 matrices) on the top of the stack by a matrix with those elements.
+     * The deepest of them is the first element and the top is the last one, so the elements are
+     * pushed row after row.
+     *
+     * @param rows number of rows
+     * @param columns number of columns
+     * @throws IllegalArgumentException if a dimension is not positive or a matrix on the top is
+     * not a number
+     * @throws EmptyStackException if there are not enough numbers on the stack
+     */
+    public void pack(int rows, int columns) {
+        if (rows <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("Invalid size: " + rows + "x" + columns + ".");
+        }
+        long count = (long) rows * columns;
+        if (count > size) {
+            throw new EmptyStackException();
+        }
+        int n = (int) count;
+        double[] elements = new double[n];
+        for (int i = 0; i < n; i++) {
+            Matrix m = matrices[size - n + i];
+            if (m.getRows() != 1 || m.getColumns() != 1) {
+                throw new IllegalArgumentException("Not a number: " + MatrixOperations.size(m)
+                    + ".");
+            }
+            elements[i] = m.elements()[0];
+        }
+        Arrays.fill(matrices, size - n, size, null);
+        size -= n;
+        push(new Matrix(rows, columns, elements));
+    }
+
+    /**
+     * Replaces the matrix on the top of the stack by its elements, as numbers, in the order in
+     * which {@link #pack(int, int)} takes them.
+     *
+     * @throws EmptyStackException if the stack is empty
+     */
+    public void unpack() {
+        Matrix top = pop();
+        for (double element : top.elements()) {
+            push(element);
+        }
+    }
+
+    /**
+     * Applies a binary operator to the two matrices on the top, or for <code>x^n</code> to the
+     * matrix on the top and the argument.
+     *
+     * @param operator the operator, see {@link #supports(DoubleBinaryOperator)}
+     * @param argument exponent of <code>x^n</code>
+     * @throws IllegalArgumentException if the operator does not work on matrices, their sizes do
+     * not match or the exponent is not an integer
+     * @throws ArithmeticException if a negative power of a singular matrix is asked for
+     * @throws EmptyStackException if there are not enough matrices on the stack
+     */
+    public void apply(DoubleBinaryOperator operator, double argument) {
+        if (!supports(operator)) {
+            throw new IllegalArgumentException("Not a matrix operator: " + operator + ".");
+        }
+        BinaryOperation operation = (BinaryOperation) operator;
+        if (operation.getArithmetic() == 0) {
+            if (argument != Math.rint(argument) || Math.abs(argument) > Long.MAX_VALUE) {
+                throw new IllegalArgumentException("Exponent is not an integer: " + argument
+                    + ".");
+            }
+            Matrix result = operations.power(peek(), (long) argument);
+            pop();
+            push(result);
+            return;
+        }
+        Matrix b = peek(0);
+        Matrix a = peek(1);
+        Matrix result;
+        switch (operation.getArithmetic()) {
+            case '+':
+                result = operations.add(a, b);
+                break;
+            case '-':
+                result = operations.subtract(a, b);
+                break;
+            default:
+                if (isNumber(a) && !isNumber(b)) {
+                    result = operations.scale(b, a.elements()[0]);
+                } else if (isNumber(b)) {
+                    result = operations.scale(a, b.elements()[0]);
+                } else {
+                    result = operations.multiply(a, b);
+                }
+                break;
+        }
+        pop();
+        pop();
+        push(result);
+    }
+
+    /**
+     * Applies a unary operator to the matrix on the top.
+     *
+     * @param operator the operator, see {@link #supports(DoubleUnaryOperator)}
+     * @throws IllegalArgumentException if the operator does not work on matrices or the matrix is
+     * not square
+     * @throws ArithmeticException if the matrix is singular
+     * @throws EmptyStackException if the stack is empty
+     */
+    public void apply(DoubleUnaryOperator operator) {
+        if (!supports(operator)) {
+            throw new IllegalArgumentException("Not a matrix operator: " + operator + ".");
+        }
+        Matrix result = operations.inverse(peek());
+        pop();
+        push(result);
+    }
+
+    /**
+     * @param m a matrix
+     * @return <code>true</code> if the matrix is 1x1
+     */
+    private static boolean isNumber(Matrix m) {
+        return m.getRows() == 1 && m.getColumns() == 1;
+    }
+
+    /**
+     * Removes all matrices from the stack.
+     */
+    public void clear() {
+        Arrays.fill(matrices, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * @return <code>true</code> if the stack is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return number of matrices on the stack
+     */
+    public int size() {
+        return size;
+    }
+}
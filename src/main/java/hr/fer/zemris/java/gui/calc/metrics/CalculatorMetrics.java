@@ -0,0 +1,234 @@
+package hr.fer.zemris.java.gui.calc.metrics;
+
+import hr.fer.zemris.java.gui.calc.engine.EngineError;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters of what the calculator does: invocations of every button, latency of a button press
+ * (the operation and the display update; for typed keys, of a batch of keys applied with one
+ * display update), the stack high-water mark, errors and sessions.<p>
+ *
+ * Recording is lock-free and cheap enough to stay on all the time. Counters are
+ * {@link LongAdder}s, which are striped, so threads recording at the same time do not contend.
+ * The counter of a label is looked up once (see {@link #counter(String)}) and then incremented
+ * directly. The high-water mark is written only when it grows. Latencies are sampled by the
+ * callers, see {@link #LATENCY_SAMPLING}.<p>
+ *
+ * The shared instance returned by {@link #get()} is registered in the platform MBean server
+ * under {@link #OBJECT_NAME} by {@link #register()}. Registration loads JMX, so the calculator
+ * does it only after its window is shown.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class CalculatorMetrics implements CalculatorMetricsMXBean {
+
+    /** Name under which the shared instance is registered. */
+    public static final String OBJECT_NAME = "hr.fer.zemris.java.gui.calc:type=CalculatorMetrics";
+
+    /** Latency is measured on one of this many clicks of a button. */
+    public static final int LATENCY_SAMPLING = 8;
+
+    /** The shared instance. */
+    private static final CalculatorMetrics INSTANCE = new CalculatorMetrics();
+    /** It is true if the shared instance was registered. */
+    private static boolean registered;
+
+    /** Invocation counters by label. */
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    /** Latency of button presses. */
+    private final LatencyHistogram latency = new LatencyHistogram();
+    /** Largest stack depth seen. */
+    private final AtomicInteger stackHighWaterMark = new AtomicInteger();
+    /** Error counters by ordinal of the error. */
+    private final LongAdder[] errors = new LongAdder[EngineError.values().length];
+    /** Number of sessions opened so far. */
+    private final LongAdder sessionsOpened = new LongAdder();
+    /** Number of sessions closed so far. */
+    private final LongAdder sessionsClosed = new LongAdder();
+
+    /**
+     * Creates new unregistered {@link CalculatorMetrics}.
+     */
+    public CalculatorMetrics() {
+        for (int i = 0; i < errors.length; i++) {
+            errors[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns the shared instance. It records metrics even if it is not registered.
+     *
+     * @return the shared instance
+     */
+    public static CalculatorMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the shared instance in the platform MBean server, unless it is already
+     * registered. A failure is only reported, the metrics are still recorded.
+     */
+    public static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            System.err.println("Calculator metrics are not registered: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the invocation counter of the label. The counter should be kept and incremented
+     * directly, so the label is looked up only once.
+     *
+     * @param label label of a button or an operator
+     * @return the counter, created if there was none
+     */
+    public LongAdder counter(String label) {
+        return counters.computeIfAbsent(label, l -> new LongAdder());
+    }
+
+    /**
+     * Records the latency of an invocation.
+     *
+     * @param nanos latency in nanoseconds
+     */
+    public void latency(long nanos) {
+        latency.record(nanos);
+    }
+
+    /**
+     * Records the current depth of a stack.
+     *
+     * @param depth the depth
+     */
+    public void stackDepth(int depth) {
+        int mark = stackHighWaterMark.get();
+        while (depth > mark && !stackHighWaterMark.compareAndSet(mark, depth)) {
+            mark = stackHighWaterMark.get();
+        }
+    }
+
+    /**
+     * Records an error.
+     *
+     * @param error the error
+     */
+    public void error(EngineError error) {
+        errors[error.ordinal()].increment();
+    }
+
+    /**
+     * Records that a session (a window or a connection) was opened.
+     */
+    public void sessionOpened() {
+        sessionsOpened.increment();
+    }
+
+    /**
+     * Records that a session was closed.
+     */
+    public void sessionClosed() {
+        sessionsClosed.increment();
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        counters.forEach((label, counter) -> counts.put(label, counter.sum()));
+        return counts;
+    }
+
+    @Override
+    public long getOperations() {
+        long sum = 0;
+        for (LongAdder counter : counters.values()) {
+            sum += counter.sum();
+        }
+        return sum;
+    }
+
+    /**
+     * @return histogram of the latencies of button presses
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public long[] getLatencyHistogram() {
+        return latency.getBuckets();
+    }
+
+    @Override
+    public double getMeanLatency() {
+        return latency.getMean();
+    }
+
+    @Override
+    public long getMedianLatency() {
+        return latency.getPercentile(0.5);
+    }
+
+    @Override
+    public long getLatency99() {
+        return latency.getPercentile(0.99);
+    }
+
+    @Override
+    public long getMaxLatency() {
+        return latency.getMax();
+    }
+
+    @Override
+    public int getStackHighWaterMark() {
+        return stackHighWaterMark.get();
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (EngineError error : EngineError.values()) {
+            if (error != EngineError.NONE) {
+                counts.put(error.name(), errors[error.ordinal()].sum());
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public long getSessionsOpened() {
+        return sessionsOpened.sum();
+    }
+
+    @Override
+    public long getActiveSessions() {
+        return sessionsOpened.sum() - sessionsClosed.sum();
+    }
+
+    @Override
+    public void reset() {
+        counters.values().forEach(LongAdder::reset);
+        latency.reset();
+        stackHighWaterMark.set(0);
+        for (LongAdder error : errors) {
+            error.reset();
+        }
+        long active = getActiveSessions();
+        sessionsClosed.reset();
+        sessionsOpened.reset();
+        sessionsOpened.add(active);
+    }
+}
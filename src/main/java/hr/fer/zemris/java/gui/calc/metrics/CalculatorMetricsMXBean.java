@@ -0,0 +1,75 @@
+package hr.fer.zemris.java.gui.calc.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link CalculatorMetrics}. It is an MXBean, so every attribute is
+ * shown by generic JMX clients such as JConsole or VisualVM. Latencies are in nanoseconds and
+ * include the display update; clicks are sampled (see {@link CalculatorMetrics#LATENCY_SAMPLING})
+ * and a batch of typed keys counts as one press. Counts are exact.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public interface CalculatorMetricsMXBean {
+
+    /**
+     * @return number of invocations of every button, by its label
+     */
+    Map<String, Long> getOperationCounts();
+
+    /**
+     * @return total number of button invocations
+     */
+    long getOperations();
+
+    /**
+     * @return counts of the latency buckets, see {@link LatencyHistogram}
+     */
+    long[] getLatencyHistogram();
+
+    /**
+     * @return mean latency of a button press
+     */
+    double getMeanLatency();
+
+    /**
+     * @return median latency of a button press, rounded up to a power of two
+     */
+    long getMedianLatency();
+
+    /**
+     * @return 99th percentile of the latency of a button press, rounded up to a power of two
+     */
+    long getLatency99();
+
+    /**
+     * @return largest latency of a button press
+     */
+    long getMaxLatency();
+
+    /**
+     * @return largest stack depth seen
+     */
+    int getStackHighWaterMark();
+
+    /**
+     * @return number of errors, by their name
+     */
+    Map<String, Long> getErrorCounts();
+
+    /**
+     * @return number of sessions opened so far
+     */
+    long getSessionsOpened();
+
+    /**
+     * @return number of sessions which are open now
+     */
+    long getActiveSessions();
+
+    /**
+     * Resets the counters, the histogram and the high-water mark. Active sessions are kept.
+     */
+    void reset();
+}
@@ -0,0 +1,135 @@
+package hr.fer.zemris.java.gui.calc.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies with power-of-two buckets. Bucket 0 counts zeros and bucket
+ * <code>i</code> counts values from <code>2^(i-1)</code> to <code>2^i - 1</code>, so a value is
+ * recorded by counting its leading zeros and incrementing one striped counter. Recording never
+ * locks and threads recording at the same time do not contend for the same cache line.<p>
+ *
+ * Percentiles are exact to a factor of two: the upper bound of the bucket is returned (but never
+ * more than the largest recorded value). Reading while others record gives a consistent enough
+ * view for monitoring, not an atomic snapshot.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class LatencyHistogram {
+
+    /** Number of buckets, enough for every non-negative long. */
+    public static final int BUCKETS = 64;
+
+    /** Counts of the buckets. */
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    /** Sum of the recorded values. */
+    private final LongAdder sum = new LongAdder();
+    /** Largest recorded value. */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Creates a new empty {@link LatencyHistogram}.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a value. Negative values (a clock going back) are recorded as zero.
+     *
+     * @param value value to record, usually in nanoseconds
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets[BUCKETS - Long.numberOfLeadingZeros(value)].increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return mean of the recorded values, 0 if there are none
+     */
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * @return largest recorded value, 0 if there are none
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the counts of all buckets.
+     *
+     * @return array of {@link #BUCKETS} counts
+     */
+    public long[] getBuckets() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the value below which the given fraction of the recorded values is, rounded up to
+     * the upper bound of its bucket.
+     *
+     * @param fraction fraction from interval [0, 1], e.g. 0.99
+     * @return the percentile, 0 if nothing was recorded
+     * @throws IllegalArgumentException if the fraction is not in [0, 1]
+     */
+    public long getPercentile(double fraction) {
+        if (!(fraction >= 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("Invalid fraction: " + fraction + ".");
+        }
+        long[] counts = getBuckets();
+        long count = 0;
+        for (long c : counts) {
+            count += c;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long upper = i == 0 ? 0 : (i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1);
+                return Math.min(upper, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Forgets all recorded values.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        sum.reset();
+        max.reset();
+    }
+}
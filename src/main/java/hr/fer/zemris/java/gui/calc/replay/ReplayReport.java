@@ -0,0 +1,66 @@
+package hr.fer.zemris.java.gui.calc.replay;
+
+/**
+ * Summary of a replay run.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class ReplayReport {
+
+    /** Number of replayed sessions. */
+    private final int sessions;
+    /** Number of sessions which ended with an error. */
+    private final int errors;
+    /** Duration of the run. */
+    private final long elapsedNanos;
+
+    /**
+     * Creates a new {@link ReplayReport}.
+     *
+     * @param sessions number of replayed sessions
+     * @param errors number of sessions which ended with an error
+     * @param elapsedNanos duration of the run in nanoseconds
+     */
+    ReplayReport(int sessions, int errors, long elapsedNanos) {
+        this.sessions = sessions;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the sessions
+     */
+    public int getSessions() {
+        return sessions;
+    }
+
+    /**
+     * @return the errors
+     */
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the elapsedNanos
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the throughput of the run.
+     *
+     * @return replayed sessions per second
+     */
+    public double getSessionsPerSecond() {
+        return elapsedNanos == 0 ? 0 : sessions * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d sessions (%d with errors) in %.3f ms, %.0f sessions/s", sessions,
+            errors, elapsedNanos / 1e6, getSessionsPerSecond());
+    }
+}
@@ -0,0 +1,140 @@
+package hr.fer.zemris.java.gui.calc.replay;
+
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.EngineError;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Replays recorded keystroke sessions on headless {@link CalculatorEngine}s.<p>
+ *
+ * Sessions are scripts of whitespace separated key labels (see {@link Keypad#compile(String)}),
+ * for example <code>"1 2 + 3 0 = push"</code>. Every session starts from a restarted engine.
+ * Sessions are split into chunks which are replayed on a {@link ForkJoinPool}. Every worker thread
+ * has its own engine, so workers never share any state. Results are delivered in input order.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class SessionReplayer {
+
+    /** Minimal number of sessions replayed by one task. */
+    private static final int MIN_CHUNK = 64;
+    /** Number of chunks per worker, so that faster workers can take over work. */
+    private static final int CHUNKS_PER_WORKER = 8;
+
+    /** Pool which runs the replay. */
+    private final ForkJoinPool pool;
+    /** Keypad used for compiling and pressing keys. */
+    private final Keypad keypad;
+    /** Engine of each worker thread. */
+    private final ThreadLocal<CalculatorEngine> engines =
+        ThreadLocal.withInitial(CalculatorEngine::new);
+
+    /**
+     * Creates a new {@link SessionReplayer} which uses common pool and default keypad.
+     */
+    public SessionReplayer() {
+        this(ForkJoinPool.commonPool(), Keypad.DEFAULT);
+    }
+
+    /**
+     * Creates a new {@link SessionReplayer}.
+     *
+     * @param pool pool which runs the replay
+     * @param keypad keypad used for compiling and pressing keys
+     */
+    public SessionReplayer(ForkJoinPool pool, Keypad keypad) {
+        this.pool = pool;
+        this.keypad = keypad;
+    }
+
+    /**
+     * Replays all sessions and collects their results.
+     *
+     * @param scripts keystroke scripts
+     * @param results list to which results are added in input order
+     * @return summary of the run
+     */
+    public ReplayReport replay(List<String> scripts, List<SessionResult> results) {
+        return replay(scripts, (Consumer<SessionResult>) results::add);
+    }
+
+    /**
+     * Replays all sessions. Results are given to the consumer in input order as soon as all
+     * sessions before them are done. Consumer is invoked from the calling thread.
+     *
+     * @param scripts keystroke scripts
+     * @param consumer consumer of results
+     * @return summary of the run
+     */
+    public ReplayReport replay(List<String> scripts, Consumer<? super SessionResult> consumer) {
+        long start = System.nanoTime();
+
+        final int n = scripts.size();
+        final int chunk = Math.max(MIN_CHUNK, n / (pool.getParallelism() * CHUNKS_PER_WORKER));
+
+        List<ForkJoinTask<SessionResult[]>> tasks = new ArrayList<>();
+        for (int from = 0; from < n; from += chunk) {
+            final int lo = from;
+            final int hi = Math.min(n, from + chunk);
+            tasks.add(pool.submit(() -> replayChunk(scripts, lo, hi)));
+        }
+
+        int errors = 0;
+        for (ForkJoinTask<SessionResult[]> task : tasks) {
+            for (SessionResult result : task.join()) {
+                if (result.isError()) {
+                    errors++;
+                }
+                consumer.accept(result);
+            }
+        }
+
+        return new ReplayReport(n, errors, System.nanoTime() - start);
+    }
+
+    /**
+     * Replays sessions from the given interval on the engine of the current thread.
+     *
+     * @param scripts keystroke scripts
+     * @param from index of the first session (inclusive)
+     * @param to index of the last session (exclusive)
+     * @return results of the sessions
+     */
+    private SessionResult[] replayChunk(List<String> scripts, int from, int to) {
+        CalculatorEngine engine = engines.get();
+        SessionResult[] results = new SessionResult[to - from];
+        for (int i = from; i < to; i++) {
+            results[i - from] = replaySession(engine, i, scripts.get(i));
+        }
+        return results;
+    }
+
+    /**
+     * Replays one session.
+     *
+     * @param engine engine to use
+     * @param index index of the session
+     * @param script keystroke script
+     * @return result of the session
+     */
+    private SessionResult replaySession(CalculatorEngine engine, int index, String script) {
+        engine.restart();
+        try {
+            EngineError error = EngineError.NONE;
+            for (int code : keypad.compile(script)) {
+                if (!keypad.press(engine, code) && error == EngineError.NONE) {
+                    error = engine.getError();
+                }
+            }
+            return new SessionResult(index, engine.getCurrentValue(), error, null);
+        } catch (RuntimeException ex) {
+            return new SessionResult(index, Double.NaN, EngineError.NONE, ex.getMessage());
+        }
+    }
+}
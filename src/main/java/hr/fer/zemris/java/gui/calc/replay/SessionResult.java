@@ -0,0 +1,91 @@
+package hr.fer.zemris.java.gui.calc.replay;
+
+import hr.fer.zemris.java.gui.calc.engine.EngineError;
+
+/**
+ * Outcome of a single replayed keystroke session.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class SessionResult {
+
+    /** Index of the session in the input. */
+    private final int index;
+    /** Final value of the calculator. */
+    private final double value;
+    /** First error reported by the engine. */
+    private final EngineError error;
+    /** Reason why the session could not be replayed, <code>null</code> if it was replayed. */
+    private final String failure;
+
+    /**
+     * Creates a new {@link SessionResult}.
+     *
+     * @param index index of the session
+     * @param value final value of the calculator
+     * @param error first error reported by the engine
+     * @param failure reason why the session could not be replayed, <code>null</code> if none
+     */
+    SessionResult(int index, double value, EngineError error, String failure) {
+        this.index = index;
+        this.value = value;
+        this.error = error;
+        this.failure = failure;
+    }
+
+    /**
+     * @return the index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the value
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Returns text that the calculator display would show at the end of the session.
+     *
+     * @return final display text
+     */
+    public String getDisplay() {
+        return String.valueOf(value);
+    }
+
+    /**
+     * @return the error
+     */
+    public EngineError getError() {
+        return error;
+    }
+
+    /**
+     * @return the failure, <code>null</code> if the session was replayed
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns <code>true</code> if the session could not be replayed or the engine reported an
+     * error.
+     *
+     * @return <code>true</code> if something went wrong
+     */
+    public boolean isError() {
+        return failure != null || error != EngineError.NONE;
+    }
+
+    @Override
+    public String toString() {
+        if (failure != null) {
+            return index + ": " + failure;
+        }
+        return index + ": " + getDisplay() + (error == EngineError.NONE ? "" : " (" + error + ")");
+    }
+}
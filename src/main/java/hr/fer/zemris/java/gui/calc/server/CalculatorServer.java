@@ -0,0 +1,506 @@
+package hr.fer.zemris.java.gui.calc.server;
+
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import hr.fer.zemris.java.gui.calc.engine.Statistics;
+import hr.fer.zemris.java.gui.calc.expression.ExpressionCompiler;
+import hr.fer.zemris.java.gui.calc.metrics.CalculatorMetrics;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Calculator service on a loopback TCP socket. Every connection gets its own {@link
+ * CalculatorEngine}.<p>
+ *
+ * <b>Protocol.</b> Requests are lines of UTF-8 text, one command per line:
+ * <ul>
+ * <li><code>keys &lt;labels&gt;</code> presses keys with the given {@link Keypad} labels, e.g.
+ * <code>keys 2 x^n 1 0 =</code></li>
+ * <li><code>expr &lt;expression&gt;</code> evaluates an expression (see {@link
+ * ExpressionCompiler}) with <code>x</code> set to the current value, and makes the result the
+ * current value</li>
+ * <li><code>value</code> returns the current value</li>
+ * <li><code>stats &lt;name&gt;</code> returns a statistic of the values on the stack without
+ * changing the current value: <code>count</code>, <code>sum</code>, <code>mean</code>,
+ * <code>variance</code>, <code>stddev</code>, <code>min</code>, <code>max</code> or
+ * <code>sumsq</code></li>
+ * <li><code>quit</code> closes the connection</li>
+ * </ul>
+ * Every command gets one response line: <code>ok &lt;value&gt;</code>, <code>error
+ * &lt;reason&gt;</code> or <code>bye</code>. Commands can be pipelined; responses come in the same
+ * order, and responses to all commands which arrived together are sent with one write.<p>
+ *
+ * <b>Design.</b> One thread runs a {@link Selector} over non-blocking channels. Read and write
+ * buffers are shared by all connections; a connection keeps only its engine, an unfinished
+ * request line and an unsent response, so idle connections are cheap. While a response cannot be
+ * sent, the connection is not read (back pressure).
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class CalculatorServer implements Closeable {
+
+    /** Maximal length of a request line in bytes. */
+    public static final int MAX_LINE = 8192;
+    /** Number of compiled expressions kept. */
+    private static final int EXPRESSION_CACHE = 256;
+    /** Size of the shared buffers. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Keypad used for key commands. */
+    private final Keypad keypad;
+    /** Compiler used for expression commands. */
+    private final ExpressionCompiler compiler;
+    /** Recently compiled expressions. */
+    private final Map<String, DoubleUnaryOperator> expressions =
+        new LinkedHashMap<String, DoubleUnaryOperator>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, DoubleUnaryOperator> eldest) {
+                return size() > EXPRESSION_CACHE;
+            }
+        };
+
+    /** Selector of all channels. */
+    private final Selector selector;
+    /** Listening channel. */
+    private final ServerSocketChannel server;
+    /** Shared read buffer. */
+    private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /** Shared write buffer. */
+    private ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+    /** Shared buffer for the request line. */
+    private byte[] line = new byte[256];
+    /** Thread which runs the selector. */
+    private final Thread thread;
+    /** Number of open sessions. */
+    private volatile int sessions;
+
+    /**
+     * Creates a new {@link CalculatorServer} on the given loopback port, with default keypad and
+     * compiler. The server does not accept connections until {@link #start()} is called.
+     *
+     * @param port port, <code>0</code> for any free port
+     * @throws IOException if the socket cannot be opened
+     */
+    public CalculatorServer(int port) throws IOException {
+        this(port, Keypad.DEFAULT, ExpressionCompiler.DEFAULT);
+    }
+
+    /**
+     * Creates a new {@link CalculatorServer} on the given loopback port. The server does not
+     * accept connections until {@link #start()} is called.
+     *
+     * @param port port, <code>0</code> for any free port
+     * @param keypad keypad used for key commands
+     * @param compiler compiler used for expression commands
+     * @throws IOException if the socket cannot be opened
+     */
+    public CalculatorServer(int port, Keypad keypad, ExpressionCompiler compiler)
+        throws IOException {
+        this.keypad = keypad;
+        this.compiler = compiler;
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this::run, "calculator-server-" + getPort());
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts serving in a background thread.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * @return port the server listens on
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * @return number of open sessions
+     */
+    public int getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Stops the server and closes all connections.
+     */
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Session) {
+                CalculatorMetrics.get().sessionClosed();
+            }
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    /**
+     * Selector loop. A connection which fails is closed, the others are served on.
+     */
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                return;
+            }
+            for (SelectionKey key : selector.selectedKeys()) {
+                try {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        if (key.isWritable()) {
+                            flush(key);
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read(key);
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    close(key);
+                }
+            }
+            selector.selectedKeys().clear();
+        }
+    }
+
+    /**
+     * Accepts all pending connections.
+     *
+     * @throws IOException if accepting fails
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new Session());
+            sessions++;
+            CalculatorMetrics.get().sessionOpened();
+        }
+    }
+
+    /**
+     * Closes the connection of the key.
+     *
+     * @param key key of the connection
+     */
+    private void close(SelectionKey key) {
+        if (key.attachment() instanceof Session) {
+            sessions--;
+            CalculatorMetrics.get().sessionClosed();
+            key.attach(null);
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignorable) {
+            //closing anyway
+        }
+    }
+
+    /**
+     * Reads available requests and answers all complete lines.
+     *
+     * @param key key of the connection
+     * @throws IOException if reading or writing fails
+     */
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Session session = (Session) key.attachment();
+        out.clear();
+        boolean quit = false;
+
+        int n = 0;
+        while (!quit) {
+            in.clear();
+            n = channel.read(in);
+            if (n <= 0) {
+                break;
+            }
+            in.flip();
+            while (in.hasRemaining()) {
+                byte b = in.get();
+                if (b != '\n') {
+                    if (!session.append(b)) {
+                        respond("error Line is too long.");
+                        quit = true;
+                        break;
+                    }
+                    continue;
+                }
+                byte[] buffer = session.buffer();
+                int length = session.length;
+                if (length > 0 && buffer[length - 1] == '\r') {
+                    length--;
+                }
+                String request = new String(buffer, 0, length, StandardCharsets.UTF_8);
+                session.length = 0;
+                if (!execute(session, request)) {
+                    quit = true;
+                    break;
+                }
+            }
+            if (n < in.capacity()) {
+                //nothing more to read now
+                break;
+            }
+        }
+        session.compact();
+
+        out.flip();
+        if (out.hasRemaining()) {
+            channel.write(out);
+            if (out.hasRemaining()) {
+                ByteBuffer pending = ByteBuffer.allocate(out.remaining());
+                pending.put(out);
+                pending.flip();
+                session.pending = pending;
+                session.closing = quit;
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+        if (quit || n < 0) {
+            close(key);
+        }
+    }
+
+    /**
+     * Sends the unsent response of the connection.
+     *
+     * @param key key of the connection
+     * @throws IOException if writing fails
+     */
+    private void flush(SelectionKey key) throws IOException {
+        Session session = (Session) key.attachment();
+        ((SocketChannel) key.channel()).write(session.pending);
+        if (!session.pending.hasRemaining()) {
+            session.pending = null;
+            if (session.closing) {
+                close(key);
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+    }
+
+    /**
+     * Executes one request line. A request which fails in any way, even by overflowing the
+     * stack, gets an error response, so it cannot stop the selector thread.
+     *
+     * @param session session of the connection
+     * @param request the request
+     * @return <code>false</code> if the connection should be closed
+     */
+    private boolean execute(Session session, String request) {
+        int space = request.indexOf(' ');
+        String command = (space < 0) ? request.trim() : request.substring(0, space);
+        String argument = (space < 0) ? "" : request.substring(space + 1);
+        CalculatorEngine engine = session.engine;
+        try {
+            switch (command) {
+                case "keys":
+                    for (int code : keypad.compile(argument)) {
+                        if (!keypad.press(engine, code)) {
+                            CalculatorMetrics.get().error(engine.getError());
+                            respond("error " + engine.getError());
+                            return true;
+                        }
+                    }
+                    break;
+                case "expr":
+                    DoubleUnaryOperator f = expressions.get(argument);
+                    if (f == null) {
+                        f = compiler.compile(argument);
+                        expressions.put(argument, f);
+                    }
+                    engine.setNewValue(f.applyAsDouble(engine.getCurrentValue()));
+                    break;
+                case "value":
+                    break;
+                case "stats":
+                    respond("ok " + statistic(engine.getStack().statistics().get(),
+                        argument.trim()));
+                    return true;
+                case "quit":
+                    respond("bye");
+                    return false;
+                default:
+                    respond("error Unknown command: \"" + command + "\".");
+                    return true;
+            }
+        } catch (IllegalArgumentException e) {
+            respond("error " + e.getMessage());
+            return true;
+        } catch (RuntimeException e) {
+            respond("error " + e);
+            return true;
+        } catch (StackOverflowError e) {
+            respond("error Request is too complex.");
+            return true;
+        }
+        respond("ok " + engine.getCurrentValue());
+        return true;
+    }
+
+    /**
+     * Returns the statistic with the given name.
+     *
+     * @param statistics the statistics
+     * @param name name of the statistic
+     * @return the statistic
+     * @throws IllegalArgumentException if there is no such statistic
+     */
+    private static double statistic(Statistics statistics, String name) {
+        switch (name) {
+            case "count":
+                return statistics.getCount();
+            case "sum":
+                return statistics.getSum();
+            case "mean":
+                return statistics.getMean();
+            case "variance":
+                return statistics.getVariance();
+            case "stddev":
+                return statistics.getStandardDeviation();
+            case "min":
+                return statistics.getMin();
+            case "max":
+                return statistics.getMax();
+            case "sumsq":
+                return statistics.getSumOfSquares();
+            default:
+                throw new IllegalArgumentException("Unknown statistic: \"" + name + "\".");
+        }
+    }
+
+    /**
+     * Appends a response line to the shared write buffer.
+     *
+     * @param response the response
+     */
+    private void respond(String response) {
+        byte[] bytes = (response + "\n").getBytes(StandardCharsets.UTF_8);
+        if (out.remaining() < bytes.length) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(2 * out.capacity(),
+                out.position() + bytes.length));
+            out.flip();
+            bigger.put(out);
+            out = bigger;
+        }
+        out.put(bytes);
+    }
+
+    /**
+     * State of one connection.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    private final class Session {
+
+        /** Engine of the session. */
+        final CalculatorEngine engine = new CalculatorEngine();
+        /** Unfinished request line kept between reads, <code>null</code> if there is none. */
+        byte[] line;
+        /** Length of the request line. */
+        int length;
+        /** Unsent response, <code>null</code> if there is none. */
+        ByteBuffer pending;
+        /** It is true if the connection is closed after the pending response. */
+        boolean closing;
+
+        /**
+         * Returns the buffer of the request line: the own buffer of the session if it kept an
+         * unfinished line, the shared one otherwise.
+         *
+         * @return the buffer
+         */
+        byte[] buffer() {
+            return (line != null) ? line : CalculatorServer.this.line;
+        }
+
+        /**
+         * Appends a byte to the request line.
+         *
+         * @param b the byte
+         * @return <code>false</code> if the line is too long
+         */
+        boolean append(byte b) {
+            byte[] buffer = buffer();
+            if (length == buffer.length) {
+                if (length == MAX_LINE) {
+                    return false;
+                }
+                buffer = Arrays.copyOf(buffer, Math.min(2 * length, MAX_LINE));
+                if (line == null) {
+                    CalculatorServer.this.line = buffer;
+                } else {
+                    line = buffer;
+                }
+            }
+            buffer[length++] = b;
+            return true;
+        }
+
+        /**
+         * Copies an unfinished line out of the shared buffer, which the next session overwrites,
+         * or releases the own buffer if there is no unfinished line.
+         */
+        void compact() {
+            if (length == 0) {
+                line = null;
+            } else if (line == null) {
+                line = Arrays.copyOf(CalculatorServer.this.line, length);
+            }
+        }
+    }
+
+    /**
+     * Runs the server until the process is stopped.
+     *
+     * @param args optional port, default is <code>7777</code>
+     * @throws IOException if the socket cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : 7777;
+        CalculatorServer server = new CalculatorServer(port);
+        CalculatorMetrics.register();
+        System.out.println("Listening on " + InetAddress.getLoopbackAddress().getHostAddress()
+            + ":" + server.getPort());
+        server.run();
+    }
+}
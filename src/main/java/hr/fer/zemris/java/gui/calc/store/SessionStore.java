@@ -0,0 +1,812 @@
+package hr.fer.zemris.java.gui.calc.store;
+
+import hr.fer.zemris.java.gui.calc.engine.BinaryOperation;
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.EngineError;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import hr.fer.zemris.java.gui.calc.engine.UnaryOperation;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Off-heap store of many calculator sessions. A session behaves exactly like a {@link
+ * CalculatorEngine} driven by a {@link Keypad}, but it is not an object: it is a fixed-width slot
+ * in a direct {@link ByteBuffer}, addressed by an integer handle.<p>
+ *
+ * <b>Slot layout</b> (offsets in bytes):
+ * <pre>
+ *  0  double  stored value
+ *  8  double  value of the input
+ * 16  long    first 18 significant digits of the typed number
+ * 24  long    next 18 significant digits of the typed number
+ * 32  int     flags, error ordinal (bits 16 - 23) and binary operator id (bits 24 - 31)
+ * 36  int     number of significant digits kept
+ * 40  int     number of typed decimals
+ * 44  int     number of typed digits which were not kept
+ * 48  int     stack size (next free slot while the slot is free)
+ * 52  int     handle of the top overflow page, -1 if there is none
+ * 56  double[inline]  bottom of the stack
+ * </pre>
+ * With the default inline capacity of {@value #DEFAULT_INLINE_STACK} values a slot takes 88 bytes.
+ * Deeper stacks spill to overflow pages of {@value #PAGE_VALUES} values, which are chained from
+ * the top of the stack down, so push and pop touch only the top page. Slots and pages are
+ * allocated in segments, which are never released; freed slots and pages are reused first.<p>
+ *
+ * The store does not keep the typed characters, only the first {@value #KEPT_DIGITS} significant
+ * digits. Numbers with at most that many digits get exactly the same value as in the engine.
+ * Later digits are reduced to one sticky digit, which decides the rounding correctly unless a
+ * halfway point between two doubles has more than {@value #KEPT_DIGITS} digits there.<p>
+ *
+ * The store is a library for hosts of very many sessions. The {@link
+ * hr.fer.zemris.java.gui.calc.server.CalculatorServer} keeps an engine per connection instead,
+ * since its <code>stats</code> command needs the running statistics of the stack, which the
+ * store does not keep. This class is not synchronized.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class SessionStore {
+
+    /** Default number of stack values stored inside the slot. */
+    public static final int DEFAULT_INLINE_STACK = 4;
+    /** Number of stack values in an overflow page. */
+    public static final int PAGE_VALUES = 31;
+    /** Number of significant digits of the typed number which are kept. */
+    public static final int KEPT_DIGITS = 36;
+
+    /** Offset of the stored value. */
+    private static final int STORED = 0;
+    /** Offset of the input value. */
+    private static final int VALUE = 8;
+    /** Offset of the first digits. */
+    private static final int MANTISSA = 16;
+    /** Offset of the next digits. */
+    private static final int TAIL = 24;
+    /** Offset of the flags. */
+    private static final int FLAGS = 32;
+    /** Offset of the number of digits. */
+    private static final int DIGITS = 36;
+    /** Offset of the number of decimals. */
+    private static final int SCALE = 40;
+    /** Offset of the number of dropped digits. */
+    private static final int DROPPED = 44;
+    /** Offset of the stack size. */
+    private static final int STACK_SIZE = 48;
+    /** Offset of the top page. */
+    private static final int TOP_PAGE = 52;
+    /** Offset of the inline stack. */
+    private static final int INLINE = 56;
+
+    /** Slot is in use. */
+    private static final int USED = 1;
+    /** Something was typed in. */
+    private static final int TYPED = 1 << 1;
+    /** Input holds a value which was not typed in. */
+    private static final int HOLDING = 1 << 2;
+    /** Decimal point was typed. */
+    private static final int DOT = 1 << 3;
+    /** A nonzero digit was not kept. */
+    private static final int STICKY = 1 << 4;
+    /** Typed number is negative. */
+    private static final int NEGATIVE = 1 << 5;
+    /** Last key was a binary operator. */
+    private static final int BINARY = 1 << 6;
+    /** Last key was a unary operator. */
+    private static final int UNARY = 1 << 7;
+    /** Last key was equals. */
+    private static final int EQUALS = 1 << 8;
+    /** Inverted operators are chosen. */
+    private static final int INVERTED = 1 << 9;
+    /** Flags of the input. */
+    private static final int INPUT_FLAGS = TYPED | HOLDING | DOT | STICKY | NEGATIVE;
+    /** Shift of the error ordinal. */
+    private static final int ERROR_SHIFT = 16;
+    /** Shift of the operator id. */
+    private static final int OPERATOR_SHIFT = 24;
+
+    /** Size of a page in bytes; the first 8 bytes hold the handle of the next page. */
+    private static final int PAGE_SIZE = 8 + 8 * PAGE_VALUES;
+    /** Binary logarithm of the number of slots or pages in a segment. */
+    private static final int SEGMENT_SHIFT = 14;
+    /** Mask of the index in a segment. */
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+    /** Number of significant digits in one long, as in the engine. */
+    private static final int MAX_DIGITS = KEPT_DIGITS / 2;
+    /** Largest mantissa which is exactly representable as double. */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    /** Powers of ten that are exactly representable as double. */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    /** Errors by ordinal. */
+    private static final EngineError[] ERRORS = EngineError.values();
+
+    /** Registry of the operators. */
+    private final OperatorRegistry registry;
+    /** Id of the operator used when no binary operator was chosen. */
+    private final int defaultOperator;
+    /** Number of stack values inside the slot. */
+    private final int inlineStack;
+    /** Size of a slot in bytes. */
+    private final int slotSize;
+
+    /** Segments of slots. */
+    private ByteBuffer[] slots = new ByteBuffer[0];
+    /** Number of slots ever allocated. */
+    private int slotCount;
+    /** First free slot, -1 if there is none. */
+    private int freeSlot = -1;
+    /** Number of open sessions. */
+    private int sessions;
+    /** Segments of pages. */
+    private ByteBuffer[] pages = new ByteBuffer[0];
+    /** Number of pages ever allocated. */
+    private int pageCount;
+    /** First free page, -1 if there is none. */
+    private int freePage = -1;
+
+    /**
+     * Creates a new {@link SessionStore} for the default keypad with the default inline stack.
+     */
+    public SessionStore() {
+        this(Keypad.DEFAULT, DEFAULT_INLINE_STACK);
+    }
+
+    /**
+     * Creates a new {@link SessionStore}.
+     *
+     * @param keypad keypad whose codes are pressed
+     * @param inlineStack number of stack values stored inside the slot
+     * @throws IllegalArgumentException if the inline stack is negative
+     */
+    public SessionStore(Keypad keypad, int inlineStack) {
+        if (inlineStack < 0) {
+            throw new IllegalArgumentException(
+                "Inline stack cannot be negative: " + inlineStack + ".");
+        }
+        this.registry = keypad.getRegistry();
+        this.defaultOperator = registry.binary("+").getId();
+        this.inlineStack = inlineStack;
+        this.slotSize = INLINE + 8 * inlineStack;
+    }
+
+    /**
+     * Opens a new session in the initial state.
+     *
+     * @return handle of the session
+     */
+    public int open() {
+        int handle = freeSlot;
+        if (handle >= 0) {
+            freeSlot = slot(handle).getInt(offset(handle) + STACK_SIZE);
+        } else {
+            handle = slotCount++;
+            if ((handle >>> SEGMENT_SHIFT) == slots.length) {
+                slots = grow(slots, slotSize);
+            }
+        }
+        ByteBuffer slot = slot(handle);
+        int base = offset(handle);
+        slot.putInt(base + FLAGS, USED);
+        slot.putInt(base + STACK_SIZE, 0);
+        slot.putInt(base + TOP_PAGE, -1);
+        restart(slot, base);
+        sessions++;
+        return handle;
+    }
+
+    /**
+     * Closes the session and releases its slot and pages.
+     *
+     * @param handle handle of the session
+     * @throws IllegalArgumentException if the handle is not open
+     */
+    public void close(int handle) {
+        ByteBuffer slot = check(handle);
+        int base = offset(handle);
+        clearInput(slot, base);
+        clearStack(slot, base);
+        slot.putInt(base + FLAGS, 0);
+        slot.putInt(base + STACK_SIZE, freeSlot);
+        freeSlot = handle;
+        sessions--;
+    }
+
+    /**
+     * @return number of open sessions
+     */
+    public int getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Returns the number of off-heap bytes allocated for slots and pages.
+     *
+     * @return allocated bytes
+     */
+    public long getMemoryUsed() {
+        return (long) slots.length * (slotSize << SEGMENT_SHIFT)
+            + (long) pages.length * (PAGE_SIZE << SEGMENT_SHIFT);
+    }
+
+    /**
+     * @return size of a slot in bytes
+     */
+    public int getSlotSize() {
+        return slotSize;
+    }
+
+    /**
+     * Presses the key with the given code in the session, like {@link Keypad#press(
+     * CalculatorEngine, int)}.
+     *
+     * @param handle handle of the session
+     * @param code code of the key
+     * @return <code>false</code> if the operation failed (see {@link #getError(int)})
+     * @throws IllegalArgumentException if the handle is not open or the code is not valid
+     */
+    public boolean press(int handle, int code) {
+        return press(check(handle), offset(handle), code);
+    }
+
+    /**
+     * Presses all keys with the given codes in the session. Pressing stops at the first key
+     * which fails.
+     *
+     * @param handle handle of the session
+     * @param codes codes of the keys
+     * @return <code>false</code> if an operation failed (see {@link #getError(int)})
+     * @throws IllegalArgumentException if the handle is not open or a code is not valid
+     */
+    public boolean press(int handle, int[] codes) {
+        ByteBuffer slot = check(handle);
+        int base = offset(handle);
+        for (int code : codes) {
+            if (!press(slot, base, code)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Presses the key with the given code in the session.
+     *
+     * @param slot segment of the slot
+     * @param base offset of the slot
+     * @param code code of the key
+     * @return <code>false</code> if the operation failed
+     * @throws IllegalArgumentException if the code is not valid
+     */
+    private boolean press(ByteBuffer slot, int base, int code) {
+        switch (code) {
+            case Keypad.DOT:
+                startInput(slot, base);
+                appendDot(slot, base);
+                return true;
+            case Keypad.EQUALS:
+                equalsPressed(slot, base);
+                return true;
+            case Keypad.CLEAR:
+                clearInput(slot, base);
+                return true;
+            case Keypad.RESTART:
+                restart(slot, base);
+                return true;
+            case Keypad.PUSH:
+                push(slot, base, currentValue(slot, base));
+                return true;
+            case Keypad.POP:
+                return pop(slot, base);
+            case Keypad.SIGN:
+                changeSign(slot, base);
+                return true;
+            case Keypad.INV:
+                slot.putInt(base + FLAGS, slot.getInt(base + FLAGS) ^ INVERTED);
+                return true;
+            default:
+                break;
+        }
+        if (code >= 0 && code <= 9) {
+            startInput(slot, base);
+            appendDigit(slot, base, code);
+        } else if ((code & ~Keypad.ID_MASK) == Keypad.UNARY) {
+            UnaryOperation operation = registry.unary(code & Keypad.ID_MASK);
+            if ((slot.getInt(base + FLAGS) & INVERTED) != 0) {
+                operation = registry.inverse(operation);
+            }
+            setNewValue(slot, base, operation.applyAsDouble(currentValue(slot, base)));
+            int flags = slot.getInt(base + FLAGS) & ~(BINARY | EQUALS);
+            slot.putInt(base + FLAGS, flags | UNARY);
+        } else if ((code & ~Keypad.ID_MASK) == Keypad.BINARY) {
+            int flags = slot.getInt(base + FLAGS) & ~(EQUALS | UNARY);
+            BinaryOperation operation = registry.binary(code & Keypad.ID_MASK);
+            if ((flags & INVERTED) != 0) {
+                operation = registry.inverse(operation);
+            }
+            int id = operation.getId();
+            slot.putDouble(base + STORED, currentValue(slot, base));
+            flags = (flags & ~(0xFF << OPERATOR_SHIFT)) | (id << OPERATOR_SHIFT);
+            slot.putInt(base + FLAGS, flags | BINARY);
+        } else {
+            throw new IllegalArgumentException("Invalid key code: " + code + ".");
+        }
+        return true;
+    }
+
+    /**
+     * Returns the current value of the session, like {@link CalculatorEngine#getCurrentValue()}.
+     *
+     * @param handle handle of the session
+     * @return current value
+     * @throws IllegalArgumentException if the handle is not open
+     */
+    public double getCurrentValue(int handle) {
+        return currentValue(check(handle), offset(handle));
+    }
+
+    /**
+     * Sets the value of the session, like {@link CalculatorEngine#setNewValue(double)}.
+     *
+     * @param handle handle of the session
+     * @param newValue value to set
+     * @throws IllegalArgumentException if the handle is not open
+     */
+    public void setNewValue(int handle, double newValue) {
+        setNewValue(check(handle), offset(handle), newValue);
+    }
+
+    /**
+     * Returns the last error of the session since its last restart.
+     *
+     * @param handle handle of the session
+     * @return the error, {@link EngineError#NONE} if there was none
+     * @throws IllegalArgumentException if the handle is not open
+     */
+    public EngineError getError(int handle) {
+        int flags = check(handle).getInt(offset(handle) + FLAGS);
+        return ERRORS[(flags >>> ERROR_SHIFT) & 0xFF];
+    }
+
+    /**
+     * @param handle handle of the session
+     * @return <code>true</code> if inverted operators are chosen in the session
+     * @throws IllegalArgumentException if the handle is not open
+     */
+    public boolean isInverted(int handle) {
+        return (check(handle).getInt(offset(handle) + FLAGS) & INVERTED) != 0;
+    }
+
+    /**
+     * @param handle handle of the session
+     * @return number of values on the stack of the session
+     * @throws IllegalArgumentException if the handle is not open
+     */
+    public int getStackSize(int handle) {
+        return check(handle).getInt(offset(handle) + STACK_SIZE);
+    }
+
+    /**
+     * Returns the value at the given depth of the stack of the session. Top of the stack is at
+     * depth 0.
+     *
+     * @param handle handle of the session
+     * @param depth depth of the value
+     * @return the value
+     * @throws IllegalArgumentException if the handle is not open
+     * @throws IndexOutOfBoundsException if there is no value at the depth
+     */
+    public double peek(int handle, int depth) {
+        ByteBuffer slot = check(handle);
+        int base = offset(handle);
+        int size = slot.getInt(base + STACK_SIZE);
+        if (depth < 0 || depth >= size) {
+            throw new IndexOutOfBoundsException("Invalid depth: " + depth + ".");
+        }
+        int index = size - 1 - depth;
+        if (index < inlineStack) {
+            return slot.getDouble(base + INLINE + 8 * index);
+        }
+        int page = slot.getInt(base + TOP_PAGE);
+        for (int p = (size - 1 - inlineStack) / PAGE_VALUES,
+             target = (index - inlineStack) / PAGE_VALUES; p > target; p--) {
+            page = page(page).getInt(pageOffset(page));
+        }
+        return page(page).getDouble(valueOffset(page, index - inlineStack));
+    }
+
+    /**
+     * Returns the segment of the open session.
+     *
+     * @param handle handle of the session
+     * @return segment of the slot
+     * @throws IllegalArgumentException if the handle is not open
+     */
+    private ByteBuffer check(int handle) {
+        if (handle < 0 || handle >= slotCount
+            || (slot(handle).getInt(offset(handle) + FLAGS) & USED) == 0) {
+            throw new IllegalArgumentException("Invalid session handle: " + handle + ".");
+        }
+        return slot(handle);
+    }
+
+    /**
+     * @param handle handle of the session
+     * @return segment of the slot
+     */
+    private ByteBuffer slot(int handle) {
+        return slots[handle >>> SEGMENT_SHIFT];
+    }
+
+    /**
+     * @param handle handle of the session
+     * @return offset of the slot in its segment
+     */
+    private int offset(int handle) {
+        return (handle & SEGMENT_MASK) * slotSize;
+    }
+
+    /**
+     * @param page handle of the page
+     * @return segment of the page
+     */
+    private ByteBuffer page(int page) {
+        return pages[page >>> SEGMENT_SHIFT];
+    }
+
+    /**
+     * @param page handle of the page
+     * @return offset of the page in its segment
+     */
+    private static int pageOffset(int page) {
+        return (page & SEGMENT_MASK) * PAGE_SIZE;
+    }
+
+    /**
+     * @param page handle of the page
+     * @param index index of the value among the values beyond the inline stack
+     * @return offset of the value in the segment of the page
+     */
+    private static int valueOffset(int page, int index) {
+        return pageOffset(page) + 8 + 8 * (index % PAGE_VALUES);
+    }
+
+    /**
+     * Appends a new direct segment.
+     *
+     * @param segments current segments
+     * @param size size of an element in bytes
+     * @return the segments with the new one
+     */
+    private static ByteBuffer[] grow(ByteBuffer[] segments, int size) {
+        ByteBuffer[] bigger = Arrays.copyOf(segments, segments.length + 1);
+        bigger[segments.length] =
+            ByteBuffer.allocateDirect(size << SEGMENT_SHIFT).order(ByteOrder.nativeOrder());
+        return bigger;
+    }
+
+    /**
+     * @return handle of a new page
+     */
+    private int allocatePage() {
+        int page = freePage;
+        if (page >= 0) {
+            freePage = page(page).getInt(pageOffset(page));
+            return page;
+        }
+        page = pageCount++;
+        if ((page >>> SEGMENT_SHIFT) == pages.length) {
+            pages = grow(pages, PAGE_SIZE);
+        }
+        return page;
+    }
+
+    /**
+     * Puts the page on the free list.
+     *
+     * @param page handle of the page
+     */
+    private void freePage(int page) {
+        page(page).putInt(pageOffset(page), freePage);
+        freePage = page;
+    }
+
+    /**
+     * @param slot segment of the slot
+     * @param base offset of the slot
+     * @return current value of the session
+     */
+    private static double currentValue(ByteBuffer slot, int base) {
+        int flags = slot.getInt(base + FLAGS);
+        return ((flags & (TYPED | HOLDING)) == 0)
+            ? slot.getDouble(base + STORED)
+            : slot.getDouble(base + VALUE);
+    }
+
+    /**
+     * Clears the input and makes it hold the value.
+     *
+     * @param slot segment of the slot
+     * @param base offset of the slot
+     * @param newValue value to hold
+     */
+    private static void setNewValue(ByteBuffer slot, int base, double newValue) {
+        int flags = clearDigits(slot, base);
+        slot.putInt(base + FLAGS, (flags & ~INPUT_FLAGS) | HOLDING);
+        slot.putDouble(base + VALUE, newValue);
+    }
+
+    /**
+     * Clears the input.
+     *
+     * @param slot segment of the slot
+     * @param base offset of the slot
+     */
+    private static void clearInput(ByteBuffer slot, int base) {
+        int flags = clearDigits(slot, base);
+        slot.putInt(base + FLAGS, flags & ~INPUT_FLAGS);
+        slot.putDouble(base + VALUE, 0);
+    }
+
+    /**
+     * Zeroes the digits of the typed number. They can be nonzero only if something was typed in,
+     * so nothing is written otherwise.
+     *
+     * @param slot segment of the slot
+     * @param base offset of the slot
+     * @return flags of the slot
+     */
+    private static int clearDigits(ByteBuffer slot, int base) {
+        int flags = slot.getInt(base + FLAGS);
+        if ((flags & TYPED) != 0) {
+            slot.putLong(base + MANTISSA, 0);
+            slot.putLong(base + TAIL, 0);
+            slot.putInt(base + DIGITS, 0);
+            slot.putInt(base + SCALE, 0);
+            slot.putInt(base + DROPPED, 0);
+        }
+        return flags;
+    }
+
+    /**
+     * Clears the input if the last key was an operator or equals, so that a new number is typed.
+     *
+     * @param slot segment of the slot
+     * @param base offset of the slot
+     */
+    private static void startInput(ByteBuffer slot, int base) {
+        int flags = slot.getInt(base + FLAGS);
+        int last = flags & (EQUALS | BINARY | UNARY);
+        if (last != 0) {
+            clearInput(slot, base);
+            //the same order of precedence as in the engine
+            int cleared = ((flags & EQUALS) != 0) ? EQUALS
+                : ((flags & BINARY) != 0) ? BINARY : UNARY;
+            slot.putInt(base + FLAGS, slot.getInt(base + FLAGS) & ~cleared);
+        }
+    }
+
+    /**
+     * Appends a digit to the typed number.
+     *
+     * @param slot segment of the slot
+     * @param base offset of the slot
+     * @param digit digit from interval [0, 9]
+     */
+    private static void appendDigit(ByteBuffer slot, int base, int digit) {
+        if ((slot.getInt(base + FLAGS) & HOLDING) != 0) {
+            clearInput(slot, base);
+        }
+        int flags = slot.getInt(base + FLAGS) | TYPED;
+        long mantissa = slot.getLong(base + MANTISSA);
+        int digits = slot.getInt(base + DIGITS);
+        int scale = slot.getInt(base + SCALE);
+        int dropped = slot.getInt(base + DROPPED);
+        if ((flags & DOT) != 0) {
+            scale++;
+        }
+        if (mantissa != 0 || digit != 0) {
+            if (digits < MAX_DIGITS) {
+                mantissa = mantissa * 10 + digit;
+                slot.putLong(base + MANTISSA, mantissa);
+                digits++;
+            } else if (digits < KEPT_DIGITS) {
+                slot.putLong(base + TAIL, slot.getLong(base + TAIL) * 10 + digit);
+                digits++;
+            } else {
+                dropped++;
+                if (digit != 0) {
+                    flags |= STICKY;
+                }
+            }
+        }
+        slot.putInt(base + FLAGS, flags);
+        slot.putInt(base + DIGITS, digits);
+        slot.putInt(base + SCALE, scale);
+        slot.putInt(base + DROPPED, dropped);
+
+        double absolute;
+        if (mantissa == 0) {
+            absolute = 0;
+        } else if (digits <= MAX_DIGITS && mantissa <= MAX_EXACT_MANTISSA
+            && scale < POWERS_OF_TEN.length) {
+            absolute = mantissa / POWERS_OF_TEN[scale];
+        } else {
+            absolute = slowValue(mantissa, slot.getLong(base + TAIL), digits, scale - dropped,
+                (flags & STICKY) != 0);
+        }
+        slot.putDouble(base + VALUE, ((flags & NEGATIVE) != 0) ? -absolute : absolute);
+    }
+
+    /**
+     * Calculates the value of a long input.
+     *
+     * @param mantissa first digits
+     * @param tail next digits
+     * @param digits number of kept digits
+     * @param scale power of ten which divides the kept digits
+     * @param sticky it is true if a nonzero digit was not kept
+     * @return correctly rounded value of the kept digits and the sticky digit
+     */
+    private static double slowValue(long mantissa, long tail, int digits, int scale,
+        boolean sticky) {
+        BigInteger unscaled = BigInteger.valueOf(mantissa);
+        if (digits > MAX_DIGITS) {
+            int tailDigits = digits - MAX_DIGITS;
+            unscaled = unscaled.multiply(BigInteger.TEN.pow(tailDigits))
+                .add(BigInteger.valueOf(tail));
+        }
+        if (sticky) {
+            unscaled = unscaled.multiply(BigInteger.TEN).add(BigInteger.ONE);
+            scale++;
+        }
+        return new BigDecimal(unscaled, scale).doubleValue();
+    }
+
+    /**
+     * Appends the decimal point to the typed number, if it does not have one.
+     *
+     * @param slot segment of the slot
+     * @param base offset of the slot
+     */
+    private static void appendDot(ByteBuffer slot, int base) {
+        if ((slot.getInt(base + FLAGS) & HOLDING) != 0) {
+            clearInput(slot, base);
+        }
+        slot.putInt(base + FLAGS, slot.getInt(base + FLAGS) | DOT | TYPED);
+    }
+
+    /**
+     * Changes the sign of the current value.
+     *
+     * @param slot segment of the slot
+     * @param base offset of the slot
+     */
+    private static void changeSign(ByteBuffer slot, int base) {
+        int flags = slot.getInt(base + FLAGS);
+        if ((flags & TYPED) != 0) {
+            double value = slot.getDouble(base + VALUE);
+            if (value != 0) {
+                slot.putInt(base + FLAGS, flags ^ NEGATIVE);
+                slot.putDouble(base + VALUE, -value);
+            }
+            return;
+        }
+        double value = currentValue(slot, base);
+        value *= (value == 0) ? 1 : -1;
+        setNewValue(slot, base, value);
+    }
+
+    /**
+     * Applies the pending binary operator.
+     *
+     * @param slot segment of the slot
+     * @param base offset of the slot
+     */
+    private void equalsPressed(ByteBuffer slot, int base) {
+        int flags = slot.getInt(base + FLAGS);
+        if ((flags & EQUALS) != 0) {
+            return;
+        }
+        double result = registry.binary((flags >>> OPERATOR_SHIFT) & 0xFF)
+            .applyAsDouble(slot.getDouble(base + STORED), currentValue(slot, base));
+        slot.putDouble(base + STORED, 0);
+        setNewValue(slot, base, result);
+        flags = slot.getInt(base + FLAGS) & ~(BINARY | UNARY);
+        slot.putInt(base + FLAGS, flags | EQUALS);
+    }
+
+    /**
+     * Puts the session in the initial state.
+     *
+     * @param slot segment of the slot
+     * @param base offset of the slot
+     */
+    private void restart(ByteBuffer slot, int base) {
+        clearInput(slot, base);
+        clearStack(slot, base);
+        slot.putDouble(base + STORED, 0);
+        slot.putInt(base + FLAGS, USED | (defaultOperator << OPERATOR_SHIFT));
+    }
+
+    /**
+     * Empties the stack and frees its pages.
+     *
+     * @param slot segment of the slot
+     * @param base offset of the slot
+     */
+    private void clearStack(ByteBuffer slot, int base) {
+        int page = slot.getInt(base + TOP_PAGE);
+        while (page >= 0) {
+            int next = page(page).getInt(pageOffset(page));
+            freePage(page);
+            page = next;
+        }
+        slot.putInt(base + TOP_PAGE, -1);
+        slot.putInt(base + STACK_SIZE, 0);
+    }
+
+    /**
+     * Pushes the value onto the stack.
+     *
+     * @param slot segment of the slot
+     * @param base offset of the slot
+     * @param value value to push
+     */
+    private void push(ByteBuffer slot, int base, double value) {
+        int size = slot.getInt(base + STACK_SIZE);
+        if (size < inlineStack) {
+            slot.putDouble(base + INLINE + 8 * size, value);
+        } else {
+            int index = size - inlineStack;
+            int page = slot.getInt(base + TOP_PAGE);
+            if (index % PAGE_VALUES == 0) {
+                int top = page;
+                page = allocatePage();
+                page(page).putInt(pageOffset(page), top);
+                slot.putInt(base + TOP_PAGE, page);
+            }
+            page(page).putDouble(valueOffset(page, index), value);
+        }
+        slot.putInt(base + STACK_SIZE, size + 1);
+    }
+
+    /**
+     * Pops the value from the stack into the input. If the stack is empty, the session is
+     * restarted and {@link EngineError#EMPTY_STACK} is remembered.
+     *
+     * @param slot segment of the slot
+     * @param base offset of the slot
+     * @return <code>true</code> if a value was popped
+     */
+    private boolean pop(ByteBuffer slot, int base) {
+        int size = slot.getInt(base + STACK_SIZE) - 1;
+        if (size < 0) {
+            restart(slot, base);
+            int flags = slot.getInt(base + FLAGS);
+            slot.putInt(base + FLAGS,
+                flags | (EngineError.EMPTY_STACK.ordinal() << ERROR_SHIFT));
+            return false;
+        }
+        double value;
+        if (size < inlineStack) {
+            value = slot.getDouble(base + INLINE + 8 * size);
+        } else {
+            int index = size - inlineStack;
+            int page = slot.getInt(base + TOP_PAGE);
+            value = page(page).getDouble(valueOffset(page, index));
+            if (index % PAGE_VALUES == 0) {
+                slot.putInt(base + TOP_PAGE, page(page).getInt(pageOffset(page)));
+                freePage(page);
+            }
+        }
+        slot.putInt(base + STACK_SIZE, size);
+        setNewValue(slot, base, value);
+        return true;
+    }
+}
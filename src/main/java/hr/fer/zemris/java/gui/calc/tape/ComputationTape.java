@@ -0,0 +1,217 @@
+package hr.fer.zemris.java.gui.calc.tape;
+
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+
+/**
+ * Audit tape of completed computations: the time, the operator, the operands and the result of
+ * every applied unary operator and every binary operator applied by equals.<p>
+ *
+ * The tape is a ring of a fixed capacity kept in primitive arrays, one per column, so its memory
+ * does not grow however long the calculator runs and recording an entry allocates nothing. Only
+ * the most recent entries are kept, but the total count is. The operator is kept as its
+ * {@link Keypad} code. This class is not synchronized: entries are recorded on one thread and
+ * {@link #copy()} hands them to another one, e.g. to a {@link TapeExporter}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class ComputationTape {
+
+    /** Default number of kept entries. */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    /** Code of an operator which has no {@link Keypad} code. */
+    public static final int UNKNOWN_OPERATOR = -1;
+
+    /** Times of the entries in milliseconds since the epoch. */
+    private final long[] times;
+    /** Keypad codes of the operators. */
+    private final int[] operators;
+    /** Left (or only) operands. */
+    private final double[] lefts;
+    /** Right operands, <code>NaN</code> for unary operators. */
+    private final double[] rights;
+    /** Results. */
+    private final double[] results;
+    /** Number of entries recorded so far. */
+    private long count;
+
+    /**
+     * Creates a new empty {@link ComputationTape} with the default capacity.
+     */
+    public ComputationTape() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty {@link ComputationTape}.
+     *
+     * @param capacity number of the most recent entries which are kept, a power of two
+     * @throws IllegalArgumentException if the capacity is not a positive power of two
+     */
+    public ComputationTape(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity + ".");
+        }
+        times = new long[capacity];
+        operators = new int[capacity];
+        lefts = new double[capacity];
+        rights = new double[capacity];
+        results = new double[capacity];
+    }
+
+    /**
+     * Records an applied unary operator.
+     *
+     * @param operator keypad code of the operator, {@link #UNKNOWN_OPERATOR} if it has none
+     * @param operand the operand
+     * @param result the result
+     */
+    public void unary(int operator, double operand, double result) {
+        record(operator, operand, Double.NaN, result);
+    }
+
+    /**
+     * Records an applied binary operator.
+     *
+     * @param operator keypad code of the operator, {@link #UNKNOWN_OPERATOR} if it has none
+     * @param left the left operand
+     * @param right the right operand
+     * @param result the result
+     */
+    public void binary(int operator, double left, double right, double result) {
+        record(operator, left, right, result);
+    }
+
+    /**
+     * Records an entry, overwriting the oldest one if the tape is full.
+     *
+     * @param operator keypad code of the operator
+     * @param left the left operand
+     * @param right the right operand
+     * @param result the result
+     */
+    private void record(int operator, double left, double right, double result) {
+        int i = (int) count & (times.length - 1);
+        times[i] = System.currentTimeMillis();
+        operators[i] = operator;
+        lefts[i] = left;
+        rights[i] = right;
+        results[i] = result;
+        count++;
+    }
+
+    /**
+     * Returns a copy of this tape, which can be read on another thread while this one is being
+     * recorded to.
+     *
+     * @return the copy
+     */
+    public ComputationTape copy() {
+        ComputationTape copy = new ComputationTape(times.length);
+        System.arraycopy(times, 0, copy.times, 0, times.length);
+        System.arraycopy(operators, 0, copy.operators, 0, times.length);
+        System.arraycopy(lefts, 0, copy.lefts, 0, times.length);
+        System.arraycopy(rights, 0, copy.rights, 0, times.length);
+        System.arraycopy(results, 0, copy.results, 0, times.length);
+        copy.count = count;
+        return copy;
+    }
+
+    /**
+     * Forgets all entries.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * @return number of kept entries
+     */
+    public int size() {
+        return (int) Math.min(count, times.length);
+    }
+
+    /**
+     * @return number of entries recorded so far, including the overwritten ones
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return maximal number of kept entries
+     */
+    public int getCapacity() {
+        return times.length;
+    }
+
+    /**
+     * Returns the time of the entry.
+     *
+     * @param index index of the entry, 0 is the oldest kept one
+     * @return time in milliseconds since the epoch
+     * @throws IndexOutOfBoundsException if there is no such entry
+     */
+    public long getTime(int index) {
+        return times[slot(index)];
+    }
+
+    /**
+     * Returns the operator of the entry.
+     *
+     * @param index index of the entry, 0 is the oldest kept one
+     * @return keypad code of the operator, {@link #UNKNOWN_OPERATOR} if it has none
+     * @throws IndexOutOfBoundsException if there is no such entry
+     */
+    public int getOperator(int index) {
+        return operators[slot(index)];
+    }
+
+    /**
+     * Returns the left operand of the entry, the only one of a unary operator.
+     *
+     * @param index index of the entry, 0 is the oldest kept one
+     * @return the left operand
+     * @throws IndexOutOfBoundsException if there is no such entry
+     */
+    public double getLeft(int index) {
+        return lefts[slot(index)];
+    }
+
+    /**
+     * Returns the right operand of the entry.
+     *
+     * @param index index of the entry, 0 is the oldest kept one
+     * @return the right operand, <code>NaN</code> for a unary operator
+     * @throws IndexOutOfBoundsException if there is no such entry
+     */
+    public double getRight(int index) {
+        return rights[slot(index)];
+    }
+
+    /**
+     * Returns the result of the entry.
+     *
+     * @param index index of the entry, 0 is the oldest kept one
+     * @return the result
+     * @throws IndexOutOfBoundsException if there is no such entry
+     */
+    public double getResult(int index) {
+        return results[slot(index)];
+    }
+
+    /**
+     * Returns the slot of the entry in the arrays.
+     *
+     * @param index index of the entry, 0 is the oldest kept one
+     * @return the slot
+     * @throws IndexOutOfBoundsException if there is no such entry
+     */
+    private int slot(int index) {
+        int size = size();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid index: " + index + ".");
+        }
+        return (int) (count - size + index) & (times.length - 1);
+    }
+}
@@ -0,0 +1,249 @@
+package hr.fer.zemris.java.gui.calc.tape;
+
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a {@link ComputationTape} to a file, as CSV or in a compact binary format. Entries are
+ * encoded into a direct buffer and written through a {@link FileChannel} one full buffer at a
+ * time. The tape is written to a temporary file which then replaces the target, so a reader never
+ * sees a half-written tape.<p>
+ *
+ * {@link #export(ComputationTape, Path, Format)} copies the tape on the calling thread (e.g. the
+ * Event Dispatch Thread) and writes the copy on a background thread. The thread stops when it has
+ * nothing to do, and the application does not exit before it finishes a started export.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public final class TapeExporter implements Closeable {
+
+    /** Magic number at the start of a binary tape. */
+    public static final int MAGIC = 0x43544150;
+    /** Version of the binary format. */
+    public static final short VERSION = 1;
+    /** Size of the header of a binary tape. */
+    public static final int BINARY_HEADER = 18;
+    /** Size of an entry of a binary tape. */
+    public static final int BINARY_ENTRY = 34;
+
+    /** Size of the write buffer. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** Header of a CSV tape. */
+    private static final String CSV_HEADER = "time,operator,left,right,result\n";
+
+    /**
+     * Format of an exported tape.
+     */
+    public enum Format {
+        /**
+         * One line per entry: ISO-8601 time, label of the operator (empty if it has no keypad
+         * code), the operands (the right one empty for unary operators) and the result, after a
+         * header line. Encoded in UTF-8.
+         */
+        CSV,
+        /**
+         * Big-endian: the header (int {@link #MAGIC}, short {@link #VERSION}, int number of
+         * entries, long number of entries recorded in total) and the entries (long time in
+         * milliseconds since the epoch, short keypad code of the operator, doubles of the left
+         * operand, the right operand and the result).
+         */
+        BINARY;
+
+        /**
+         * Chooses the format by the extension of the file: CSV for <code>.csv</code>, binary
+         * otherwise.
+         *
+         * @param file the file
+         * @return format of the file
+         */
+        public static Format of(Path file) {
+            return file.getFileName().toString().toLowerCase().endsWith(".csv") ? CSV : BINARY;
+        }
+    }
+
+    /** Keypad which labels the operators. */
+    private final Keypad keypad;
+    /** Thread which writes the tapes. */
+    private final ThreadPoolExecutor background;
+
+    /**
+     * Creates a new {@link TapeExporter} labelling the operators by the default keypad.
+     */
+    public TapeExporter() {
+        this(Keypad.DEFAULT);
+    }
+
+    /**
+     * Creates a new {@link TapeExporter}.
+     *
+     * @param keypad keypad which labels the operators
+     */
+    public TapeExporter(Keypad keypad) {
+        this.keypad = keypad;
+        background = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            r -> new Thread(r, "calculator-tape"));
+        background.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Copies the tape and writes the copy to the file in the background.
+     *
+     * @param tape tape to export
+     * @param file file to write to
+     * @param format format of the file
+     * @return number of the written entries, completed exceptionally with an
+     * {@link UncheckedIOException} if the file cannot be written
+     */
+    public CompletableFuture<Integer> export(ComputationTape tape, Path file, Format format) {
+        ComputationTape copy = tape.copy();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                write(copy, file, format);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return copy.size();
+        }, background);
+    }
+
+    /**
+     * Writes the tape to the file on the calling thread.
+     *
+     * @param tape tape to write, which must not be recorded to meanwhile
+     * @param file file to write to
+     * @param format format of the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(ComputationTape tape, Path file, Format format) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            if (format == Format.CSV) {
+                writeCsv(tape, channel, buffer);
+            } else {
+                writeBinary(tape, channel, buffer);
+            }
+            flush(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the tape in the binary format.
+     *
+     * @param tape the tape
+     * @param channel channel to write to
+     * @param buffer write buffer
+     * @throws IOException if the channel cannot be written
+     */
+    private static void writeBinary(ComputationTape tape, FileChannel channel, ByteBuffer buffer)
+        throws IOException {
+        buffer.putInt(MAGIC).putShort(VERSION).putInt(tape.size()).putLong(tape.getCount());
+        for (int i = 0, n = tape.size(); i < n; i++) {
+            if (buffer.remaining() < BINARY_ENTRY) {
+                flush(channel, buffer);
+            }
+            buffer.putLong(tape.getTime(i));
+            buffer.putShort((short) tape.getOperator(i));
+            buffer.putDouble(tape.getLeft(i));
+            buffer.putDouble(tape.getRight(i));
+            buffer.putDouble(tape.getResult(i));
+        }
+    }
+
+    /**
+     * Writes the tape as CSV.
+     *
+     * @param tape the tape
+     * @param channel channel to write to
+     * @param buffer write buffer
+     * @throws IOException if the channel cannot be written
+     */
+    private void writeCsv(ComputationTape tape, FileChannel channel, ByteBuffer buffer)
+        throws IOException {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        StringBuilder line = new StringBuilder(CSV_HEADER);
+        encode(line, encoder, channel, buffer);
+        for (int i = 0, n = tape.size(); i < n; i++) {
+            line.setLength(0);
+            DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(tape.getTime(i)), line);
+            line.append(',');
+            int operator = tape.getOperator(i);
+            if (operator != ComputationTape.UNKNOWN_OPERATOR) {
+                line.append(keypad.label(operator));
+            }
+            line.append(',').append(tape.getLeft(i)).append(',');
+            double right = tape.getRight(i);
+            if (!Double.isNaN(right) || (operator & ~Keypad.ID_MASK) == Keypad.BINARY) {
+                line.append(right);
+            }
+            line.append(',').append(tape.getResult(i)).append('\n');
+            encode(line, encoder, channel, buffer);
+        }
+    }
+
+    /**
+     * Encodes the characters into the buffer, flushing it when it is full.
+     *
+     * @param chars characters to encode
+     * @param encoder UTF-8 encoder
+     * @param channel channel to write to
+     * @param buffer write buffer
+     * @throws IOException if the channel cannot be written
+     */
+    private static void encode(CharSequence chars, CharsetEncoder encoder, FileChannel channel,
+        ByteBuffer buffer) throws IOException {
+        CharBuffer in = CharBuffer.wrap(chars);
+        while (encoder.encode(in, buffer, false) == CoderResult.OVERFLOW) {
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * Writes the content of the buffer to the channel and clears it.
+     *
+     * @param channel channel to write to
+     * @param buffer write buffer
+     * @throws IOException if the channel cannot be written
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Stops the background thread after the started exports, without waiting for them. No more
+     * exports can be started.
+     */
+    @Override
+    public void close() {
+        background.shutdown();
+    }
+}
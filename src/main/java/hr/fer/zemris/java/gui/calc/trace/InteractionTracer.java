@@ -0,0 +1,458 @@
+package hr.fer.zemris.java.gui.calc.trace;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.InputEvent;
+import java.awt.event.InvocationEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.swing.AbstractButton;
+import javax.swing.RepaintManager;
+
+/**
+ * Tracer of the interaction latency. It replaces the system event queue and the repaint manager:
+ * <ul>
+ * <li>every input event (a released mouse button or a pressed key) is timestamped when it is
+ * dispatched, moved back by the time it waited in the queue, and the first paint after it is
+ * recorded as its input-to-paint latency (an input after which the queue empties without a repaint
+ * is counted as an input without paint)</li>
+ * <li>the time of every dispatched event is recorded</li>
+ * <li>a watchdog thread flags every event whose dispatch takes longer than the threshold, with
+ * the description of the event (e.g. the label of the pressed button) and a sample of the stack
+ * of the Event Dispatch Thread taken while it was stalled; a modal dialog opened by a listener
+ * shows up as such a stall</li>
+ * </ul>
+ * Latencies are kept for the most recent {@link #SAMPLES} events, so the percentiles in the report
+ * written by {@link #writeReport(Appendable)} are exact.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class InteractionTracer extends EventQueue {
+
+    /** Number of the most recent latencies which are kept. */
+    public static final int SAMPLES = 1 << 16;
+    /** Number of the most recent stalls which are kept. */
+    public static final int MAX_STALLS = 100;
+    /** Default stall threshold in milliseconds. */
+    public static final long DEFAULT_THRESHOLD = 100;
+    /** Maximal number of inputs which wait for a paint. */
+    private static final int MAX_PENDING = 64;
+    /** Percentiles in the report. */
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.95, 0.99, 0.999};
+    /** Headers of the percentiles in the report. */
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p95", "p99", "p99.9"};
+    /** Number of stack frames of a stall in the report. */
+    private static final int REPORT_FRAMES = 12;
+
+    /** Stall threshold in nanoseconds. */
+    private final long threshold;
+    /** Watchdog thread. */
+    private final Thread watchdog;
+    /** Input-to-paint latencies. */
+    private final SampleRing inputToPaint = new SampleRing(SAMPLES);
+    /** Dispatch times. */
+    private final SampleRing dispatches = new SampleRing(SAMPLES);
+    /** The most recent stalls. */
+    private final ArrayDeque<Stall> stalls = new ArrayDeque<>();
+    /** Number of stalls so far. */
+    private long stallCount;
+
+    /** Start of the current outermost dispatch, 0 if no event is dispatched. */
+    private volatile long dispatchStart;
+    /** Event of the current outermost dispatch. */
+    private volatile AWTEvent dispatched;
+    /** Thread which dispatches events. */
+    private volatile Thread dispatchThread;
+    /** Stall of the current outermost dispatch, guarded by this tracer. */
+    private Stall flagged;
+    /** Depth of nested dispatches (a modal dialog dispatches events from a listener). */
+    private int depth;
+    /** Times of inputs which wait for a paint, written on the Event Dispatch Thread only. */
+    private final long[] pending = new long[MAX_PENDING];
+    /** Number of inputs which wait for a paint. */
+    private int pendingCount;
+    /** Number of inputs which were not followed by a paint. */
+    private volatile long unpainted;
+
+    /**
+     * Creates a new {@link InteractionTracer}. It does not trace anything until it is installed,
+     * see {@link #install(long)}.
+     *
+     * @param thresholdMillis stall threshold in milliseconds
+     * @throws IllegalArgumentException if the threshold is not positive
+     */
+    public InteractionTracer(long thresholdMillis) {
+        if (thresholdMillis <= 0) {
+            throw new IllegalArgumentException("Invalid threshold: " + thresholdMillis + ".");
+        }
+        threshold = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        long period = Math.max(1, thresholdMillis / 4);
+        watchdog = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(period);
+                    check();
+                }
+            } catch (InterruptedException e) {
+                //stopped
+            }
+        }, "calculator-edt-watchdog");
+        watchdog.setDaemon(true);
+    }
+
+    /**
+     * Creates a tracer, pushes it on the system event queue, installs its repaint manager and
+     * starts its watchdog. It should be invoked before any window is created.
+     *
+     * @param thresholdMillis stall threshold in milliseconds
+     * @return the installed tracer
+     * @throws IllegalArgumentException if the threshold is not positive
+     */
+    public static InteractionTracer install(long thresholdMillis) {
+        InteractionTracer tracer = new InteractionTracer(thresholdMillis);
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(tracer);
+        RepaintManager.setCurrentManager(new TracingRepaintManager(tracer));
+        tracer.watchdog.start();
+        return tracer;
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        long start = System.nanoTime();
+        boolean outer = depth++ == 0;
+        if (outer) {
+            dispatched = event;
+            dispatchThread = Thread.currentThread();
+            dispatchStart = start;
+        }
+        if (event instanceof MouseEvent && event.getID() == MouseEvent.MOUSE_RELEASED
+            || event instanceof KeyEvent && event.getID() == KeyEvent.KEY_PRESSED) {
+            input((InputEvent) event, start);
+        }
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            depth--;
+            if (outer) {
+                dispatched(event, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Remembers an input which waits for a paint.
+     *
+     * @param event the input event
+     * @param start time when its dispatch started
+     */
+    private void input(InputEvent event, long start) {
+        if (pendingCount == MAX_PENDING) {
+            unpainted++;
+            return;
+        }
+        long waited = System.currentTimeMillis() - event.getWhen();
+        if (waited > 0 && waited < 60_000) {
+            start -= TimeUnit.MILLISECONDS.toNanos(waited);
+        }
+        pending[pendingCount++] = start;
+    }
+
+    /**
+     * Records the end of an outermost dispatch.
+     *
+     * @param event the dispatched event
+     * @param duration duration of the dispatch
+     */
+    private void dispatched(AWTEvent event, long duration) {
+        dispatches.add(duration);
+        Stall stall;
+        synchronized (this) {
+            dispatchStart = 0;
+            dispatched = null;
+            stall = flagged;
+            flagged = null;
+            if (stall == null && duration > threshold) {
+                stall = new Stall(describe(event), new StackTraceElement[0]);
+                addStall(stall);
+            }
+        }
+        if (stall != null) {
+            stall.duration = duration;
+        }
+        if (pendingCount > 0 && peekEvent() == null) {
+            unpainted += pendingCount;
+            pendingCount = 0;
+        }
+    }
+
+    /**
+     * Records the latencies of all inputs which waited for a paint. Invoked on the Event
+     * Dispatch Thread after dirty regions were painted.
+     */
+    void painted() {
+        if (pendingCount == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < pendingCount; i++) {
+            inputToPaint.add(now - pending[i]);
+        }
+        pendingCount = 0;
+    }
+
+    /**
+     * Flags the current dispatch if it takes longer than the threshold. Invoked by the watchdog.
+     */
+    private synchronized void check() {
+        long start = dispatchStart;
+        if (start == 0 || flagged != null || System.nanoTime() - start < threshold) {
+            return;
+        }
+        flagged = new Stall(describe(dispatched), dispatchThread.getStackTrace());
+        addStall(flagged);
+    }
+
+    /**
+     * Keeps the stall, forgetting the oldest one if there are too many.
+     *
+     * @param stall the stall
+     */
+    private void addStall(Stall stall) {
+        if (stalls.size() == MAX_STALLS) {
+            stalls.removeFirst();
+        }
+        stalls.addLast(stall);
+        stallCount++;
+    }
+
+    /**
+     * Describes an event by its type and its source, using the label of buttons. Invocation
+     * events are described by their runnable.
+     *
+     * @param event the event
+     * @return the description
+     */
+    private static String describe(AWTEvent event) {
+        if (event == null) {
+            return "unknown event";
+        }
+        String params = event.paramString();
+        int runnable = params.indexOf("runnable=");
+        if (event instanceof InvocationEvent && runnable >= 0) {
+            int comma = params.indexOf(',', runnable);
+            return "InvocationEvent " + params.substring(runnable, comma < 0 ? params.length()
+                : comma);
+        }
+        int comma = params.indexOf(',');
+        String type = (comma < 0) ? params : params.substring(0, comma);
+        Object source = event.getSource();
+        String on = (source instanceof AbstractButton)
+            ? "'" + ((AbstractButton) source).getText() + "'"
+            : source.getClass().getSimpleName();
+        return event.getClass().getSimpleName() + " " + type + " on " + on;
+    }
+
+    /**
+     * @return number of inputs which were followed by a paint
+     */
+    public long getInputs() {
+        return inputToPaint.count();
+    }
+
+    /**
+     * @return number of inputs which were not followed by a paint
+     */
+    public long getUnpaintedInputs() {
+        return unpainted;
+    }
+
+    /**
+     * @return number of dispatched events
+     */
+    public long getDispatches() {
+        return dispatches.count();
+    }
+
+    /**
+     * @return number of stalls so far
+     */
+    public synchronized long getStallCount() {
+        return stallCount;
+    }
+
+    /**
+     * @return the most recent stalls, the oldest first
+     */
+    public synchronized List<Stall> getStalls() {
+        return new ArrayList<>(stalls);
+    }
+
+    /**
+     * Returns the given percentile of the input-to-paint latency of the most recent inputs.
+     *
+     * @param fraction fraction from interval [0, 1], e.g. 0.99
+     * @return the latency in nanoseconds, 0 if there were no inputs
+     */
+    public long getInputToPaint(double fraction) {
+        return SampleRing.percentile(inputToPaint.sorted(), fraction);
+    }
+
+    /**
+     * Writes the percentile report: input-to-paint latency and dispatch time, followed by the
+     * stalls with their stack samples.
+     *
+     * @param out where to write the report
+     * @throws IOException if writing fails
+     */
+    public void writeReport(Appendable out) throws IOException {
+        out.append(String.format("Interaction trace, %s, stall threshold %d ms%n",
+            new Date(), TimeUnit.NANOSECONDS.toMillis(threshold)));
+        out.append(String.format("%-16s %9s", "", "count"));
+        for (String name : PERCENTILE_NAMES) {
+            out.append(String.format(" %9s", name));
+        }
+        out.append(String.format(" %9s  (ms)%n", "max"));
+        writeRow(out, "input to paint", inputToPaint);
+        writeRow(out, "event dispatch", dispatches);
+        out.append(String.format("inputs without paint: %d%n", unpainted));
+
+        List<Stall> kept = getStalls();
+        out.append(String.format("stalls: %d%n", getStallCount()));
+        for (Stall stall : kept) {
+            long duration = stall.duration;
+            out.append(String.format("  %s  %s  %s%n", new Date(stall.time),
+                duration < 0 ? "still running" : String.format("%.3f ms", duration / 1e6),
+                stall.description));
+            StackTraceElement[] stack = stall.stack;
+            for (int i = 0; i < Math.min(REPORT_FRAMES, stack.length); i++) {
+                out.append(String.format("      at %s%n", stack[i]));
+            }
+            if (stack.length > REPORT_FRAMES) {
+                out.append(String.format("      ... %d more%n", stack.length - REPORT_FRAMES));
+            }
+        }
+    }
+
+    /**
+     * Writes the report to a file, replacing it.
+     *
+     * @param file the file
+     * @throws IOException if writing fails
+     */
+    public void writeReport(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeReport(out);
+        }
+    }
+
+    /**
+     * Writes a row of the report.
+     *
+     * @param out where to write
+     * @param name name of the row
+     * @param ring samples of the row
+     * @throws IOException if writing fails
+     */
+    private static void writeRow(Appendable out, String name, SampleRing ring)
+        throws IOException {
+        long[] sorted = ring.sorted();
+        out.append(String.format("%-16s %9d", name, ring.count()));
+        for (double p : PERCENTILES) {
+            out.append(String.format(" %9.3f", SampleRing.percentile(sorted, p) / 1e6));
+        }
+        out.append(String.format(" %9.3f%n",
+            sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6));
+    }
+
+    /**
+     * Event whose dispatch took longer than the threshold.
+     */
+    public static final class Stall {
+
+        /** Description of the event. */
+        private final String description;
+        /** Time when the stall was flagged, in milliseconds since the epoch. */
+        private final long time;
+        /** Stack of the Event Dispatch Thread, empty if it was not sampled. */
+        private final StackTraceElement[] stack;
+        /** Duration of the dispatch in nanoseconds, -1 while it runs. */
+        private volatile long duration = -1;
+
+        /**
+         * Creates a new {@link Stall}.
+         *
+         * @param description description of the event
+         * @param stack stack sample
+         */
+        Stall(String description, StackTraceElement[] stack) {
+            this.description = description;
+            this.stack = stack;
+            time = System.currentTimeMillis();
+        }
+
+        /**
+         * @return description of the event, e.g. the label of the pressed button
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * @return time when the stall was flagged, in milliseconds since the epoch
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * @return duration of the dispatch in nanoseconds, -1 if it still runs
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        /**
+         * @return stack of the Event Dispatch Thread during the stall, empty if the dispatch
+         * ended before the watchdog sampled it
+         */
+        public StackTraceElement[] getStack() {
+            return stack.clone();
+        }
+    }
+
+    /**
+     * Repaint manager which tells the tracer when dirty regions are painted.
+     */
+    private static final class TracingRepaintManager extends RepaintManager {
+
+        /** The tracer. */
+        private final InteractionTracer tracer;
+
+        /**
+         * Creates a new {@link TracingRepaintManager}.
+         *
+         * @param tracer the tracer
+         */
+        TracingRepaintManager(InteractionTracer tracer) {
+            this.tracer = tracer;
+        }
+
+        @Override
+        public void paintDirtyRegions() {
+            super.paintDirtyRegions();
+            tracer.painted();
+        }
+    }
+}
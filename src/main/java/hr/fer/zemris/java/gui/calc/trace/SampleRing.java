@@ -0,0 +1,70 @@
+package hr.fer.zemris.java.gui.calc.trace;
+
+import java.util.Arrays;
+
+/**
+ * Ring of the most recent samples, kept as primitives so exact percentiles can be calculated over
+ * them. Older samples are overwritten, but the total count is kept.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+final class SampleRing {
+
+    /** Samples, indexed by their number modulo the capacity. */
+    private final long[] samples;
+    /** Number of samples added so far. */
+    private long count;
+
+    /**
+     * Creates a new empty {@link SampleRing}.
+     *
+     * @param capacity number of the most recent samples which are kept, a power of two
+     */
+    SampleRing(int capacity) {
+        samples = new long[capacity];
+    }
+
+    /**
+     * Adds a sample.
+     *
+     * @param sample the sample
+     */
+    synchronized void add(long sample) {
+        samples[(int) count & (samples.length - 1)] = sample;
+        count++;
+    }
+
+    /**
+     * @return number of samples added so far
+     */
+    synchronized long count() {
+        return count;
+    }
+
+    /**
+     * Returns the kept samples in ascending order.
+     *
+     * @return sorted copy of the kept samples
+     */
+    synchronized long[] sorted() {
+        long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Returns the nearest-rank percentile of sorted samples.
+     *
+     * @param sorted samples in ascending order
+     * @param fraction fraction from interval [0, 1], e.g. 0.99
+     * @return the percentile, 0 if there are no samples
+     */
+    static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+}
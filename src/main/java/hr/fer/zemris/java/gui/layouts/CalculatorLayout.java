@@ -6,8 +6,8 @@ import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Insets;
 import java.awt.LayoutManager2;
-import java.awt.Point;
-import java.awt.Rectangle;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 /**
  * Layout manager that is used in the {@link Calculator} class.<p>
@@ -23,6 +23,10 @@ import java.awt.Rectangle;
  * <code>(1,5)</code></li>
  * </ul>
  *
+ * Cell sizes are computed from the children only once and cached until {@link
+ * #invalidateLayout(Container)} is called (or a component is added or removed). Laying out the
+ * container only moves components whose bounds actually changed.
+ *
  * @author Boris
  * @version 1.0
  */
@@ -43,8 +47,22 @@ public class CalculatorLayout implements LayoutManager2 {
     /** Maximal forbidden column number */
     public static final int ILLEGAL_COL_MAX = 5;
 
+    /** Number of rows. */
+    private static final int ROWS = ROW_MAX - ROW_MIN + 1;
+    /** Number of columns. */
+    private static final int COLS = COL_MAX - COL_MIN + 1;
+    /** Number of cells covered by the display. */
+    private static final int DISPLAY_CELLS = ILLEGAL_COL_MAX - ILLEGAL_COL_MIN + 2;
+
     /** Components of the layout. */
     private final Component[][] layout;
+    /** Cell of every component, stored as <code>row * COLS + col</code>. */
+    private final Map<Component, Integer> cells = new IdentityHashMap<>();
+
+    /** Cached preferred size of a cell, <code>null</code> if it has to be computed. */
+    private Dimension preferredCell;
+    /** Cached minimal size of a cell, <code>null</code> if it has to be computed. */
+    private Dimension minimumCell;
 
     /** Gap between components (gap = vgap = hgap). */
     private final int gap;
@@ -63,7 +81,7 @@ public class CalculatorLayout implements LayoutManager2 {
      */
     public CalculatorLayout(final int gap) {
         this.gap = gap;
-        this.layout = new Component[ROW_MAX - ROW_MIN + 1][COL_MAX - COL_MIN + 1];
+        this.layout = new Component[ROWS][COLS];
     }
 
     @Override
@@ -73,118 +91,109 @@ public class CalculatorLayout implements LayoutManager2 {
 
     @Override
     public void removeLayoutComponent(final Component comp) {
-        for (int i = ROW_MIN - 1; i < ROW_MAX; i++) {
-            for (int j = COL_MIN - 1; j < COL_MAX; j++) {
-                if (layout[i][j] == comp) {
-                    layout[i][j] = null;
-                }
-            }
+        final Integer cell = cells.remove(comp);
+        if (cell != null) {
+            layout[cell / COLS][cell % COLS] = null;
+            invalidateCells();
         }
     }
 
     @Override
     public Dimension preferredLayoutSize(final Container parent) {
-        return getLayoutSize(parent, Component::getPreferredSize);
+        if (preferredCell == null) {
+            preferredCell = getSize(Component::getPreferredSize);
+        }
+        return getLayoutSize(parent, preferredCell);
     }
 
     @Override
     public Dimension minimumLayoutSize(final Container parent) {
-        return getLayoutSize(parent, Component::getMinimumSize);
+        if (minimumCell == null) {
+            minimumCell = getSize(Component::getMinimumSize);
+        }
+        return getLayoutSize(parent, minimumCell);
     }
 
     @Override
     public Dimension maximumLayoutSize(final Container target) {
-        return getLayoutSize(target, Component::getMinimumSize);
+        return minimumLayoutSize(target);
     }
 
     /**
-     * Gets the size of the biggest component. If minimal is <code>true</code>, minimal sizes are
-     * considered, preferred
-     * sizes otherwise.
+     * Gets the size of the biggest visible component, which is the size of a cell. Width of the
+     * display is divided among the cells it covers.
      *
-     * @param parent parent container
-     * @param provider minimal sizes provider
+     * @param provider size provider (minimal or preferred sizes)
      * @return dimension of the biggest component
      */
-    private Dimension getSize(final Container parent, final ISizeProvider provider) {
-        Dimension dim = null;
+    private Dimension getSize(final ISizeProvider provider) {
         final Dimension result = new Dimension();
 
-        for (final Component c : parent.getComponents()) {
-            if (c.isVisible()) {
-                dim = provider.getSize(c);
-            }
-            if (dim == null) {
-                //dont care
-                continue;
-            }
-            if (c == layout[0][0]) {
-                //calc display
-                //how many of them, should be 5
-                final int numberOfCells = ILLEGAL_COL_MAX - ILLEGAL_COL_MIN + 2;
-                //width of single one(all should be the same), height is always the same
-                dim = new Dimension((dim.width - (numberOfCells - 1) * gap) / numberOfCells,
-                    dim.height);
+        for (int i = 0; i < ROWS; i++) {
+            for (int j = 0; j < COLS; j++) {
+                final Component c = layout[i][j];
+                if (c == null || !c.isVisible()) {
+                    //dont care
+                    continue;
+                }
+                final Dimension dim = provider.getSize(c);
+                if (dim == null) {
+                    continue;
+                }
+                int width = dim.width;
+                if (i == 0 && j == 0) {
+                    //calc display, width of a single cell (all should be the same)
+                    width = (width - (DISPLAY_CELLS - 1) * gap) / DISPLAY_CELLS;
+                }
+                result.width = Math.max(result.width, width);
+                result.height = Math.max(result.height, dim.height);
             }
-            result.width = Math.max(result.width, dim.width);
-            result.height = Math.max(result.height, dim.height);
         }
 
         return result;
     }
 
     /**
-     * Gets the dimension of the layout. If minimal is true, than minimal size, preferred size
-     * otherwise.
+     * Gets the dimension of the layout with cells of the given size.
      *
      * @param parent parent container
-     * @param provider minimal size provider
+     * @param cell size of a cell
      * @return dimension of the layout
      */
-    private Dimension getLayoutSize(final Container parent, final ISizeProvider provider) {
-        final Dimension cell = getSize(parent, provider);
-        final Dimension result = new Dimension();
-
+    private Dimension getLayoutSize(final Container parent, final Dimension cell) {
         final Insets insets = parent.getInsets();
-        final int numberOfRows = ROW_MAX - ROW_MIN + 1;
-        final int numberOfCols = COL_MAX - COL_MIN + 1;
-
-        result.width =
-            cell.width * numberOfCols + gap * (numberOfCols - 1) + insets.left + insets.right;
-        result.height =
-            cell.height * numberOfRows + gap * (numberOfRows - 1) + insets.top + insets.bottom;
-
-        return result;
+        return new Dimension(
+            cell.width * COLS + gap * (COLS - 1) + insets.left + insets.right,
+            cell.height * ROWS + gap * (ROWS - 1) + insets.top + insets.bottom);
     }
 
     @Override
     public void layoutContainer(final Container parent) {
 
         final Insets insets = parent.getInsets();
-        final Point topLeft = new Point(insets.left, insets.top);
 
-        final int numberOfRows = ROW_MAX - ROW_MIN + 1;
         final int heightWithoutInsets = parent.getHeight() - (insets.top + insets.bottom);
-        final int vgapLenght = gap * (numberOfRows - 1);
-        final int cellHeight = (heightWithoutInsets - vgapLenght) / numberOfRows;
+        final int cellHeight = (heightWithoutInsets - gap * (ROWS - 1)) / ROWS;
 
-        final int numberOfCols = COL_MAX - COL_MIN + 1;
         final int widthWithoutInsets = parent.getWidth() - (insets.left + insets.right);
-        final int hgapLength = gap * (numberOfCols - 1);
-        final int cellWidth = (widthWithoutInsets - hgapLength) / numberOfCols;
+        final int cellWidth = (widthWithoutInsets - gap * (COLS - 1)) / COLS;
 
-        for (int i = ROW_MIN - 1, y = topLeft.y; i < ROW_MAX; i++, y += cellHeight + gap) {
-            for (int j = COL_MIN - 1, x = topLeft.x; j < COL_MAX; j++, x += cellWidth + gap) {
-                if (layout[i][j] == null) {
+        for (int i = 0, y = insets.top; i < ROWS; i++, y += cellHeight + gap) {
+            for (int j = 0, x = insets.left; j < COLS; j++, x += cellWidth + gap) {
+                final Component c = layout[i][j];
+                if (c == null) {
                     continue;
                 }
-                final Dimension dim = new Dimension(cellWidth, cellHeight);
-                //calc display
-                if ((i == ROW_MIN - 1) && (j == COL_MIN - 1)) {
+                int width = cellWidth;
+                if (i == 0 && j == 0) {
+                    //calc display
                     final int illegalCols = ILLEGAL_COL_MAX - ILLEGAL_COL_MIN + 1;
-                    dim.width += illegalCols * cellWidth + gap * (illegalCols - 1);
+                    width += illegalCols * cellWidth + gap * (illegalCols - 1);
+                }
+                if (c.getX() != x || c.getY() != y
+                    || c.getWidth() != width || c.getHeight() != cellHeight) {
+                    c.setBounds(x, y, width, cellHeight);
                 }
-                layout[i][j].setBounds(new Rectangle(new Point(x, y), dim));
             }
         }
     }
@@ -201,7 +210,13 @@ public class CalculatorLayout implements LayoutManager2 {
         final int col = rc.getCol() - 1;
 
         if (layout[row][col] == null) {
+            final Integer old = cells.put(comp, row * COLS + col);
+            if (old != null) {
+                //component is moved to another cell
+                layout[old / COLS][old % COLS] = null;
+            }
             layout[row][col] = comp;
+            invalidateCells();
         } else {
             throw new IllegalArgumentException(
                 "Position (" + rc + ") is already taken.");
@@ -220,6 +235,15 @@ public class CalculatorLayout implements LayoutManager2 {
 
     @Override
     public void invalidateLayout(final Container target) {
+        invalidateCells();
+    }
+
+    /**
+     * Forgets cached cell sizes, they are computed again when they are needed.
+     */
+    private void invalidateCells() {
+        preferredCell = null;
+        minimumCell = null;
     }
 
     /**
@@ -0,0 +1,41 @@
+package hr.fer.zemris.java.gui.calc.array;
+
+import static hr.fer.zemris.java.gui.calc.engine.StackStatisticsTest.assertSameStatistics;
+
+import hr.fer.zemris.java.gui.calc.engine.Statistics;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+/**
+ * Tests of {@link ArrayOperations}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class ArrayOperationsTest {
+
+    /**
+     * Parallel statistics are the same, bit for bit, whatever the number of threads, also for
+     * ranges which do not start at zero.
+     */
+    @Test
+    public void statisticsDoNotDependOnPoolSize() {
+        Random random = new Random(1);
+        double[] values = new double[40 * ArrayOperations.THRESHOLD + 17];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i % 2 == 0 ? 1e9 : -1e9) * random.nextDouble() + 0.1;
+        }
+        int[][] ranges = {{0, values.length}, {123, values.length - 45}, {7, 7 + 3}};
+        for (int[] range : ranges) {
+            Statistics expected = new ArrayOperations(new ForkJoinPool(1))
+                .statistics(values, range[0], range[1]);
+            for (int threads : new int[] {2, 3, 4, 7}) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                assertSameStatistics(threads + " threads",
+                    expected, new ArrayOperations(pool).statistics(values, range[0], range[1]));
+                pool.shutdown();
+            }
+        }
+    }
+}
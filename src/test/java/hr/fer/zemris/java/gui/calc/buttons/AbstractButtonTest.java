@@ -0,0 +1,44 @@
+package hr.fer.zemris.java.gui.calc.buttons;
+
+import static org.junit.Assert.assertEquals;
+
+import hr.fer.zemris.java.gui.calc.CalculatorBackend;
+import hr.fer.zemris.java.gui.calc.CalculatorDisplay;
+import hr.fer.zemris.java.gui.calc.metrics.CalculatorMetrics;
+import hr.fer.zemris.java.gui.calc.metrics.LatencyHistogram;
+import java.awt.event.ActionListener;
+import org.junit.Test;
+
+/**
+ * Tests of {@link AbstractButton}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class AbstractButtonTest {
+
+    /**
+     * The latency is measured on one of {@link CalculatorMetrics#LATENCY_SAMPLING} clicks, and
+     * not by {@link AbstractButton#press()}, whose caller updates the label.
+     */
+    @Test
+    public void clicksAreSampled() {
+        CalculatorBackend backend = new CalculatorBackend(null, new CalculatorDisplay(), null);
+        AbstractButton button = new AbstractButton("nop", backend) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void execute() {
+            }
+        };
+        LatencyHistogram latency = CalculatorMetrics.get().getLatency();
+        long before = latency.getCount();
+        button.press();
+        assertEquals(before, latency.getCount());
+        ActionListener click = button.getActionListeners()[0];
+        for (int i = 0; i < 2 * CalculatorMetrics.LATENCY_SAMPLING; i++) {
+            click.actionPerformed(null);
+        }
+        assertEquals(before + 2, latency.getCount());
+    }
+}
@@ -0,0 +1,41 @@
+package hr.fer.zemris.java.gui.calc.buttons;
+
+import static org.junit.Assert.assertTrue;
+
+import hr.fer.zemris.java.gui.calc.CalculatorBackend;
+import hr.fer.zemris.java.gui.calc.engine.OperatorBank;
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import hr.fer.zemris.java.gui.calc.math.AngleUnit;
+import hr.fer.zemris.java.gui.calc.metrics.CalculatorMetrics;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Tests of {@link ModeOperationButton}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class ModeOperationButtonTest {
+
+    /**
+     * The buttons register the counters of the labels in all banks, not only the shown ones.
+     */
+    @Test
+    public void countersOfAllBanksAreRegistered() {
+        CalculatorBackend backend = new CalculatorBackend(null, null, null);
+        for (OperatorBank.Slot slot : OperatorBank.Slot.values()) {
+            new ModeOperationButton(slot, backend);
+        }
+        Map<String, Long> counts = CalculatorMetrics.get().getOperationCounts();
+        for (AngleUnit unit : AngleUnit.values()) {
+            for (int mode = 0; mode < 4; mode++) {
+                OperatorBank bank = OperatorRegistry.DEFAULT.bank((mode & 1) != 0,
+                    (mode & 2) != 0, unit);
+                for (OperatorBank.Slot slot : OperatorBank.Slot.values()) {
+                    assertTrue(bank + " " + slot, counts.containsKey(bank.label(slot)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package hr.fer.zemris.java.gui.calc.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+/**
+ * Tests of {@link OperatorCache} through {@link CachedUnaryOperator} and
+ * {@link CachedBinaryOperator}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class OperatorCacheTest {
+
+    /** Number of threads which share the caches. */
+    private static final int THREADS = 4;
+    /** Number of calls per thread. */
+    private static final int CALLS = 500_000;
+
+    /** Operands, including two NaNs which differ only in their bits. */
+    private static final double[] OPERANDS = {0.0, -0.0, 1, -1, 0.5, 2, Math.PI, 1e-300, 1e300,
+        Double.NaN, Double.longBitsToDouble(0x7FF8000000000001L), Double.POSITIVE_INFINITY,
+        Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -3.75, 10};
+
+    /**
+     * Threads which share small caches of <code>sin</code> and <code>x^n</code> get results which
+     * are bit-identical to the operators, while results are evicted all the time.
+     *
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    @Test
+    public void concurrentResultsAreExact() throws InterruptedException {
+        CachedUnaryOperator sin = new CachedUnaryOperator(Math::sin, 8);
+        CachedBinaryOperator pow = new CachedBinaryOperator(Math::pow, 16);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < CALLS && failure.get() == null; i++) {
+                    double x = OPERANDS[random.nextInt(OPERANDS.length)];
+                    if (random.nextBoolean()) {
+                        check(failure, "sin(" + x + ")", Math.sin(x), sin.applyAsDouble(x));
+                    } else {
+                        double y = OPERANDS[random.nextInt(OPERANDS.length)];
+                        check(failure, x + "^" + y, Math.pow(x, y), pow.applyAsDouble(x, y));
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            fail(failure.get());
+        }
+        assertEquals((long) THREADS * CALLS, sin.getHits() + sin.getMisses() + pow.getHits()
+            + pow.getMisses());
+        assertTrue(sin.toString(), sin.getHits() > 0 && sin.getEvictions() > 0);
+        assertTrue(pow.toString(), pow.getHits() > 0 && pow.getEvictions() > 0);
+    }
+
+    /**
+     * Remembers the first result which differs from the expected one.
+     *
+     * @param failure the first failure
+     * @param call description of the call
+     * @param expected result of the operator
+     * @param actual result of the cache
+     */
+    private static void check(AtomicReference<String> failure, String call, double expected,
+        double actual) {
+        if (Double.doubleToRawLongBits(expected) != Double.doubleToRawLongBits(actual)) {
+            failure.compareAndSet(null, call + ": expected " + expected + ", was " + actual);
+        }
+    }
+
+    /**
+     * In a cache of one set, hits, misses and evictions follow the clock algorithm: used results
+     * stay and an unused one is evicted.
+     */
+    @Test
+    public void countsOfOneSet() {
+        CachedUnaryOperator cache = new CachedUnaryOperator(x -> x + 1, OperatorCache.WAYS);
+        assertEquals(OperatorCache.WAYS, cache.getCapacity());
+        apply(cache, 1, 2, 3, 4, 1, 2, 3, 4);
+        assertCounts(cache, 4, 4, 0);
+        //all are used, one pass clears them and the hand evicts the first one
+        apply(cache, 5);
+        assertCounts(cache, 4, 5, 1);
+        //used again after the pass, so they stay
+        apply(cache, 3, 4, 5);
+        assertCounts(cache, 7, 5, 1);
+        //1 was evicted, 2 is the first one not used since the pass
+        apply(cache, 1);
+        assertCounts(cache, 7, 6, 2);
+        apply(cache, 3, 4, 5);
+        assertCounts(cache, 10, 6, 2);
+    }
+
+    /**
+     * Applies the operator to the operands and checks the results.
+     *
+     * @param cache the cached operator
+     * @param operands the operands
+     */
+    private static void apply(CachedUnaryOperator cache, double... operands) {
+        for (double x : operands) {
+            assertEquals(x + 1, cache.applyAsDouble(x), 0);
+        }
+    }
+
+    /**
+     * Asserts the counts of the cache.
+     *
+     * @param cache the cache
+     * @param hits expected number of hits
+     * @param misses expected number of misses
+     * @param evictions expected number of evictions
+     */
+    private static void assertCounts(OperatorCache cache, long hits, long misses,
+        long evictions) {
+        assertEquals("hits", hits, cache.getHits());
+        assertEquals("misses", misses, cache.getMisses());
+        assertEquals("evictions", evictions, cache.getEvictions());
+    }
+}
@@ -0,0 +1,56 @@
+package hr.fer.zemris.java.gui.calc.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import hr.fer.zemris.java.gui.calc.macro.Macro;
+import org.junit.Test;
+
+/**
+ * Tests of {@link Keypad}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class KeypadTest {
+
+    /**
+     * Operator keys pressed while Inv is checked apply the inverse operators, and Inv is
+     * unchecked by restart.
+     */
+    @Test
+    public void invertedKeysApplyInverse() {
+        CalculatorEngine engine = new CalculatorEngine();
+        assertEquals(Math.asin(0.5), press(engine, "inv . 5 sin"), 0);
+        assertTrue(engine.isInverted());
+        assertEquals(Math.pow(8, 1 / 3.0), press(engine, "8 x^n 3 ="), 0);
+        assertEquals(Math.sin(0.5), press(engine, "inv . 5 sin"), 0);
+        assertEquals(Math.pow(10, 2), press(engine, "inv 2 log"), 0);
+        assertEquals(0.25, press(engine, "4 1/x"), 0);
+        assertEquals(Math.sin(0.5), press(engine, "res . 5 sin"), 0);
+    }
+
+    /**
+     * A macro follows Inv the same way as the engine.
+     */
+    @Test
+    public void macroFollowsInv() {
+        Macro macro = Macro.compile("inv sin inv cos", Keypad.DEFAULT);
+        assertEquals(Math.cos(Math.asin(0.5)), macro.applyAsDouble(0.5), 0);
+        assertEquals(Math.exp(2), Macro.compile("inv ln", Keypad.DEFAULT).applyAsDouble(2), 0);
+    }
+
+    /**
+     * Presses the keys of a script.
+     *
+     * @param engine engine to press the keys on
+     * @param script labels of the keys
+     * @return current value after the keys
+     */
+    private static double press(CalculatorEngine engine, String script) {
+        for (int code : Keypad.DEFAULT.compile(script)) {
+            Keypad.DEFAULT.press(engine, code);
+        }
+        return engine.getCurrentValue();
+    }
+}
@@ -0,0 +1,68 @@
+package hr.fer.zemris.java.gui.calc.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import hr.fer.zemris.java.gui.calc.math.ApproximateKernels;
+import org.junit.Test;
+
+/**
+ * Tests of {@link OperatorRegistry}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class OperatorRegistryTest {
+
+    /**
+     * Only the four arithmetic operators are declared as such, also in derived registries.
+     */
+    @Test
+    public void arithmeticIsDeclared() {
+        OperatorRegistry[] registries = {OperatorRegistry.DEFAULT,
+            OperatorRegistry.DEFAULT.cached(16), OperatorRegistry.approximate(6)};
+        for (OperatorRegistry registry : registries) {
+            for (BinaryOperation operation : registry.getBinaryOperations()) {
+                String label = operation.getLabel();
+                char expected = "+-*/".contains(label) ? label.charAt(0) : 0;
+                assertEquals(label, expected, operation.getArithmetic());
+            }
+        }
+    }
+
+    /**
+     * The reciprocal is exact whatever the precision of the kernels.
+     */
+    @Test
+    public void reciprocalIsExact() {
+        for (int digits = ApproximateKernels.MIN_DIGITS; digits <= ApproximateKernels.MAX_DIGITS;
+            digits++) {
+            UnaryOperation reciprocal = OperatorRegistry.approximate(digits).unary("1/x");
+            for (double x : new double[] {3, 0.1, 7e-300, -1.5e300, 0}) {
+                assertEquals(1 / x, reciprocal.applyAsDouble(x), 0);
+            }
+        }
+    }
+
+    /**
+     * Operators of the mode dependent buttons are paired with their inverse in the same mode and
+     * the other operators are their own inverse.
+     */
+    @Test
+    public void inversesArePaired() {
+        OperatorRegistry registry = OperatorRegistry.DEFAULT;
+        String[][] pairs = {{"sin", "asin"}, {"cot°", "acot°"}, {"tanh", "atanh"},
+            {"log", "10^x"}, {"ln", "e^x"}, {"1/x", "1/x"}};
+        for (String[] pair : pairs) {
+            UnaryOperation a = registry.unary(pair[0]);
+            UnaryOperation b = registry.unary(pair[1]);
+            assertEquals(pair[0], b, registry.inverse(a));
+            assertEquals(pair[1], a, registry.inverse(b));
+        }
+        assertEquals(registry.binary("n√x"), registry.inverse(registry.binary("x^n")));
+        assertEquals(registry.binary("x^n"), registry.inverse(registry.binary("n√x")));
+        assertEquals(registry.binary("-"), registry.inverse(registry.binary("-")));
+        for (UnaryOperation operation : registry.getUnaryOperations()) {
+            assertEquals(operation, registry.inverse(registry.inverse(operation)));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package hr.fer.zemris.java.gui.calc.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.EmptyStackException;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests of {@link StackStatistics} and {@link Statistics}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class StackStatisticsTest {
+
+    /**
+     * Asserts that all results of the statistics have the same bits.
+     *
+     * @param message description of the statistics
+     * @param expected expected statistics
+     * @param actual actual statistics
+     */
+    public static void assertSameStatistics(String message, Statistics expected,
+            Statistics actual) {
+        assertEquals(message, expected.getCount(), actual.getCount());
+        double[] e = {expected.getSum(), expected.getMean(), expected.getVariance(),
+            expected.getMin(), expected.getMax(), expected.getSumOfSquares()};
+        double[] a = {actual.getSum(), actual.getMean(), actual.getVariance(),
+            actual.getMin(), actual.getMax(), actual.getSumOfSquares()};
+        for (int i = 0; i < e.length; i++) {
+            if (Double.doubleToLongBits(e[i]) != Double.doubleToLongBits(a[i])) {
+                fail(message + ": expected " + expected + ", was " + actual);
+            }
+        }
+    }
+
+    /**
+     * Random pushes, pops, swaps, rotations, clears, undos and redos; the running statistics
+     * always match a rescan of the stack bit for bit.
+     */
+    @Test
+    public void runningStatisticsMatchRescan() {
+        Random random = new Random(1);
+        CalculatorEngine engine = new CalculatorEngine();
+        EngineHistory history = new EngineHistory(engine);
+        DoubleStack stack = engine.getStack();
+        StackStatistics statistics = stack.statistics();
+        for (int step = 0; step < 200_000; step++) {
+            int op = random.nextInt(20);
+            try {
+                if (op < 11) {
+                    stack.push(random.nextGaussian() * 1e3);
+                    history.record();
+                } else if (op < 15) {
+                    if (!stack.isEmpty()) {
+                        stack.pop();
+                        history.record();
+                    }
+                } else if (op == 15) {
+                    stack.swap();
+                    history.record();
+                } else if (op == 16) {
+                    if (stack.size() > 0) {
+                        stack.rotate(Math.min(stack.size(), 1 + random.nextInt(5)));
+                    }
+                    history.record();
+                } else if (op == 17) {
+                    history.undo();
+                } else if (op == 18) {
+                    history.redo();
+                } else if (random.nextInt(50) == 0) {
+                    stack.clear();
+                    history.record();
+                }
+            } catch (EmptyStackException ignorable) {
+                //swap of less than two values
+            }
+            if (random.nextInt(3) == 0) {
+                assertSameStatistics("step " + step,
+                    Statistics.of(stack.toArray(), 0, stack.size()), statistics.get());
+            }
+        }
+    }
+
+    /**
+     * The compensated sum of values which cancel each other is the correctly rounded exact sum.
+     */
+    @Test
+    public void compensatedSum() {
+        Random random = new Random(3);
+        double[] values = new double[100_000];
+        BigDecimal exact = BigDecimal.ZERO;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i % 2 == 0 ? 1e9 : -1e9) * random.nextDouble() + 0.1;
+            exact = exact.add(new BigDecimal(values[i]));
+        }
+        assertEquals(exact.doubleValue(), Statistics.of(values, 0, values.length).getSum(), 0);
+        assertEquals(Double.NaN, Statistics.EMPTY.getMean(), 0);
+        assertEquals(0, Statistics.EMPTY.getCount());
+    }
+}
@@ -0,0 +1,149 @@
+package hr.fer.zemris.java.gui.calc.exact;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import hr.fer.zemris.java.gui.calc.engine.UnaryOperation;
+import java.util.function.UnaryOperator;
+import org.junit.Test;
+
+/**
+ * Tests of {@link ExactSession} and {@link ExactOperators}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class ExactSessionTest {
+
+    /**
+     * Typed decimals are exact.
+     */
+    @Test
+    public void decimalsAreExact() {
+        ExactSession session = press(new ExactSession(), "0 . 1 + 0 . 2 =");
+        assertEquals("0.3", session.getDisplay(40));
+        press(session, "1 + 2 =");
+        assertEquals("3", session.getDisplay(40));
+    }
+
+    /**
+     * Operator keys pressed while Inv is checked apply the inverse operators.
+     */
+    @Test
+    public void invertedKeysApplyInverse() {
+        ExactSession session = press(new ExactSession(), "inv . 5 sin");
+        assertEquals(Math.asin(0.5), value(session), Math.ulp(Math.asin(0.5)));
+        press(session, "inv 2 ln");
+        assertEquals(Math.log(2), value(session), Math.ulp(Math.log(2)));
+        press(session, "inv 2 x^n 4 =");
+        assertEquals(Math.pow(2, 0.25), value(session), 1e-15);
+    }
+
+    /**
+     * Every operator of the registry has an exact version which agrees with it.
+     */
+    @Test
+    public void everyOperatorHasExactVersion() {
+        for (UnaryOperation operation : OperatorRegistry.DEFAULT.getUnaryOperations()) {
+            UnaryOperator<Real> exact = ExactOperators.unary(operation.getLabel());
+            assertNotNull(operation.getLabel(), exact);
+            for (double x : new double[] {0.3, -0.7, 1.5, 40}) {
+                double expected = operation.applyAsDouble(x);
+                if (Double.isNaN(expected) || Double.isInfinite(expected)) {
+                    continue;
+                }
+                double actual = approximate(exact.apply(ExactOperators.decimal(x)));
+                assertEquals(operation.getLabel() + "(" + x + ")", expected, actual,
+                    1e-13 * Math.max(1, Math.abs(expected)));
+            }
+        }
+    }
+
+    /**
+     * A loaded session continues the typed number, the pending operator and the stack of the
+     * engine.
+     */
+    @Test
+    public void loadContinuesEngine() {
+        CalculatorEngine engine = new CalculatorEngine();
+        String script = "1 2 . 5 push clr 0 . 1 * 3 +/-";
+        for (int code : Keypad.DEFAULT.compile(script)) {
+            Keypad.DEFAULT.press(engine, code);
+        }
+        ExactSession session = new ExactSession();
+        session.load(engine);
+        assertEquals("-3", session.getDisplay(10));
+        press(session, "7 =");
+        assertEquals("-3.7", session.getDisplay(40));
+        press(session, "pop");
+        assertEquals("12.5", session.getDisplay(40));
+        assertEquals(0, session.getStackSize());
+    }
+
+    /**
+     * Values which are not defined are shown as NaN.
+     */
+    @Test
+    public void undefinedIsNaN() {
+        assertEquals("NaN", press(new ExactSession(), "1 / 0 =").getDisplay(10));
+        ExactSession session = new ExactSession();
+        session.setNewValue(ExactOperators.decimal(Double.NaN));
+        assertEquals("NaN", session.getDisplay(10));
+    }
+
+    /**
+     * Long chains of operations keep their value and are shown without walking the whole
+     * history: sums of decimals are decimals, and other chains are cut off at the guard digits.
+     */
+    @Test
+    public void longChainsStayShallow() {
+        ExactSession session = press(new ExactSession(), "1");
+        for (int i = 0; i < 20_000; i++) {
+            press(session, "+ 1 =");
+            session.getDisplay(24);
+        }
+        assertEquals("20001", session.getDisplay(24));
+
+        session = press(new ExactSession(), "3 1/x");
+        for (int i = 0; i < 20_000; i++) {
+            press(session, "+ 1 =");
+            session.getDisplay(24);
+        }
+        assertEquals("20000.3333333333333333333", session.getDisplay(24));
+        press(session, "- 2 0 0 0 0 =");
+        assertEquals("0.333333333333333333333333", session.getDisplay(24));
+    }
+
+    /**
+     * Presses the keys of a script.
+     *
+     * @param session session to press the keys on
+     * @param script labels of the keys
+     * @return the session
+     */
+    private static ExactSession press(ExactSession session, String script) {
+        for (int code : Keypad.DEFAULT.compile(script)) {
+            session.press(code);
+        }
+        return session;
+    }
+
+    /**
+     * @param session the session
+     * @return current value of the session rounded to double
+     */
+    private static double value(ExactSession session) {
+        return approximate(session.getCurrentValue());
+    }
+
+    /**
+     * @param x the number
+     * @return the number rounded to double
+     */
+    private static double approximate(Real x) {
+        return x.toBigDecimal(17).doubleValue();
+    }
+}
@@ -0,0 +1,169 @@
+package hr.fer.zemris.java.gui.calc.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import org.junit.Test;
+
+/**
+ * Tests of {@link ExpressionCompiler}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class ExpressionCompilerTest {
+
+    /** Registry of the compiler. */
+    private static final OperatorRegistry REGISTRY = OperatorRegistry.DEFAULT;
+    /** Compiler under test. */
+    private static final ExpressionCompiler COMPILER = new ExpressionCompiler(REGISTRY);
+    /** Values of <code>x</code> the expressions are evaluated at. */
+    private static final double[] XS = {0, -0.0, 0.3, -2, 10, 1e-5, 7.25, Double.NaN};
+
+    /**
+     * @param label label of the operator
+     * @return unary operator of the registry
+     */
+    private static DoubleUnaryOperator u(String label) {
+        return REGISTRY.unary(label);
+    }
+
+    /**
+     * @param label label of the operator
+     * @return binary operator of the registry
+     */
+    private static DoubleBinaryOperator b(String label) {
+        return REGISTRY.binary(label);
+    }
+
+    /**
+     * Asserts that the compiled expression gives the same bits as the function for all
+     * {@link #XS}.
+     *
+     * @param expression the expression
+     * @param expected the function
+     */
+    private static void assertCompiles(String expression, DoubleUnaryOperator expected) {
+        DoubleUnaryOperator f = COMPILER.compile(expression);
+        for (double x : XS) {
+            double e = expected.applyAsDouble(x);
+            double a = f.applyAsDouble(x);
+            if (Double.doubleToLongBits(e) != Double.doubleToLongBits(a)) {
+                fail(expression + " at " + x + ": expected " + e + ", was " + a);
+            }
+        }
+    }
+
+    /**
+     * Operators, functions and constants give the results of the registry's operators.
+     */
+    @Test
+    public void resultsMatchRegistry() {
+        assertCompiles("x ^ 3", x -> b("x^n").applyAsDouble(x, 3));
+        assertCompiles("3 √ x", x -> b("n√x").applyAsDouble(x, 3));
+        assertCompiles("√x", x -> b("n√x").applyAsDouble(x, 2));
+        assertCompiles("1 / x", u("1/x"));
+        assertCompiles("10 ^ x", u("10^x"));
+        assertCompiles("e ^ x", u("e^x"));
+        assertCompiles("sin(x) * 2 + cos(x) / 3 - 1",
+            x -> u("sin").applyAsDouble(x) * 2 + u("cos").applyAsDouble(x) / 3 - 1);
+        assertCompiles("ln(x) * log(x) / x",
+            x -> u("ln").applyAsDouble(x) * u("log").applyAsDouble(x) / x);
+        assertCompiles("atan(x) - acot(x)",
+            x -> u("atan").applyAsDouble(x) - u("acot").applyAsDouble(x));
+        assertCompiles("2.5e-1 * x + 1e3", x -> 0.25 * x + 1000);
+    }
+
+    /**
+     * Signs bind weaker than powers, powers are right associative and the other operators are
+     * left associative.
+     */
+    @Test
+    public void precedence() {
+        assertCompiles("-x ^ 2", x -> -b("x^n").applyAsDouble(x, 2));
+        assertCompiles("(-x) ^ 2", x -> b("x^n").applyAsDouble(-x, 2));
+        assertCompiles("2 ^ x ^ 3", x -> b("x^n").applyAsDouble(2, b("x^n").applyAsDouble(x, 3)));
+        assertCompiles("2 ^ -x", x -> b("x^n").applyAsDouble(2, -x));
+        assertCompiles("x - -x", x -> x - -x);
+        assertCompiles("--x", x -> -(-x));
+        assertCompiles("+x", x -> x);
+        assertCompiles("x - 1 - x", x -> x - 1 - x);
+        assertCompiles("x / 2 / x", x -> x / 2 / x);
+        assertCompiles("1 + x * 3", x -> 1 + x * 3);
+        assertCompiles("x * 2 ^ 3", x -> x * b("x^n").applyAsDouble(2, 3));
+    }
+
+    /**
+     * Constant subexpressions are folded with the same operators, so they give the same bits.
+     */
+    @Test
+    public void constantsAreFolded() {
+        double sin = u("sin").applyAsDouble(Math.PI / 6);
+        assertCompiles("sin(pi / 6) + x", x -> sin + x);
+        assertCompiles("2 * 3 + x", x -> 6 + x);
+        assertCompiles("-(2 √ 8)", x -> -b("n√x").applyAsDouble(8, 2));
+        assertCompiles("1 / (e ^ 2)", x -> u("1/x").applyAsDouble(u("e^x").applyAsDouble(2)));
+    }
+
+    /**
+     * Expressions may be nested up to {@link ExpressionCompiler#MAX_DEPTH}, deeper ones are an
+     * error.
+     */
+    @Test
+    public void depthIsLimited() {
+        int depth = ExpressionCompiler.MAX_DEPTH - 1;
+        assertCompiles(repeat("(", depth) + "x" + repeat(")", depth), x -> x);
+        assertCompiles(repeat("-", depth) + "x", x -> (depth % 2 == 0) ? x : -x);
+        assertError(repeat("(", depth + 1) + "x" + repeat(")", depth + 1),
+            "Expression is nested too deep at position " + (depth + 1));
+        assertError(repeat("-", 10_000) + "x", "Expression is nested too deep at position "
+            + ExpressionCompiler.MAX_DEPTH);
+    }
+
+    /**
+     * Errors give the position of the token where they are found.
+     */
+    @Test
+    public void errorsHavePositions() {
+        assertError("2 + * x", "Unexpected \"*\" at position 4");
+        assertError("sin x", "Expected '(' but found \"x\" at position 4");
+        assertError("foo(x)", "Unknown name \"foo\" at position 0");
+        assertError("x + 2 )", "Unexpected \")\" at position 6");
+        assertError("2 $ x", "Unexpected character '$' at position 2");
+        assertError("(x", "Expected ')' but found end of expression at position 2");
+        assertError("", "Unexpected end of expression at position 0");
+    }
+
+    /**
+     * Asserts that compiling the expression fails with the given message.
+     *
+     * @param expression the expression
+     * @param message the message, without the quoted expression
+     */
+    private static void assertError(String expression, String message) {
+        try {
+            COMPILER.compile(expression);
+            fail("Invalid expression was accepted: " + expression);
+        } catch (IllegalArgumentException e) {
+            assertEquals(message + " in \"" + expression + "\".", e.getMessage());
+        }
+    }
+
+    /**
+     * Repeats a string.
+     *
+     * @param s the string
+     * @param n number of repetitions
+     * @return the repeated string
+     */
+    private static String repeat(String s, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+}
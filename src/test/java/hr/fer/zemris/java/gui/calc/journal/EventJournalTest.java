@@ -0,0 +1,255 @@
+package hr.fer.zemris.java.gui.calc.journal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import hr.fer.zemris.java.gui.calc.CalculatorBackend;
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.EngineHistory;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import hr.fer.zemris.java.gui.calc.engine.OperatorBank.Slot;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link EventJournal}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class EventJournalTest {
+
+    /** Directory of the journal. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * @param engine an engine
+     * @return serialized state of the engine
+     */
+    private static byte[] state(CalculatorEngine engine) {
+        ByteBuffer buffer = ByteBuffer.allocate(engine.stateSize());
+        engine.writeState(buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Journals and presses the keys of the script.
+     *
+     * @param journal the journal
+     * @param engine the engine
+     * @param history history recorded after every key, <code>null</code> for none
+     * @param script labels of the keys
+     */
+    private static void press(EventJournal journal, CalculatorEngine engine,
+        EngineHistory history, String script) {
+        for (int code : Keypad.DEFAULT.compile(script)) {
+            journal.key(code);
+            Keypad.DEFAULT.press(engine, code);
+            if (history != null) {
+                history.record();
+            }
+        }
+    }
+
+    /**
+     * @param directory directory of a journal
+     * @return number of the newest segment file, which may be the one prepared in advance
+     */
+    private static long newestSegment(Path directory) {
+        long newest = -1;
+        for (File file : directory.toFile().listFiles()) {
+            String name = file.getName();
+            newest = Math.max(newest, Long.parseLong(name.replaceAll("\\D", "")));
+        }
+        return newest;
+    }
+
+    /**
+     * Opens the journal in the directory with a new engine.
+     *
+     * @param directory directory of the journal
+     * @return state of the recovered engine
+     * @throws IOException if the journal cannot be opened
+     */
+    private static byte[] recover(Path directory) throws IOException {
+        CalculatorEngine engine = new CalculatorEngine();
+        new EventJournal(directory, engine).close();
+        return state(engine);
+    }
+
+    /**
+     * Copies the segment files as they are now, like a crash of the process which leaves the
+     * mapped memory to the operating system.
+     *
+     * @param directory directory of a journal which is still open
+     * @return directory with the copy
+     * @throws IOException if copying fails
+     */
+    private Path crash(Path directory) throws IOException {
+        Path copy = folder.newFolder().toPath();
+        for (File file : directory.toFile().listFiles()) {
+            try {
+                Files.copy(file.toPath(), copy.resolve(file.getName()));
+            } catch (NoSuchFileException obsolete) {
+                //deleted by the background compaction meanwhile
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Keys, new values and results of unregistered operators are recovered from a journal which
+     * was not closed.
+     *
+     * @throws IOException if the journal fails
+     */
+    @Test
+    public void recoversAllRecordsAfterCrash() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        CalculatorEngine engine = new CalculatorEngine();
+        EventJournal journal = new EventJournal(directory, engine);
+        press(journal, engine, null, "1 2 push 3 . 5 +");
+        journal.value(Math.PI);
+        engine.setNewValue(Math.PI);
+        press(journal, engine, null, "= push 2 x^n");
+        journal.unaryResult(-0.0);
+        engine.unaryOperation(x -> -0.0);
+        press(journal, engine, null, "=");
+        journal.value(Double.NaN);
+        engine.setNewValue(Double.NaN);
+
+        CalculatorEngine recovered = new CalculatorEngine();
+        EventJournal reopened = new EventJournal(crash(directory), recovered);
+        assertEquals(15, reopened.getRecovered());
+        assertArrayEquals(state(engine), state(recovered));
+        reopened.close();
+        journal.close();
+    }
+
+    /**
+     * Operators applied by the backend while Inv is checked are journaled as the keys which give
+     * them, and recovered as the same operators.
+     *
+     * @throws IOException if the journal fails
+     */
+    @Test
+    public void recoversInvertedOperators() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        CalculatorBackend backend = new CalculatorBackend(null, null, null);
+        EventJournal journal = new EventJournal(directory, backend.getEngine());
+        backend.setJournal(journal);
+        backend.addToBuffer("0.5");
+        backend.setInverted(true);
+        backend.unaryOperation(backend.getBank().unary(Slot.SIN));
+        backend.binaryOperation(backend.getBank().binary(Slot.POWER));
+        backend.addToBuffer("3");
+        backend.setInverted(false);
+        backend.unaryOperation(backend.getBank().unary(Slot.LN));
+        backend.equalsPressed();
+        assertEquals(Math.pow(Math.asin(0.5), 1 / Math.log(3)), backend.getCurrentValue(), 0);
+        journal.close();
+
+        assertArrayEquals(state(backend.getEngine()), recover(directory));
+    }
+
+    /**
+     * After segments are rolled by the snapshot interval, only the records of the newest one are
+     * replayed.
+     *
+     * @throws IOException if the journal fails
+     */
+    @Test
+    public void recoversFromRolledSegment() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        CalculatorEngine engine = new CalculatorEngine();
+        EventJournal journal = new EventJournal(directory, engine, Keypad.DEFAULT, 5);
+        press(journal, engine, null, "4 push 2 push 7 * 3 = push 1 . 5 x^n 2 = pop - 9 =");
+
+        CalculatorEngine recovered = new CalculatorEngine();
+        EventJournal reopened = new EventJournal(crash(directory), recovered, Keypad.DEFAULT, 5);
+        assertEquals(19 % 5, reopened.getRecovered());
+        assertArrayEquals(state(engine), state(recovered));
+        reopened.close();
+        journal.close();
+    }
+
+    /**
+     * A newest segment whose header was not committed, whether empty or with a half-written
+     * snapshot, is skipped and the previous segment is recovered.
+     *
+     * @throws IOException if the journal fails
+     */
+    @Test
+    public void skipsUncommittedNewestSegment() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        CalculatorEngine engine = new CalculatorEngine();
+        EventJournal journal = new EventJournal(directory, engine);
+        press(journal, engine, null, "6 push 5 push 4 / 8 =");
+        Path crashed = crash(directory);
+        journal.close();
+
+        long newest = newestSegment(crashed);
+        byte[] uncommitted = new byte[64 * 1024];
+        ByteBuffer.wrap(uncommitted, 4, 60).putInt(40).putDouble(1.0).putDouble(2.0);
+        Files.write(crashed.resolve(String.format("segment-%016d.journal", newest + 1)),
+            uncommitted, StandardOpenOption.CREATE_NEW);
+        Files.write(crashed.resolve(String.format("segment-%016d.journal", newest + 2)),
+            new byte[3], StandardOpenOption.CREATE_NEW);
+        assertArrayEquals(state(engine), recover(crashed));
+    }
+
+    /**
+     * Undos do not touch the files; the next key snapshots the restored state once.
+     *
+     * @throws IOException if the journal fails
+     */
+    @Test
+    public void checkpointIsLazy() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        CalculatorEngine engine = new CalculatorEngine();
+        EventJournal journal = new EventJournal(directory, engine);
+        EngineHistory history = new EngineHistory(engine);
+        press(journal, engine, history, "1 push 2 push 3 push 4 push 5 + 6 =");
+
+        long before = newestSegment(directory);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(history.undo());
+            journal.checkpoint();
+        }
+        assertTrue(newestSegment(directory) <= before + 1);
+
+        press(journal, engine, history, "7 *");
+        journal.force();
+        assertArrayEquals(state(engine), recover(directory));
+        journal.close();
+    }
+
+    /**
+     * A checkpoint which is pending when the journal is closed is taken by the close.
+     *
+     * @throws IOException if the journal fails
+     */
+    @Test
+    public void closeTakesPendingCheckpoint() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        CalculatorEngine engine = new CalculatorEngine();
+        EventJournal journal = new EventJournal(directory, engine);
+        EngineHistory history = new EngineHistory(engine);
+        press(journal, engine, history, "4 push 2 x^n 8 =");
+        history.undo();
+        history.undo();
+        journal.checkpoint();
+        journal.close();
+        assertArrayEquals(state(engine), recover(directory));
+    }
+}
@@ -0,0 +1,153 @@
+package hr.fer.zemris.java.gui.calc.macro;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import hr.fer.zemris.java.gui.calc.engine.BinaryOperation;
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import hr.fer.zemris.java.gui.calc.engine.UnaryOperation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests of {@link Macro} against {@link CalculatorEngine}s driven by the same keys.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class MacroTest {
+
+    /** Keypad of the engines and the macros. */
+    private static final Keypad KEYPAD = Keypad.DEFAULT;
+    /** Inputs the macros are applied to. */
+    private static final double[] INPUTS = {0, -0.0, 1, -2.5, 0.3, 1e300, Double.NaN};
+
+    /**
+     * Runs the keys on an engine which starts with the input as the result of a calculation.
+     *
+     * @param codes codes of the keys
+     * @param input the input
+     * @return current value of the engine after the keys
+     */
+    private static double run(int[] codes, double input) {
+        CalculatorEngine engine = new CalculatorEngine();
+        engine.setNewValue(input);
+        engine.setEqualsPressed(true);
+        for (int code : codes) {
+            KEYPAD.press(engine, code);
+        }
+        return engine.getCurrentValue();
+    }
+
+    /**
+     * Asserts that the macro gives the same bits as the engine for all inputs.
+     *
+     * @param message description of the macro
+     * @param macro the macro
+     * @param codes codes of the keys
+     */
+    private static void assertMatchesEngine(String message, Macro macro, int[] codes) {
+        for (double input : INPUTS) {
+            double expected = run(codes, input);
+            double actual = macro.applyAsDouble(input);
+            if (Double.doubleToLongBits(expected) != Double.doubleToLongBits(actual)) {
+                fail(message + " of " + input + ": expected " + expected + ", was " + actual);
+            }
+        }
+    }
+
+    /**
+     * Random sequences of digits, dots, operators, equals, <code>clr</code>, <code>+/-</code>
+     * and Inv give the same values as the engine, also when they are stored and read back.
+     */
+    @Test
+    public void randomKeysMatchEngine() {
+        List<Integer> operators = new ArrayList<>();
+        for (UnaryOperation operation : KEYPAD.getRegistry().getUnaryOperations()) {
+            operators.add(Keypad.UNARY | operation.getId());
+        }
+        for (BinaryOperation operation : KEYPAD.getRegistry().getBinaryOperations()) {
+            operators.add(Keypad.BINARY | operation.getId());
+        }
+        Random random = new Random(3);
+        for (int t = 0; t < 20_000; t++) {
+            int[] codes = new int[1 + random.nextInt(24)];
+            for (int i = 0; i < codes.length; i++) {
+                int k = random.nextInt(100);
+                if (k < 40) {
+                    codes[i] = random.nextInt(10);
+                } else if (k < 45) {
+                    codes[i] = Keypad.DOT;
+                } else if (k < 55) {
+                    codes[i] = Keypad.EQUALS;
+                } else if (k < 60) {
+                    codes[i] = Keypad.CLEAR;
+                } else if (k < 66) {
+                    codes[i] = Keypad.SIGN;
+                } else if (k < 72) {
+                    codes[i] = Keypad.INV;
+                } else {
+                    codes[i] = operators.get(random.nextInt(operators.size()));
+                }
+            }
+            Macro macro = Macro.compile(codes, KEYPAD);
+            String script = macro.toString();
+            assertMatchesEngine(script, macro, codes);
+
+            Macro stored = Macro.fromBytes(macro.toBytes(), KEYPAD);
+            assertArrayEquals(script, codes, stored.getCodes());
+            assertMatchesEngine("stored " + script, stored, codes);
+            assertArrayEquals(script, codes, Macro.compile(script, KEYPAD).getCodes());
+        }
+    }
+
+    /**
+     * Constants are folded as the engine computes them, typed numbers included.
+     */
+    @Test
+    public void foldedConstantsMatchEngine() {
+        String[] scripts = {
+            "2 x^n 1 0 =",
+            "* 0 . 1 + 0 . 2 =",
+            "clr 3 +/- * +/- =",
+            "+ 1 = inv sin * 2 =",
+            "inv 2 x^n 3 = inv ln",
+            "1 / 0 = + 1 =",
+            "sin cos + 1 . 5 =",
+            ". 5 +/- +/- 7 =",
+        };
+        for (String script : scripts) {
+            Macro macro = Macro.compile(script, KEYPAD);
+            assertMatchesEngine(script, macro, macro.getCodes());
+        }
+    }
+
+    /**
+     * Operator keys take two bytes, and a truncated one is rejected.
+     */
+    @Test
+    public void operatorsTakeTwoBytes() {
+        Macro macro = Macro.compile("1 + sin =", KEYPAD);
+        byte[] bytes = macro.toBytes();
+        assertEquals(6, bytes.length);
+        assertEquals("1 + sin =", Macro.fromBytes(bytes, KEYPAD).toString());
+        try {
+            Macro.fromBytes(new byte[] {1, bytes[1]}, KEYPAD);
+            fail("Truncated macro was accepted.");
+        } catch (IllegalArgumentException expected) {
+            //truncated
+        }
+    }
+
+    /**
+     * Keys which work with the stack cannot be in a macro.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void stackKeysAreRejected() {
+        Macro.compile("1 push", KEYPAD);
+    }
+}
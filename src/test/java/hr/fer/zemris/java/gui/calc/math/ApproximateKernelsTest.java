@@ -0,0 +1,233 @@
+package hr.fer.zemris.java.gui.calc.math;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Compares {@link ApproximateKernels} with {@link StrictMath} and checks the documented error
+ * bounds for every number of digits. Every function is sampled over its whole domain (random bit
+ * patterns, so all exponents and special values are covered) and over a range of typical
+ * arguments.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+@RunWith(Parameterized.class)
+public class ApproximateKernelsTest {
+
+    /** Number of samples per function and sampler. */
+    private static final int SAMPLES = 1 << 14;
+    /** Error of the reference (one ulp). */
+    private static final double REFERENCE_ERROR = 0x1p-52;
+
+    /** Source of arguments. */
+    private final Random random = new Random(42);
+    /** Kernels under test. */
+    private final ApproximateKernels k;
+    /** Bound of the relative error of the kernels. */
+    private final double bound;
+
+    /**
+     * Creates the test of the kernels with the given number of digits.
+     *
+     * @param digits number of significant digits
+     */
+    public ApproximateKernelsTest(int digits) {
+        k = new ApproximateKernels(digits);
+        bound = Math.pow(10, -digits) + REFERENCE_ERROR;
+    }
+
+    /**
+     * @return all numbers of digits
+     */
+    @Parameters(name = "{0} digits")
+    public static Collection<Object[]> digits() {
+        List<Object[]> digits = new ArrayList<>();
+        for (int d = ApproximateKernels.MIN_DIGITS; d <= ApproximateKernels.MAX_DIGITS; d++) {
+            digits.add(new Object[] {d});
+        }
+        return digits;
+    }
+
+    /**
+     * Trigonometric functions.
+     */
+    @Test
+    public void trigonometric() {
+        check("sin", k::sin, StrictMath::sin, uniform(-100, 100));
+        check("cos", k::cos, StrictMath::cos, uniform(-100, 100));
+        check("tan", k::tan, StrictMath::tan, uniform(-100, 100));
+    }
+
+    /**
+     * Inverse trigonometric functions.
+     */
+    @Test
+    public void inverseTrigonometric() {
+        check("asin", k::asin, StrictMath::asin, uniform(-1, 1));
+        check("acos", k::acos, StrictMath::acos, uniform(-1, 1));
+        check("atan", k::atan, StrictMath::atan, uniform(-100, 100));
+        check("atan2", k::atan2, StrictMath::atan2, (x, y) -> bound,
+            uniform(-100, 100), uniform(-100, 100));
+    }
+
+    /**
+     * Exponential and logarithms.
+     */
+    @Test
+    public void exponential() {
+        check("exp", k::exp, StrictMath::exp, uniform(-700, 700));
+        check("log", k::log, StrictMath::log, uniform(0, 100));
+        check("log10", k::log10, StrictMath::log10, uniform(0, 100));
+    }
+
+    /**
+     * Hyperbolic functions.
+     */
+    @Test
+    public void hyperbolic() {
+        check("sinh", k::sinh, StrictMath::sinh, uniform(-20, 20));
+        check("cosh", k::cosh, StrictMath::cosh, uniform(-20, 20));
+        check("tanh", k::tanh, StrictMath::tanh, uniform(-5, 5));
+    }
+
+    /**
+     * Inverse hyperbolic functions, compared with {@link MathKernels#DEFAULT}, which computes them
+     * from {@link Math#log1p(double)} within a few ulps.
+     */
+    @Test
+    public void inverseHyperbolic() {
+        MathKernels m = MathKernels.DEFAULT;
+        check("asinh", k::asinh, m::asinh, uniform(-100, 100));
+        check("acosh", k::acosh, m::acosh, uniform(1, 100));
+        check("atanh", k::atanh, m::atanh, uniform(-1, 1));
+    }
+
+    /**
+     * Power, whose error grows with the magnitude of <code>y ln x</code>.
+     */
+    @Test
+    public void pow() {
+        check("pow", k::pow, StrictMath::pow,
+            (x, y) -> (1 + (x > 0 ? Math.abs(y * Math.log(x)) : 0))
+                * (bound - REFERENCE_ERROR + 0x1p-53) + REFERENCE_ERROR,
+            uniform(0, 100), uniform(-20, 20));
+    }
+
+    /**
+     * Checks a unary function on all bit patterns and on the given typical arguments.
+     *
+     * @param name name of the function
+     * @param function approximation
+     * @param reference exact function
+     * @param typical sampler of typical arguments
+     */
+    private void check(String name, DoubleUnaryOperator function, DoubleUnaryOperator reference,
+        DoubleSupplier typical) {
+        double max = 0;
+        double worst = 0;
+        for (int i = 0; i < 2 * SAMPLES; i++) {
+            double x = (i & 1) == 0 ? anyDouble() : typical.getAsDouble();
+            double error = error(function.applyAsDouble(x), reference.applyAsDouble(x));
+            if (error > max) {
+                max = error;
+                worst = x;
+            }
+        }
+        report(name, max, bound, "x=" + worst);
+    }
+
+    /**
+     * Checks a binary function on all bit patterns and on the given typical arguments.
+     *
+     * @param name name of the function
+     * @param function approximation
+     * @param reference exact function
+     * @param bound maximal relative error for the arguments
+     * @param typicalX sampler of typical first arguments
+     * @param typicalY sampler of typical second arguments
+     */
+    private void check(String name, DoubleBinaryOperator function,
+        DoubleBinaryOperator reference, DoubleBinaryOperator bound, DoubleSupplier typicalX,
+        DoubleSupplier typicalY) {
+        double max = 0;
+        double worstBound = 0;
+        double worstRatio = -1;
+        String worst = "";
+        for (int i = 0; i < 2 * SAMPLES; i++) {
+            boolean any = (i & 1) == 0;
+            double x = any ? anyDouble() : typicalX.getAsDouble();
+            double y = any ? anyDouble() : typicalY.getAsDouble();
+            double error = error(function.applyAsDouble(x, y), reference.applyAsDouble(x, y));
+            double b = bound.applyAsDouble(x, y);
+            if (error / b > worstRatio) {
+                worstRatio = error / b;
+                worstBound = b;
+                max = error;
+                worst = "x=" + x + ", y=" + y;
+            }
+        }
+        report(name, max, worstBound, worst);
+    }
+
+    /**
+     * Asserts that the maximal error is within the bound.
+     *
+     * @param name name of the function
+     * @param max maximal error
+     * @param bound bound of the error at the worst argument
+     * @param worst worst argument
+     */
+    private static void report(String name, double max, double bound, String worst) {
+        assertTrue(String.format("%s max error %.3e, bound %.3e (%s)", name, max, bound, worst),
+            max <= bound || max == 0);
+    }
+
+    /**
+     * Returns relative error of the approximation. Special values must match exactly, results
+     * below {@link Double#MIN_NORMAL} are not bounded.
+     *
+     * @param approximation approximated result
+     * @param exact exact result
+     * @return relative error
+     */
+    private static double error(double approximation, double exact) {
+        if (Double.isNaN(exact)) {
+            return Double.isNaN(approximation) ? 0 : Double.POSITIVE_INFINITY;
+        }
+        if (Double.isInfinite(exact) || exact == 0) {
+            return approximation == exact ? 0 : Double.POSITIVE_INFINITY;
+        }
+        if (Math.abs(exact) < Double.MIN_NORMAL) {
+            return Math.abs(approximation) <= 2 * Double.MIN_NORMAL ? 0 : Double.POSITIVE_INFINITY;
+        }
+        return Math.abs(approximation - exact) / Math.abs(exact);
+    }
+
+    /**
+     * @return double with random bits
+     */
+    private double anyDouble() {
+        return Double.longBitsToDouble(random.nextLong());
+    }
+
+    /**
+     * @param from lower bound
+     * @param to upper bound
+     * @return sampler of uniformly distributed arguments
+     */
+    private DoubleSupplier uniform(double from, double to) {
+        return () -> from + (to - from) * random.nextDouble();
+    }
+}
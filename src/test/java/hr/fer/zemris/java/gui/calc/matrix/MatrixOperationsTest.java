@@ -0,0 +1,181 @@
+package hr.fer.zemris.java.gui.calc.matrix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import hr.fer.zemris.java.gui.calc.engine.OperatorRegistry;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+/**
+ * Tests of {@link MatrixOperations} and {@link MatrixStack}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class MatrixOperationsTest {
+
+    /** Operations on the common pool. */
+    private final MatrixOperations operations = new MatrixOperations();
+
+    /**
+     * Creates a matrix of random elements in [-1, 1).
+     *
+     * @param random source of the elements
+     * @param rows number of rows
+     * @param columns number of columns
+     * @return the matrix
+     */
+    private static Matrix random(Random random, int rows, int columns) {
+        double[] elements = new double[rows * columns];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = 2 * random.nextDouble() - 1;
+        }
+        return new Matrix(rows, columns, elements);
+    }
+
+    /**
+     * Multiplies the matrices with the textbook loops, adding the products in the same order as
+     * the blocked kernel.
+     *
+     * @param a left operand
+     * @param b right operand
+     * @return the product
+     */
+    private static Matrix naive(Matrix a, Matrix b) {
+        int n = a.getRows();
+        int inner = a.getColumns();
+        int m = b.getColumns();
+        double[] c = new double[n * m];
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < inner; k++) {
+                double x = a.get(i, k);
+                for (int j = 0; j < m; j++) {
+                    c[i * m + j] += x * b.get(k, j);
+                }
+            }
+        }
+        return new Matrix(n, m, c);
+    }
+
+    /**
+     * Returns the largest absolute difference of the elements.
+     *
+     * @param a a matrix
+     * @param b a matrix of the same size
+     * @return the distance
+     */
+    private static double distance(Matrix a, Matrix b) {
+        double distance = 0;
+        for (int i = 0; i < a.elements().length; i++) {
+            distance = Math.max(distance, Math.abs(a.elements()[i] - b.elements()[i]));
+        }
+        return distance;
+    }
+
+    /**
+     * The blocked product is bitwise equal to the textbook one, whatever the number of threads.
+     */
+    @Test
+    public void multiplyMatchesNaiveProduct() {
+        Random random = new Random(42);
+        int[][] sizes = {{1, 1, 1}, {3, 5, 7}, {64, 130, 600}, {300, 257, 513}};
+        for (int threads : new int[] {1, 4}) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            MatrixOperations parallel = new MatrixOperations(pool);
+            for (int[] size : sizes) {
+                Matrix a = random(random, size[0], size[1]);
+                Matrix b = random(random, size[1], size[2]);
+                assertEquals(naive(a, b), parallel.multiply(a, b));
+            }
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Product of a matrix and its inverse is the identity.
+     */
+    @Test
+    public void inverse() {
+        Random random = new Random(7);
+        for (int n : new int[] {1, 2, 5, 50, 200}) {
+            Matrix a = random(random, n, n);
+            assertTrue(distance(operations.multiply(a, operations.inverse(a)),
+                Matrix.identity(n)) < 1e-9);
+        }
+    }
+
+    /**
+     * Positive, zero and negative powers.
+     */
+    @Test
+    public void power() {
+        Matrix a = Matrix.of(2, 2, 1, 2, 3, 4);
+        assertEquals(Matrix.of(2, 2, 37, 54, 81, 118), operations.power(a, 3));
+        assertEquals(Matrix.identity(2), operations.power(a, 0));
+        assertTrue(distance(operations.multiply(operations.power(a, -3),
+            operations.power(a, 3)), Matrix.identity(2)) < 1e-12);
+    }
+
+    /**
+     * Determinant from the decomposition.
+     */
+    @Test
+    public void determinant() {
+        LUDecomposition lu = operations.decompose(Matrix.of(3, 3, 2, 0, 1, 1, 3, 2, 1, 1, 2));
+        assertEquals(6, lu.getDeterminant(), 1e-12);
+        assertFalse(lu.isSingular());
+    }
+
+    /**
+     * A matrix which is singular only up to rounding is singular, so it has no inverse.
+     */
+    @Test
+    public void singularToWorkingPrecision() {
+        Matrix a = Matrix.of(3, 3, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertTrue(operations.decompose(a).isSingular());
+        assertThrows(() -> operations.inverse(a));
+        assertThrows(() -> operations.power(a, -2));
+        assertThrows(() -> operations.inverse(Matrix.of(2, 2, 0, 0, 0, 0)));
+        assertFalse(operations.decompose(Matrix.of(2, 2, 1e-300, 0, 0, 1e-300)).isSingular());
+    }
+
+    /**
+     * Asserts that the action throws an {@link ArithmeticException}.
+     *
+     * @param action the action
+     */
+    private static void assertThrows(Runnable action) {
+        try {
+            action.run();
+        } catch (ArithmeticException expected) {
+            return;
+        }
+        throw new AssertionError("ArithmeticException expected.");
+    }
+
+    /**
+     * Operators on the stack, and a failed operation which leaves the stack as it was.
+     */
+    @Test
+    public void stack() {
+        OperatorRegistry registry = OperatorRegistry.DEFAULT;
+        MatrixStack stack = new MatrixStack(operations);
+        for (int i = 1; i <= 9; i++) {
+            stack.push(i);
+        }
+        stack.pack(3, 3);
+        assertEquals(Matrix.of(3, 3, 1, 2, 3, 4, 5, 6, 7, 8, 9), stack.peek());
+        assertThrows(() -> stack.apply(registry.unary("1/x")));
+        assertEquals(1, stack.size());
+        stack.push(2);
+        stack.apply(registry.binary("*"), 0);
+        stack.push(stack.peek());
+        stack.apply(registry.binary("-"), 0);
+        assertEquals(new Matrix(3, 3, new double[9]), stack.peek());
+        stack.unpack();
+        assertEquals(9, stack.size());
+    }
+}
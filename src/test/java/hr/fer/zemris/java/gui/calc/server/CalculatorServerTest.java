@@ -0,0 +1,208 @@
+package hr.fer.zemris.java.gui.calc.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of {@link CalculatorServer}.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class CalculatorServerTest {
+
+    /** Server under test. */
+    private CalculatorServer server;
+
+    /**
+     * Starts the server on a free port.
+     *
+     * @throws IOException if the server cannot be started
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = new CalculatorServer(0);
+        server.start();
+    }
+
+    /**
+     * Stops the server.
+     *
+     * @throws IOException if closing fails
+     */
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Sends request lines on a new connection and returns one response line per request.
+     *
+     * @param requests the requests
+     * @return the responses
+     * @throws IOException if the connection fails
+     */
+    private String[] send(String... requests) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            socket.setSoTimeout(10_000);
+            OutputStream out = socket.getOutputStream();
+            for (String request : requests) {
+                out.write((request + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            out.flush();
+            BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String[] responses = new String[requests.length];
+            for (int i = 0; i < responses.length; i++) {
+                responses[i] = in.readLine();
+            }
+            return responses;
+        }
+    }
+
+    /**
+     * Repeats a string.
+     *
+     * @param s the string
+     * @param n number of repetitions
+     * @return the repeated string
+     */
+    private static String repeat(String s, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Pipelined requests get their responses in order.
+     *
+     * @throws IOException if the connection fails
+     */
+    @Test
+    public void keysAndExpressions() throws IOException {
+        String[] responses = send("keys 2 x^n 1 0 =", "expr x / 4 + 1", "value", "quit");
+        assertEquals("ok 1024.0", responses[0]);
+        assertEquals("ok 257.0", responses[1]);
+        assertEquals("ok 257.0", responses[2]);
+        assertEquals("bye", responses[3]);
+    }
+
+    /**
+     * An expression nested deeper than the parser allows is an error, and the server keeps
+     * serving the connection and new ones.
+     *
+     * @throws IOException if the connection fails
+     */
+    @Test
+    public void deeplyNestedExpressionIsAnError() throws IOException {
+        String nested = "expr " + repeat("(", 4000) + "x" + repeat(")", 4000);
+        String[] responses = send(nested, "keys 1 + 2 =");
+        assertTrue(responses[0], responses[0].startsWith("error "));
+        assertEquals("ok 3.0", responses[1]);
+        assertEquals("ok 5.0", send("keys 5")[0]);
+    }
+
+    /**
+     * A long chain of signs is an error which leaves the engine as it was.
+     *
+     * @throws IOException if the connection fails
+     */
+    @Test
+    public void longChainOfSignsIsAnError() throws IOException {
+        String[] responses = send("expr " + repeat("-", 8000) + "x", "value");
+        assertTrue(responses[0], responses[0].startsWith("error "));
+        assertEquals("ok 0.0", responses[1]);
+    }
+
+    /**
+     * Unfinished lines of idle connections are kept apart, also when they were started before a
+     * long line of another connection replaced the shared buffer.
+     *
+     * @throws IOException if the connection fails
+     */
+    @Test
+    public void unfinishedLinesAreKeptApart() throws IOException {
+        try (Connection x = new Connection(); Connection y = new Connection();
+            Connection z = new Connection()) {
+            assertEquals("ok 0.0", x.request("value"));
+            assertEquals("ok 0.0", y.request("value"));
+            assertEquals("ok 0.0", z.request("expr " + repeat("0+", 300) + "x"));
+            x.write("keys 1 2");
+            assertEquals("ok 0.0", z.request("value"));
+            y.write("valu");
+            assertEquals("ok 0.0", z.request("value"));
+            assertEquals("ok 123.0", x.request(" 3"));
+            assertEquals("ok 0.0", y.request("e"));
+        }
+    }
+
+    /**
+     * Connection to the server. Data sent on one connection is read by the server before data
+     * which is sent later on another one, so a response on one connection orders the others.
+     *
+     * @author Boris
+     * @version 1.0
+     */
+    private final class Connection implements Closeable {
+
+        /** The socket. */
+        private final Socket socket;
+        /** Reader of the responses. */
+        private final BufferedReader in;
+
+        /**
+         * Connects to the server.
+         *
+         * @throws IOException if the connection fails
+         */
+        Connection() throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+            socket.setSoTimeout(10_000);
+            in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Sends text without ending the line.
+         *
+         * @param text the text
+         * @throws IOException if sending fails
+         */
+        void write(String text) throws IOException {
+            OutputStream out = socket.getOutputStream();
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        /**
+         * Sends text which ends a request line and returns the response.
+         *
+         * @param text the text
+         * @return the response
+         * @throws IOException if the connection fails
+         */
+        String request(String text) throws IOException {
+            write(text + "\n");
+            return in.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
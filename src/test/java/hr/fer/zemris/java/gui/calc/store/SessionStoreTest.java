@@ -0,0 +1,222 @@
+package hr.fer.zemris.java.gui.calc.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import hr.fer.zemris.java.gui.calc.engine.CalculatorEngine;
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests of {@link SessionStore} against {@link CalculatorEngine}s driven by the same keys.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class SessionStoreTest {
+
+    /** Keypad of the engines and the store. */
+    private static final Keypad KEYPAD = Keypad.DEFAULT;
+
+    /** Store under test. */
+    private final SessionStore store = new SessionStore();
+
+    /**
+     * Asserts that the session is in the same state as the engine, including the whole stack.
+     *
+     * @param message description of the state
+     * @param engine the engine
+     * @param handle handle of the session
+     */
+    private void assertSame(String message, CalculatorEngine engine, int handle) {
+        assertEquals(message, engine.getError(), store.getError(handle));
+        assertEquals(message, engine.isInverted(), store.isInverted(handle));
+        assertBits(message, engine.getCurrentValue(), store.getCurrentValue(handle));
+        assertEquals(message, engine.getStack().size(), store.getStackSize(handle));
+        for (int depth = 0; depth < store.getStackSize(handle); depth++) {
+            assertBits(message + ", depth " + depth, engine.getStack().peek(depth),
+                store.peek(handle, depth));
+        }
+    }
+
+    /**
+     * Asserts that the doubles have the same bits.
+     *
+     * @param message description of the values
+     * @param expected expected value
+     * @param actual actual value
+     */
+    private static void assertBits(String message, double expected, double actual) {
+        if (Double.doubleToLongBits(expected) != Double.doubleToLongBits(actual)) {
+            fail(message + ": expected " + expected + ", was " + actual);
+        }
+    }
+
+    /**
+     * Presses the key in the engine and in the session and checks the results.
+     *
+     * @param engine the engine
+     * @param handle handle of the session
+     * @param code code of the key
+     */
+    private void press(CalculatorEngine engine, int handle, int code) {
+        assertEquals(KEYPAD.label(code), KEYPAD.press(engine, code), store.press(handle, code));
+    }
+
+    /**
+     * Random keys in many sessions, with bursts of pushes which spill the stack to pages, and
+     * sessions closed and reopened on the way.
+     */
+    @Test
+    public void randomKeysMatchEngine() {
+        Random random = new Random(1);
+        int sessions = 200;
+        CalculatorEngine[] engines = new CalculatorEngine[sessions];
+        int[] handles = new int[sessions];
+        for (int i = 0; i < sessions; i++) {
+            engines[i] = new CalculatorEngine();
+            handles[i] = store.open();
+        }
+        int[] operators = {KEYPAD.code("+"), KEYPAD.code("*"), KEYPAD.code("/"),
+            KEYPAD.code("sin"), KEYPAD.code("x^n"), KEYPAD.code("1/x"), KEYPAD.code("-")};
+        for (int step = 0; step < 200_000; step++) {
+            int i = random.nextInt(sessions);
+            int k = random.nextInt(100);
+            int code;
+            if (k < 55) {
+                code = random.nextInt(10);
+            } else if (k < 60) {
+                code = Keypad.DOT;
+            } else if (k < 68) {
+                code = Keypad.PUSH;
+            } else if (k < 74) {
+                code = Keypad.POP;
+            } else if (k < 78) {
+                code = Keypad.SIGN;
+            } else if (k < 84) {
+                code = Keypad.EQUALS;
+            } else if (k < 85) {
+                code = Keypad.CLEAR;
+            } else if (k < 86) {
+                code = Keypad.RESTART;
+            } else if (k < 87) {
+                code = Keypad.INV;
+            } else {
+                code = operators[random.nextInt(operators.length)];
+            }
+            if (code == Keypad.PUSH && random.nextInt(4) == 0) {
+                for (int j = 0; j < 40; j++) {
+                    press(engines[i], handles[i], code);
+                }
+            }
+            press(engines[i], handles[i], code);
+            assertSame("step " + step, engines[i], handles[i]);
+            if (random.nextInt(2000) == 0) {
+                store.close(handles[i]);
+                handles[i] = store.open();
+                engines[i] = new CalculatorEngine();
+                assertSame("reopened at step " + step, engines[i], handles[i]);
+            }
+        }
+    }
+
+    /**
+     * Pushes and pops across the inline stack and several page boundaries, checking every
+     * depth on the way.
+     */
+    @Test
+    public void stackSpillsAcrossPages() {
+        int depth = 4 * SessionStore.PAGE_VALUES + SessionStore.DEFAULT_INLINE_STACK + 3;
+        CalculatorEngine engine = new CalculatorEngine();
+        int handle = store.open();
+        for (int i = 0; i < depth; i++) {
+            engine.setNewValue(i + 0.5);
+            store.setNewValue(handle, i + 0.5);
+            press(engine, handle, Keypad.PUSH);
+            assertSame("pushed " + i, engine, handle);
+        }
+        for (int i = depth - 1; i >= 0; i--) {
+            press(engine, handle, Keypad.POP);
+            assertBits("popped " + i, i + 0.5, store.getCurrentValue(handle));
+            assertSame("popped " + i, engine, handle);
+        }
+        press(engine, handle, Keypad.POP);
+        assertSame("popped empty stack", engine, handle);
+    }
+
+    /**
+     * Slots and pages of closed sessions are reused, and reused ones start clean.
+     */
+    @Test
+    public void slotsAndPagesAreReused() {
+        int[] handles = new int[1000];
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < handles.length; i++) {
+                handles[i] = store.open();
+                assertEquals(0, store.getStackSize(handles[i]));
+                assertBits("fresh session", 0, store.getCurrentValue(handles[i]));
+                store.press(handles[i], KEYPAD.compile("7 push push push push push push push"));
+                for (int j = 0; j < 3 * SessionStore.PAGE_VALUES; j++) {
+                    store.press(handles[i], Keypad.PUSH);
+                }
+            }
+            long memory = store.getMemoryUsed();
+            for (int handle : handles) {
+                store.close(handle);
+            }
+            assertEquals(0, store.getSessions());
+            if (round > 0) {
+                assertEquals(memory, store.getMemoryUsed());
+            }
+        }
+        int handle = store.open();
+        store.close(handle);
+        try {
+            store.press(handle, 1);
+            fail("Closed handle was accepted.");
+        } catch (IllegalArgumentException expected) {
+            //closed
+        }
+    }
+
+    /**
+     * Long typed numbers, whose digits beyond {@link SessionStore#KEPT_DIGITS} are reduced to the
+     * sticky digit, get the same value as in the engine and as parsed by {@link Double}.
+     */
+    @Test
+    public void longNumbersRoundLikeEngine() {
+        Random random = new Random(5);
+        for (int t = 0; t < 5000; t++) {
+            StringBuilder number = new StringBuilder();
+            int length = 1 + random.nextInt(60);
+            int dot = random.nextInt(length + 1);
+            for (int i = 0; i < length; i++) {
+                if (i == dot) {
+                    number.append('.');
+                }
+                number.append(random.nextInt(10));
+            }
+            assertTyped(number.toString());
+        }
+        //2^53 + 1 is halfway between two doubles, only the sticky digit rounds it up
+        assertTyped("9007199254740993.000000000000000000001");
+        assertTyped("9007199254740993.000000000000000000000");
+    }
+
+    /**
+     * Types the number in an engine and in a session and compares the values.
+     *
+     * @param number the number
+     */
+    private void assertTyped(String number) {
+        CalculatorEngine engine = new CalculatorEngine();
+        int handle = store.open();
+        for (char c : number.toCharArray()) {
+            press(engine, handle, c == '.' ? Keypad.DOT : c - '0');
+        }
+        assertBits(number, Double.parseDouble(number), store.getCurrentValue(handle));
+        assertSame(number, engine, handle);
+        store.close(handle);
+    }
+}
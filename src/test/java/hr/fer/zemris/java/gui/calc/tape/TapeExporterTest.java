@@ -0,0 +1,168 @@
+package hr.fer.zemris.java.gui.calc.tape;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import hr.fer.zemris.java.gui.calc.engine.Keypad;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link ComputationTape} and {@link TapeExporter} on a tape which wrapped around.
+ *
+ * @author Boris
+ * @version 1.0
+ */
+public class TapeExporterTest {
+
+    /** Capacity of the tape. */
+    private static final int CAPACITY = 8;
+    /** Number of recorded entries. */
+    private static final int RECORDED = 21;
+    /** Code of a unary operator. */
+    private static final int SIN = Keypad.DEFAULT.code("sin");
+    /** Code of a binary operator. */
+    private static final int PLUS = Keypad.DEFAULT.code("+");
+
+    /** Folder of the exported files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Records {@link #RECORDED} entries: binary ones with even numbers, unary ones with odd
+     * numbers, and every fifth one with an unknown operator. Entry <code>k</code> has operands
+     * <code>k</code> and <code>k + 0.5</code> and result <code>-k</code>.
+     *
+     * @return the tape
+     */
+    private static ComputationTape tape() {
+        ComputationTape tape = new ComputationTape(CAPACITY);
+        for (int k = 0; k < RECORDED; k++) {
+            if (k % 2 == 0) {
+                tape.binary(operator(k), k, k + 0.5, -k);
+            } else {
+                tape.unary(operator(k), k, -k);
+            }
+        }
+        return tape;
+    }
+
+    /**
+     * @param index index of an entry of the wrapped tape
+     * @return number of the entry, counted from the first recorded one
+     */
+    private static int entry(int index) {
+        return RECORDED - CAPACITY + index;
+    }
+
+    /**
+     * @param k number of an entry
+     * @return keypad code of its operator
+     */
+    private static int operator(int k) {
+        return (k % 5 == 0) ? ComputationTape.UNKNOWN_OPERATOR : (k % 2 == 0) ? PLUS : SIN;
+    }
+
+    /**
+     * A wrapped tape keeps the latest entries, oldest first, and the total count.
+     */
+    @Test
+    public void wrappedTapeKeepsLatestEntries() {
+        ComputationTape tape = tape();
+        assertEquals(CAPACITY, tape.size());
+        assertEquals(RECORDED, tape.getCount());
+        for (int i = 0; i < CAPACITY; i++) {
+            int k = entry(i);
+            assertEquals(operator(k), tape.getOperator(i));
+            assertEquals(k, tape.getLeft(i), 0);
+            assertEquals((k % 2 == 0) ? k + 0.5 : Double.NaN, tape.getRight(i), 0);
+            assertEquals(-k, tape.getResult(i), 0);
+        }
+        try {
+            tape.getResult(CAPACITY);
+            fail("Entry beyond the size was returned.");
+        } catch (IndexOutOfBoundsException expected) {
+            //only the kept entries
+        }
+        ComputationTape copy = tape.copy();
+        tape.clear();
+        assertEquals(0, tape.size());
+        assertEquals(CAPACITY, copy.size());
+        assertEquals(-entry(0), copy.getResult(0), 0);
+    }
+
+    /**
+     * The binary export has the documented header and entries of the kept entries.
+     *
+     * @throws IOException if the file cannot be written or read
+     * @throws ExecutionException if the export fails
+     * @throws InterruptedException if interrupted while waiting for the export
+     */
+    @Test
+    public void binaryLayout() throws IOException, ExecutionException, InterruptedException {
+        ComputationTape tape = tape();
+        Path file = folder.getRoot().toPath().resolve("tape.bin");
+        try (TapeExporter exporter = new TapeExporter()) {
+            assertEquals(CAPACITY, exporter.export(tape, file, TapeExporter.Format.of(file))
+                .get().intValue());
+        }
+        assertEquals(TapeExporter.BINARY_HEADER + CAPACITY * TapeExporter.BINARY_ENTRY,
+            Files.size(file));
+        assertFalse(Files.exists(file.resolveSibling("tape.bin.tmp")));
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            assertEquals(TapeExporter.MAGIC, in.readInt());
+            assertEquals(TapeExporter.VERSION, in.readShort());
+            assertEquals(CAPACITY, in.readInt());
+            assertEquals(RECORDED, in.readLong());
+            for (int i = 0; i < CAPACITY; i++) {
+                int k = entry(i);
+                assertEquals(tape.getTime(i), in.readLong());
+                assertEquals(operator(k), in.readShort());
+                assertEquals(k, in.readDouble(), 0);
+                assertEquals((k % 2 == 0) ? k + 0.5 : Double.NaN, in.readDouble(), 0);
+                assertEquals(-k, in.readDouble(), 0);
+            }
+            assertEquals(-1, in.read());
+        }
+    }
+
+    /**
+     * The CSV export has a header and a line per kept entry, the right operand empty for unary
+     * operators and the operator empty if it is unknown.
+     *
+     * @throws IOException if the file cannot be written or read
+     */
+    @Test
+    public void csvLayout() throws IOException {
+        ComputationTape tape = tape();
+        Path file = folder.getRoot().toPath().resolve("tape.csv");
+        try (TapeExporter exporter = new TapeExporter()) {
+            exporter.write(tape, file, TapeExporter.Format.of(file));
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(1 + CAPACITY, lines.size());
+        assertEquals("time,operator,left,right,result", lines.get(0));
+        for (int i = 0; i < CAPACITY; i++) {
+            int k = entry(i);
+            String[] fields = lines.get(1 + i).split(",", -1);
+            assertEquals(lines.get(1 + i), 5, fields.length);
+            assertEquals(tape.getTime(i), Instant.parse(fields[0]).toEpochMilli());
+            String label = (operator(k) == ComputationTape.UNKNOWN_OPERATOR) ? ""
+                : Keypad.DEFAULT.label(operator(k));
+            assertEquals(label, fields[1]);
+            assertEquals(String.valueOf((double) k), fields[2]);
+            assertEquals((k % 2 == 0) ? String.valueOf(k + 0.5) : "", fields[3]);
+            assertEquals(String.valueOf((double) -k), fields[4]);
+        }
+    }
+}